@@ -0,0 +1,372 @@
+/**
+ * Mars Simulation Project
+ * ConfigCache.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.jdom.Attribute;
+import org.jdom.CDATA;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.Namespace;
+import org.jdom.Text;
+import org.jdom.input.SAXBuilder;
+import org.mars_sim.msp.core.ensemble.EnsembleCache;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * The ConfigCache class keeps a compiled copy of each configuration XML
+ * document in the user's mars-sim folder. A compiled document is the validated
+ * element tree written in a compact binary form, keyed by a hash of the XML
+ * file and its DTD, so it is read back without parsing or validating again as
+ * long as neither file has changed. Documents missing from the cache are
+ * parsed in parallel.
+ */
+final class ConfigCache {
+
+	/** default logger. */
+	private static Logger logger = Logger.getLogger(ConfigCache.class.getName());
+
+	/** The magic number at the start of a compiled document ("MSCC"). */
+	private static final int MAGIC = 0x4D534343;
+	/** The version of the compiled format. */
+	private static final int VERSION = 1;
+	/** The extension of a compiled document. */
+	private static final String EXTENSION = ".xmlc";
+
+	// Content tags
+	private static final int END = 0;
+	private static final int ELEMENT = 1;
+	private static final int TEXT = 2;
+	private static final int CDATA_TEXT = 3;
+
+	/** The cache directory. */
+	private static final File CACHE_DIR = new File(System.getProperty("user.home") + File.separator
+			+ Msg.getString("Simulation.defaultFolder") + File.separator + "cache");
+
+	private ConfigCache() {
+	}
+
+	/**
+	 * Loads configuration documents, from the cache where possible.
+	 *
+	 * @param names the names of the configuration files.
+	 * @return the documents by name.
+	 * @throws IOException   if a file cannot be read.
+	 * @throws JDOMException if a file cannot be parsed.
+	 */
+	static Map<String, Document> loadDocuments(String... names) throws IOException, JDOMException {
+		int threads = Math.max(1, Math.min(names.length, Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Document>> futures = new ArrayList<Future<Document>>();
+			for (final String name : names) {
+				futures.add(executor.submit(new Callable<Document>() {
+					@Override
+					public Document call() throws Exception {
+						return loadDocument(name);
+					}
+				}));
+			}
+
+			Map<String, Document> result = new LinkedHashMap<String, Document>();
+			for (int i = 0; i < names.length; i++) {
+				result.put(names[i], futures.get(i).get());
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading the configuration", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof JDOMException)
+				throw (JDOMException) cause;
+			throw new IOException(cause);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Loads a configuration document, from the cache if it is current.
+	 *
+	 * @param name the name of the configuration file.
+	 * @return the document.
+	 * @throws IOException   if the file cannot be read.
+	 * @throws JDOMException if the file cannot be parsed.
+	 */
+	static Document loadDocument(String name) throws IOException, JDOMException {
+		byte[] xml = readResource(SimulationConfig.CONF + name + SimulationConfig.XML);
+		if (xml == null)
+			throw new IOException(SimulationConfig.CONF + name + SimulationConfig.XML + " failed to load");
+		byte[] dtd = readResource(SimulationConfig.CONF + "dtd/" + name + ".dtd");
+		byte[] hash = hash(xml, dtd);
+
+		// The runs of an ensemble share what the first of them read
+		String key = ConfigCache.class.getName() + ":" + name + ":" + Base64.getEncoder().encodeToString(hash);
+		Document shared = (Document) EnsembleCache.get(key);
+		if (shared != null)
+			return (Document) shared.clone();
+
+		Document document = readOrParse(name, xml, hash);
+		EnsembleCache.put(key, document.clone());
+		return document;
+	}
+
+	/**
+	 * Reads the compiled document if it is current, or else parses the file and
+	 * compiles it.
+	 */
+	private static Document readOrParse(String name, byte[] xml, byte[] hash) throws IOException, JDOMException {
+		File file = new File(CACHE_DIR, name + EXTENSION);
+		if (file.exists()) {
+			try {
+				Document document = readCompiled(file, hash);
+				if (document != null)
+					return document;
+			} catch (IOException e) {
+				logger.fine("Ignoring the unreadable compiled " + file + " : " + e.getMessage());
+			}
+		}
+
+		SAXBuilder saxBuilder = new SAXBuilder(true);
+		saxBuilder.setEntityResolver(new ClasspathEntityResolver());
+		Document document = saxBuilder.build(new InputStreamReader(new ByteArrayInputStream(xml), "UTF-8"));
+
+		try {
+			writeCompiled(file, hash, document);
+		} catch (IOException e) {
+			logger.fine("Cannot write the compiled " + file + " : " + e.getMessage());
+		}
+		return document;
+	}
+
+	/**
+	 * Reads a compiled document if it was compiled from the same files.
+	 *
+	 * @return the document, or null if out of date.
+	 */
+	private static Document readCompiled(File file, byte[] hash) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readShort() != VERSION)
+				return null;
+			byte[] saved = new byte[in.readUnsignedByte()];
+			in.readFully(saved);
+			if (!Arrays.equals(saved, hash))
+				return null;
+			return readDocument(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes a compiled document. It is written to a temporary file first so
+	 * that simulations starting at the same time never read a partial file.
+	 */
+	private static void writeCompiled(File file, byte[] hash, Document document) throws IOException {
+		if (!CACHE_DIR.exists() && !CACHE_DIR.mkdirs())
+			throw new IOException("Cannot create " + CACHE_DIR);
+		File temp = File.createTempFile(file.getName(), ".tmp", CACHE_DIR);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeShort(VERSION);
+				out.writeByte(hash.length);
+				out.write(hash);
+				writeDocument(document, out);
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/**
+	 * Writes the element tree of a document.
+	 *
+	 * @param document the document.
+	 * @param out      the output stream.
+	 * @throws IOException if error writing.
+	 */
+	static void writeDocument(Document document, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		writeElement(document.getRootElement(), data, new HashMap<String, Integer>());
+		data.flush();
+	}
+
+	/**
+	 * Reads the element tree of a document.
+	 *
+	 * @param in the input stream.
+	 * @return the document.
+	 * @throws IOException if error reading.
+	 */
+	static Document readDocument(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readByte() != ELEMENT)
+			throw new StreamCorruptedException("No root element");
+		return new Document(readElement(data, new ArrayList<String>()));
+	}
+
+	private static void writeElement(Element element, DataOutputStream out, Map<String, Integer> strings)
+			throws IOException {
+		out.writeByte(ELEMENT);
+		writeString(element.getName(), out, strings);
+		writeString(element.getNamespacePrefix(), out, strings);
+		writeString(element.getNamespaceURI(), out, strings);
+
+		List<?> attributes = element.getAttributes();
+		out.writeShort(attributes.size());
+		for (Object o : attributes) {
+			Attribute attribute = (Attribute) o;
+			writeString(attribute.getName(), out, strings);
+			writeString(attribute.getNamespacePrefix(), out, strings);
+			writeString(attribute.getNamespaceURI(), out, strings);
+			writeString(attribute.getValue(), out, strings);
+		}
+
+		// Comments and processing instructions are not needed by the configs
+		for (Object o : element.getContent()) {
+			if (o instanceof Element) {
+				writeElement((Element) o, out, strings);
+			} else if (o instanceof Text) {
+				out.writeByte(o instanceof CDATA ? CDATA_TEXT : TEXT);
+				writeString(((Text) o).getText(), out, strings);
+			}
+		}
+		out.writeByte(END);
+	}
+
+	private static Element readElement(DataInputStream in, List<String> strings) throws IOException {
+		String name = readString(in, strings);
+		String prefix = readString(in, strings);
+		String uri = readString(in, strings);
+		Element element = uri.isEmpty() ? new Element(name) : new Element(name, prefix, uri);
+
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			String attributeName = readString(in, strings);
+			String attributePrefix = readString(in, strings);
+			String attributeUri = readString(in, strings);
+			String value = readString(in, strings);
+			if (attributeUri.isEmpty())
+				element.setAttribute(attributeName, value);
+			else
+				element.setAttribute(attributeName, value, Namespace.getNamespace(attributePrefix, attributeUri));
+		}
+
+		while (true) {
+			int tag = in.readByte();
+			if (tag == END)
+				return element;
+			else if (tag == ELEMENT)
+				element.addContent(readElement(in, strings));
+			else if (tag == TEXT)
+				element.addContent(new Text(readString(in, strings)));
+			else if (tag == CDATA_TEXT)
+				element.addContent(new CDATA(readString(in, strings)));
+			else
+				throw new StreamCorruptedException("Unknown tag " + tag);
+		}
+	}
+
+	/**
+	 * Writes a string, or its index if it has been written before.
+	 */
+	private static void writeString(String s, DataOutputStream out, Map<String, Integer> strings)
+			throws IOException {
+		Integer index = strings.get(s);
+		if (index != null) {
+			out.writeInt(index);
+		} else {
+			strings.put(s, strings.size());
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(-1 - bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(DataInputStream in, List<String> strings) throws IOException {
+		int index = in.readInt();
+		if (index >= 0)
+			return strings.get(index);
+		byte[] bytes = new byte[-1 - index];
+		in.readFully(bytes);
+		String s = new String(bytes, StandardCharsets.UTF_8);
+		strings.add(s);
+		return s;
+	}
+
+	/**
+	 * Reads a resource on the class path.
+	 *
+	 * @return the bytes, or null if not found.
+	 */
+	private static byte[] readResource(String path) throws IOException {
+		InputStream stream = ConfigCache.class.getResourceAsStream(path);
+		if (stream == null)
+			return null;
+		try {
+			return ByteStreams.toByteArray(stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Computes the hash the compiled document is keyed by.
+	 */
+	private static byte[] hash(byte[] xml, byte[] dtd) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(xml);
+			if (dtd != null)
+				digest.update(dtd);
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
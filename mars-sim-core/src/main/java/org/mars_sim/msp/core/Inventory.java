@@ -32,6 +32,8 @@ import org.mars_sim.msp.core.resource.ItemResource;
 import org.mars_sim.msp.core.resource.ItemResourceUtil;
 import org.mars_sim.msp.core.resource.PhaseType;
 import org.mars_sim.msp.core.resource.ResourceUtil;
+import org.mars_sim.msp.core.resource.SupplyDemandLedger;
+import org.mars_sim.msp.core.tool.SaveCodec.Restorable;
 
 /**
  * The Inventory class represents what a unit contains in terms of resources and
@@ -39,7 +41,7 @@ import org.mars_sim.msp.core.resource.ResourceUtil;
  * contains. TODO please reduce the textual error messages to absolute minimum
  * to aid in translation.
  */
-public class Inventory implements Serializable {
+public class Inventory implements Serializable, Restorable {
 
 	/** default serial id. */
 	private static final long serialVersionUID = 123L;
@@ -90,26 +92,8 @@ public class Inventory implements Serializable {
 	private transient double totalInventoryMassCache;
 	private transient boolean totalInventoryMassCacheDirty = true;
 
-	// TODO: Switch to using parallel operation in ConcurrentHashMap instead of
-	// HashMap.
-	// see https://dzone.com/articles/concurrenthashmap-in-java8
-	// see https://dzone.com/articles/how-concurrenthashmap-works-internally-in-java
-	// see https://dzone.com/articles/concurrenthashmap-isnt-always-enough
-
-	// Add 3 amount resource demand maps
-	private Map<String, Integer> amountDemandTotalRequestMap = new HashMap<String, Integer>();
-	private Map<String, Integer> amountDemandMetRequestMap = new HashMap<String, Integer>();
-	private Map<String, Double> amountDemandMap = new HashMap<String, Double>();
-	// Add 2 amount resource supply maps
-	private Map<String, Double> amountSupplyMap = new HashMap<String, Double>();
-	private Map<String, Integer> amountSupplyRequestMap = new HashMap<String, Integer>();
-	// Add 2 item resource demand maps
-	private Map<String, Integer> itemDemandMetRequestMap = new HashMap<String, Integer>();
-	private Map<String, Integer> itemDemandMap = new HashMap<String, Integer>();
-	// Add 2 item resource supply maps
-	// private Map<String, Integer> itemSupplyMap = new HashMap<String, Integer>();
-	// private Map<String, Integer> itemSupplyRequestMap = new HashMap<String,
-	// Integer>();
+	/** The supply and demand ledger of resources. */
+	private SupplyDemandLedger ledger = null;
 
 	private static MarsSurface marsSurface;
 
@@ -124,195 +108,120 @@ public class Inventory implements Serializable {
 //		marsSurface = Simulation.instance().getMars().getMarsSurface();
 	}
 
+	/**
+	 * Gets the supply and demand ledger, creating it if necessary.
+	 * 
+	 * @return ledger
+	 */
+	private SupplyDemandLedger getLedger() {
+		if (ledger == null)
+			ledger = new SupplyDemandLedger();
+		return ledger;
+	}
+
 	public int getAmountSupplyRequest(String resourceName) {
-		int result;
-		String r = resourceName.toLowerCase();
+		return getAmountSupplyRequest(findAmountResourceID(resourceName));
+	}
 
-		if (amountSupplyRequestMap.containsKey(r)) {
-			result = amountSupplyRequestMap.get(r);
-		} else {
-			amountSupplyRequestMap.put(r, 0);
-			result = 0;
-		}
-		return result;
+	public int getAmountSupplyRequest(int resource) {
+		return (ledger == null) ? 0 : ledger.getAmountSupplyRequest(resource);
 	}
 
 	public double getAmountSupplyAmount(String resourceName) {
-		double result;
-		String r = resourceName.toLowerCase();
+		return getAmountSupplyAmount(findAmountResourceID(resourceName));
+	}
 
-		if (amountSupplyMap.containsKey(r)) {
-			result = amountSupplyMap.get(r);
-		} else {
-			amountSupplyMap.put(r, 0.0);
-			result = 0.0;
-		}
-		return result;
+	public double getAmountSupplyAmount(int resource) {
+		return (ledger == null) ? 0D : ledger.getAmountSupply(resource);
 	}
 
 	public void addAmountSupplyAmount(int resource, double amount) {
-		String r = ResourceUtil.findAmountResource(resource).getName();
-
-		if (amountSupplyMap.containsKey(r)) {
-
-			double oldAmount = amountSupplyMap.get(r);
-			amountSupplyMap.put(r, amount + oldAmount);
-
-		} else {
-			amountSupplyMap.put(r, amount);
-		}
-
-		addAmountSupplyRequest(r, amount);
+		getLedger().addAmountSupply(resource, amount);
 	}
 
 	public void addAmountSupplyAmount(AmountResource resource, double amount) {
-		String r = resource.getName();
-
-		if (amountSupplyMap.containsKey(r)) {
-
-			double oldAmount = amountSupplyMap.get(r);
-			amountSupplyMap.put(r, amount + oldAmount);
-
-		} else {
-			amountSupplyMap.put(r, amount);
-		}
-
-		addAmountSupplyRequest(resource, amount);
-	}
-
-	public void addAmountSupplyRequest(AmountResource resource, double amount) {
-		String r = resource.getName();
-
-		if (amountSupplyRequestMap.containsKey(r)) {
-			int oldNum = amountSupplyRequestMap.get(r);
-			amountSupplyRequestMap.put(r, oldNum + 1);
-		}
-
-		else {
-			amountSupplyRequestMap.put(r, 1);
-		}
-	}
-
-	public void addAmountSupplyRequest(String r, double amount) {
-
-		if (amountSupplyRequestMap.containsKey(r)) {
-			int oldNum = amountSupplyRequestMap.get(r);
-			amountSupplyRequestMap.put(r, oldNum + 1);
-		}
-
-		else {
-			amountSupplyRequestMap.put(r, 1);
-		}
+		getLedger().addAmountSupply(resource.getID(), amount);
 	}
 
 	public double getAmountDemandAmount(String resourceName) {
-		double result;
-		String r = resourceName.toLowerCase();
+		return getAmountDemandAmount(findAmountResourceID(resourceName));
+	}
 
-		if (amountDemandMap.containsKey(r)) {
-			result = amountDemandMap.get(r);
-		} else {
-			amountDemandMap.put(r, 0.0);
-			result = 0.0;
-		}
-		return result;
+	public double getAmountDemandAmount(int resource) {
+		return (ledger == null) ? 0D : ledger.getAmountDemand(resource);
 	}
 
 	public int getAmountDemandTotalRequest(String resourceName) {
-		int result;
-		String r = resourceName.toLowerCase();
+		return getAmountDemandTotalRequest(findAmountResourceID(resourceName));
+	}
 
-		if (amountDemandTotalRequestMap.containsKey(r)) {
-			result = amountDemandTotalRequestMap.get(r);
-		} else {
-			amountDemandTotalRequestMap.put(r, 0);
-			result = 0;
-		}
-		return result;
+	public int getAmountDemandTotalRequest(int resource) {
+		return (ledger == null) ? 0 : ledger.getAmountDemandTotalRequest(resource);
 	}
 
 	public int getAmountDemandMetRequest(String resourceName) {
-		int result;
-		String r = resourceName.toLowerCase();
-
-		if (amountDemandMetRequestMap.containsKey(r)) {
-			result = amountDemandMetRequestMap.get(r);
-		} else {
-			amountDemandMetRequestMap.put(r, 0);
-			result = 0;
-		}
+		return getAmountDemandMetRequest(findAmountResourceID(resourceName));
+	}
 
-		return result;
+	public int getAmountDemandMetRequest(int resource) {
+		return (ledger == null) ? 0 : ledger.getAmountDemandMetRequest(resource);
 	}
 
-	public int getAmountDemandAmountMapSize() {
-		return amountDemandMap.size();
+	public int getItemDemand(int resource) {
+		return (ledger == null) ? 0 : ledger.getItemDemand(resource);
 	}
 
-	public int getDemandTotalRequestMapSize() {
-		return amountDemandTotalRequestMap.size();
+	public int getAmountDemandAmountMapSize() {
+		return (ledger == null) ? 0 : ledger.getNumAmountDemand();
 	}
 
-	public int getAmountDemandMetRequestMapSize() {
-		return amountDemandMetRequestMap.size();
+	/**
+	 * Finds the id of an amount resource by its name.
+	 * 
+	 * @param resourceName the name of the resource
+	 * @return the id or -1 if not found
+	 */
+	private static int findAmountResourceID(String resourceName) {
+		AmountResource ar = ResourceUtil.findAmountResource(resourceName);
+		return (ar == null) ? -1 : ar.getID();
 	}
 
 	public void compactAmountSupplyAmountMap(int sol) {
-		compactMap(amountSupplyMap, sol);
+		if (ledger != null)
+			ledger.compactAmountSupply(sol);
 	}
 
 	public void clearAmountSupplyRequestMap() {
-		amountSupplyRequestMap.clear();
+		if (ledger != null)
+			ledger.clearAmountSupplyRequest();
 	}
 
 	public void clearAmountDemandAmountMap() {
-		amountDemandMap.clear();
+		if (ledger != null)
+			ledger.clearAmountDemand();
 	}
 
 	public void compactAmountDemandAmountMap(int sol) {
-		compactMap(amountDemandMap, sol);
-	}
-
-	public void compactMap(Map<String, Double> amountMap, int sol) {
-
-		Map<String, Double> map = amountMap;
-
-		for (Map.Entry<String, Double> entry : map.entrySet()) {
-			String key = entry.getKey();
-			double value = entry.getValue();
-			value = value / sol;
-			map.put(key, value);
-		}
+		if (ledger != null)
+			ledger.compactAmountDemand(sol);
 	}
 
 	public void clearAmountDemandTotalRequestMap() {
-		amountDemandTotalRequestMap.clear();
+		if (ledger != null)
+			ledger.clearAmountDemandTotalRequest();
 	}
 
 	public void clearAmountDemandMetRequestMap() {
-		amountDemandMetRequestMap.clear();
+		if (ledger != null)
+			ledger.clearAmountDemandMetRequest();
 	}
 
 	public void addAmountDemandTotalRequest(AmountResource resource) {
-		String r = resource.getName();
-
-		if (amountDemandTotalRequestMap.containsKey(r)) {
-
-			int oldNum = amountDemandTotalRequestMap.get(r);
-			amountDemandTotalRequestMap.put(r, oldNum + 1);
-		} else
-			amountDemandTotalRequestMap.put(r, 1);
+		getLedger().addAmountDemandTotalRequest(resource.getID());
 	}
 
 	public void addAmountDemandTotalRequest(int resource) {
-		String r = ResourceUtil.findAmountResource(resource).getName();
-
-		if (amountDemandTotalRequestMap.containsKey(r)) {
-
-			int oldNum = amountDemandTotalRequestMap.get(r);
-			amountDemandTotalRequestMap.put(r, oldNum + 1);
-		} else
-			amountDemandTotalRequestMap.put(r, 1);
+		getLedger().addAmountDemandTotalRequest(resource);
 	}
 
 	/**
@@ -323,18 +232,7 @@ public class Inventory implements Serializable {
 	 * @param amount
 	 */
 	public void addAmountDemand(AmountResource resource, double amount) {
-		String r = resource.getName();
-
-		if (amountDemandMap.containsKey(r)) {
-
-			double oldAmount = amountDemandMap.get(r);
-			amountDemandMap.put(r, amount + oldAmount);
-
-		} else {
-			amountDemandMap.put(r, amount);
-		}
-
-		addAmountDemandMetRequest(resource, amount);
+		getLedger().addAmountDemand(resource.getID(), amount);
 	}
 
 	/**
@@ -345,72 +243,15 @@ public class Inventory implements Serializable {
 	 * @param amount
 	 */
 	public void addAmountDemand(int resource, double amount) {
-		String r = ResourceUtil.findAmountResource(resource).getName();
-
-		if (amountDemandMap.containsKey(r)) {
-
-			double oldAmount = amountDemandMap.get(r);
-			amountDemandMap.put(r, amount + oldAmount);
-
-		} else {
-			amountDemandMap.put(r, amount);
-		}
-
-		addAmountDemandMetRequest(resource, amount);
+		getLedger().addAmountDemand(resource, amount);
 	}
 
 	public void addItemDemand(ItemResource resource, int number) {
-		String r = resource.getName();
-
-		if (itemDemandMap.containsKey(r)) {
-
-			int oldNumber = itemDemandMap.get(r);
-			itemDemandMap.put(r, number + oldNumber);
-
-		} else {
-			itemDemandMap.put(r, number);
-		}
-
-		addItemDemandMetRequest(resource, number);
-	}
-
-	public void addAmountDemandMetRequest(AmountResource resource, double amount) {
-		String r = resource.getName();
-
-		if (amountDemandMetRequestMap.containsKey(r)) {
-			int oldNum = amountDemandMetRequestMap.get(r);
-			amountDemandMetRequestMap.put(r, oldNum + 1);
-		}
-
-		else {
-			amountDemandMetRequestMap.put(r, 1);
-		}
-	}
-
-	public void addAmountDemandMetRequest(int resource, double amount) {
-		String r = ResourceUtil.findAmountResource(resource).getName();
-
-		if (amountDemandMetRequestMap.containsKey(r)) {
-			int oldNum = amountDemandMetRequestMap.get(r);
-			amountDemandMetRequestMap.put(r, oldNum + 1);
-		}
-
-		else {
-			amountDemandMetRequestMap.put(r, 1);
-		}
+		getLedger().addItemDemand(resource.getID(), number);
 	}
 
-	public void addItemDemandMetRequest(ItemResource resource, double number) {
-		String r = resource.getName();
-
-		if (itemDemandMetRequestMap.containsKey(r)) {
-			int oldNum = itemDemandMetRequestMap.get(r);
-			itemDemandMetRequestMap.put(r, oldNum + 1);
-		}
-
-		else {
-			itemDemandMetRequestMap.put(r, 1);
-		}
+	public void addItemDemand(int resource, int number) {
+		getLedger().addItemDemand(resource, number);
 	}
 
 	/**
@@ -2598,6 +2439,11 @@ public class Inventory implements Serializable {
 
 		in.defaultReadObject();
 
+		restoreTransientData();
+	}
+
+	@Override
+	public void restoreTransientData() {
 		// Initialize transient variables that need it.
 		allStoredAmountResourcesCacheDirty = true;
 		totalAmountResourcesStoredCacheDirty = true;
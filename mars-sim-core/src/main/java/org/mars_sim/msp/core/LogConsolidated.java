@@ -7,10 +7,21 @@
 
 package org.mars_sim.msp.core;
 
-import java.util.HashMap;
+import java.lang.StackWalker.StackFrame;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 import com.google.common.flogger.FluentLogger;
 //  See https://stackoverflow.com/questions/9132193/log4j-standard-way-to-prevent-repetitive-log-messages#37619797
@@ -24,21 +35,58 @@ public class LogConsolidated {
 	/* Google fluent logger. */
 	private static final FluentLogger flogger = FluentLogger.forEnclosingClass();
 	
-	private static HashMap<String, TimeAndCount> lastLogged = new HashMap<>();
+	/**
+	 * The call sites found by walking the stack, by class, method name, and line
+	 * number and bytecode index together.
+	 */
+	private static final ClassValue<Map<String, Map<Long, Site>>> callSites = new ClassValue<Map<String, Map<Long, Site>>>() {
+		@Override
+		protected Map<String, Map<Long, Site>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	/** Walks only as far as the frame calling into this class. */
+	private static final StackWalker walker = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+	private static final Function<Stream<StackFrame>, Optional<StackFrame>> findCaller = frames -> frames
+			.filter(f -> f.getDeclaringClass() != LogConsolidated.class && f.getDeclaringClass() != Site.class)
+			.findFirst();
+
+	/** The records waiting to be written, with the logger of each. */
+	private static final BlockingQueue<Object[]> pending = new ArrayBlockingQueue<>(4096);
 
 	private static final String OPEN_BRACKET = "[x";
 	private static final String CLOSED_BRACKET = "] ";
 	private static final String COLON = " : ";
-	private static final String COLON_2 = ":";
-	private static final String ONCE = "[x1] ";
-	private static final String QUESTION = "?";
 	private static final String PERIOD = ".";
 
+	private static final Thread appender = new Thread(LogConsolidated::drain, "log-appender");
+	private static final Thread flusher = new Thread(LogConsolidated::flush, "log-flush");
+
+	static {
+		appender.setDaemon(true);
+		appender.start();
+		// Write out what is left when the simulation exits
+		Runtime.getRuntime().addShutdownHook(flusher);
+	}
+
 	// private static Logger logger =
 	// Logger.getLogger(LogConsolidated.class.getName());
 	// private static java.util.logging.Logger logj =
 	// java.util.logging.Logger.getLogger(LogConsolidated.class.getName());
 
+	/**
+	 * Registers a call site. A hot path should keep the site in a static field and
+	 * log through it, which skips looking up where the call comes from.
+	 * 
+	 * @param logger     Where to log.
+	 * @param sourceName The name of the class logging.
+	 * @return the call site.
+	 */
+	public static Site site(Logger logger, String sourceName) {
+		return new Site(logger, sourceName);
+	}
+
 	/**
 	 * Logs given <code>message</code> to given <code>logger</code> as long as:
 	 * <ul>
@@ -59,36 +107,47 @@ public class LogConsolidated {
 	 */
 	public static void log(Logger logger, Level level, long timeBetweenLogs, String sourceName, String message,
 			Throwable t) {
-		long dTime = timeBetweenLogs;
-		String className = sourceName.substring(sourceName.lastIndexOf(PERIOD) + 1, sourceName.length());
-
-//		if (logger.isEnabledFor(level)) {
-		String uniqueIdentifier = getFileAndLine();
-		TimeAndCount lastTimeAndCount = lastLogged.get(uniqueIdentifier);
-		if (lastTimeAndCount != null) {
-			synchronized (lastTimeAndCount) {
-				long now = System.currentTimeMillis();
-				if (now - lastTimeAndCount.startTime < dTime) {
-					// Increment count only since the message in the same and is within the time prescribed
-					lastTimeAndCount.count++;
-					return;
-				} else {
-					// Print the log statement with counts
-					log(logger, level,
-							OPEN_BRACKET + lastTimeAndCount.count + CLOSED_BRACKET + className + COLON + message, t);
-				}
-			}
-		}
+		if (logger.isLoggable(level))
+			getCallSite(sourceName).log(logger, level, timeBetweenLogs, message, null, t);
+	}
 
-		else {
-			// Print the log statement
-			log(logger, level, ONCE + className + COLON + message, t);
-		}
+	/**
+	 * Logs a message as {@link #log(Logger, Level, long, String, String, Throwable)}
+	 * does, building it only if it is written.
+	 * 
+	 * @param logger          Where to log.
+	 * @param level           Level to log.
+	 * @param timeBetweenLogs Milliseconds to wait between similar log messages.
+	 * @param message         Builds the message to log.
+	 * @param t               Can be null. Will log stack trace if not null.
+	 */
+	public static void log(Logger logger, Level level, long timeBetweenLogs, String sourceName,
+			Supplier<String> message, Throwable t) {
+		if (logger.isLoggable(level))
+			getCallSite(sourceName).log(logger, level, timeBetweenLogs, null, message, t);
+	}
 
-		// Register the message
-		lastLogged.put(uniqueIdentifier, new TimeAndCount());
+	/**
+	 * Gets the site of the call into this class. The stack is walked only down
+	 * to the calling frame.
+	 */
+	private static Site getCallSite(String sourceName) {
+		StackFrame frame = walker.walk(findCaller).orElse(null);
+		if (frame == null)
+			return new Site(null, sourceName);
+		// A bytecode index alone is shared by the calls of different methods
+		Map<Long, Site> sites = callSites.get(frame.getDeclaringClass()).computeIfAbsent(frame.getMethodName(),
+				k -> new ConcurrentHashMap<>());
+		Long index = (long) frame.getLineNumber() << 32 | frame.getByteCodeIndex();
+		Site site = sites.get(index);
+		if (site == null) {
+			Site newSite = new Site(null, sourceName);
+			site = sites.putIfAbsent(index, newSite);
+			if (site == null)
+				site = newSite;
+		}
+		return site;
 	}
-//	}
 
 //	public static void go(Level level, int timeBetweenLogs, StringBuffer sb) {
 //		flogger.at(level).atMostEvery(timeBetweenLogs, TimeUnit.SECONDS).log(sb.toString());
@@ -113,53 +172,132 @@ public class LogConsolidated {
 //	}
 	
 	/**
-	 * Returns the line
-	 * 
-	 * @return
+	 * Hands a record to the appender thread. If the appender has fallen behind the
+	 * record is written on the calling thread rather than dropped.
+	 */
+	private static void write(Logger logger, Level level, String sourceName, String message, Throwable t) {
+		LogRecord record = new LogRecord(level, message);
+		record.setLoggerName(logger.getName());
+		// Set before the record changes thread, or the caller would be looked up there
+		record.setSourceClassName(sourceName);
+		record.setSourceMethodName(null);
+		record.setThrown(t);
+		if (!pending.offer(new Object[] { logger, record }))
+			logger.log(record);
+	}
+
+	/**
+	 * Writes the records as they come in.
 	 */
-	private static String getFileAndLine() {
-		StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-		boolean enteredLogConsolidated = false;
-		for (StackTraceElement ste : stackTrace) {
-			if (ste.getClassName().equals(LogConsolidated.class.getName())) {
-				enteredLogConsolidated = true;
-			} else if (enteredLogConsolidated) {
-				// We have now file/line before entering LogConsolidated.
-				return ste.getFileName() + COLON_2 + ste.getLineNumber();
+	private static void drain() {
+		while (true) {
+			try {
+				Object[] entry = pending.take();
+				((Logger) entry[0]).log((LogRecord) entry[1]);
+			} catch (InterruptedException e) {
+				return;
+			} catch (RuntimeException e) {
+				// A failing handler must not stop the appender
+				e.printStackTrace(System.err);
 			}
 		}
-		return QUESTION;
 	}
 
-	private static void log(Logger logger, Level level, String message, Throwable t) {
-
-//    	java.util.logging.Level l2 = null;
-//    	if (level == Level.INFO)
-//    		l2 =  java.util.logging.Level.INFO;
-//    	else if (level == Level.WARN || level == Level.ERROR)
-//    		l2 =  java.util.logging.Level.WARNING;
-//    	else if (level == Level.FATAL)
-//    		l2 =  java.util.logging.Level.SEVERE;
-
-		if (t == null) {
-			logger.log(level, message);
-
-		} else {
-			logger.log(level, message, t);
+	/**
+	 * Writes the records still waiting.
+	 */
+	static void flush() {
+		Object[] entry;
+		while ((entry = pending.poll()) != null) {
+			((Logger) entry[0]).log((LogRecord) entry[1]);
 		}
+	}
 
+	/**
+	 * Stops the appender thread and writes the records still waiting. Only needed
+	 * when the classes of the simulation are to be unloaded, since the thread and
+	 * the shutdown hook would otherwise keep them.
+	 */
+	public static void shutdown() {
+		appender.interrupt();
+		try {
+			appender.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(flusher);
+		} catch (IllegalStateException e) {
+			// Already shutting down
+		}
+		flush();
 	}
 
 	/**
-	 * TimeAndCount keeps track of the between time and the number of times the message has appeared
+	 * Site is a place that logs a message. It keeps the time the message was last
+	 * written and how many times it has been skipped since. A skipped message
+	 * costs a clock read and a striped counter increment, so threads logging from
+	 * the same site do not contend.
 	 */
-	private static class TimeAndCount {
-		protected long startTime;
-		protected int count;
+	public static final class Site {
+
+		private final Logger logger;
+		private final String sourceName;
+		private final String className;
+		/** The time the message was last written, or {@link Long#MIN_VALUE} if never. */
+		private final AtomicLong lastTime = new AtomicLong(Long.MIN_VALUE);
+		/** The number of times the message was skipped since last written. */
+		private final LongAdder skipped = new LongAdder();
+
+		private Site(Logger logger, String sourceName) {
+			this.logger = logger;
+			this.sourceName = sourceName;
+			this.className = sourceName.substring(sourceName.lastIndexOf(PERIOD) + 1, sourceName.length());
+		}
+
+		/**
+		 * Logs a message unless one was logged from this site within the past
+		 * <code>timeBetweenLogs</code>.
+		 * 
+		 * @param level           Level to log.
+		 * @param timeBetweenLogs Milliseconds to wait between similar log messages.
+		 * @param message         The actual message to log.
+		 * @param t               Can be null. Will log stack trace if not null.
+		 */
+		public void log(Level level, long timeBetweenLogs, String message, Throwable t) {
+			if (logger.isLoggable(level))
+				log(logger, level, timeBetweenLogs, message, null, t);
+		}
+
+		/**
+		 * Logs a message unless one was logged from this site within the past
+		 * <code>timeBetweenLogs</code>, building it only if it is written.
+		 * 
+		 * @param level           Level to log.
+		 * @param timeBetweenLogs Milliseconds to wait between similar log messages.
+		 * @param message         Builds the message to log.
+		 * @param t               Can be null. Will log stack trace if not null.
+		 */
+		public void log(Level level, long timeBetweenLogs, Supplier<String> message, Throwable t) {
+			if (logger.isLoggable(level))
+				log(logger, level, timeBetweenLogs, null, message, t);
+		}
+
+		private void log(Logger logger, Level level, long timeBetweenLogs, String message,
+				Supplier<String> supplier, Throwable t) {
+			long now = System.currentTimeMillis();
+			long last = lastTime.get();
+			// Only one thread gets to write the message once the time has passed
+			if ((last != Long.MIN_VALUE && now - last < timeBetweenLogs) || !lastTime.compareAndSet(last, now)) {
+				skipped.increment();
+				return;
+			}
 
-		TimeAndCount() {
-			this.startTime = System.currentTimeMillis();
-			this.count = 1;
+			long count = skipped.sumThenReset() + 1;
+			if (supplier != null)
+				message = supplier.get();
+			write(logger, level, sourceName,
+					OPEN_BRACKET + count + CLOSED_BRACKET + className + COLON + message, t);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -20,8 +20,8 @@ import java.io.InputStream;
 import java.io.InvalidObjectException;
 import java.io.NotActiveException;
 import java.io.NotSerializableException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.ObjectStreamException;
 import java.io.OptionalDataException;
 import java.io.Serializable;
@@ -60,6 +60,7 @@ import org.mars_sim.msp.core.person.Role;
 import org.mars_sim.msp.core.person.ai.Mind;
 import org.mars_sim.msp.core.person.ai.mission.Mission;
 import org.mars_sim.msp.core.person.ai.mission.MissionManager;
+import org.mars_sim.msp.core.person.ai.mission.TradeProfitMatrix;
 import org.mars_sim.msp.core.person.ai.social.RelationshipManager;
 import org.mars_sim.msp.core.person.ai.task.EVAOperation;
 import org.mars_sim.msp.core.person.ai.task.LoadVehicleGarage;
@@ -110,10 +111,14 @@ import org.mars_sim.msp.core.time.EarthClock;
 import org.mars_sim.msp.core.time.MarsClock;
 import org.mars_sim.msp.core.time.MasterClock;
 import org.mars_sim.msp.core.time.SystemDateTime;
+import org.mars_sim.msp.core.time.TimeRatioGovernor;
 import org.mars_sim.msp.core.time.UpTimer;
 import org.mars_sim.msp.core.tool.CheckSerializedSize;
+import org.mars_sim.msp.core.tool.SaveCodec;
+import org.mars_sim.msp.core.tool.SaveJournal;
 import org.mars_sim.msp.core.vehicle.GroundVehicle;
 import org.mars_sim.msp.core.vehicle.Rover;
+import org.mars_sim.msp.core.vehicle.RoutePlanner;
 import org.mars_sim.msp.core.vehicle.Vehicle;
 import org.tukaani.xz.FilterOptions;
 import org.tukaani.xz.LZMA2Options;
@@ -237,6 +242,14 @@ public class Simulation implements ClockListener, Serializable {
 	private transient ExecutorService clockThreadExecutor;
 
 	private transient ExecutorService simExecutor;
+	/** The journal of the saves made between checkpoints. */
+	private transient SaveJournal journal;
+	/** Held during a clock pulse, so the state is taken between two pulses. */
+	private transient final Object stateLock = new Object();
+	/** The estimated trade profits between settlements. */
+	private transient volatile TradeProfitMatrix tradeProfitMatrix;
+	/** The planner of ground vehicle routes. */
+	private transient volatile RoutePlanner routePlanner;
 
 	// Intransient data members (stored in save file)
 	/** Planet Mars. */
@@ -414,6 +427,8 @@ public class Simulation implements ClockListener, Serializable {
 		creditManager = new CreditManager();
 		scientificStudyManager = new ScientificStudyManager();
 		transportManager = new TransportManager();
+		tradeProfitMatrix = new TradeProfitMatrix();
+		routePlanner = new RoutePlanner(mars.getSurfaceFeatures().getTerrainElevation());
 
 		// ResourceUtil.getInstance().initializeNewSim();
 		// ResourceUtil.printID();
@@ -625,7 +640,7 @@ public class Simulation implements ClockListener, Serializable {
 	    XZInputStream xzin = null;
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 	    InputStream is = null;
-	    ObjectInputStream ois = null;
+	    ObjectInput ois = null;
 
 		try {
 			in = new FileInputStream(file);
@@ -649,25 +664,12 @@ public class Simulation implements ClockListener, Serializable {
 
 //			is = new ByteArrayInputStream(baos.toByteArray());
 //			ois = new ObjectInputStream(is);
-			ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+			// Read a binary save, or an older save made with Java serialization
+			// Apply the journal written since the checkpoint, if any
+			ois = SaveCodec.openInput(getJournal().load(file, baos.toByteArray()));
 
 			// Load intransient objects.
-			SimulationConfig.setInstance((SimulationConfig) ois.readObject());		
-			ResourceUtil.setInstance((ResourceUtil) ois.readObject());
-
-			// Load remaining serialized objects
-			malfunctionFactory = (MalfunctionFactory) ois.readObject();
-			mars = (Mars) ois.readObject();
-			mars.initializeTransientData();
-			missionManager = (MissionManager) ois.readObject();
-			medicalManager = (MedicalManager) ois.readObject();
-			scientificStudyManager = (ScientificStudyManager) ois.readObject();
-			transportManager = (TransportManager) ois.readObject();
-			creditManager = (CreditManager) ois.readObject();
-			eventManager = (HistoricalEventManager) ois.readObject();
-			relationshipManager = (RelationshipManager) ois.readObject();
-			unitManager = (UnitManager) ois.readObject();
-			masterClock = (MasterClock) ois.readObject();
+			readState(ois);
 		
 			logger.config("    Martian Date/Time Stamp : " + masterClock.getMarsClock().getDateTimeStamp());
 			logger.config(" --------------------------------------------------------------------");			
@@ -761,6 +763,85 @@ public class Simulation implements ClockListener, Serializable {
 
     }
     
+	/**
+	 * Writes the intransient objects of the simulation.
+	 */
+	private void writeState(ObjectOutput oos) throws IOException {
+		oos.writeObject(SimulationConfig.instance());
+		oos.writeObject(ResourceUtil.getInstance());
+		oos.writeObject(malfunctionFactory);
+		oos.writeObject(mars);
+		oos.writeObject(missionManager);
+		oos.writeObject(medicalManager);
+		oos.writeObject(scientificStudyManager);
+		oos.writeObject(transportManager);
+		oos.writeObject(creditManager);
+		oos.writeObject(eventManager);
+		oos.writeObject(relationshipManager);
+		oos.writeObject(unitManager);
+		oos.writeObject(masterClock);
+	}
+
+	/**
+	 * Reads the intransient objects written by {@link #writeState}.
+	 */
+	private void readState(ObjectInput ois) throws IOException, ClassNotFoundException {
+		SimulationConfig.setInstance((SimulationConfig) ois.readObject());		
+		ResourceUtil.setInstance((ResourceUtil) ois.readObject());
+
+		// Load remaining serialized objects
+		malfunctionFactory = (MalfunctionFactory) ois.readObject();
+		mars = (Mars) ois.readObject();
+		mars.initializeTransientData();
+		missionManager = (MissionManager) ois.readObject();
+		medicalManager = (MedicalManager) ois.readObject();
+		scientificStudyManager = (ScientificStudyManager) ois.readObject();
+		transportManager = (TransportManager) ois.readObject();
+		creditManager = (CreditManager) ois.readObject();
+		eventManager = (HistoricalEventManager) ois.readObject();
+		relationshipManager = (RelationshipManager) ois.readObject();
+		unitManager = (UnitManager) ois.readObject();
+		masterClock = (MasterClock) ois.readObject();
+	}
+
+	/**
+	 * Writes the state of the simulation to memory, as a save does but without
+	 * compression or a file. The state is taken between two clock pulses.
+	 * 
+	 * @return the state
+	 * @throws IOException if an object cannot be written
+	 */
+	public byte[] saveState() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		synchronized (stateLock) {
+			try (ObjectOutput oos = new SaveCodec.Writer(baos)) {
+				writeState(oos);
+			}
+		}
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Replaces the state of the simulation with one written by
+	 * {@link #saveState()}. The clock is not started.
+	 * 
+	 * @param state the state
+	 * @throws IOException            if the state cannot be read
+	 * @throws ClassNotFoundException if a class of the state is missing
+	 */
+	public void loadState(byte[] state) throws IOException, ClassNotFoundException {
+		isUpdating = true;
+		synchronized (stateLock) {
+			try (ObjectInput ois = SaveCodec.openInput(state)) {
+				readState(ois);
+			}
+			initialSimulationCreated = true;
+			reinitializeInstances();
+			ut = masterClock.getUpTimer();
+		}
+		isUpdating = false;
+	}
+
     /**
      * Computes the size of the file
      * 
@@ -836,6 +917,14 @@ public class Simulation implements ClockListener, Serializable {
 		ResourceUtil.getInstance().justReloaded();
 		// Re-initialize the MarsSurface instance
 		unitManager.setMarsSurface();
+		// The trade profits of the replaced settlements are no longer valid
+		if (tradeProfitMatrix != null)
+			tradeProfitMatrix.destroy();
+		tradeProfitMatrix = new TradeProfitMatrix();
+		// Plan routes over the loaded terrain
+		if (routePlanner != null)
+			routePlanner.destroy();
+		routePlanner = new RoutePlanner(mars.getSurfaceFeatures().getTerrainElevation());
 		// Re-initialize the Simulation instance
 		MasterClock.justReloaded(this);					
 		// Re-initialize the Mars instance
@@ -1024,8 +1113,9 @@ public class Simulation implements ClockListener, Serializable {
 				fileSys = FileSystems.getDefault();
 				destPath = fileSys.getPath(backupFile.getPath());
 				srcPath = fileSys.getPath(file.getPath());
-				// Backup the existing default.sim
+				// Backup the existing default.sim and its journal
 				Files.move(srcPath, destPath, StandardCopyOption.REPLACE_EXISTING);
+				SaveJournal.move(file, backupFile);
 			}
 
 			logger.config("Saving the simulation as " + DEFAULT_FILE + DEFAULT_EXTENSION + ".");
@@ -1047,12 +1137,15 @@ public class Simulation implements ClockListener, Serializable {
 
 			file = new File(DEFAULT_DIR, DEFAULT_FILE + DEFAULT_EXTENSION);
 
-			if (file.exists() && !file.isDirectory()) {
+			// An autosave between checkpoints is appended to the journal and
+			// leaves default.sim in place.
+			if (file.exists() && !file.isDirectory() && !getJournal().canAppend(file)) {
 				fileSys = FileSystems.getDefault();
 				destPath = fileSys.getPath(backupFile.getPath());
 				srcPath = fileSys.getPath(file.getPath());
-				// Backup the existing default.sim
+				// Backup the existing default.sim and its journal
 				Files.move(srcPath, destPath, StandardCopyOption.REPLACE_EXISTING);
+				SaveJournal.move(file, backupFile);
 			}
 
 			logger.config("Autosaving the simulation as " + DEFAULT_FILE + DEFAULT_EXTENSION + ".");
@@ -1092,6 +1185,17 @@ public class Simulation implements ClockListener, Serializable {
         }
     }
     
+	/**
+	 * Gets the journal of the saves made between checkpoints.
+	 * 
+	 * @return the save journal
+	 */
+	private SaveJournal getJournal() {
+		if (journal == null)
+			journal = new SaveJournal();
+		return journal;
+	}
+
     /**
      * Serialize the given object and save it to a given file.
      */
@@ -1107,7 +1211,7 @@ public class Simulation implements ClockListener, Serializable {
 		// "default"
 		
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-	    ObjectOutputStream oos = new ObjectOutputStream(baos);
+	    ObjectOutput oos = new SaveCodec.Writer(baos);
 	    InputStream is = null;
 		XZOutputStream xzout = null;
 		
@@ -1117,24 +1221,22 @@ public class Simulation implements ClockListener, Serializable {
 			delay(200L);
 			
 			// Store the in-transient objects.
-			oos.writeObject(SimulationConfig.instance());
-			oos.writeObject(ResourceUtil.getInstance());
-			oos.writeObject(malfunctionFactory);
-			oos.writeObject(mars);
-			oos.writeObject(missionManager);
-			oos.writeObject(medicalManager);
-			oos.writeObject(scientificStudyManager);
-			oos.writeObject(transportManager);
-			oos.writeObject(creditManager);
-			oos.writeObject(eventManager);
-			oos.writeObject(relationshipManager);
-			oos.writeObject(unitManager);
-			oos.writeObject(masterClock);
+			writeState(oos);
 
 			oos.flush();
 			oos.close();
 
-		    is = new ByteArrayInputStream(baos.toByteArray());
+			byte[] data = baos.toByteArray();
+
+			if (type == AUTOSAVE_AS_DEFAULT && getJournal().canAppend(file)) {
+				// Append only what changed since the last checkpoint
+				int size = getJournal().append(data);
+				logger.config("  Journal record size : " + Math.round(size / 1_000.0 * 100.0) / 100.0 + " KB");
+				logger.config("Done saving. The simulation resumes.");
+				return;
+			}
+
+		    is = new ByteArrayInputStream(data);
 		    
 			// Print the size of each serializable object
 //			System.out.println(printObjectSize(0).toString());
@@ -1159,6 +1261,10 @@ public class Simulation implements ClockListener, Serializable {
 			ByteStreams.copy(is, xzout);
 			
 			xzout.finish();
+			xzout.close();
+
+			// Start a new journal from this checkpoint
+			getJournal().checkpoint(file, data);
 			
 			// Print the size of the saved sim
 			logger.config("           File size : " + computeFileSize(file));
@@ -1204,9 +1310,10 @@ public class Simulation implements ClockListener, Serializable {
 //	            backupFile = new File(DEFAULT_DIR, DEFAULT_FILE + DEFAULT_EXTENSION);
 //	            backupFile.renameTo(file);
 
-				if (file.exists() && !file.isDirectory()) {
+				if (file.exists() && !file.isDirectory() && destPath != null) {
 					// Backup the existing default.sim
 					Files.move(destPath, srcPath, StandardCopyOption.REPLACE_EXISTING);
+					SaveJournal.move(destPath.toFile(), srcPath.toFile());
 				}
 			}
 
@@ -1218,9 +1325,10 @@ public class Simulation implements ClockListener, Serializable {
 //	            backupFile = new File(DEFAULT_DIR, DEFAULT_FILE + DEFAULT_EXTENSION);
 //	            backupFile.renameTo(file);
 
-				if (file.exists() && !file.isDirectory()) {
+				if (file.exists() && !file.isDirectory() && destPath != null) {
 					// backup the existing default.sim
 					Files.move(destPath, srcPath, StandardCopyOption.REPLACE_EXISTING);
+					SaveJournal.move(destPath.toFile(), srcPath.toFile());
 				}
 			}
 
@@ -1539,6 +1647,24 @@ public class Simulation implements ClockListener, Serializable {
 		return transportManager;
 	}
 
+	/**
+	 * Get the trade profit matrix.
+	 * 
+	 * @return trade profit matrix.
+	 */
+	public TradeProfitMatrix getTradeProfitMatrix() {
+		return tradeProfitMatrix;
+	}
+
+	/**
+	 * Get the route planner.
+	 * 
+	 * @return route planner.
+	 */
+	public RoutePlanner getRoutePlanner() {
+		return routePlanner;
+	}
+
 	/**
 	 * Get the master clock.
 	 * 
@@ -1619,7 +1745,19 @@ public class Simulation implements ClockListener, Serializable {
 	 */
 	@Override
 	public void clockPulse(double time) {
+		synchronized (stateLock) {
+			pulse(time);
+		}
+	}
+
+	/**
+	 * Passes time in the parts of the simulation.
+	 */
+	private void pulse(double time) {
 		if (ut != null && !clockOnPause && !masterClock.isPaused()) {
+			// Measure the cost of each part for the governor of the pulse length
+			TimeRatioGovernor governor = masterClock.getTimeRatioGovernor();
+			long t = System.nanoTime();
 
 			ut.updateTime();
 
@@ -1629,6 +1767,7 @@ public class Simulation implements ClockListener, Serializable {
 //			}
 			mars.timePassing(time);
 			ut.updateTime();
+			t = governor.record("Mars", t);
 
 //			if (debug) {
 //				logger.fine(Msg.getString("Simulation.log.clockPulseMissionManager", //$NON-NLS-1$
@@ -1636,6 +1775,7 @@ public class Simulation implements ClockListener, Serializable {
 //			}
 			missionManager.timePassing(time);
 			ut.updateTime();
+			t = governor.record("MissionManager", t);
 
 //			if (debug) {
 //				logger.fine(Msg.getString("Simulation.log.clockPulseUnitManager", //$NON-NLS-1$
@@ -1643,6 +1783,7 @@ public class Simulation implements ClockListener, Serializable {
 //			}
 			unitManager.timePassing(time);
 			ut.updateTime();
+			t = governor.record("UnitManager", t);
 
 //			if (debug) {
 //				logger.fine(Msg.getString("Simulation.log.clockPulseScientificStudyManager", //$NON-NLS-1$
@@ -1650,12 +1791,14 @@ public class Simulation implements ClockListener, Serializable {
 //			}
 			scientificStudyManager.updateStudies();
 			ut.updateTime();
+			t = governor.record("ScientificStudyManager", t);
 
 //			if (debug) {
 //				logger.fine(Msg.getString("Simulation.log.clockPulseTransportManager", //$NON-NLS-1$
 //						masterClock.getUpTimer().getUptime(), transportManager.toString()));
 //			}
 			transportManager.timePassing(time);
+			governor.record("TransportManager", t);
 		}
 	}
 
@@ -1745,6 +1888,16 @@ public class Simulation implements ClockListener, Serializable {
 			eventManager = null;
 		}
 
+		if (tradeProfitMatrix != null) {
+			tradeProfitMatrix.destroy();
+			tradeProfitMatrix = null;
+		}
+
+		if (routePlanner != null) {
+			routePlanner.destroy();
+			routePlanner = null;
+		}
+
 //        if (managerExecutor != null) {
 //            managerExecutor.shutdownNow();
 //            managerExecutor = null;
@@ -11,6 +11,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -776,28 +777,34 @@ public class SimulationConfig implements Serializable {
 	private static void loadDefaultConfiguration() {
 		try {
 			logger.config("Loading xml files...");
+			// Load the documents, compiled or parsed in parallel
+			Map<String, Document> docs = ConfigCache.loadDocuments(SIMULATION_FILE, RESOURCE_FILE, PART_FILE,
+					PART_PACKAGE_FILE, PEOPLE_FILE, MEDICAL_FILE, LANDMARK_FILE, MINERAL_MAP_FILE, MALFUNCTION_FILE,
+					CROP_FILE, VEHICLE_FILE, BUILDING_FILE, RESUPPLY_FILE, SETTLEMENT_FILE, MANUFACTURE_FILE,
+					CONSTRUCTION_FILE, FOODPRODUCTION_FILE, MEAL_FILE, ROBOT_FILE, QUOTATION_FILE);
 			// Load simulation document
-			simulationDoc = parseXMLFileAsJDOMDocument(SIMULATION_FILE, true);
-			// Load subset configuration classes.
-			resourceConfig = new AmountResourceConfig(parseXMLFileAsJDOMDocument(RESOURCE_FILE, true));	
-			partConfig = new PartConfig(parseXMLFileAsJDOMDocument(PART_FILE, true));
-			partPackageConfig = new PartPackageConfig(parseXMLFileAsJDOMDocument(PART_PACKAGE_FILE, true));
-			personConfig = new PersonConfig(parseXMLFileAsJDOMDocument(PEOPLE_FILE, true));
-			medicalConfig = new MedicalConfig(parseXMLFileAsJDOMDocument(MEDICAL_FILE, true));
-			landmarkConfig = new LandmarkConfig(parseXMLFileAsJDOMDocument(LANDMARK_FILE, true));
-			mineralMapConfig = new MineralMapConfig(parseXMLFileAsJDOMDocument(MINERAL_MAP_FILE, true));
-			malfunctionConfig = new MalfunctionConfig(parseXMLFileAsJDOMDocument(MALFUNCTION_FILE, true));
-			cropConfig = new CropConfig(parseXMLFileAsJDOMDocument(CROP_FILE, true));
-			vehicleConfig = new VehicleConfig(parseXMLFileAsJDOMDocument(VEHICLE_FILE, true));
-			buildingConfig = new BuildingConfig(parseXMLFileAsJDOMDocument(BUILDING_FILE, true));
-			resupplyConfig = new ResupplyConfig(parseXMLFileAsJDOMDocument(RESUPPLY_FILE, true), partPackageConfig);
-			settlementConfig = new SettlementConfig(parseXMLFileAsJDOMDocument(SETTLEMENT_FILE, true), partPackageConfig);
-			manufactureConfig = new ManufactureConfig(parseXMLFileAsJDOMDocument(MANUFACTURE_FILE, true));
-			constructionConfig = new ConstructionConfig(parseXMLFileAsJDOMDocument(CONSTRUCTION_FILE, true));
-			foodProductionConfig = new FoodProductionConfig(parseXMLFileAsJDOMDocument(FOODPRODUCTION_FILE, true));
-			mealConfig = new MealConfig(parseXMLFileAsJDOMDocument(MEAL_FILE, true));
-			robotConfig = new RobotConfig(parseXMLFileAsJDOMDocument(ROBOT_FILE, true));
-			quotationConfig = new QuotationConfig(parseXMLFileAsJDOMDocument(QUOTATION_FILE, true));
+			simulationDoc = docs.get(SIMULATION_FILE);
+			// Load subset configuration classes in order, since some register
+			// the resources that later ones refer to.
+			resourceConfig = new AmountResourceConfig(docs.get(RESOURCE_FILE));	
+			partConfig = new PartConfig(docs.get(PART_FILE));
+			partPackageConfig = new PartPackageConfig(docs.get(PART_PACKAGE_FILE));
+			personConfig = new PersonConfig(docs.get(PEOPLE_FILE));
+			medicalConfig = new MedicalConfig(docs.get(MEDICAL_FILE));
+			landmarkConfig = new LandmarkConfig(docs.get(LANDMARK_FILE));
+			mineralMapConfig = new MineralMapConfig(docs.get(MINERAL_MAP_FILE));
+			malfunctionConfig = new MalfunctionConfig(docs.get(MALFUNCTION_FILE));
+			cropConfig = new CropConfig(docs.get(CROP_FILE));
+			vehicleConfig = new VehicleConfig(docs.get(VEHICLE_FILE));
+			buildingConfig = new BuildingConfig(docs.get(BUILDING_FILE));
+			resupplyConfig = new ResupplyConfig(docs.get(RESUPPLY_FILE), partPackageConfig);
+			settlementConfig = new SettlementConfig(docs.get(SETTLEMENT_FILE), partPackageConfig);
+			manufactureConfig = new ManufactureConfig(docs.get(MANUFACTURE_FILE));
+			constructionConfig = new ConstructionConfig(docs.get(CONSTRUCTION_FILE));
+			foodProductionConfig = new FoodProductionConfig(docs.get(FOODPRODUCTION_FILE));
+			mealConfig = new MealConfig(docs.get(MEAL_FILE));
+			robotConfig = new RobotConfig(docs.get(ROBOT_FILE));
+			quotationConfig = new QuotationConfig(docs.get(QUOTATION_FILE));
 //			logger.config("Done loading all xml files.");
 		} catch (Exception e) {
 			logger.log(Level.SEVERE, "Error reading config file(s) below : " + e.getMessage());
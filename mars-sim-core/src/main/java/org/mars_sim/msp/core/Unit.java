@@ -25,6 +25,7 @@ import org.mars_sim.msp.core.robot.Robot;
 import org.mars_sim.msp.core.structure.Settlement;
 import org.mars_sim.msp.core.structure.Structure;
 import org.mars_sim.msp.core.structure.building.Building;
+import org.mars_sim.msp.core.tool.SaveCodec;
 import org.mars_sim.msp.core.vehicle.Vehicle;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -43,7 +44,7 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo.As;
 				@Type(value = Structure.class, name = "structure"),
 				@Type(value = Vehicle.class, name = "vehicle"),
 				@Type(value = Equipment.class, name = "equipment"),})
-public abstract class Unit implements Serializable, Comparable<Unit> {
+public abstract class Unit implements Serializable, Comparable<Unit>, SaveCodec.Section {
 
 	/** default serial id. */
 	private static final long serialVersionUID = 1L;
@@ -86,6 +87,11 @@ public abstract class Unit implements Serializable, Comparable<Unit> {
 
 	protected LocationStateType currentStateType;
 
+	/** True if the unit is skipped on time passing until an event wakes it up. */
+	private transient boolean sleeping;
+	/** The time passed in the simulation when the unit went to sleep (millisols). */
+	private transient double sleepingSince;
+
 	/** Unit listeners. */
 	private transient List<UnitListener> listeners;// = Collections.synchronizedList(new ArrayList<UnitListener>());
 
@@ -156,6 +162,18 @@ public abstract class Unit implements Serializable, Comparable<Unit> {
 		return identifier;
 	}
 
+	/**
+	 * Gets the key of the section of a save holding the unit, which is its
+	 * identifier.
+	 * 
+	 * @return the key
+	 */
+	@Override
+	@JsonIgnore
+	public long getSectionKey() {
+		return identifier;
+	}
+
 	/**
 	 * Change the unit's name
 	 * 
@@ -295,6 +313,56 @@ public abstract class Unit implements Serializable, Comparable<Unit> {
 	public void timePassing(double time) {
 	}
 
+	/**
+	 * Checks if the unit has nothing to do on time passing until an event wakes
+	 * it up, such as a change of container, a malfunction or a change of its
+	 * inventory.
+	 * 
+	 * @return true if dormant
+	 */
+	public boolean isDormant() {
+		return false;
+	}
+
+	/**
+	 * Catches up on the time passed while the unit was asleep.
+	 * 
+	 * @param time the amount of time passed (in millisols)
+	 */
+	protected void catchUp(double time) {
+	}
+
+	/**
+	 * Checks if the unit is asleep and skipped on time passing.
+	 * 
+	 * @return true if asleep
+	 */
+	final boolean isSleeping() {
+		return sleeping;
+	}
+
+	/**
+	 * Puts the unit to sleep.
+	 * 
+	 * @param timePassed the time passed in the simulation (in millisols)
+	 */
+	final void sleep(double timePassed) {
+		sleeping = true;
+		sleepingSince = timePassed;
+	}
+
+	/**
+	 * Wakes the unit up so that it receives time passing again.
+	 */
+	public final void wake() {
+		if (sleeping) {
+			sleeping = false;
+			double time = getUnitManager().getTimePassedBeforePulse() - sleepingSince;
+			if (time > 0D)
+				catchUp(time);
+		}
+	}
+
 	
 	/**
 	 * Reloads instances
@@ -619,6 +687,10 @@ public abstract class Unit implements Serializable, Comparable<Unit> {
 		// logger.info("Unit's fireUnitUpdate() is on " +
 		// Thread.currentThread().getName() + " Thread");
 
+		// Any event may give a dormant unit something to do.
+		if (sleeping)
+			wake();
+
 		if (listeners == null || listeners.size() < 1) {
 			// listeners = Collections.synchronizedList(new ArrayList<UnitListener>());
 			// we don't do anything if there's no listeners attached
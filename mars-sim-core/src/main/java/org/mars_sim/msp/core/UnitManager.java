@@ -11,9 +11,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -99,6 +101,12 @@ public class UnitManager implements Serializable {
 	public transient boolean justReloaded = false;
 	/** List of unit manager listeners. */
 	private transient List<UnitManagerListener> listeners;
+	/** The time passed since the simulation was started or loaded (in millisols). */
+	private transient double timePassed;
+	/** The time passing in the current pulse (in millisols). */
+	private transient double pulseTime;
+	/** The fraction of units skipped as dormant in the last pulse. */
+	private transient double skippedFraction;
 
 	// Static members
 	/** List of possible settlement names. */
@@ -372,9 +380,24 @@ public class UnitManager implements Serializable {
 	 * @throws IllegalArgumentException if unitType is not valid.
 	 */
 	public String getNewName(UnitType unitType, String baseName, GenderType gender, RobotType robotType) {
+		return getNewName(unitType, baseName, gender, robotType, Collections.<String>emptySet());
+	}
+
+	/**
+	 * Gets a new name for a unit, also avoiding names reserved for units not added
+	 * yet.
+	 * 
+	 * @param unitType {@link UnitType} the type of unit.
+	 * @param baseName the base name or null if none.
+	 * @param gender   the gender of the person or null if not a person.
+	 * @param reserved the names already given out.
+	 * @return new name
+	 */
+	private String getNewName(UnitType unitType, String baseName, GenderType gender, RobotType robotType,
+			Set<String> reserved) {
 
 		List<String> initialNameList = null;
-		List<String> usedNames = new ArrayList<String>();
+		Set<String> usedNames = new HashSet<String>(reserved);
 		String unitName = "";
 
 		if (unitType == UnitType.SETTLEMENT) {
@@ -491,17 +514,22 @@ public class UnitManager implements Serializable {
 	}
 
 	/**
-	 * Creates initial settlements
+	 * Creates initial settlements. The settlements are built one at a time since
+	 * a settlement and its buildings draw from the shared random generator, take
+	 * their unit ids from a shared counter and set up the static lookups of their
+	 * functions.
 	 */
 	private void createInitialSettlements() {
 		int size = settlementConfig.getNumberOfInitialSettlements();
+		Set<String> names = new HashSet<String>();
 		try {
 			for (int x = 0; x < size; x++) {
 				// Get settlement name
 				String name = settlementConfig.getInitialSettlementName(x);
 				if (name.equals(SettlementConfig.RANDOM)) {
-					name = getNewName(UnitType.SETTLEMENT, null, null, null);
+					name = getNewName(UnitType.SETTLEMENT, null, null, null, names);
 				}
+				names.add(name);
 
 				// Get settlement template
 				String template = settlementConfig.getInitialSettlementTemplate(x);
@@ -532,10 +560,13 @@ public class UnitManager implements Serializable {
 				// Add settlement's id called sid
 				// Add scenarioID
 				int scenarioID = settlementConfig.getInitialSettlementScenarioID(x);
-				addUnit(Settlement.createNewSettlement(name, scenarioID, template, sponsor, location, populationNumber,
-						initialNumOfRobots));
 
+				Settlement settlement = Settlement.createNewSettlement(name, scenarioID, template, sponsor, location,
+						populationNumber, initialNumOfRobots);
+				addUnit(settlement);
+				logger.config("Built settlement " + (x + 1) + " of " + size + " : " + settlement.getName());
 			}
+
 		} catch (Exception e) {
 			e.printStackTrace(System.err);
 			throw new IllegalStateException("Settlements could not be created: " + e.getMessage(), e);
@@ -897,6 +928,18 @@ public class UnitManager implements Serializable {
 
 		// Randomly create all remaining people to fill the settlements to capacity.
 		try {
+			// Check for any duplicate full Name
+			Set<String> existingfullnames = new HashSet<>();
+			Iterator<Person> j = getPeople().iterator();
+			while (j.hasNext()) {
+				existingfullnames.add(j.next().getName());
+			}
+
+			// Prevent mars-sim from using the user defined commander's name  
+			String userName = getFullname();
+			if (userName != null)
+				existingfullnames.add(userName);
+
 			Iterator<Settlement> i = getSettlements().iterator();
 			while (i.hasNext()) {
 				Settlement settlement = i.next();
@@ -907,19 +950,6 @@ public class UnitManager implements Serializable {
 
 					String sponsor = settlement.getSponsor();
 
-					// Check for any duplicate full Name
-					List<String> existingfullnames = new ArrayList<>();	
-					Iterator<Person> j = getPeople().iterator();
-					while (j.hasNext()) {
-						String n = j.next().getName();
-						existingfullnames.add(n);
-					}
-					
-					// Prevent mars-sim from using the user defined commander's name  
-					String userName = getFullname();
-					if (userName != null && !existingfullnames.contains(userName))
-						existingfullnames.add(userName);
-					
 					boolean isUniqueName = false;
 					GenderType gender = null;
 					Person person = null;
@@ -1013,15 +1043,9 @@ public class UnitManager implements Serializable {
 						}
 
 						// double checking if this name has already been in use
-						Iterator<String> k = existingfullnames.iterator();
-						while (k.hasNext()) {
-							String n = k.next();
-
-							if (n.equals(fullname)) {
-								isUniqueName = false;
-								logger.config(fullname + " is a duplicate name. Choose another one.");
-								// break;
-							}
+						if (existingfullnames.contains(fullname)) {
+							isUniqueName = false;
+							logger.config(fullname + " is a duplicate name. Choose another one.");
 						}
 
 						// Prevent mars-sim from using the user defined commander's name  
@@ -1040,6 +1064,7 @@ public class UnitManager implements Serializable {
 					m.getMBTI().syncUpExtraversion();
 
 					addUnit(person);
+					existingfullnames.add(fullname);
 
 					relationshipManager.addInitialSettler(person, settlement);
 
@@ -1712,6 +1737,8 @@ public class UnitManager implements Serializable {
 			
 			// Compute reliability daily
 			factory.computeReliability();
+
+			logger.fine(Math.round(skippedFraction * 1000D) / 10D + "% of units were dormant in the last pulse.");
 		}
 
 		if (justLoaded) {
@@ -1727,10 +1754,40 @@ public class UnitManager implements Serializable {
 			justLoaded = false;
 		}
 
+		pulseTime = time;
+		timePassed += time;
+
+		int skipped = 0;
 		for (Unit u : units) {
+			if (u.isSleeping()) {
+				skipped++;
+				continue;
+			}
 			u.timePassing(time);
+			// Skip the unit until an event wakes it up.
+			if (u.isDormant())
+				u.sleep(timePassed);
 		}
 
+		skippedFraction = units.isEmpty() ? 0D : (double) skipped / units.size();
+	}
+
+	/**
+	 * Gets the time passed in the simulation before the current pulse.
+	 * 
+	 * @return time (in millisols)
+	 */
+	public double getTimePassedBeforePulse() {
+		return timePassed - pulseTime;
+	}
+
+	/**
+	 * Gets the fraction of units skipped as dormant in the last pulse.
+	 * 
+	 * @return fraction between 0 and 1
+	 */
+	public double getSkippedFraction() {
+		return skippedFraction;
 	}
 
 	/**
@@ -0,0 +1,59 @@
+/**
+ * Mars Simulation Project
+ * EnsembleCache.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.ensemble;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The EnsembleCache class holds read-only data shared by the runs of an
+ * ensemble, such as the parsed configuration files. It is the one class of the
+ * simulation loaded once for all runs, so the values kept must be of classes
+ * from outside the simulation. Nothing is kept unless an ensemble is running.
+ */
+public final class EnsembleCache {
+
+	private static final Map<String, Object> values = new ConcurrentHashMap<>();
+
+	/** The number of ensembles running. */
+	private static int ensembles;
+
+	private EnsembleCache() {
+	}
+
+	/**
+	 * Gets a shared value.
+	 * 
+	 * @param key the key of the value
+	 * @return the value, or null if none
+	 */
+	public static Object get(String key) {
+		return values.get(key);
+	}
+
+	/**
+	 * Shares a value with the other runs, if an ensemble is running.
+	 * 
+	 * @param key   the key of the value
+	 * @param value the value, which must not be changed afterwards
+	 */
+	public static void put(String key, Object value) {
+		synchronized (EnsembleCache.class) {
+			if (ensembles == 0)
+				return;
+		}
+		values.putIfAbsent(key, value);
+	}
+
+	static synchronized void open() {
+		ensembles++;
+	}
+
+	static synchronized void close() {
+		if (--ensembles == 0)
+			values.clear();
+	}
+}
@@ -0,0 +1,221 @@
+/**
+ * Mars Simulation Project
+ * EnsembleMember.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.ensemble;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mars_sim.msp.core.LogConsolidated;
+import org.mars_sim.msp.core.Simulation;
+import org.mars_sim.msp.core.SimulationConfig;
+import org.mars_sim.msp.core.UnitManager;
+import org.mars_sim.msp.core.person.Person;
+import org.mars_sim.msp.core.resource.ResourceUtil;
+import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.structure.goods.GoodsManager;
+import org.mars_sim.msp.core.time.MarsClock;
+import org.mars_sim.msp.core.time.MasterClock;
+import org.mars_sim.msp.core.tool.RandomUtil;
+
+/**
+ * The EnsembleMember class runs one simulation of an ensemble. It is loaded by
+ * a class loader of its own, which gives the run its own copy of every static
+ * of the simulation: the singleton, the managers, the clock and the random
+ * generator. Time is added in fixed pulses on the calling thread rather than by
+ * the clock thread, so the run goes as fast as it can and repeats for a seed.
+ * A run either starts a new simulation or continues a branch of the state of
+ * another.
+ */
+public class EnsembleMember {
+
+	// Outcome metrics
+	public static final String SOLS = "sols";
+	public static final String SETTLEMENTS = "settlements";
+	public static final String POPULATION = "population";
+	public static final String DEATHS = "deaths";
+	public static final String ROBOTS = "robots";
+	public static final String VEHICLES = "vehicles";
+	public static final String MISSIONS = "missions";
+	public static final String OXYGEN = "oxygen";
+	public static final String WATER = "water";
+	public static final String FOOD = "food";
+
+	// Policies of a branch, applied to the goods manager of every settlement
+	public static final String REPAIR_PRIORITY = "repairPriority";
+	public static final String MAINTENANCE_PRIORITY = "maintenancePriority";
+	public static final String EVA_SUIT_PRIORITY = "evaSuitPriority";
+	public static final String CROP_FARM_FACTOR = "cropFarmFactor";
+	public static final String MANUFACTURING_FACTOR = "manufacturingFactor";
+	public static final String RESEARCH_FACTOR = "researchFactor";
+	public static final String TRADE_FACTOR = "tradeFactor";
+	public static final String TRANSPORTATION_FACTOR = "transportationFactor";
+	public static final String TOURISM_FACTOR = "tourismFactor";
+
+	/** The names of the policies. */
+	public static final List<String> POLICIES = Collections.unmodifiableList(Arrays.asList(REPAIR_PRIORITY,
+			MAINTENANCE_PRIORITY, EVA_SUIT_PRIORITY, CROP_FARM_FACTOR, MANUFACTURING_FACTOR, RESEARCH_FACTOR,
+			TRADE_FACTOR, TRANSPORTATION_FACTOR, TOURISM_FACTOR));
+
+	private EnsembleMember() {
+	}
+
+	/**
+	 * Runs a new simulation.
+	 *
+	 * @param seed  the seed of the random generator
+	 * @param sols  the time to run [sols]
+	 * @param pulse the time added at each step [millisols]
+	 * @return the outcome metrics by name
+	 */
+	public static Map<String, Double> run(long seed, double sols, double pulse) {
+		try {
+			RandomUtil.setSeed(seed);
+			SimulationConfig.loadConfig();
+			Simulation.createNewSimulation(-1, false);
+
+			Simulation sim = Simulation.instance();
+			return measure(sim, step(sim, sols, pulse));
+		} finally {
+			tearDown();
+		}
+	}
+
+	/**
+	 * Runs a branch of the state of another simulation.
+	 *
+	 * @param state  the state written by {@link Simulation#saveState()}
+	 * @param policy the policies of the branch by name
+	 * @param seed   the seed of the random generator
+	 * @param sols   the time to run [sols]
+	 * @param pulse  the time added at each step [millisols]
+	 * @return the outcome metrics at the fork and at the end of the branch
+	 * @throws Exception if the state cannot be read
+	 */
+	public static List<Map<String, Double>> branch(byte[] state, Map<String, String> policy, long seed, double sols,
+			double pulse) throws Exception {
+		try {
+			SimulationConfig.loadConfig();
+			Simulation.createNewSimulation(-1, true);
+			Simulation sim = Simulation.instance();
+			sim.loadState(state);
+			RandomUtil.setSeed(seed);
+
+			Map<String, Double> fork = measure(sim, 0D);
+			for (Settlement settlement : sim.getUnitManager().getSettlements())
+				applyPolicy(settlement.getGoodsManager(), policy);
+			return Arrays.asList(fork, measure(sim, step(sim, sols, pulse)));
+		} finally {
+			tearDown();
+		}
+	}
+
+	/**
+	 * Stops the clock and destroys the simulation, so that its threads end with
+	 * the run.
+	 */
+	private static void tearDown() {
+		try {
+			Simulation sim = Simulation.instance();
+			sim.stop();
+			sim.destroyOldSimulation();
+		} finally {
+			LogConsolidated.shutdown();
+		}
+	}
+
+	private static void applyPolicy(GoodsManager goodsManager, Map<String, String> policy) {
+		for (Map.Entry<String, String> e : policy.entrySet()) {
+			String value = e.getValue();
+			switch (e.getKey()) {
+			case REPAIR_PRIORITY:
+				goodsManager.setRepairPriority(Integer.parseInt(value));
+				break;
+			case MAINTENANCE_PRIORITY:
+				goodsManager.setMaintenancePriority(Integer.parseInt(value));
+				break;
+			case EVA_SUIT_PRIORITY:
+				goodsManager.setEVASuitPriority(Integer.parseInt(value));
+				break;
+			case CROP_FARM_FACTOR:
+				goodsManager.setCropFarmFactor(Double.parseDouble(value));
+				break;
+			case MANUFACTURING_FACTOR:
+				goodsManager.setManufacturingFactor(Double.parseDouble(value));
+				break;
+			case RESEARCH_FACTOR:
+				goodsManager.setResearchFactor(Double.parseDouble(value));
+				break;
+			case TRADE_FACTOR:
+				goodsManager.setTradeFactor(Double.parseDouble(value));
+				break;
+			case TRANSPORTATION_FACTOR:
+				goodsManager.setTransportationFactor(Double.parseDouble(value));
+				break;
+			case TOURISM_FACTOR:
+				goodsManager.setTourismFactor(Double.parseDouble(value));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown policy " + e.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Adds time in fixed pulses.
+	 *
+	 * @return the time added [sols]
+	 */
+	private static double step(Simulation sim, double sols, double pulse) {
+		MasterClock masterClock = sim.getMasterClock();
+		long steps = Math.round(sols * 1000D / pulse);
+		double millis = pulse * MarsClock.SECONDS_PER_MILLISOL * 1000D;
+		for (long i = 0; i < steps; i++) {
+			masterClock.getEarthClock().addTime(millis);
+			masterClock.getMarsClock().addTime(pulse);
+			sim.clockPulse(pulse);
+		}
+		return steps * pulse / 1000D;
+	}
+
+	/**
+	 * Measures the outcome of a run.
+	 */
+	private static Map<String, Double> measure(Simulation sim, double sols) {
+		UnitManager unitManager = sim.getUnitManager();
+		int alive = 0;
+		int dead = 0;
+		for (Person person : unitManager.getPeople()) {
+			if (person.getPhysicalCondition().isDead())
+				dead++;
+			else
+				alive++;
+		}
+		double oxygen = 0;
+		double water = 0;
+		double food = 0;
+		for (Settlement settlement : unitManager.getSettlements()) {
+			oxygen += settlement.getInventory().getAmountResourceStored(ResourceUtil.oxygenID, false);
+			water += settlement.getInventory().getAmountResourceStored(ResourceUtil.waterID, false);
+			food += settlement.getInventory().getAmountResourceStored(ResourceUtil.foodID, false);
+		}
+
+		Map<String, Double> result = new LinkedHashMap<>();
+		result.put(SOLS, sols);
+		result.put(SETTLEMENTS, (double) unitManager.getSettlementNum());
+		result.put(POPULATION, (double) alive);
+		result.put(DEATHS, (double) dead);
+		result.put(ROBOTS, (double) unitManager.getRobotsNum());
+		result.put(VEHICLES, (double) unitManager.getVehicleNum());
+		result.put(MISSIONS, (double) sim.getMissionManager().getNumActiveMissions());
+		result.put(OXYGEN, oxygen);
+		result.put(WATER, water);
+		result.put(FOOD, food);
+		return result;
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ * Mars Simulation Project
+ * EnsembleRunner.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.ensemble;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The EnsembleRunner class runs several simulations from seeds in one virtual
+ * machine, each on a core of its own, and gathers their outcomes. The classes
+ * of the simulation keep their state in statics, so each run loads them anew
+ * in a class loader of its own. The Java platform, the libraries, the map data
+ * and the parsed configuration files are loaded once and shared by all runs.
+ */
+public class EnsembleRunner {
+
+	/** default logger. */
+	private static Logger logger = Logger.getLogger(EnsembleRunner.class.getName());
+
+	/** The default time to run [sols]. */
+	private static final double SOLS = 1D;
+	/** The default time added at each step [millisols]. */
+	private static final double PULSE = 1D;
+
+	private final int runs;
+	private final long seed;
+	private double sols = SOLS;
+	private double pulse = PULSE;
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param runs the number of simulations
+	 * @param seed the seed the seeds of the simulations are drawn from
+	 */
+	public EnsembleRunner(int runs, long seed) {
+		if (runs < 1)
+			throw new IllegalArgumentException("An ensemble needs at least one run");
+		this.runs = runs;
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the time each simulation runs.
+	 *
+	 * @param sols the time [sols]
+	 */
+	public void setSols(double sols) {
+		this.sols = sols;
+	}
+
+	/**
+	 * Sets the time added to a simulation at each step. Shorter pulses are closer
+	 * to an interactive run but slower.
+	 *
+	 * @param pulse the time [millisols]
+	 */
+	public void setPulse(double pulse) {
+		if (pulse <= 0)
+			throw new IllegalArgumentException("The pulse must be positive");
+		this.pulse = pulse;
+	}
+
+	/**
+	 * Sets the number of simulations run at once.
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Gets the seed of each simulation.
+	 */
+	public long[] getSeeds() {
+		SplittableRandom random = new SplittableRandom(seed);
+		long[] seeds = new long[runs];
+		for (int i = 0; i < runs; i++)
+			seeds[i] = random.nextLong();
+		return seeds;
+	}
+
+	/**
+	 * Runs the simulations.
+	 *
+	 * @return the outcome metrics of each simulation in the order of the seeds, or
+	 *         null for a simulation that failed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public List<Map<String, Double>> run() throws InterruptedException {
+		long[] seeds = getSeeds();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, runs));
+		EnsembleCache.open();
+		try {
+			List<Future<Map<String, Double>>> futures = new ArrayList<>(runs);
+			for (int i = 0; i < runs; i++) {
+				final long s = seeds[i];
+				futures.add(executor.submit(new Callable<Map<String, Double>>() {
+					@Override
+					public Map<String, Double> call() throws Exception {
+						return runIsolated(s);
+					}
+				}));
+			}
+
+			List<Map<String, Double>> results = new ArrayList<>(runs);
+			for (int i = 0; i < runs; i++) {
+				try {
+					results.add(futures.get(i).get());
+					logger.config("Finished run " + (i + 1) + " of " + runs + " with seed " + seeds[i]);
+				} catch (ExecutionException e) {
+					logger.log(Level.SEVERE, "Run " + (i + 1) + " with seed " + seeds[i] + " failed", e.getCause());
+					results.add(null);
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+			EnsembleCache.close();
+		}
+	}
+
+	/**
+	 * Runs a simulation in a class loader of its own.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Double> runIsolated(long s) throws Exception {
+		return (Map<String, Double>) RunClassLoader.invoke("run", new Class<?>[] { long.class, double.class,
+				double.class }, s, sols, pulse);
+	}
+
+	/**
+	 * Summarizes the outcomes of the simulations.
+	 *
+	 * @param results the outcomes, with null for those that failed
+	 * @return the summary of each metric by name
+	 */
+	public static Map<String, Summary> summarize(List<Map<String, Double>> results) {
+		Map<String, Summary> summaries = new LinkedHashMap<>();
+		for (Map<String, Double> result : results) {
+			if (result == null)
+				continue;
+			for (Map.Entry<String, Double> e : result.entrySet()) {
+				Summary summary = summaries.get(e.getKey());
+				if (summary == null) {
+					summary = new Summary();
+					summaries.put(e.getKey(), summary);
+				}
+				summary.add(e.getValue());
+			}
+		}
+		return Collections.unmodifiableMap(summaries);
+	}
+
+	/**
+	 * Summary holds the spread of a metric over the simulations.
+	 */
+	public static final class Summary {
+
+		private int count;
+		private double mean;
+		/** The sum of the squared differences from the mean. */
+		private double m2;
+		private double min = Double.POSITIVE_INFINITY;
+		private double max = Double.NEGATIVE_INFINITY;
+
+		private void add(double value) {
+			count++;
+			double delta = value - mean;
+			mean += delta / count;
+			m2 += delta * (value - mean);
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public double getStandardDeviation() {
+			return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0D;
+		}
+
+		public double getMin() {
+			return min;
+		}
+
+		public double getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("mean %.3f, sd %.3f, min %.3f, max %.3f (n=%d)", mean, getStandardDeviation(), min,
+					max, count);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * Mars Simulation Project
+ * RunClassLoader.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.ensemble;
+
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The RunClassLoader class loads the classes of the simulation itself for one
+ * run and leaves everything else, and the shared cache, to its parent.
+ */
+final class RunClassLoader extends URLClassLoader {
+
+	/** The package of the classes loaded for each run. */
+	private static final String CORE_PACKAGE = "org.mars_sim.msp.core.";
+
+	static {
+		registerAsParallelCapable();
+	}
+
+	private RunClassLoader(URL[] urls, ClassLoader parent) {
+		super(urls, parent);
+	}
+
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		if (!name.startsWith(CORE_PACKAGE) || name.equals(EnsembleCache.class.getName()))
+			return super.loadClass(name, resolve);
+		synchronized (getClassLoadingLock(name)) {
+			Class<?> c = findLoadedClass(name);
+			if (c == null) {
+				try {
+					c = findClass(name);
+				} catch (ClassNotFoundException e) {
+					// Not in this module
+					c = super.loadClass(name, false);
+				}
+			}
+			if (resolve)
+				resolveClass(c);
+			return c;
+		}
+	}
+
+	/**
+	 * Calls a method of {@link EnsembleMember} loaded in a class loader of its
+	 * own. Only classes of the platform may be passed in and out.
+	 *
+	 * @param method the name of the method
+	 * @param types  the types of the parameters
+	 * @param args   the arguments
+	 * @return what the method returns
+	 * @throws Exception what the method throws
+	 */
+	static Object invoke(String method, Class<?>[] types, Object... args) throws Exception {
+		URL[] urls = { RunClassLoader.class.getProtectionDomain().getCodeSource().getLocation() };
+		Thread thread = Thread.currentThread();
+		ClassLoader context = thread.getContextClassLoader();
+		try (RunClassLoader loader = new RunClassLoader(urls, RunClassLoader.class.getClassLoader())) {
+			thread.setContextClassLoader(loader);
+			return loader.loadClass(EnsembleMember.class.getName()).getMethod(method, types).invoke(null, args);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+		} finally {
+			thread.setContextClassLoader(context);
+		}
+	}
+}
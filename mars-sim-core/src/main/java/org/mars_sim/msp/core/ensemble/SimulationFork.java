@@ -0,0 +1,250 @@
+/**
+ * Mars Simulation Project
+ * SimulationFork.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.ensemble;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mars_sim.msp.core.Simulation;
+
+/**
+ * The SimulationFork class branches the state of a running simulation into
+ * several simulations that run side by side, each with its own policies, to
+ * compare what becomes of them. The state is taken in memory with the save
+ * codec, without compression or a file, and the running simulation goes on
+ * unaffected. Each branch loads the classes of the simulation in a class
+ * loader of its own, as the runs of an {@link EnsembleRunner} do.
+ */
+public class SimulationFork {
+
+	/** default logger. */
+	private static Logger logger = Logger.getLogger(SimulationFork.class.getName());
+
+	/** The default time added at each step [millisols]. */
+	private static final double PULSE = 1D;
+
+	private final byte[] state;
+	private long seed;
+	private boolean commonSeed = true;
+	private double pulse = PULSE;
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Forks the state of a simulation as it is between two clock pulses.
+	 *
+	 * @param sim the simulation
+	 * @throws IOException if the state cannot be written
+	 */
+	public SimulationFork(Simulation sim) throws IOException {
+		this(sim.saveState());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param state the state written by {@link Simulation#saveState()}
+	 */
+	public SimulationFork(byte[] state) {
+		this.state = state;
+		this.seed = System.nanoTime();
+	}
+
+	/**
+	 * Gets the size of the state forked.
+	 *
+	 * @return the size [bytes]
+	 */
+	public int getStateSize() {
+		return state.length;
+	}
+
+	/**
+	 * Sets the seed of the random generator of the branches.
+	 *
+	 * @param seed   the seed
+	 * @param common true if all branches draw the same random numbers, so that
+	 *               they differ by their policies only; false if each branch
+	 *               draws its own
+	 */
+	public void setSeed(long seed, boolean common) {
+		this.seed = seed;
+		this.commonSeed = common;
+	}
+
+	/**
+	 * Sets the time added to a branch at each step.
+	 *
+	 * @param pulse the time [millisols]
+	 */
+	public void setPulse(double pulse) {
+		if (pulse <= 0)
+			throw new IllegalArgumentException("The pulse must be positive");
+		this.pulse = pulse;
+	}
+
+	/**
+	 * Sets the number of branches run at once.
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Runs a branch for each set of policies. The names of the policies are those
+	 * of {@link EnsembleMember}, and an empty set leaves the branch as forked.
+	 *
+	 * @param policies the policies of each branch
+	 * @param sols     the time each branch runs [sols]
+	 * @return the branches in the order of the policies
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public List<Branch> run(List<Map<String, String>> policies, final double sols) throws InterruptedException {
+		int size = policies.size();
+		SplittableRandom random = new SplittableRandom(seed);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, size)));
+		EnsembleCache.open();
+		try {
+			List<Future<List<Map<String, Double>>>> futures = new ArrayList<>(size);
+			long s = random.nextLong();
+			for (final Map<String, String> policy : policies) {
+				final long branchSeed = s;
+				futures.add(executor.submit(new Callable<List<Map<String, Double>>>() {
+					@Override
+					@SuppressWarnings("unchecked")
+					public List<Map<String, Double>> call() throws Exception {
+						return (List<Map<String, Double>>) RunClassLoader.invoke("branch",
+								new Class<?>[] { byte[].class, Map.class, long.class, double.class, double.class },
+								state, policy, branchSeed, sols, pulse);
+					}
+				}));
+				if (!commonSeed)
+					s = random.nextLong();
+			}
+
+			List<Branch> branches = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				try {
+					List<Map<String, Double>> result = futures.get(i).get();
+					branches.add(new Branch(policies.get(i), result.get(0), result.get(1)));
+				} catch (ExecutionException e) {
+					logger.log(Level.SEVERE, "Branch " + (i + 1) + " failed", e.getCause());
+					branches.add(new Branch(policies.get(i), null, null));
+				}
+			}
+			return branches;
+		} finally {
+			executor.shutdownNow();
+			EnsembleCache.close();
+		}
+	}
+
+	/**
+	 * Describes how the branches diverged, as a table of the outcome metrics of
+	 * each branch and their difference from the first.
+	 *
+	 * @param branches the branches
+	 * @return the report
+	 */
+	public static String report(List<Branch> branches) {
+		StringBuilder sb = new StringBuilder();
+		Branch base = branches.isEmpty() ? null : branches.get(0);
+		for (int i = 0; i < branches.size(); i++) {
+			Branch branch = branches.get(i);
+			sb.append("Branch ").append(i + 1).append(" ").append(branch.getPolicy());
+			if (branch.getOutcome() == null) {
+				sb.append(" failed").append(System.lineSeparator());
+				continue;
+			}
+			sb.append(System.lineSeparator());
+			Map<String, Double> change = branch.getChange();
+			Map<String, Double> divergence = base.getOutcome() == null ? null : branch.getDivergence(base);
+			for (Map.Entry<String, Double> e : branch.getOutcome().entrySet()) {
+				sb.append(String.format("  %-12s %12.3f  since fork %+12.3f", e.getKey(), e.getValue(),
+						change.get(e.getKey())));
+				if (divergence != null && i > 0)
+					sb.append(String.format("  vs branch 1 %+12.3f", divergence.get(e.getKey())));
+				sb.append(System.lineSeparator());
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Branch holds the policies and the outcome of a branch.
+	 */
+	public static final class Branch {
+
+		private final Map<String, String> policy;
+		private final Map<String, Double> fork;
+		private final Map<String, Double> outcome;
+
+		Branch(Map<String, String> policy, Map<String, Double> fork, Map<String, Double> outcome) {
+			this.policy = policy;
+			this.fork = fork;
+			this.outcome = outcome;
+		}
+
+		public Map<String, String> getPolicy() {
+			return policy;
+		}
+
+		/**
+		 * Gets the metrics at the fork.
+		 *
+		 * @return the metrics, or null if the branch failed
+		 */
+		public Map<String, Double> getFork() {
+			return fork;
+		}
+
+		/**
+		 * Gets the metrics at the end of the branch.
+		 *
+		 * @return the metrics, or null if the branch failed
+		 */
+		public Map<String, Double> getOutcome() {
+			return outcome;
+		}
+
+		/**
+		 * Gets how much each metric changed since the fork.
+		 */
+		public Map<String, Double> getChange() {
+			return difference(outcome, fork);
+		}
+
+		/**
+		 * Gets how much each metric differs from another branch.
+		 */
+		public Map<String, Double> getDivergence(Branch other) {
+			return difference(outcome, other.outcome);
+		}
+
+		private static Map<String, Double> difference(Map<String, Double> a, Map<String, Double> b) {
+			if (a == null || b == null)
+				return Collections.emptyMap();
+			Map<String, Double> result = new LinkedHashMap<>();
+			for (Map.Entry<String, Double> e : a.entrySet()) {
+				Double other = b.get(e.getKey());
+				if (other != null)
+					result.put(e.getKey(), e.getValue() - other);
+			}
+			return result;
+		}
+	}
+}
@@ -119,6 +119,21 @@ public class BuildingKit extends Equipment implements Serializable, Malfunctiona
 		malfunctionManager.timePassing(time);
 	}
 
+	/**
+	 * The building kit is dormant unless it has a malfunction.
+	 * 
+	 * @return true if dormant
+	 */
+	@Override
+	public boolean isDormant() {
+		return !malfunctionManager.hasMalfunction();
+	}
+
+	@Override
+	protected void catchUp(double time) {
+		malfunctionManager.timePassing(time);
+	}
+
 //	/**
 //	 * Obtains the immediate location (either building, vehicle, a settlement's vicinity or outside on Mars)
 //	 * @return the name string of the location the unit is at
@@ -363,6 +363,16 @@ public class EVASuit extends Equipment implements LifeSupportType, Serializable,
 			this.person = null;
 	}
 
+	/**
+	 * The suit is dormant unless it is worn by a person.
+	 * 
+	 * @return true if dormant
+	 */
+	@Override
+	public boolean isDormant() {
+		return !(getContainerUnit() instanceof Person);
+	}
+
 	@Override
 	public Collection<Person> getAffectedPeople() {
 		Collection<Person> people = super.getAffectedPeople();
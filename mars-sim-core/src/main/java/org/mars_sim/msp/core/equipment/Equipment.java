@@ -133,6 +133,16 @@ public abstract class Equipment extends Unit implements Indoor, Salvagable {
 		return people;
 	}
 
+	/**
+	 * Equipment has nothing to do on time passing by default.
+	 * 
+	 * @return true if dormant
+	 */
+	@Override
+	public boolean isDormant() {
+		return true;
+	}
+
 	/**
 	 * Checks if the item is salvaged.
 	 * 
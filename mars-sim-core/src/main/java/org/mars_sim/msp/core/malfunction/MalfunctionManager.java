@@ -63,6 +63,10 @@ public class MalfunctionManager implements Serializable {
 	private static String sourceName = logger.getName().substring(logger.getName().lastIndexOf(".") + 1,
 			logger.getName().length());
 
+	/** Call sites logging from the time passing methods. */
+	private static final LogConsolidated.Site maintenanceSite = LogConsolidated.site(logger, sourceName);
+	private static final LogConsolidated.Site leakSite = LogConsolidated.site(logger, sourceName);
+
 	/** Initial estimate for malfunctions per orbit for an entity. */
 	private static double ESTIMATED_MALFUNCTIONS_PER_ORBIT = 10D;
 	/** Initial estimate for maintenances per orbit for an entity. */
@@ -111,6 +115,12 @@ public class MalfunctionManager implements Serializable {
 	 * is worn out.
 	 */
 	private double wearLifeTime;
+	/**
+	 * The effective time since last maintenance (millisols) at which the next
+	 * malfunction due to lack of maintenance and wear will occur, or zero if not
+	 * yet scheduled.
+	 */
+	private double nextFailureTime;
 
 	// Life support modifiers.
 //	private double oxygenFlowModifier = 100D;
@@ -754,24 +764,98 @@ public class MalfunctionManager implements Serializable {
 		if (wearCondition < 0D)
 			wearCondition = 0D;
 
-		double maintFactor = effectiveTimeSinceLastMaintenance * MAINTENANCE_MALFUNCTION_FACTOR;
-		double wearFactor = (100D - wearCondition) / 100D * WEAR_MALFUNCTION_FACTOR + 1D;
-		double chance = time * maintFactor * wearFactor;
+		if (nextFailureTime <= 0D)
+			scheduleNextFailure();
 
 		// Check for malfunction due to lack of maintenance and wear condition.
-		if (RandomUtil.lessThanRandPercent(chance)) {
+		if (effectiveTimeSinceLastMaintenance >= nextFailureTime) {
 			int solsLastMaint = (int) (effectiveTimeSinceLastMaintenance / 1000D);
 			// Reduce the max possible health condition
 //			maxCondition = (wearCondition + 400D)/500D; 
-			LogConsolidated.log(logger, Level.WARNING, 1000, sourceName,
-					"[" + entity.getImmediateLocation() + "] " + entity.getNickName() + " is behind on maintenance.  "
+			maintenanceSite.log(Level.WARNING, 1000,
+					() -> "[" + entity.getImmediateLocation() + "] " + entity.getNickName() + " is behind on maintenance.  "
 							+ "Time since last check-up: " + solsLastMaint + " sols.  Condition: " + Math.round(wearCondition*10.0)/10.0
 							+ " %.",
 					null);
 
 			// TODO: does it use field reliability statistics to select a malfunction ?
 			selectMalfunction(null);
+
+			scheduleNextFailure();
+		}
+	}
+
+	/**
+	 * Samples when the next malfunction due to lack of maintenance and wear will
+	 * occur. The chance of a malfunction per millisol of active use grows with
+	 * the effective time since last maintenance and with wear, so the time is
+	 * drawn by inverting the cumulative hazard at a random exponential variate.
+	 */
+	private void scheduleNextFailure() {
+		double variate = -Math.log(1D - RandomUtil.getRandomDouble(1D));
+		nextFailureTime = effectiveTimeSinceLastMaintenance
+				+ getTimeToFailure(effectiveTimeSinceLastMaintenance, wearCondition, wearLifeTime, variate);
+	}
+
+	/**
+	 * Gets the cumulative hazard of a malfunction due to lack of maintenance and
+	 * wear over a period of active use.
+	 * 
+	 * @param effectiveTime the effective time since last maintenance at the start
+	 *                      (millisols)
+	 * @param wear          the wear condition at the start (%)
+	 * @param lifeTime      the wear life time (millisols)
+	 * @param time          the period of active use (millisols)
+	 * @return the cumulative hazard
+	 */
+	static double getCumulativeHazard(double effectiveTime, double wear, double lifeTime, double time) {
+		// The chance (in %) for a short time dt is
+		// dt * (E + u) * MAINTENANCE_MALFUNCTION_FACTOR * (a + b * u)
+		double rate = MAINTENANCE_MALFUNCTION_FACTOR / 100D;
+		double a = (100D - wear) / 100D * WEAR_MALFUNCTION_FACTOR + 1D;
+		double b = (lifeTime > 0D) ? WEAR_MALFUNCTION_FACTOR / lifeTime : 0D;
+		// The wear condition bottoms out at zero.
+		double wornTime = (lifeTime > 0D) ? wear / 100D * lifeTime : Double.MAX_VALUE;
+		double u = Math.min(time, wornTime);
+
+		double result = rate * ((effectiveTime * a * u) + ((effectiveTime * b + a) * u * u / 2D) + (b * u * u * u / 3D));
+		if (time > wornTime) {
+			double v = time - wornTime;
+			double maxWear = WEAR_MALFUNCTION_FACTOR + 1D;
+			result += rate * maxWear * (((effectiveTime + wornTime) * v) + (v * v / 2D));
 		}
+		return result;
+	}
+
+	/**
+	 * Gets the period of active use after which the cumulative hazard of a
+	 * malfunction due to lack of maintenance and wear reaches a given value.
+	 * 
+	 * @param effectiveTime the effective time since last maintenance at the start
+	 *                      (millisols)
+	 * @param wear          the wear condition at the start (%)
+	 * @param lifeTime      the wear life time (millisols)
+	 * @param hazard        the cumulative hazard to reach
+	 * @return the period of active use (millisols)
+	 */
+	static double getTimeToFailure(double effectiveTime, double wear, double lifeTime, double hazard) {
+		double high = 1000D;
+		while (getCumulativeHazard(effectiveTime, wear, lifeTime, high) < hazard) {
+			high *= 2D;
+			if (high > 1E15)
+				return Double.MAX_VALUE;
+		}
+		double low = 0D;
+		// The cumulative hazard grows monotonically, so bisect to within a
+		// fraction of a millisol.
+		while (high - low > .01D) {
+			double mid = (low + high) / 2D;
+			if (getCumulativeHazard(effectiveTime, wear, lifeTime, mid) < hazard)
+				low = mid;
+			else
+				high = mid;
+		}
+		return high;
 	}
 
 	/**
@@ -841,15 +925,16 @@ public class MalfunctionManager implements Serializable {
 	 * @param time
 	 */
 	public void checkFixedMalfunction(double time) { 
+		if (!hasMalfunction())
+			return;
+
 		Collection<Malfunction> fixedMalfunctions = new ArrayList<Malfunction>();
 
 		// Check if any malfunctions are fixed.
-		if (hasMalfunction()) {
-			for (Malfunction m : malfunctions) {
-				if (m.isFixed()) {
-					System.out.println(m.getName() + " is fixed.");
-					fixedMalfunctions.add(m);
-				}
+		for (Malfunction m : malfunctions) {
+			if (m.isFixed()) {
+				System.out.println(m.getName() + " is fixed.");
+				fixedMalfunctions.add(m);
 			}
 		}
 
@@ -987,9 +1072,10 @@ public class MalfunctionManager implements Serializable {
 						}
 						if (amountDepleted >= 0) {
 							inv.retrieveAmountResource(resource, amountDepleted);
-							LogConsolidated.log(logger, Level.WARNING, 15_000, sourceName,
-									"[" + getUnit().getLocationTag().getLocale() + "] Leaking "
-											+ Math.round(amountDepleted*100.0)/100.0 + " of  " + ResourceUtil.findAmountResource(resource) 
+							double leaked = amountDepleted;
+							leakSite.log(Level.WARNING, 15_000,
+									() -> "[" + getUnit().getLocationTag().getLocale() + "] Leaking "
+											+ Math.round(leaked*100.0)/100.0 + " of  " + ResourceUtil.findAmountResource(resource) 
 											+ " in " + getUnit().getLocationTag().getImmediateLocation()+ ".", null);
 						}
 					}
@@ -1236,6 +1322,8 @@ public class MalfunctionManager implements Serializable {
 			maintenanceTimeCompleted = 0D;
 			timeSinceLastMaintenance = 0D;
 			effectiveTimeSinceLastMaintenance = 0D;
+			// Maintenance lowers the hazard, so resample the next malfunction.
+			scheduleNextFailure();
 			determineNewMaintenanceParts();
 			numberMaintenances++;
 		}
@@ -0,0 +1,337 @@
+/**
+ * Mars Simulation Project
+ * MineralFieldIndex.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.core.mars;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mars_sim.msp.core.Coordinates;
+
+/**
+ * The MineralFieldIndex class partitions the mineral concentrations of a
+ * mineral map by mineral type and buckets them on a latitude/longitude grid,
+ * so that a query only evaluates the concentrations near its location. It can
+ * also precompute a concentration raster for each mineral type for map
+ * rendering.
+ */
+class MineralFieldIndex {
+
+	/** The angular size of a bucket (radians). */
+	static final double CELL_ANGLE = .04D;
+	/** The largest concentration, which is also its range (km). */
+	static final double MAX_CONCENTRATION = 100D;
+
+	private static final int ROWS = (int) Math.ceil(Math.PI / CELL_ANGLE);
+	private static final int COLUMNS = (int) Math.ceil(2D * Math.PI / CELL_ANGLE);
+	/** Concentrations closer than this to a pole reach further in longitude. */
+	private static final double POLAR_PHI = Math.PI / 7D;
+	/** The largest angular distance a concentration reaches. */
+	private static final double MAX_RANGE_ANGLE = MAX_CONCENTRATION / Mars.MARS_RADIUS_KM;
+
+	/** The angular size of a raster cell (radians). */
+	private static final double RASTER_ANGLE = .005D;
+	private static final int RASTER_ROWS = (int) Math.ceil(Math.PI / RASTER_ANGLE);
+	private static final int RASTER_COLUMNS = (int) Math.ceil(2D * Math.PI / RASTER_ANGLE);
+	/** The raster value of 100% concentration. */
+	private static final double RASTER_SCALE = 2.55D;
+
+	/** The indexed mineral concentrations. */
+	private List<MineralConcentration> concentrations;
+	/** The mineral type ids keyed by lower case mineral type name. */
+	private Map<String, Integer> typeIds;
+	/** The mineral type names by id. */
+	private List<String> typeNames;
+	/** The indices of the concentrations in each bucket, by mineral type id. */
+	private int[][][] buckets;
+	/** The concentration rasters, by mineral type id. */
+	private byte[][] rasters;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param concentrations the mineral concentrations to index.
+	 */
+	MineralFieldIndex(List<MineralConcentration> concentrations) {
+		this.concentrations = concentrations;
+		typeIds = new HashMap<String, Integer>();
+		typeNames = new ArrayList<String>();
+
+		List<List<List<Integer>>> lists = new ArrayList<List<List<Integer>>>();
+		for (int i = 0; i < concentrations.size(); i++) {
+			MineralConcentration concentration = concentrations.get(i);
+			String key = concentration.getMineralType().toLowerCase();
+			Integer id = typeIds.get(key);
+			if (id == null) {
+				id = typeNames.size();
+				typeIds.put(key, id);
+				typeNames.add(concentration.getMineralType());
+				List<List<Integer>> cells = new ArrayList<List<Integer>>(ROWS * COLUMNS);
+				for (int c = 0; c < ROWS * COLUMNS; c++) {
+					cells.add(null);
+				}
+				lists.add(cells);
+			}
+			Coordinates location = concentration.getLocation();
+			int cell = (getRow(location.getPhi()) * COLUMNS) + getColumn(location.getTheta());
+			List<List<Integer>> cells = lists.get(id);
+			if (cells.get(cell) == null)
+				cells.set(cell, new ArrayList<Integer>(2));
+			cells.get(cell).add(i);
+		}
+
+		buckets = new int[typeNames.size()][][];
+		for (int t = 0; t < buckets.length; t++) {
+			buckets[t] = new int[ROWS * COLUMNS][];
+			List<List<Integer>> cells = lists.get(t);
+			for (int c = 0; c < cells.size(); c++) {
+				List<Integer> list = cells.get(c);
+				if (list != null) {
+					int[] indices = new int[list.size()];
+					for (int k = 0; k < indices.length; k++) {
+						indices[k] = list.get(k);
+					}
+					buckets[t][c] = indices;
+				}
+			}
+		}
+		rasters = new byte[typeNames.size()][];
+	}
+
+	/**
+	 * Gets the mineral concentration of a mineral type at a location.
+	 *
+	 * @param mineralType the mineral type name.
+	 * @param location    the location.
+	 * @return percentage concentration (0 to 100.0)
+	 */
+	double getMineralConcentration(String mineralType, Coordinates location) {
+		Integer id = typeIds.get(mineralType.toLowerCase());
+		if (id == null)
+			return 0D;
+		return getMineralConcentration(id, location);
+	}
+
+	/**
+	 * Gets all of the mineral concentrations at a location.
+	 *
+	 * @param location the location.
+	 * @return map of mineral types and percentage concentration (0 to 100.0)
+	 */
+	Map<String, Double> getAllMineralConcentrations(Coordinates location) {
+		Map<String, Double> result = null;
+		for (int t = 0; t < buckets.length; t++) {
+			double concentration = getMineralConcentration(t, location);
+			if (concentration > 0D) {
+				if (result == null)
+					result = new HashMap<String, Double>();
+				result.put(typeNames.get(t), concentration);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the indices of all concentrations that may lie within an angular
+	 * distance of a location, in ascending order.
+	 *
+	 * @param location the location.
+	 * @param angle    the angular distance (radians).
+	 * @return the concentration indices.
+	 */
+	List<Integer> getNearbyConcentrations(Coordinates location, double angle) {
+		double phi = location.getPhi();
+		int firstRow = getRow(phi - angle);
+		int lastRow = getRow(phi + angle);
+
+		// Find the longitude span unless the area includes a pole.
+		int columnSpan = COLUMNS;
+		if ((phi - angle) > 0D && (phi + angle) < Math.PI) {
+			double ratio = Math.sin(angle) / Math.sin(phi);
+			if (ratio < 1D)
+				columnSpan = (int) Math.ceil(Math.asin(ratio) / CELL_ANGLE) + 1;
+		}
+
+		List<Integer> result = new ArrayList<Integer>();
+		if (columnSpan * 2 + 1 >= COLUMNS) {
+			for (int t = 0; t < buckets.length; t++) {
+				addBuckets(result, buckets[t], firstRow, lastRow, 0, COLUMNS - 1, false);
+			}
+		} else {
+			int column = getColumn(location.getTheta());
+			for (int t = 0; t < buckets.length; t++) {
+				addBuckets(result, buckets[t], firstRow, lastRow, column - columnSpan, column + columnSpan, true);
+			}
+		}
+
+		int[] sorted = new int[result.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = result.get(i);
+		}
+		Arrays.sort(sorted);
+		result.clear();
+		for (int i : sorted) {
+			result.add(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the mineral concentration of a mineral type at a location from the
+	 * precomputed raster. The raster is computed on first use.
+	 *
+	 * @param mineralType the mineral type name.
+	 * @param location    the location.
+	 * @return approximate percentage concentration (0 to 100.0)
+	 */
+	double getRasterMineralConcentration(String mineralType, Coordinates location) {
+		Integer id = typeIds.get(mineralType.toLowerCase());
+		if (id == null)
+			return 0D;
+		byte[] raster = getRaster(id);
+		int row = Math.min(RASTER_ROWS - 1, Math.max(0, (int) (location.getPhi() / RASTER_ANGLE)));
+		int column = Math.floorMod((int) Math.floor(location.getTheta() / RASTER_ANGLE), RASTER_COLUMNS);
+		return (raster[(row * RASTER_COLUMNS) + column] & 0xFF) / RASTER_SCALE;
+	}
+
+	/**
+	 * Gets the concentration raster of a mineral type, computing it if necessary.
+	 *
+	 * @param id the mineral type id.
+	 * @return the raster.
+	 */
+	private synchronized byte[] getRaster(int id) {
+		if (rasters[id] == null) {
+			float[] sums = new float[RASTER_ROWS * RASTER_COLUMNS];
+			for (int[] cell : buckets[id]) {
+				if (cell == null)
+					continue;
+				for (int i : cell) {
+					addToRaster(sums, concentrations.get(i));
+				}
+			}
+			byte[] raster = new byte[sums.length];
+			for (int i = 0; i < sums.length; i++) {
+				raster[i] = (byte) Math.round(Math.min(100D, sums[i]) * RASTER_SCALE);
+			}
+			rasters[id] = raster;
+		}
+		return rasters[id];
+	}
+
+	/**
+	 * Adds the effect of a concentration to the raster cells it reaches.
+	 *
+	 * @param sums          the raster of summed concentrations.
+	 * @param concentration the mineral concentration.
+	 */
+	private static void addToRaster(float[] sums, MineralConcentration concentration) {
+		double phi = concentration.getLocation().getPhi();
+		double theta = concentration.getLocation().getTheta();
+		double diffLimit = getDiffLimit(phi);
+		double phiLimit = Math.min(diffLimit, MAX_RANGE_ANGLE + RASTER_ANGLE);
+
+		int firstRow = Math.max(0, (int) ((phi - phiLimit) / RASTER_ANGLE));
+		int lastRow = Math.min(RASTER_ROWS - 1, (int) ((phi + phiLimit) / RASTER_ANGLE));
+		int firstColumn = Math.max(0, (int) ((theta - diffLimit) / RASTER_ANGLE));
+		int lastColumn = Math.min(RASTER_COLUMNS - 1, (int) ((theta + diffLimit) / RASTER_ANGLE));
+		for (int row = firstRow; row <= lastRow; row++) {
+			double cellPhi = (row + .5D) * RASTER_ANGLE;
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				Coordinates cellLocation = new Coordinates(cellPhi, (column + .5D) * RASTER_ANGLE);
+				double effect = RandomMineralMap.getMineralConcentrationEffect(concentration, cellLocation);
+				if (effect > 0D)
+					sums[(row * RASTER_COLUMNS) + column] += effect;
+			}
+		}
+	}
+
+	/**
+	 * Gets the mineral concentration of a mineral type id at a location.
+	 *
+	 * @param id       the mineral type id.
+	 * @param location the location.
+	 * @return percentage concentration (0 to 100.0)
+	 */
+	private double getMineralConcentration(int id, Coordinates location) {
+		double result = 0D;
+		double phi = location.getPhi();
+		int row = getRow(phi);
+		int firstRow = Math.max(0, row - 1);
+		int lastRow = Math.min(ROWS - 1, row + 1);
+
+		// Concentrations near a pole reach further in longitude.
+		boolean polar = (phi < POLAR_PHI + CELL_ANGLE) || (phi > Math.PI - POLAR_PHI - CELL_ANGLE);
+		int column = getColumn(location.getTheta());
+		int firstColumn = polar ? 0 : Math.max(0, column - 1);
+		int lastColumn = polar ? COLUMNS - 1 : Math.min(COLUMNS - 1, column + 1);
+
+		int[][] cells = buckets[id];
+		for (int r = firstRow; r <= lastRow; r++) {
+			for (int c = firstColumn; c <= lastColumn; c++) {
+				int[] cell = cells[(r * COLUMNS) + c];
+				if (cell == null)
+					continue;
+				for (int i : cell) {
+					result += RandomMineralMap.getMineralConcentrationEffect(concentrations.get(i), location);
+				}
+			}
+		}
+
+		return Math.min(100D, result);
+	}
+
+	/**
+	 * Adds the concentration indices in a block of buckets to a list.
+	 *
+	 * @param result      the list.
+	 * @param cells       the buckets of a mineral type.
+	 * @param firstRow    the first row.
+	 * @param lastRow     the last row.
+	 * @param firstColumn the first column.
+	 * @param lastColumn  the last column.
+	 * @param wrap        true if the columns wrap around in longitude.
+	 */
+	private static void addBuckets(List<Integer> result, int[][] cells, int firstRow, int lastRow, int firstColumn,
+			int lastColumn, boolean wrap) {
+		for (int r = firstRow; r <= lastRow; r++) {
+			for (int c = firstColumn; c <= lastColumn; c++) {
+				int column = wrap ? Math.floorMod(c, COLUMNS) : c;
+				int[] cell = cells[(r * COLUMNS) + column];
+				if (cell != null) {
+					for (int i : cell) {
+						result.add(i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the largest phi or theta difference at which a concentration has an
+	 * effect.
+	 *
+	 * @param phi the phi of the concentration.
+	 * @return the difference limit (radians)
+	 */
+	static double getDiffLimit(double phi) {
+		double diffLimit = CELL_ANGLE;
+		if ((phi < POLAR_PHI) || phi > Math.PI - POLAR_PHI)
+			diffLimit += Math.abs(Math.cos(phi));
+		return diffLimit;
+	}
+
+	private static int getRow(double phi) {
+		return Math.min(ROWS - 1, Math.max(0, (int) (phi / CELL_ANGLE)));
+	}
+
+	private static int getColumn(double theta) {
+		return Math.min(COLUMNS - 1, Math.max(0, (int) (theta / CELL_ANGLE)));
+	}
+}
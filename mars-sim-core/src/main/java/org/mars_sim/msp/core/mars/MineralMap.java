@@ -25,6 +25,17 @@ public interface MineralMap {
 	 */
 	public double getMineralConcentration(String mineralType, Coordinates location);
 
+	/**
+	 * Gets the approximate mineral concentration at a given location from a
+	 * precomputed raster. It is faster than getMineralConcentration and meant for
+	 * map rendering.
+	 * 
+	 * @param mineralType the mineral type (see MineralMap.java)
+	 * @param location    the coordinate location.
+	 * @return percentage concentration (0 to 100.0)
+	 */
+	public double getRasterMineralConcentration(String mineralType, Coordinates location);
+
 	/**
 	 * Gets all of the mineral concentrations at a given location.
 	 * 
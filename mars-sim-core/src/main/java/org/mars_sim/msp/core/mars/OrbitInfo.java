@@ -421,8 +421,9 @@ public class OrbitInfo implements Serializable {
 
 		double solar_time = marsClock.getMillisol();
 
-		// compute latitude in radians rather than in degree
-		double lat = location.getPhi2LatRadian();
+		// compute the signed latitude in radians, positive in the north, so that
+		// the southern hemisphere is not mirrored onto the northern one
+		double lat = HALF_PI - location.getPhi();
 
 		// TODO: figure out a more compact Equation of Time (EOT) using numerical model
 		// of the Mars "Analemma".
@@ -457,6 +458,28 @@ public class OrbitInfo implements Serializable {
 		computeSineSolarDeclinationAngle();
 		double d = getSolarDeclinationAngle();
 
+		double theta_offset = location.getTheta() * 159.1519;
+		// 159.1519 = 1000D / 2D / Math.PI ; // convert theta (longitude) from radians
+		// to millisols;
+
+		double EOT_in_millisol = getEquationOfTime();
+
+		double modified_solar_time = theta_offset + solar_time + EOT_in_millisol;
+		// The hour angle is measured from the true noon westward, represented by h = 2
+		// * pi * t / P, t is time past noon in seconds
+		double h = (modified_solar_time - 500D) / 159.1519;
+
+		return Math.sin(lat) * sineSolarDeclinationAngle + Math.cos(lat) * Math.cos(d) * Math.cos(h);
+
+	}
+
+	/**
+	 * Gets the equation of time, the offset of the true solar time from the mean
+	 * solar time, from the areocentric longitude.
+	 * 
+	 * @return the offset in millisols
+	 */
+	private double getEquationOfTime() {
 		double equation_of_time_offset = 0;
 
 		double Ls = getL_s();
@@ -475,21 +498,26 @@ public class OrbitInfo implements Serializable {
 		else if (Ls <= 360)
 			equation_of_time_offset = -41D - 10 * Math.sin(90D / 34D * (Ls - 326) * DEGREE_TO_RADIAN);
 
-		double theta_offset = location.getTheta() * 159.1519;
-		// 159.1519 = 1000D / 2D / Math.PI ; // convert theta (longitude) from radians
-		// to millisols;
-
-		double EOT_in_millisol = equation_of_time_offset * 0.6759;
+		return equation_of_time_offset * 0.6759;
 		// 0.6759 = 60D / SOLAR_DAY * 1000D; // convert from min to millisols
+	}
 
-		double modified_solar_time = theta_offset + solar_time + EOT_in_millisol;
-		// The hour angle is measured from the true noon westward, represented by h = 2
-		// * pi * t / P, t is time past noon in seconds
-		double h = 0.0063 * Math.abs(modified_solar_time - 500D);
-		// 0.0063 = 2D * Math.PI / 1000D;
-
-		return Math.sin(lat) * sineSolarDeclinationAngle + Math.cos(lat) * Math.cos(d) * Math.cos(h);
-
+	/**
+	 * Gets the sub-solar point, where the sun is at the zenith. The cosine of the
+	 * solar zenith angle at any location, as given by
+	 * {@link #getCosineSolarZenithAngle(Coordinates)}, is the dot product of its
+	 * unit vector with the unit vector of this point.
+	 * 
+	 * @return the sub-solar point
+	 */
+	public Coordinates getSubSolarLocation() {
+		computeSineSolarDeclinationAngle();
+		double phi = HALF_PI - getSolarDeclinationAngle();
+		// The hour angle is zero where the modified solar time is noon
+		double theta = (500D - marsClock.getMillisol() - getEquationOfTime()) / 159.1519 % TWO_PIs;
+		if (theta < 0D)
+			theta += TWO_PIs;
+		return new Coordinates(phi, theta);
 	}
 
 	/**
@@ -60,6 +60,8 @@ public class RandomMineralMap implements Serializable, MineralMap {
 
 	// List of all mineral concentrations.
 	private List<MineralConcentration> mineralConcentrations;
+	/** The spatial index of the mineral concentrations. */
+	private transient MineralFieldIndex fieldIndex;
 
 	/**
 	 * Constructor
@@ -199,27 +201,9 @@ public class RandomMineralMap implements Serializable, MineralMap {
 	 * @return map of mineral types and percentage concentration (0 to 100.0)
 	 */
 	public Map<String, Double> getAllMineralConcentrations(Coordinates location) {
-		Map<String, Double> result = Collections.emptyMap();
-		boolean emptyMap = true;
-
-		Iterator<MineralConcentration> i = mineralConcentrations.iterator();
-		while (i.hasNext()) {
-			MineralConcentration mineralConcentration = i.next();
-			double effect = getMineralConcentrationEffect(mineralConcentration, location);
-			if (effect > 0D) {
-				if (emptyMap) {
-					result = new HashMap<String, Double>();
-					emptyMap = false;
-				}
-				double totalConcentration = 0D;
-				if (result.containsKey(mineralConcentration.getMineralType()))
-					totalConcentration = result.get(mineralConcentration.getMineralType());
-				totalConcentration += effect;
-				if (totalConcentration > 100D)
-					totalConcentration = 100D;
-				result.put(mineralConcentration.getMineralType(), totalConcentration);
-			}
-		}
+		Map<String, Double> result = getFieldIndex().getAllMineralConcentrations(location);
+		if (result == null)
+			return Collections.emptyMap();
 		return result;
 	}
 
@@ -231,19 +215,31 @@ public class RandomMineralMap implements Serializable, MineralMap {
 	 * @return percentage concentration (0 to 100.0)
 	 */
 	public double getMineralConcentration(String mineralType, Coordinates location) {
-		double result = 0D;
+		return getFieldIndex().getMineralConcentration(mineralType, location);
+	}
 
-		Iterator<MineralConcentration> i = mineralConcentrations.iterator();
-		while (i.hasNext()) {
-			MineralConcentration mineralConcentration = i.next();
-			if (mineralConcentration.getMineralType().equalsIgnoreCase(mineralType)) {
-				result += getMineralConcentrationEffect(mineralConcentration, location);
-				if (result > 100D)
-					result = 100D;
-			}
-		}
+	/**
+	 * Gets the approximate mineral concentration at a given location from a
+	 * precomputed raster of the mineral type.
+	 * 
+	 * @param mineralType the mineral type (see MineralMap.java)
+	 * @param location    the coordinate location.
+	 * @return percentage concentration (0 to 100.0)
+	 */
+	public double getRasterMineralConcentration(String mineralType, Coordinates location) {
+		return getFieldIndex().getRasterMineralConcentration(mineralType, location);
+	}
 
-		return result;
+	/**
+	 * Gets the spatial index of the mineral concentrations, building it if
+	 * necessary.
+	 * 
+	 * @return the field index.
+	 */
+	private synchronized MineralFieldIndex getFieldIndex() {
+		if (fieldIndex == null)
+			fieldIndex = new MineralFieldIndex(mineralConcentrations);
+		return fieldIndex;
 	}
 
 	/**
@@ -253,16 +249,14 @@ public class RandomMineralMap implements Serializable, MineralMap {
 	 * @param location      the location to affect.
 	 * @return concentration effect (0% - 100%).
 	 */
-	private double getMineralConcentrationEffect(MineralConcentration concentration, Coordinates location) {
+	static double getMineralConcentrationEffect(MineralConcentration concentration, Coordinates location) {
 		double result = 0D;
 
 		double concentrationPhi = concentration.getLocation().getPhi();
 		double concentrationTheta = concentration.getLocation().getTheta();
 		double phiDiff = Math.abs(location.getPhi() - concentrationPhi);
 		double thetaDiff = Math.abs(location.getTheta() - concentrationTheta);
-		double diffLimit = .04D;
-		if ((concentrationPhi < Math.PI / 7D) || concentrationPhi > Math.PI - (Math.PI / 7D))
-			diffLimit += Math.abs(Math.cos(concentrationPhi));
+		double diffLimit = MineralFieldIndex.getDiffLimit(concentrationPhi);
 		if ((phiDiff < diffLimit) && (thetaDiff < diffLimit)) {
 			double distance = location.getDistance(concentration.getLocation());
 			double concentrationRange = concentration.getConcentration();
@@ -307,9 +301,10 @@ public class RandomMineralMap implements Serializable, MineralMap {
 
 		List<MineralConcentration> locales = new ArrayList<MineralConcentration>(0);
 
-		Iterator<MineralConcentration> i = mineralConcentrations.iterator();
+		double angle = (range + MineralFieldIndex.MAX_CONCENTRATION) / Mars.MARS_RADIUS_KM;
+		Iterator<Integer> i = getFieldIndex().getNearbyConcentrations(startingLocation, angle).iterator();
 		while (i.hasNext()) {
-			MineralConcentration mineralConc = i.next();
+			MineralConcentration mineralConc = mineralConcentrations.get(i.next());
 			double distance = startingLocation.getDistance(mineralConc.getLocation());
 			if (range > (distance - mineralConc.getConcentration())) {
 				locales.add(mineralConc);
@@ -332,6 +327,7 @@ public class RandomMineralMap implements Serializable, MineralMap {
 
 	@Override
 	public void destroy() {
+		fieldIndex = null;
 		mineralConcentrations.clear();
 		mineralConcentrations = null;
 	}
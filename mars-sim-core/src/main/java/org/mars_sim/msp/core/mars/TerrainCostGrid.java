@@ -0,0 +1,234 @@
+/**
+ * Mars Simulation Project
+ * TerrainCostGrid.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.core.mars;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.Direction;
+
+/**
+ * The TerrainCostGrid class is a raster of the surface elevation and slope of
+ * Mars sampled once from the topographical map. Each cell covers half a degree
+ * of latitude and longitude. Looking up the grade of the terrain or the
+ * elevation change between two cells is a table lookup, which makes it cheap
+ * enough for route planning and for the per-step drive loop.
+ */
+public class TerrainCostGrid {
+
+	/** The number of rows (latitude) in the grid. */
+	public static final int ROWS = 360;
+	/** The number of columns (longitude) in the grid. */
+	public static final int COLUMNS = ROWS * 2;
+	/** The angular size of a cell (radians). */
+	public static final double CELL_ANGLE = Math.PI / ROWS;
+
+	/** The north-south size of a cell (km). */
+	private static final double NORTH_SOUTH_DISTANCE = Mars.MARS_RADIUS_KM * CELL_ANGLE;
+	/** The smallest east-west size of a cell near the poles (km). */
+	private static final double MIN_EAST_WEST_DISTANCE = 1D;
+
+	/** The elevation at the center of each cell (km). */
+	private float[] elevation;
+	/** The elevation gain per km toward the north in each cell. */
+	private float[] slopeNorth;
+	/** The elevation gain per km toward the east in each cell. */
+	private float[] slopeEast;
+	/** The east-west size of a cell in each row (km). */
+	private double[] eastWestDistance;
+	/** The sine and cosine of the phi of each row. */
+	private double[] sinPhi;
+	private double[] cosPhi;
+	/** The sine and cosine of the theta of each column. */
+	private double[] sinTheta;
+	private double[] cosTheta;
+
+	/**
+	 * Constructor. Samples the terrain elevation for every cell.
+	 *
+	 * @param terrain the terrain elevation.
+	 */
+	public TerrainCostGrid(TerrainElevation terrain) {
+		int size = ROWS * COLUMNS;
+		elevation = new float[size];
+		slopeNorth = new float[size];
+		slopeEast = new float[size];
+		eastWestDistance = new double[ROWS];
+		sinPhi = new double[ROWS];
+		cosPhi = new double[ROWS];
+		sinTheta = new double[COLUMNS];
+		cosTheta = new double[COLUMNS];
+
+		for (int column = 0; column < COLUMNS; column++) {
+			sinTheta[column] = Math.sin(getTheta(column));
+			cosTheta[column] = Math.cos(getTheta(column));
+		}
+
+		for (int row = 0; row < ROWS; row++) {
+			double phi = getPhi(row);
+			sinPhi[row] = Math.sin(phi);
+			cosPhi[row] = Math.cos(phi);
+			eastWestDistance[row] = Math.max(MIN_EAST_WEST_DISTANCE, Mars.MARS_RADIUS_KM * CELL_ANGLE * Math.sin(phi));
+			for (int column = 0; column < COLUMNS; column++) {
+				Coordinates location = new Coordinates(phi, getTheta(column));
+				elevation[getIndex(row, column)] = (float) terrain.getElevation(location);
+			}
+		}
+
+		// Determine the slope of each cell by central differences.
+		for (int row = 0; row < ROWS; row++) {
+			int north = Math.max(0, row - 1);
+			int south = Math.min(ROWS - 1, row + 1);
+			double northSouth = (south - north) * NORTH_SOUTH_DISTANCE;
+			double eastWest = 2D * eastWestDistance[row];
+			for (int column = 0; column < COLUMNS; column++) {
+				int index = getIndex(row, column);
+				slopeNorth[index] = (float) ((elevation[getIndex(north, column)] - elevation[getIndex(south, column)])
+						/ northSouth);
+				slopeEast[index] = (float) ((elevation[getIndex(row, column + 1)]
+						- elevation[getIndex(row, column - 1)]) / eastWest);
+			}
+		}
+	}
+
+	/**
+	 * Gets the terrain grade at a location in a given direction.
+	 *
+	 * @param location  the location.
+	 * @param direction the direction of travel.
+	 * @return terrain grade angle (radians), positive uphill.
+	 */
+	public double getGrade(Coordinates location, Direction direction) {
+		int index = getIndex(location);
+		double slope = (slopeNorth[index] * direction.getCosDirection())
+				+ (slopeEast[index] * direction.getSinDirection());
+		return Math.atan(slope);
+	}
+
+	/**
+	 * Gets the grade of the step between two neighbouring cells.
+	 *
+	 * @param from the index of the starting cell.
+	 * @param to   the index of the ending cell.
+	 * @return the absolute grade angle (radians).
+	 */
+	public double getStepGrade(int from, int to) {
+		double distance = getCellDistance(from, to);
+		if (distance <= 0D)
+			return 0D;
+		return Math.atan(Math.abs(elevation[to] - elevation[from]) / distance);
+	}
+
+	/**
+	 * Gets the approximate surface distance between the centers of two
+	 * neighbouring cells.
+	 *
+	 * @param from the index of the starting cell.
+	 * @param to   the index of the ending cell.
+	 * @return distance (km)
+	 */
+	public double getCellDistance(int from, int to) {
+		int fromRow = getRow(from);
+		int rowDiff = Math.abs(getRow(to) - fromRow);
+		int columnDiff = Math.abs(getColumn(to) - getColumn(from));
+		if (columnDiff > COLUMNS / 2)
+			columnDiff = COLUMNS - columnDiff;
+		double ns = rowDiff * NORTH_SOUTH_DISTANCE;
+		double ew = columnDiff * eastWestDistance[fromRow];
+		return Math.sqrt((ns * ns) + (ew * ew));
+	}
+
+	/**
+	 * Gets the great circle distance between the centers of any two cells.
+	 *
+	 * @param from the index of the starting cell.
+	 * @param to   the index of the ending cell.
+	 * @return distance (km)
+	 */
+	public double getSurfaceDistance(int from, int to) {
+		int fromRow = getRow(from);
+		int toRow = getRow(to);
+		int fromColumn = getColumn(from);
+		int toColumn = getColumn(to);
+		double cosThetaDiff = (cosTheta[fromColumn] * cosTheta[toColumn])
+				+ (sinTheta[fromColumn] * sinTheta[toColumn]);
+		double cosAngle = (sinPhi[fromRow] * sinPhi[toRow] * cosThetaDiff) + (cosPhi[fromRow] * cosPhi[toRow]);
+		return Mars.MARS_RADIUS_KM * Math.acos(Math.max(-1D, Math.min(1D, cosAngle)));
+	}
+
+	/**
+	 * Gets the elevation at the center of a cell.
+	 *
+	 * @param index the cell index.
+	 * @return elevation (km)
+	 */
+	public double getElevation(int index) {
+		return elevation[index];
+	}
+
+	/**
+	 * Gets the index of the cell containing a location.
+	 *
+	 * @param location the location.
+	 * @return the cell index.
+	 */
+	public int getIndex(Coordinates location) {
+		return getIndex(location.getPhi(), location.getTheta());
+	}
+
+	/**
+	 * Gets the index of the cell containing a location.
+	 *
+	 * @param phi   the phi of the location.
+	 * @param theta the theta of the location.
+	 * @return the cell index.
+	 */
+	public int getIndex(double phi, double theta) {
+		int row = (int) (phi / CELL_ANGLE);
+		if (row < 0)
+			row = 0;
+		else if (row >= ROWS)
+			row = ROWS - 1;
+		int column = (int) Math.floor(theta / CELL_ANGLE);
+		return getIndex(row, column);
+	}
+
+	/**
+	 * Gets the index of a cell. The column wraps around in longitude.
+	 *
+	 * @param row    the row.
+	 * @param column the column.
+	 * @return the cell index.
+	 */
+	public int getIndex(int row, int column) {
+		return (row * COLUMNS) + Math.floorMod(column, COLUMNS);
+	}
+
+	public int getRow(int index) {
+		return index / COLUMNS;
+	}
+
+	public int getColumn(int index) {
+		return index % COLUMNS;
+	}
+
+	/**
+	 * Gets the location of the center of a cell.
+	 *
+	 * @param index the cell index.
+	 * @return the location.
+	 */
+	public Coordinates getCoordinates(int index) {
+		return new Coordinates(getPhi(getRow(index)), getTheta(getColumn(index)));
+	}
+
+	private static double getPhi(int row) {
+		return (row + .5D) * CELL_ANGLE;
+	}
+
+	private static double getTheta(int column) {
+		return (column + .5D) * CELL_ANGLE;
+	}
+}
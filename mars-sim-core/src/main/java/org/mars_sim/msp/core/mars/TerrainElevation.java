@@ -30,6 +30,9 @@ public class TerrainElevation implements Serializable {
 	private static final double ASCRAEUS_MONS_PHI = 1.363102D;
 	private static final double ASCRAEUS_MONS_THETA = 4.459316D;
 
+	/** The elevation and slope raster, sampled on first use. */
+	private transient volatile TerrainCostGrid costGrid;
+
 	/**
 	 * Constructor
 	 */
@@ -55,6 +58,26 @@ public class TerrainElevation implements Serializable {
 		return result;
 	}
 
+	/**
+	 * Gets the terrain cost grid, sampling it from the topographical map on first
+	 * use.
+	 * 
+	 * @return the terrain cost grid
+	 */
+	public TerrainCostGrid getCostGrid() {
+		TerrainCostGrid result = costGrid;
+		if (result == null) {
+			synchronized (this) {
+				result = costGrid;
+				if (result == null) {
+					result = new TerrainCostGrid(this);
+					costGrid = result;
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Returns elevation in km at the given location
 	 * 
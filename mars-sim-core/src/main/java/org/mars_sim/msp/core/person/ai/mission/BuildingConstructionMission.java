@@ -586,6 +586,7 @@ public class BuildingConstructionMission extends Mission implements Serializable
 					}
 				}
 			}
+			fireMissionUpdate(MissionEventType.VEHICLE_EVENT);
 		}
 	}
 
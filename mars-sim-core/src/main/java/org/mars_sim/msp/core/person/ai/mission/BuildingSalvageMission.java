@@ -727,6 +727,7 @@ public class BuildingSalvageMission extends Mission implements Serializable {
 						endMission(Msg.getString("BuildingSalvageMission.log.noLUV")); //$NON-NLS-1$
 				}
 			}
+			fireMissionUpdate(MissionEventType.VEHICLE_EVENT);
 		}
 	}
 
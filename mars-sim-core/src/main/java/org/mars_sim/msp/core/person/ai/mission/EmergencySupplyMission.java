@@ -717,7 +717,7 @@ public class EmergencySupplyMission extends RoverMission implements Serializable
 
 		boolean result = false;
 
-		Iterator<Mission> i = missionManager.getMissions().iterator();
+		Iterator<Mission> i = missionManager.getMissions(EmergencySupplyMission.class).iterator();
 		while (i.hasNext()) {
 			Mission mission = i.next();
 			if (mission instanceof EmergencySupplyMission) {
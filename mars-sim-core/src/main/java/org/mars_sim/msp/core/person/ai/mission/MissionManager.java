@@ -14,6 +14,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +26,7 @@ import org.mars_sim.msp.core.person.ai.mission.meta.MetaMissionUtil;
 import org.mars_sim.msp.core.structure.Settlement;
 import org.mars_sim.msp.core.time.MarsClock;
 import org.mars_sim.msp.core.tool.RandomUtil;
+import org.mars_sim.msp.core.vehicle.GroundVehicle;
 import org.mars_sim.msp.core.vehicle.Rover;
 import org.mars_sim.msp.core.vehicle.Vehicle;
 
@@ -31,7 +35,7 @@ import org.mars_sim.msp.core.vehicle.Vehicle;
  * <br>
  * The simulation has only one mission manager.
  */
-public class MissionManager implements Serializable {
+public class MissionManager implements Serializable, MissionListener {
 
 	/** default serial id. */
 	private static final long serialVersionUID = 1L;
@@ -61,6 +65,22 @@ public class MissionManager implements Serializable {
 //	private transient MarsClock robotTimeCache;
 	private transient Map<MetaMission, Double> missionProbCache;
 	private transient Map<MetaMission, Double> robotMissionProbCache;
+
+	// Mission indexes. These are rebuilt from the mission list after loading.
+	/** The mission of each member. */
+	private transient Map<MissionMember, Mission> memberIndex;
+	/** The mission of each vehicle. */
+	private transient Map<Vehicle, Mission> vehicleIndex;
+	/** The missions associated with each settlement. */
+	private transient Map<Settlement, List<Mission>> settlementIndex;
+	/** The missions of each mission class. */
+	private transient Map<Class<? extends Mission>, List<Mission>> typeIndex;
+	/** The settlement each mission is currently indexed under. */
+	private transient Map<Mission, Settlement> indexedSettlements;
+	/** The vehicles each mission is currently indexed under. */
+	private transient Map<Mission, List<Vehicle>> indexedVehicles;
+	/** The members each mission is currently indexed under. */
+	private transient Map<Mission, Set<MissionMember>> indexedMembers;
 	
 	private static List<String> missionNames;
 
@@ -172,13 +192,26 @@ public class MissionManager implements Serializable {
 	 * @return mission for that member
 	 */
 	public Mission getMission(MissionMember member) {
-		Mission result = null;
-		for (Mission tempMission : missions) {
-			if (tempMission.hasMember(member)) {
-				result = tempMission;
+		checkIndexes();
+		return memberIndex.get(member);
+	}
+
+	/**
+	 * Gets the active missions of a given mission class.
+	 * 
+	 * @param missionClass the mission class.
+	 * @return list of missions.
+	 */
+	public List<Mission> getMissions(Class<? extends Mission> missionClass) {
+		checkIndexes();
+		List<Mission> result = new ArrayList<Mission>();
+		List<Mission> list = typeIndex.get(missionClass);
+		if (list != null) {
+			for (Mission m : list) {
+				if (!m.isDone())
+					result.add(m);
 			}
 		}
-
 		return result;
 	}
 
@@ -241,6 +274,8 @@ public class MissionManager implements Serializable {
 
 		if (!missions.contains(newMission)) {
 			missions.add(newMission);
+			checkIndexes();
+			indexMission(newMission);
 
 			// Update listeners.
 			if (listeners == null) {
@@ -269,6 +304,8 @@ public class MissionManager implements Serializable {
 
 		if (missions.contains(oldMission)) {
 			missions.remove(oldMission);
+			checkIndexes();
+			unindexMission(oldMission);
 
 			// Update listeners.
 			if (listeners == null) {
@@ -411,15 +448,12 @@ public class MissionManager implements Serializable {
 	 */
 	public int numParticularMissions(String mName, Settlement settlement) {
 		int num = 0;
-		List<Mission> m1 = getMissions();
-		if (!m1.isEmpty()) {		
-			Iterator<Mission> i = m1.iterator();
-			while (i.hasNext()) {
-				Mission m = i.next();
-				if (!m.isDone() && m.getName().equals(mName)
-						&& settlement == m.getAssociatedSettlement()) {
-					num++;
-				}
+		Iterator<Mission> i = getIndexedMissions(settlement).iterator();
+		while (i.hasNext()) {
+			Mission m = i.next();
+			if (!m.isDone() && m.getName().equals(mName)
+					&& settlement == m.getAssociatedSettlement()) {
+				num++;
 			}
 		}
 		return num;
@@ -439,15 +473,12 @@ public class MissionManager implements Serializable {
 		}
 
 		List<Mission> m0 = new ArrayList<Mission>();
-		List<Mission> m1 = getMissions();
-		if (!m1.isEmpty()) {		
-			Iterator<Mission> i = m1.iterator();
-			while (i.hasNext()) {
-				Mission m = i.next();
-				if (!m.isDone() 
-						&& settlement == m.getAssociatedSettlement()) {
-					m0.add(m);
-				}
+		Iterator<Mission> i = getIndexedMissions(settlement).iterator();
+		while (i.hasNext()) {
+			Mission m = i.next();
+			if (!m.isDone() 
+					&& settlement == m.getAssociatedSettlement()) {
+				m0.add(m);
 			}
 		}
 
@@ -468,18 +499,15 @@ public class MissionManager implements Serializable {
 		}
 		
 		List<Mission> m0 = new ArrayList<Mission>();
-		List<Mission> m1 = getMissions();
-		if (!m1.isEmpty()) {		
-			Iterator<Mission> i = m1.iterator();
-			while (i.hasNext()) {
-				Mission m = i.next();
-				if (!m.isDone() 
-						&& (settlement == m.getAssociatedSettlement())
-						&& !m.isApproved()
-						&& m.getPlan() != null
-						&& m.getPlan().getStatus() == PlanType.PENDING) {
-					m0.add(m);
-				}
+		Iterator<Mission> i = getIndexedMissions(settlement).iterator();
+		while (i.hasNext()) {
+			Mission m = i.next();
+			if (!m.isDone() 
+					&& (settlement == m.getAssociatedSettlement())
+					&& !m.isApproved()
+					&& m.getPlan() != null
+					&& m.getPlan().getStatus() == PlanType.PENDING) {
+				m0.add(m);
 			}
 		}
 
@@ -498,48 +526,21 @@ public class MissionManager implements Serializable {
 			throw new IllegalArgumentException("vehicle is null");
 		}
 
-		Mission result = null;
-
-		Iterator<Mission> i = getMissions().iterator();
-		while (i.hasNext()) {
-			Mission mission = i.next();
-			if (!mission.isDone()) {
-				if (mission instanceof VehicleMission) {
-					if (((VehicleMission) mission).getVehicle() == vehicle) {
-						result = mission;
-					}
+		checkIndexes();
 
-					if (mission instanceof Mining) {
-						if (((Mining) mission).getLightUtilityVehicle() == vehicle) {
-							result = mission;
-						}
-					}
+		Mission result = vehicleIndex.get(vehicle);
+		if (result != null && (result.isDone() || !getVehicles(result).contains(vehicle))) {
+			// The mission has since released the vehicle.
+			result = null;
+		}
 
-					if (mission instanceof Trade) {
-						Rover towingRover = (Rover) ((Trade) mission).getVehicle();
-						if (towingRover != null) {
-							if (towingRover.getTowedVehicle() == vehicle) {
-								result = mission;
-							}
-						}
-					}
-				} else if (mission instanceof BuildingConstructionMission) {
-					BuildingConstructionMission construction = (BuildingConstructionMission) mission;
-					if (construction.getConstructionVehicles() != null) {
-						if (construction.getConstructionVehicles().contains(vehicle)) {
-							result = mission;
-							// logger.info(vehicle.getName() + " has been reserved for the building
-							// construction mission.");
-						}
-					}
-					// else {
-					// result = null;
-					// }
-				} else if (mission instanceof BuildingSalvageMission) {
-					BuildingSalvageMission salvage = (BuildingSalvageMission) mission;
-					if (salvage.getConstructionVehicles().contains(vehicle)) {
-						result = mission;
-					}
+		if (result == null && vehicle.getTowingVehicle() != null) {
+			// A towed vehicle belongs to the trade mission of its towing rover.
+			Mission towingMission = vehicleIndex.get(vehicle.getTowingVehicle());
+			if (towingMission instanceof Trade && !towingMission.isDone()) {
+				Rover towingRover = (Rover) ((Trade) towingMission).getVehicle();
+				if (towingRover != null && towingRover.getTowedVehicle() == vehicle) {
+					result = towingMission;
 				}
 			}
 		}
@@ -547,6 +548,223 @@ public class MissionManager implements Serializable {
 		return result;
 	}
 
+	/**
+	 * Gets the vehicles a mission is using.
+	 * 
+	 * @param mission the mission.
+	 * @return list of vehicles.
+	 */
+	private static List<Vehicle> getVehicles(Mission mission) {
+		List<Vehicle> result = new ArrayList<Vehicle>(1);
+		if (mission instanceof VehicleMission) {
+			Vehicle v = ((VehicleMission) mission).getVehicle();
+			if (v != null)
+				result.add(v);
+			if (mission instanceof Mining) {
+				Vehicle luv = ((Mining) mission).getLightUtilityVehicle();
+				if (luv != null)
+					result.add(luv);
+			}
+		} else if (mission instanceof BuildingConstructionMission) {
+			List<GroundVehicle> list = ((BuildingConstructionMission) mission).getConstructionVehicles();
+			if (list != null)
+				result.addAll(list);
+		} else if (mission instanceof BuildingSalvageMission) {
+			List<GroundVehicle> list = ((BuildingSalvageMission) mission).getConstructionVehicles();
+			if (list != null)
+				result.addAll(list);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the indexed missions of a settlement, including ones that are done.
+	 * 
+	 * @param settlement the settlement.
+	 * @return list of missions.
+	 */
+	private List<Mission> getIndexedMissions(Settlement settlement) {
+		checkIndexes();
+		List<Mission> list = settlementIndex.get(settlement);
+		if (list == null)
+			return Collections.emptyList();
+		return list;
+	}
+
+	/**
+	 * Rebuilds the mission indexes if they are missing, e.g. after loading a saved
+	 * simulation.
+	 */
+	private void checkIndexes() {
+		if (memberIndex == null) {
+			memberIndex = new ConcurrentHashMap<MissionMember, Mission>();
+			vehicleIndex = new ConcurrentHashMap<Vehicle, Mission>();
+			settlementIndex = new ConcurrentHashMap<Settlement, List<Mission>>();
+			typeIndex = new ConcurrentHashMap<Class<? extends Mission>, List<Mission>>();
+			indexedSettlements = new ConcurrentHashMap<Mission, Settlement>();
+			indexedVehicles = new ConcurrentHashMap<Mission, List<Vehicle>>();
+			indexedMembers = new ConcurrentHashMap<Mission, Set<MissionMember>>();
+			if (missions != null) {
+				for (Mission m : missions) {
+					indexMission(m);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a mission to the indexes and starts listening to its changes.
+	 * 
+	 * @param mission the mission.
+	 */
+	private void indexMission(Mission mission) {
+		Set<MissionMember> members = ConcurrentHashMap.newKeySet();
+		for (MissionMember member : mission.getMembers()) {
+			memberIndex.put(member, mission);
+			members.add(member);
+		}
+		indexedMembers.put(mission, members);
+		typeIndex.computeIfAbsent(mission.getClass(), k -> new CopyOnWriteArrayList<Mission>()).add(mission);
+		reindexSettlement(mission);
+		reindexVehicles(mission);
+		mission.addMissionListener(this);
+	}
+
+	/**
+	 * Removes a mission from the indexes and stops listening to its changes.
+	 * 
+	 * @param mission the mission.
+	 */
+	private void unindexMission(Mission mission) {
+		mission.removeMissionListener(this);
+		Set<MissionMember> members = indexedMembers.remove(mission);
+		if (members != null) {
+			for (MissionMember member : members)
+				memberIndex.remove(member, mission);
+		}
+		List<Mission> list = typeIndex.get(mission.getClass());
+		if (list != null)
+			list.remove(mission);
+		Settlement s = indexedSettlements.remove(mission);
+		if (s != null)
+			settlementIndex.get(s).remove(mission);
+		List<Vehicle> vehicles = indexedVehicles.remove(mission);
+		if (vehicles != null) {
+			for (Vehicle v : vehicles)
+				vehicleIndex.remove(v, mission);
+		}
+	}
+
+	/**
+	 * Moves a mission to the index of its current associated settlement.
+	 * 
+	 * @param mission the mission.
+	 */
+	private void reindexSettlement(Mission mission) {
+		Settlement current = mission.getAssociatedSettlement();
+		Settlement old = indexedSettlements.get(mission);
+		if (current != old) {
+			if (old != null)
+				settlementIndex.get(old).remove(mission);
+			if (current != null) {
+				settlementIndex.computeIfAbsent(current, k -> new CopyOnWriteArrayList<Mission>()).add(mission);
+				indexedSettlements.put(mission, current);
+			} else {
+				indexedSettlements.remove(mission);
+			}
+		}
+	}
+
+	/**
+	 * Updates the index of the vehicles a mission is using.
+	 * 
+	 * @param mission the mission.
+	 */
+	private void reindexVehicles(Mission mission) {
+		List<Vehicle> old = indexedVehicles.get(mission);
+		if (old != null) {
+			for (Vehicle v : old)
+				vehicleIndex.remove(v, mission);
+		}
+		List<Vehicle> current = getVehicles(mission);
+		for (Vehicle v : current) {
+			vehicleIndex.put(v, mission);
+		}
+		indexedVehicles.put(mission, current);
+	}
+
+	/**
+	 * Catches mission update events to keep the indexes current.
+	 * 
+	 * @param event the mission event.
+	 */
+	@Override
+	public void missionUpdate(MissionEvent event) {
+		Mission mission = (Mission) event.getSource();
+		checkIndexes();
+		if (!indexedVehicles.containsKey(mission))
+			return;
+
+		MissionEventType type = event.getType();
+		if (type == MissionEventType.ADD_MEMBER_EVENT) {
+			MissionMember member = (MissionMember) event.getTarget();
+			memberIndex.put(member, mission);
+			indexedMembers.get(mission).add(member);
+		} else if (type == MissionEventType.REMOVE_MEMBER_EVENT) {
+			MissionMember member = (MissionMember) event.getTarget();
+			memberIndex.remove(member, mission);
+			indexedMembers.get(mission).remove(member);
+		} else if (type == MissionEventType.VEHICLE_EVENT) {
+			reindexVehicles(mission);
+		}
+
+		reindexSettlement(mission);
+	}
+
+	/**
+	 * Checks the mission indexes against a full scan of the mission list. This is
+	 * intended for testing.
+	 * 
+	 * @return a list of inconsistencies found, empty if the indexes are consistent.
+	 */
+	public List<String> checkIndexConsistency() {
+		checkIndexes();
+		List<String> problems = new ArrayList<String>();
+
+		for (Mission m : missions) {
+			for (MissionMember member : m.getMembers()) {
+				if (memberIndex.get(member) != m)
+					problems.add(member + " is not indexed to " + m);
+			}
+			List<Mission> byType = typeIndex.get(m.getClass());
+			if (byType == null || !byType.contains(m))
+				problems.add(m + " is not indexed by type");
+			Settlement s = m.getAssociatedSettlement();
+			if (s != null && !getIndexedMissions(s).contains(m))
+				problems.add(m + " is not indexed to " + s);
+			if (!m.isDone()) {
+				for (Vehicle v : getVehicles(m)) {
+					if (vehicleIndex.get(v) != m)
+						problems.add(v + " is not indexed to " + m);
+				}
+			}
+		}
+
+		for (Map.Entry<MissionMember, Mission> e : memberIndex.entrySet()) {
+			if (!missions.contains(e.getValue()) || !e.getValue().hasMember(e.getKey()))
+				problems.add(e.getKey() + " has a stale index to " + e.getValue());
+		}
+
+		int indexed = 0;
+		for (List<Mission> list : typeIndex.values()) {
+			indexed += list.size();
+		}
+		if (indexed != missions.size())
+			problems.add("Type index has " + indexed + " missions instead of " + missions.size());
+
+		return problems;
+	}
+
 	/**
 	 * Remove missions that are already completed.
 	 */
@@ -789,6 +1007,15 @@ public class MissionManager implements Serializable {
 			listeners.clear();
 			listeners = null;
 		}
+		if (memberIndex != null) {
+			memberIndex.clear();
+			memberIndex = null;
+			vehicleIndex = null;
+			settlementIndex = null;
+			typeIndex = null;
+			indexedSettlements = null;
+			indexedVehicles = null;
+		}
 
 		marsClock = null;
 		// personCache = null;
@@ -631,7 +631,7 @@ public class RescueSalvageVehicle extends RoverMission implements Serializable {
 		if (missionManager == null)
 			missionManager = Simulation.instance().getMissionManager();
 		// MissionManager manager = Simulation.instance().getMissionManager();
-		Iterator<Mission> i = missionManager.getMissions().iterator();
+		Iterator<Mission> i = missionManager.getMissions(RescueSalvageVehicle.class).iterator();
 		while (i.hasNext() && !result) {
 			Mission mission = i.next();
 			if (mission instanceof RescueSalvageVehicle) {
@@ -618,10 +618,10 @@ public abstract class RoverMission extends VehicleMission {
 
 			if (person.getFatigue() < 750) {
 				if (lastOperateVehicleTaskPhase != null) {
-					result = new DriveGroundVehicle(person, getRover(), getNextNavpoint().getLocation(),
+					result = new DriveGroundVehicle(person, getRover(), getLegDestination(),
 							getCurrentLegStartingTime(), getCurrentLegDistance(), lastOperateVehicleTaskPhase);
 				} else {
-					result = new DriveGroundVehicle(person, getRover(), getNextNavpoint().getLocation(),
+					result = new DriveGroundVehicle(person, getRover(), getLegDestination(),
 							getCurrentLegStartingTime(), getCurrentLegDistance());
 				}
 			}
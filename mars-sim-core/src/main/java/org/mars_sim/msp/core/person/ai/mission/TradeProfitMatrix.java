@@ -0,0 +1,245 @@
+/**
+ * Mars Simulation Project
+ * TradeProfitMatrix.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.person.ai.mission;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.vehicle.Rover;
+
+/**
+ * The TradeProfitMatrix class keeps the estimated trade profit between each
+ * pair of settlements within rover range. An entry is stale when the goods
+ * values of either settlement have been updated since it was evaluated, as
+ * told by the revision of their goods managers, or when the starting
+ * settlement uses another rover or its range has changed. The inventory is
+ * not watched: it changes on almost every pulse, and the goods values follow
+ * it when they are next updated. The simulation owns one matrix and destroys
+ * it with the simulation.
+ * <p>
+ * Only the stale pairs a request needs are evaluated. They all share the
+ * starting settlement, whose goods manager is not safe for concurrent use, so
+ * they are evaluated in turn on the calling thread.
+ */
+public class TradeProfitMatrix {
+
+	/** The share of a rover's range a trading settlement may be at. */
+	static final double RANGE_MARGIN = .8D;
+
+	/** The estimated profits keyed by starting settlement and trading settlement. */
+	private Map<Settlement, Map<Settlement, ProfitEntry>> matrix;
+	/** The rover each settlement would use for a trade mission. */
+	private Map<Settlement, Rover> tradeRovers;
+
+	/**
+	 * Constructor.
+	 */
+	public TradeProfitMatrix() {
+		matrix = new HashMap<Settlement, Map<Settlement, ProfitEntry>>();
+		tradeRovers = new HashMap<Settlement, Rover>();
+	}
+
+	/**
+	 * Finds the best trading settlement for a starting settlement. Its stale pairs
+	 * are evaluated first.
+	 *
+	 * @param startingSettlement the settlement to trade from.
+	 * @param rover              the rover to carry the trade.
+	 * @param candidates         the trading settlements to choose from.
+	 * @return the best trading settlement or null if none is profitable.
+	 */
+	public synchronized Settlement findBestPartner(Settlement startingSettlement, Rover rover,
+			List<Settlement> candidates) {
+		evictTradeRovers(startingSettlement);
+		tradeRovers.put(startingSettlement, rover);
+		refresh(startingSettlement, candidates);
+
+		Settlement result = null;
+		double bestProfit = 0D;
+		for (Settlement s : candidates) {
+			ProfitEntry entry = getEntry(startingSettlement, s);
+			if (entry != null && entry.profit > bestProfit) {
+				bestProfit = entry.profit;
+				result = s;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the last evaluated trade profit from one settlement to another.
+	 *
+	 * @param startingSettlement the settlement to trade from.
+	 * @param tradingSettlement  the settlement to trade to.
+	 * @return the trade profit (value points)
+	 */
+	public synchronized double getProfit(Settlement startingSettlement, Settlement tradingSettlement) {
+		ProfitEntry entry = getEntry(startingSettlement, tradingSettlement);
+		return (entry != null) ? entry.profit : 0D;
+	}
+
+	/**
+	 * Drops the trade rovers that have left their settlement or been taken by a
+	 * mission, along with their rows.
+	 *
+	 * @param startingSettlement the settlement making the request.
+	 */
+	private void evictTradeRovers(Settlement startingSettlement) {
+		Iterator<Map.Entry<Settlement, Rover>> i = tradeRovers.entrySet().iterator();
+		while (i.hasNext()) {
+			Map.Entry<Settlement, Rover> e = i.next();
+			Settlement s = e.getKey();
+			Rover rover = e.getValue();
+			if (s != startingSettlement && (rover.getSettlement() != s || rover.isReservedForMission())) {
+				i.remove();
+				synchronized (matrix) {
+					matrix.remove(s);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the stale pairs of the starting settlement and the given
+	 * candidates.
+	 *
+	 * @param startingSettlement the settlement to trade from.
+	 * @param candidates         the trading settlements.
+	 */
+	private void refresh(Settlement startingSettlement, List<Settlement> candidates) {
+		for (Settlement s : candidates) {
+			if (s != startingSettlement && (isStale(startingSettlement, s) || isStale(s, startingSettlement)))
+				evaluatePair(startingSettlement, s);
+		}
+	}
+
+	/**
+	 * Evaluates the trade profits in both directions between two settlements.
+	 *
+	 * @param s1 the first settlement.
+	 * @param s2 the second settlement.
+	 */
+	private void evaluatePair(Settlement s1, Settlement s2) {
+		evaluate(s1, s2);
+		evaluate(s2, s1);
+	}
+
+	/**
+	 * Evaluates the trade profit from one settlement to another if stale.
+	 *
+	 * @param startingSettlement the settlement to trade from.
+	 * @param tradingSettlement  the settlement to trade to.
+	 */
+	private void evaluate(Settlement startingSettlement, Settlement tradingSettlement) {
+		if (!isStale(startingSettlement, tradingSettlement))
+			return;
+		Rover rover = tradeRovers.get(startingSettlement);
+		// Take the revisions first, so a change during the estimate leaves it stale.
+		int startingRevision = getRevision(startingSettlement);
+		int tradingRevision = getRevision(tradingSettlement);
+		double range = getRange(rover);
+		double profit = estimateProfit(startingSettlement, rover, tradingSettlement);
+		ProfitEntry entry = new ProfitEntry(profit, rover, range, startingRevision, tradingRevision);
+		synchronized (matrix) {
+			matrix.computeIfAbsent(startingSettlement, k -> new HashMap<Settlement, ProfitEntry>())
+					.put(tradingSettlement, entry);
+		}
+	}
+
+	/**
+	 * Estimates the trade profit from one settlement to another.
+	 *
+	 * @param startingSettlement the settlement to trade from.
+	 * @param rover              the rover to carry the trade.
+	 * @param tradingSettlement  the settlement to trade to.
+	 * @return the trade profit (value points)
+	 */
+	double estimateProfit(Settlement startingSettlement, Rover rover, Settlement tradingSettlement) {
+		return TradeUtil.getEstimatedTradeProfit(startingSettlement, rover, tradingSettlement);
+	}
+
+	/**
+	 * Gets the range of a trade rover.
+	 *
+	 * @param rover the rover.
+	 * @return range (km)
+	 */
+	double getRange(Rover rover) {
+		return rover.getRange();
+	}
+
+	/**
+	 * Checks if the trade profit from one settlement to another needs to be
+	 * evaluated. Settlements out of the rover's range are never evaluated.
+	 *
+	 * @param startingSettlement the settlement to trade from.
+	 * @param tradingSettlement  the settlement to trade to.
+	 * @return true if stale.
+	 */
+	private boolean isStale(Settlement startingSettlement, Settlement tradingSettlement) {
+		Rover rover = tradeRovers.get(startingSettlement);
+		if (rover == null)
+			return false;
+		double range = getRange(rover);
+		double distance = startingSettlement.getCoordinates().getDistance(tradingSettlement.getCoordinates());
+		if (distance > range * RANGE_MARGIN)
+			return false;
+		ProfitEntry entry = getEntry(startingSettlement, tradingSettlement);
+		return (entry == null) || (entry.rover != rover) || (entry.range != range)
+				|| (entry.startingRevision != getRevision(startingSettlement))
+				|| (entry.tradingRevision != getRevision(tradingSettlement));
+	}
+
+	private ProfitEntry getEntry(Settlement startingSettlement, Settlement tradingSettlement) {
+		synchronized (matrix) {
+			Map<Settlement, ProfitEntry> row = matrix.get(startingSettlement);
+			return (row != null) ? row.get(tradingSettlement) : null;
+		}
+	}
+
+	/**
+	 * Gets the revision of the goods values of a settlement.
+	 *
+	 * @param settlement the settlement.
+	 * @return revision number
+	 */
+	int getRevision(Settlement settlement) {
+		return settlement.getGoodsManager().getValuesRevision();
+	}
+
+	/**
+	 * Prepare object for garbage collection.
+	 */
+	public synchronized void destroy() {
+		synchronized (matrix) {
+			matrix.clear();
+		}
+		tradeRovers.clear();
+	}
+
+	/**
+	 * An estimated trade profit and the state it was evaluated with.
+	 */
+	private static class ProfitEntry {
+
+		private double profit;
+		private Rover rover;
+		private double range;
+		private int startingRevision;
+		private int tradingRevision;
+
+		private ProfitEntry(double profit, Rover rover, double range, int startingRevision, int tradingRevision) {
+			this.profit = profit;
+			this.rover = rover;
+			this.range = range;
+			this.startingRevision = startingRevision;
+			this.tradingRevision = tradingRevision;
+		}
+	}
+}
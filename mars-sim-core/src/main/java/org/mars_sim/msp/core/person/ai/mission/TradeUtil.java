@@ -6,11 +6,14 @@
  */
 package org.mars_sim.msp.core.person.ai.mission;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import org.mars_sim.msp.core.Coordinates;
@@ -59,14 +62,14 @@ public final class TradeUtil {
 	private static final int MIN_REPAIR_PARTS = 20;
 
 	/** Performance cache for equipment goods. */
-	private final static Map<Class<? extends Equipment>, Equipment> equipmentGoodCache = new HashMap<Class<? extends Equipment>, Equipment>(
+	private final static Map<Class<? extends Equipment>, Equipment> equipmentGoodCache = new ConcurrentHashMap<Class<? extends Equipment>, Equipment>(
 			5);
 
 	/** Cache for the best trade settlement. */
 	public static Settlement bestTradeSettlementCache = null;
 
 	/** Cache for container types. */
-	private final static Map<Class<? extends Equipment>, Equipment> containerTypeCache = new HashMap<Class<? extends Equipment>, Equipment>(
+	private final static Map<Class<? extends Equipment>, Equipment> containerTypeCache = new ConcurrentHashMap<Class<? extends Equipment>, Equipment>(
 			3);
 
 	private static int oxygenID = ResourceUtil.oxygenID;
@@ -92,35 +95,30 @@ public final class TradeUtil {
 	 * @throws Exception if error while getting best trade profit.
 	 */
 	public static double getBestTradeProfit(Settlement startingSettlement, Rover rover) {
-		double bestProfit = 0D;
-		Settlement bestSettlement = null;
-
+		List<Settlement> candidates = new ArrayList<Settlement>();
 		for (Settlement s : Simulation.instance().getUnitManager().getSettlements()) {
 			if (s != startingSettlement) {
-
 				boolean hasCurrentTradeMission = hasCurrentTradeMission(startingSettlement, s);
 
 				double settlementRange = s.getCoordinates().getDistance(startingSettlement.getCoordinates());
-				boolean withinRange = (settlementRange <= (rover.getRange() * .8D));
+				boolean withinRange = (settlementRange <= (rover.getRange() * TradeProfitMatrix.RANGE_MARGIN));
 
 				if (!hasCurrentTradeMission && withinRange) {
-					// double startTime = System.currentTimeMillis();
-
-					double profit = getEstimatedTradeProfit(startingSettlement, rover, s);
-					// double endTime = System.currentTimeMillis();
-					// logger.info("getEstimatedTradeProfit " + (endTime - startTime));
-					if (profit > bestProfit) {
-						bestProfit = profit;
-						bestSettlement = s;
-					}
+					candidates.add(s);
 				}
 			}
 		}
 
+		// Evaluate the stale settlement pairs and find the best trading partner.
+		TradeProfitMatrix profitMatrix = Simulation.instance().getTradeProfitMatrix();
+		Settlement bestSettlement = profitMatrix.findBestPartner(startingSettlement, rover, candidates);
+
 		// Set settlement cache.
 		bestTradeSettlementCache = bestSettlement;
 
-		return bestProfit;
+		if (bestSettlement == null)
+			return 0D;
+		return profitMatrix.getProfit(startingSettlement, bestSettlement);
 	}
 
 	/**
@@ -134,7 +132,7 @@ public final class TradeUtil {
 		boolean result = false;
 
 		// MissionManager manager = Simulation.instance().getMissionManager();
-		Iterator<Mission> i = missionManager.getMissions().iterator();
+		Iterator<Mission> i = missionManager.getMissions(Trade.class).iterator();
 		while (i.hasNext()) {
 			Mission mission = i.next();
 			if (mission instanceof Trade) {
@@ -163,7 +161,7 @@ public final class TradeUtil {
 	 * @return the trade profit (value points)
 	 * @throws Exception if error getting the estimated trade profit.
 	 */
-	private static double getEstimatedTradeProfit(Settlement startingSettlement, Rover rover,
+	static double getEstimatedTradeProfit(Settlement startingSettlement, Rover rover,
 			Settlement tradingSettlement) {
 
 		// Determine estimated trade revenue.
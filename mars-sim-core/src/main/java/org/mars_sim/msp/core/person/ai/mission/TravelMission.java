@@ -314,12 +314,36 @@ public abstract class TravelMission extends Mission {
 	public final double getCurrentLegDistance() {
 		if (travelStatus != null && TRAVEL_TO_NAVPOINT.equals(travelStatus) && lastStopNavpoint != null
 				&& getNextNavpoint() != null) {
-			return lastStopNavpoint.getLocation().getDistance(getNextNavpoint().getLocation());
+			return getLegDistance(lastStopNavpoint.getLocation(), getNextNavpoint().getLocation());
 		} else {
 			return 0D;
 		}
 	}
 
+	/**
+	 * Gets the distance travelled on a leg between two locations. The total
+	 * distances of the mission add up the legs with this, so that they follow
+	 * the routes a vehicle would take.
+	 * 
+	 * @param from the starting location.
+	 * @param to   the ending location.
+	 * @return distance (km)
+	 */
+	protected double getLegDistance(Coordinates from, Coordinates to) {
+		return from.getDistance(to);
+	}
+
+	/**
+	 * Gets the distance left to travel on a leg.
+	 * 
+	 * @param location    the current location.
+	 * @param destination the end of the leg.
+	 * @return distance (km)
+	 */
+	protected double getLegRemainingDistance(Coordinates location, Coordinates destination) {
+		return location.getDistance(destination);
+	}
+
 	/**
 	 * Gets the remaining distance for the current leg of the mission.
 	 * 
@@ -337,7 +361,7 @@ public abstract class TravelMission extends Mission {
 				updateTravelDestination();
 			}
 
-			return getCurrentMissionLocation().getDistance(getNextNavpoint().getLocation());
+			return getLegRemainingDistance(getCurrentMissionLocation(), getNextNavpoint().getLocation());
 		}
 
 		else
@@ -355,8 +379,7 @@ public abstract class TravelMission extends Mission {
 			for (int x = 1; x < navPoints.size(); x++) {
 				NavPoint prevNav = navPoints.get(x - 1);
 				NavPoint currNav = navPoints.get(x);
-				double distance = currNav.getLocation().getDistance(prevNav.getLocation());
-				result += distance;
+				result += getLegDistance(prevNav.getLocation(), currNav.getLocation());
 			}
 		}
 		return result;
@@ -378,7 +401,7 @@ public abstract class TravelMission extends Mission {
 			index = getNextNavpointIndex();
 
 		for (int x = (index + 1); x < getNumberOfNavpoints(); x++)
-			result += getNavpoint(x - 1).getLocation().getDistance(getNavpoint(x).getLocation());
+			result += getLegDistance(getNavpoint(x - 1).getLocation(), getNavpoint(x).getLocation());
 
 		return result;
 	}
@@ -6,9 +6,11 @@
  */
 package org.mars_sim.msp.core.person.ai.mission;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
@@ -34,6 +36,8 @@ import org.mars_sim.msp.core.resource.ResourceUtil;
 import org.mars_sim.msp.core.structure.Settlement;
 import org.mars_sim.msp.core.time.MarsClock;
 import org.mars_sim.msp.core.tool.RandomUtil;
+import org.mars_sim.msp.core.vehicle.GroundVehicle;
+import org.mars_sim.msp.core.vehicle.RoutePlanner;
 import org.mars_sim.msp.core.vehicle.StatusType;
 import org.mars_sim.msp.core.vehicle.Vehicle;
 import org.mars_sim.msp.core.vehicle.VehicleOperator;
@@ -82,9 +86,14 @@ public abstract class VehicleMission extends TravelMission implements UnitListen
 	private MissionMember startingMember;
 	/** The current operate vehicle task. */
 	private OperateVehicle operateVehicleTask;
+	/** The remaining waypoints of the current leg. */
+	private transient List<Coordinates> legRoute;
+	/** The navpoint the current leg route leads to. */
+	private transient NavPoint legRouteNavpoint;
 
 	/** Caches */
 	protected Map<Integer, Integer> equipmentNeededCache;
+
 	
 	// static instances
 	// static instances from Mission
@@ -640,9 +649,10 @@ public abstract class VehicleMission extends TravelMission implements UnitListen
 
 					else {
 						// If emergency, make sure current operate vehicle task is pointed home.
-						if (operateVehicleTask != null
-								&& !operateVehicleTask.getDestination().equals(destination.getLocation())) {
-							operateVehicleTask.setDestination(destination.getLocation());
+						Coordinates legDestination = getLegDestination();
+						if (operateVehicleTask != null && legDestination != null
+								&& !operateVehicleTask.getDestination().equals(legDestination)) {
+							operateVehicleTask.setDestination(legDestination);
 							setPhaseDescription(Msg.getString("Mission.phase.travelling.description",
 									getNextNavpoint().getDescription())); // $NON-NLS-1$
 						}
@@ -676,6 +686,75 @@ public abstract class VehicleMission extends TravelMission implements UnitListen
 		}
 	}
 
+	/**
+	 * Gets the location the vehicle should drive to next on the current leg. For
+	 * a ground vehicle this is the next waypoint of the planned route to the next
+	 * navpoint.
+	 * 
+	 * @return the location or null if there is no next navpoint.
+	 */
+	protected Coordinates getLegDestination() {
+		NavPoint nextNavpoint = getNextNavpoint();
+		if (nextNavpoint == null)
+			return null;
+		if (!(vehicle instanceof GroundVehicle) || vehicle.getCoordinates() == null)
+			return nextNavpoint.getLocation();
+
+		if (legRoute == null || legRouteNavpoint != nextNavpoint
+				|| !legRoute.get(legRoute.size() - 1).equals(nextNavpoint.getLocation())) {
+			legRoute = new ArrayList<Coordinates>(getRoutePlanner().getRoute(vehicle.getCoordinates(),
+					nextNavpoint.getLocation(), (GroundVehicle) vehicle));
+			legRouteNavpoint = nextNavpoint;
+		}
+
+		// Drop the waypoints already reached.
+		while (legRoute.size() > 1 && vehicle.getCoordinates().equals(legRoute.get(0))) {
+			legRoute.remove(0);
+		}
+
+		return legRoute.get(0);
+	}
+
+	/**
+	 * Gets the distance of a leg along the planned route for a ground vehicle.
+	 * 
+	 * @param from the starting location.
+	 * @param to   the ending location.
+	 * @return distance (km)
+	 */
+	@Override
+	protected double getLegDistance(Coordinates from, Coordinates to) {
+		if (vehicle instanceof GroundVehicle)
+			return getRoutePlanner().getRouteDistance(from, to, (GroundVehicle) vehicle);
+		return super.getLegDistance(from, to);
+	}
+
+	/**
+	 * Gets the distance left on a leg along the remaining waypoints of the
+	 * planned route for a ground vehicle.
+	 * 
+	 * @param location    the current location.
+	 * @param destination the end of the leg.
+	 * @return distance (km)
+	 */
+	@Override
+	protected double getLegRemainingDistance(Coordinates location, Coordinates destination) {
+		List<Coordinates> route = legRoute;
+		if (vehicle instanceof GroundVehicle && route != null && !route.isEmpty()
+				&& route.get(route.size() - 1).equals(destination))
+			return RoutePlanner.getDistance(location, route);
+		return super.getLegRemainingDistance(location, destination);
+	}
+
+	/**
+	 * Gets the route planner of the simulation.
+	 * 
+	 * @return route planner
+	 */
+	private static RoutePlanner getRoutePlanner() {
+		return Simulation.instance().getRoutePlanner();
+	}
+
 	/**
 	 * Gets a new instance of an OperateVehicle task for the person.
 	 * 
@@ -1116,8 +1195,9 @@ public abstract class VehicleMission extends TravelMission implements UnitListen
 	 * Update mission to the next navpoint destination.
 	 */
 	public void updateTravelDestination() {
+		legRoute = null;
 		if (operateVehicleTask != null) {
-			operateVehicleTask.setDestination(getNextNavpoint().getLocation());
+			operateVehicleTask.setDestination(getLegDestination());
 		}
 		setPhaseDescription(Msg.getString("Mission.phase.travelling.description", getNextNavpoint().getDescription())); // $NON-NLS-1$
 	}
@@ -1345,6 +1425,8 @@ public abstract class VehicleMission extends TravelMission implements UnitListen
 		vehicle = null;
 		lastOperator = null;
 		operateVehicleTask = null;
+		legRoute = null;
+		legRouteNavpoint = null;
 		if (equipmentNeededCache != null) {
 			equipmentNeededCache.clear();
 		}
@@ -16,10 +16,12 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.mars_sim.msp.core.tool.SaveCodec.Restorable;
+
 /**
  * Storage for phases of amount resource.
  */
-class AmountResourcePhaseStorage implements Serializable {
+class AmountResourcePhaseStorage implements Serializable, Restorable {
 
 	/** default serial id. */
 	private static final long serialVersionUID = 1L;
@@ -329,6 +331,11 @@ class AmountResourcePhaseStorage implements Serializable {
 
 		in.defaultReadObject();
 
+		restoreTransientData();
+	}
+
+	@Override
+	public void restoreTransientData() {
 		// Initialize transient variables that need it.
 		totalStoredCacheDirty = true;
 	}
@@ -17,10 +17,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
+import org.mars_sim.msp.core.tool.SaveCodec.Restorable;
+
 /**
  * Storage for amount resources.
  */
-public class AmountResourceStorage implements Serializable {
+public class AmountResourceStorage implements Serializable, Restorable {
 
 	/** default serial id. */
 	private static final long serialVersionUID = 1L;
@@ -737,6 +739,11 @@ public class AmountResourceStorage implements Serializable {
 
 		in.defaultReadObject();
 
+		restoreTransientData();
+	}
+
+	@Override
+	public void restoreTransientData() {
 		// Initialize transient variables that need it.
 		allStoredResourcesCacheDirty = true;
 		totalResourcesStoredDirty = true;
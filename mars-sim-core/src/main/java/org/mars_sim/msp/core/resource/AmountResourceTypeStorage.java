@@ -18,10 +18,12 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import org.mars_sim.msp.core.tool.SaveCodec.Restorable;
+
 /**
  * Storage for types of amount resource.
  */
-class AmountResourceTypeStorage implements Serializable {
+class AmountResourceTypeStorage implements Serializable, Restorable {
 
 	/** default serial id. */
 	private static final long serialVersionUID = 1L;
@@ -615,6 +617,11 @@ class AmountResourceTypeStorage implements Serializable {
 
 		in.defaultReadObject();
 
+		restoreTransientData();
+	}
+
+	@Override
+	public void restoreTransientData() {
 		// Initialize transient variables that need it.
 		totalAmountCacheDirty = true;
 	}
@@ -0,0 +1,223 @@
+/**
+ * Mars Simulation Project
+ * SupplyDemandLedger.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.core.resource;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The SupplyDemandLedger class keeps track of the supply and demand of amount
+ * resources and item resources for an inventory. The counters are held in
+ * primitive arrays indexed by resource id so that recording a transaction does
+ * not need any string hashing or boxing. The amounts accumulate over a window
+ * of sols and are averaged into per-sol values when the window is compacted.
+ */
+public class SupplyDemandLedger implements Serializable {
+
+	/** default serial id. */
+	private static final long serialVersionUID = 1L;
+
+	/** The initial number of slots for amount resources. */
+	private static final int INITIAL_AMOUNT_SLOTS = 128;
+	/** The initial number of slots for item resources. */
+	private static final int INITIAL_ITEM_SLOTS = 64;
+
+	// Amount resource supply
+	private double[] amountSupply = new double[INITIAL_AMOUNT_SLOTS];
+	private int[] amountSupplyRequest = new int[INITIAL_AMOUNT_SLOTS];
+	// Amount resource demand
+	private double[] amountDemand = new double[INITIAL_AMOUNT_SLOTS];
+	private int[] amountDemandTotalRequest = new int[INITIAL_AMOUNT_SLOTS];
+	private int[] amountDemandMetRequest = new int[INITIAL_AMOUNT_SLOTS];
+	// Item resource demand
+	private int[] itemDemand = new int[INITIAL_ITEM_SLOTS];
+	private int[] itemDemandMetRequest = new int[INITIAL_ITEM_SLOTS];
+
+	/**
+	 * Adds the supply amount of an amount resource.
+	 *
+	 * @param resource the amount resource id
+	 * @param amount   the amount (kg)
+	 */
+	public void addAmountSupply(int resource, double amount) {
+		ensureAmountSlot(resource);
+		amountSupply[resource] += amount;
+		amountSupplyRequest[resource]++;
+	}
+
+	/**
+	 * Adds the met demand amount of an amount resource.
+	 *
+	 * @param resource the amount resource id
+	 * @param amount   the amount (kg)
+	 */
+	public void addAmountDemand(int resource, double amount) {
+		ensureAmountSlot(resource);
+		amountDemand[resource] += amount;
+		amountDemandMetRequest[resource]++;
+	}
+
+	/**
+	 * Adds a demand request of an amount resource.
+	 *
+	 * @param resource the amount resource id
+	 */
+	public void addAmountDemandTotalRequest(int resource) {
+		ensureAmountSlot(resource);
+		amountDemandTotalRequest[resource]++;
+	}
+
+	/**
+	 * Adds the met demand of an item resource.
+	 *
+	 * @param resource the item resource id
+	 * @param number   the number of items
+	 */
+	public void addItemDemand(int resource, int number) {
+		int i = itemIndex(resource);
+		ensureItemSlot(i);
+		itemDemand[i] += number;
+		itemDemandMetRequest[i]++;
+	}
+
+	public double getAmountSupply(int resource) {
+		return (resource >= 0 && resource < amountSupply.length) ? amountSupply[resource] : 0D;
+	}
+
+	public int getAmountSupplyRequest(int resource) {
+		return (resource >= 0 && resource < amountSupplyRequest.length) ? amountSupplyRequest[resource] : 0;
+	}
+
+	public double getAmountDemand(int resource) {
+		return (resource >= 0 && resource < amountDemand.length) ? amountDemand[resource] : 0D;
+	}
+
+	public int getAmountDemandTotalRequest(int resource) {
+		return (resource >= 0 && resource < amountDemandTotalRequest.length) ? amountDemandTotalRequest[resource] : 0;
+	}
+
+	public int getAmountDemandMetRequest(int resource) {
+		return (resource >= 0 && resource < amountDemandMetRequest.length) ? amountDemandMetRequest[resource] : 0;
+	}
+
+	public int getItemDemand(int resource) {
+		int i = itemIndex(resource);
+		return (i >= 0 && i < itemDemand.length) ? itemDemand[i] : 0;
+	}
+
+	public int getItemDemandMetRequest(int resource) {
+		int i = itemIndex(resource);
+		return (i >= 0 && i < itemDemandMetRequest.length) ? itemDemandMetRequest[i] : 0;
+	}
+
+	/**
+	 * Converts the accumulated supply amounts of the current window into a per-sol
+	 * average.
+	 *
+	 * @param sols the number of sols in the window
+	 */
+	public void compactAmountSupply(int sols) {
+		compact(amountSupply, sols);
+	}
+
+	/**
+	 * Converts the accumulated demand amounts of the current window into a per-sol
+	 * average.
+	 *
+	 * @param sols the number of sols in the window
+	 */
+	public void compactAmountDemand(int sols) {
+		compact(amountDemand, sols);
+	}
+
+	public void clearAmountSupplyRequest() {
+		Arrays.fill(amountSupplyRequest, 0);
+	}
+
+	public void clearAmountDemand() {
+		Arrays.fill(amountDemand, 0D);
+	}
+
+	public void clearAmountDemandTotalRequest() {
+		Arrays.fill(amountDemandTotalRequest, 0);
+	}
+
+	public void clearAmountDemandMetRequest() {
+		Arrays.fill(amountDemandMetRequest, 0);
+	}
+
+	/**
+	 * Gets the number of amount resources with a recorded demand amount.
+	 *
+	 * @return number of resources
+	 */
+	public int getNumAmountDemand() {
+		int result = 0;
+		for (double d : amountDemand) {
+			if (d != 0D)
+				result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Divides each accumulated value by the number of sols.
+	 *
+	 * @param values the accumulated values
+	 * @param sols   the number of sols
+	 */
+	private static void compact(double[] values, int sols) {
+		if (sols <= 0)
+			return;
+		for (int i = 0; i < values.length; i++) {
+			values[i] = values[i] / sols;
+		}
+	}
+
+	/**
+	 * Gets the array index of an item resource.
+	 *
+	 * @param resource the item resource id
+	 * @return the index
+	 */
+	private static int itemIndex(int resource) {
+		return resource - ResourceUtil.FIRST_ITEM_RESOURCE;
+	}
+
+	/**
+	 * Grows the amount resource arrays to hold the given resource id.
+	 *
+	 * @param resource the amount resource id
+	 */
+	private void ensureAmountSlot(int resource) {
+		if (resource < 0)
+			throw new IllegalArgumentException("Invalid amount resource id: " + resource);
+		if (resource >= amountSupply.length) {
+			int size = Math.max(resource + 1, amountSupply.length * 2);
+			amountSupply = Arrays.copyOf(amountSupply, size);
+			amountSupplyRequest = Arrays.copyOf(amountSupplyRequest, size);
+			amountDemand = Arrays.copyOf(amountDemand, size);
+			amountDemandTotalRequest = Arrays.copyOf(amountDemandTotalRequest, size);
+			amountDemandMetRequest = Arrays.copyOf(amountDemandMetRequest, size);
+		}
+	}
+
+	/**
+	 * Grows the item resource arrays to hold the given index.
+	 *
+	 * @param index the item index
+	 */
+	private void ensureItemSlot(int index) {
+		if (index < 0)
+			throw new IllegalArgumentException("Invalid item resource index: " + index);
+		if (index >= itemDemand.length) {
+			int size = Math.max(index + 1, itemDemand.length * 2);
+			itemDemand = Arrays.copyOf(itemDemand, size);
+			itemDemandMetRequest = Arrays.copyOf(itemDemandMetRequest, size);
+		}
+	}
+}
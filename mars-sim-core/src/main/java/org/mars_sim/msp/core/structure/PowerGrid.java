@@ -7,8 +7,11 @@
 package org.mars_sim.msp.core.structure;
 
 import java.io.Serializable;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,7 +25,9 @@ import org.mars_sim.msp.core.structure.building.function.PowerMode;
 import org.mars_sim.msp.core.structure.building.function.PowerStorage;
 
 /**
- * The PowerGrid class is a settlement's building power grid.
+ * The PowerGrid class is a settlement's building power grid. The power
+ * generated and required by each building is cached, and only the buildings
+ * that have reported a change in their contribution are read again.
  */
 public class PowerGrid implements Serializable {
 
@@ -55,6 +60,35 @@ public class PowerGrid implements Serializable {
 	private BuildingManager manager;
 	private PowerMode powerMode;
 
+	/** The buildings on the grid in load shedding order. */
+	private transient Building[] gridBuildings;
+	/** The index of each building on the grid. */
+	private transient Map<Building, Integer> gridIndices;
+	/** The index of the first building with life support in the shedding order. */
+	private transient int lifeSupportStart;
+	/** The power generated by each building (kW). */
+	private transient double[] generation;
+	/** The power required by each building at full power (kW). */
+	private transient double[] fullDemand;
+	/** The power required by each building when powered down (kW). */
+	private transient double[] downDemand;
+	/** The energy storage of the grid. */
+	private transient PowerStorage[] storages;
+	/** True for each building whose contribution has changed since the last pulse. */
+	private transient boolean[] changed;
+	/** The buildings whose contribution has changed since the last pulse. */
+	private transient List<Building> changedBuildings;
+	/** True for each building that is not at full power. */
+	private transient boolean[] reduced;
+	/** The buildings that are not at full power. */
+	private transient List<Building> reducedBuildings;
+	/** The total power generated by the buildings (kW). */
+	private transient double totalGeneration;
+	/** The total power required by the buildings at full power (kW). */
+	private transient double totalFullDemand;
+	/** The total power required by the buildings when powered down (kW). */
+	private transient double totalDownDemand;
+
 	/**
 	 * Constructor.
 	 */
@@ -201,6 +235,11 @@ public class PowerGrid implements Serializable {
 			logger.finest(Msg.getString("PowerGrid.log.settlementPowerSituation", settlement.getName()));
 		}
 
+		if (gridBuildings == null)
+			rebuildGrid();
+		else
+			updateChangedBuildings();
+
 		// update the total power generated in the grid.
 		updateTotalPowerGenerated();
 
@@ -213,11 +252,8 @@ public class PowerGrid implements Serializable {
 		// Update the power flow.
 		updatePowerFlow(time);
 
-		// Update the total power storage capacity in the grid.
-		updateTotalEnergyStorageCapacity();
-
-		// Update the total power stored in the grid.
-		updateTotalStoredEnergy();
+		// Update the total power storage capacity and stored energy in the grid.
+		updateTotalStorage();
 
 		// Update power value.
 		determinePowerValue();
@@ -272,72 +308,188 @@ public class PowerGrid implements Serializable {
 				// compute power needed
 				neededPower = delta_energy / timeInHour;
 
-				// BuildingManager manager = settlement.getBuildingManager();
-				List<Building> buildings = manager.getBuildings();// getACopyOfBuildings();
-
 				// Reduce each building's power mode to low power until
 				// required power reduction is met.
 				if (powerMode != PowerMode.POWER_DOWN) {
-					Iterator<Building> iLowPower = buildings.iterator();
-					while (iLowPower.hasNext() && (neededPower > 0D)) {
-						Building building = iLowPower.next();
-						if (!powerSurplus(building, PowerMode.FULL_POWER)) {
+					for (int i = 0; i < gridBuildings.length && neededPower > 0D; i++) {
+						Building building = gridBuildings[i];
+						if (building.getPowerMode() == PowerMode.FULL_POWER && !powerSurplus(i, PowerMode.FULL_POWER)) {
 							building.setPowerMode(PowerMode.POWER_DOWN);
-							neededPower -= building.getFullPowerRequired() - building.getPoweredDownPowerRequired();
+							neededPower -= fullDemand[i] - downDemand[i];
 						}
 					}
 				}
 
 				// If power needs are still not met, turn off the power to each
 				// uninhabitable building until required power reduction is met.
-				if (neededPower > 0D) {
-					Iterator<Building> iNoPower = buildings.iterator();
-					while (iNoPower.hasNext() && (neededPower > 0D)) {
-						Building building = iNoPower.next();
-						if (!powerSurplus(building, PowerMode.POWER_DOWN) &&
-						// turn off the power to each uninhabitable building
-								!(building.hasFunction(FunctionType.LIFE_SUPPORT))) {
-							building.setPowerMode(PowerMode.NO_POWER);
-							neededPower -= building.getPoweredDownPowerRequired();
-						}
+				for (int i = 0; i < lifeSupportStart && neededPower > 0D; i++) {
+					Building building = gridBuildings[i];
+					if (building.getPowerMode() != PowerMode.NO_POWER && !powerSurplus(i, PowerMode.POWER_DOWN)) {
+						building.setPowerMode(PowerMode.NO_POWER);
+						neededPower -= downDemand[i];
 					}
 				}
 
 				// If power needs are still not met, turn off the power to each inhabitable
-				// building
-				// until required power reduction is met.
-				if (neededPower > 0D) {
-					Iterator<Building> iNoPower = buildings.iterator();
-					while (iNoPower.hasNext() && (neededPower > 0D)) {
-						Building building = iNoPower.next();
-						if (!powerSurplus(building, PowerMode.POWER_DOWN) &&
-						// turn off the power to each inhabitable building
-								building.hasFunction(FunctionType.LIFE_SUPPORT)) {
-							building.setPowerMode(PowerMode.NO_POWER);
-							neededPower -= building.getPoweredDownPowerRequired();
-						}
+				// building until required power reduction is met.
+				for (int i = lifeSupportStart; i < gridBuildings.length && neededPower > 0D; i++) {
+					Building building = gridBuildings[i];
+					if (building.getPowerMode() != PowerMode.NO_POWER && !powerSurplus(i, PowerMode.POWER_DOWN)) {
+						building.setPowerMode(PowerMode.NO_POWER);
+						neededPower -= downDemand[i];
 					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * Rebuilds the cached contributions of the buildings on the grid. The
+	 * buildings without life support are placed first so they are shed first.
+	 */
+	private void rebuildGrid() {
+		List<Building> buildings = manager.getBuildings();
+		List<Building> order = new ArrayList<Building>(buildings.size());
+		for (Building building : buildings) {
+			if (!building.hasFunction(FunctionType.LIFE_SUPPORT))
+				order.add(building);
+		}
+		lifeSupportStart = order.size();
+		for (Building building : buildings) {
+			if (building.hasFunction(FunctionType.LIFE_SUPPORT))
+				order.add(building);
+		}
+
+		int n = order.size();
+		gridBuildings = order.toArray(new Building[n]);
+		gridIndices = new HashMap<Building, Integer>(n * 2);
+		generation = new double[n];
+		fullDemand = new double[n];
+		downDemand = new double[n];
+		changed = new boolean[n];
+		changedBuildings = new ArrayList<Building>();
+		reduced = new boolean[n];
+		reducedBuildings = new ArrayList<Building>();
+		totalGeneration = 0D;
+		totalFullDemand = 0D;
+		totalDownDemand = 0D;
+		for (int i = 0; i < n; i++) {
+			Building building = gridBuildings[i];
+			gridIndices.put(building, i);
+			generation[i] = building.getGeneratedPower();
+			fullDemand[i] = building.getFullPowerRequired();
+			downDemand[i] = building.getPoweredDownPowerRequired();
+			totalGeneration += generation[i];
+			totalFullDemand += fullDemand[i];
+			totalDownDemand += downDemand[i];
+			if (building.getPowerMode() != PowerMode.FULL_POWER) {
+				reduced[i] = true;
+				reducedBuildings.add(building);
+			}
+		}
+
+		List<Building> storageBuildings = manager.getBuildings(FunctionType.POWER_STORAGE);
+		storages = new PowerStorage[storageBuildings.size()];
+		for (int i = 0; i < storages.length; i++) {
+			storages[i] = storageBuildings.get(i).getPowerStorage();
+		}
+	}
+
+	/**
+	 * Notifies the grid that buildings have been added or removed.
+	 */
+	public void buildingsChanged() {
+		gridBuildings = null;
+	}
+
+	/**
+	 * Notifies the grid that the power generated or required by a building has
+	 * changed. The building is read again on the next pulse.
+	 * 
+	 * @param building the building.
+	 */
+	public void powerChanged(Building building) {
+		if (gridIndices == null)
+			return;
+		Integer index = gridIndices.get(building);
+		if (index == null) {
+			// The building is not on the grid yet.
+			gridBuildings = null;
+			return;
+		}
+
+		if (!changed[index]) {
+			changed[index] = true;
+			changedBuildings.add(building);
+		}
+	}
+
+	/**
+	 * Notifies the grid that the power mode of a building has changed.
+	 * 
+	 * @param building the building.
+	 */
+	public void powerModeChanged(Building building) {
+		if (gridIndices == null)
+			return;
+		Integer index = gridIndices.get(building);
+		if (index == null)
+			return;
+
+		boolean full = building.getPowerMode() == PowerMode.FULL_POWER;
+		if (!full && !reduced[index]) {
+			reduced[index] = true;
+			reducedBuildings.add(building);
+		} else if (full && reduced[index]) {
+			reduced[index] = false;
+			reducedBuildings.remove(building);
+		}
+	}
+
+	/**
+	 * Reads the buildings that have reported a change and adjusts the grid totals.
+	 */
+	private void updateChangedBuildings() {
+		for (Building building : changedBuildings) {
+			int i = gridIndices.get(building);
+			changed[i] = false;
+			updateBuilding(i, building);
+		}
+		changedBuildings.clear();
+	}
+
+	/**
+	 * Updates the cached power generated and required by a building, adjusting
+	 * the grid totals only if they have changed.
+	 * 
+	 * @param i        the index of the building on the grid.
+	 * @param building the building.
+	 */
+	private void updateBuilding(int i, Building building) {
+		double generated = building.getGeneratedPower();
+		if (generated != generation[i]) {
+			totalGeneration += generated - generation[i];
+			generation[i] = generated;
+		}
+		double full = building.getFullPowerRequired();
+		if (full != fullDemand[i]) {
+			totalFullDemand += full - fullDemand[i];
+			fullDemand[i] = full;
+		}
+		double down = building.getPoweredDownPowerRequired();
+		if (down != downDemand[i]) {
+			totalDownDemand += down - downDemand[i];
+			downDemand[i] = down;
+		}
+	}
+
 	/**
 	 * Updates the total power generated in the grid.
 	 * 
 	 * @throws BuildingException if error determining total power generated.
 	 */
 	private void updateTotalPowerGenerated() {
-		double power = 0D;
-
-		// Add the power generated by all power generation buildings.
-		// BuildingManager manager = settlement.getBuildingManager();
-		Iterator<Building> iPow = manager.getBuildings(FunctionType.POWER_GENERATION).iterator();
-		while (iPow.hasNext()) {
-			Building b = iPow.next();
-			power += b.getPowerGeneration().getGeneratedPower();
-		}
-		setGeneratedPower(power);
+		setGeneratedPower(totalGeneration);
 
 		if (logger.isLoggable(Level.FINEST)) {
 			logger.finest(Msg.getString("PowerGrid.log.totalPowerGenerated", //$NON-NLS-1$
@@ -346,25 +498,26 @@ public class PowerGrid implements Serializable {
 	}
 
 	/**
-	 * Updates the total energy stored in the grid.
+	 * Updates the total energy stored and the total energy storage capacity in
+	 * the grid.
 	 * 
 	 * @throws BuildingException if error determining total energy stored.
 	 */
-	private void updateTotalStoredEnergy() {
+	private void updateTotalStorage() {
 		double store = 0D;
-		// BuildingManager manager = settlement.getBuildingManager();
-		Iterator<Building> iStore = manager.getBuildings(FunctionType.POWER_STORAGE).iterator();
-		while (iStore.hasNext()) {
-			Building b = iStore.next();
-			// PowerStorage store = (PowerStorage)
-			// building.getFunction(BuildingFunction.POWER_STORAGE);
-			store += b.getPowerStorage().getkWattHourStored();
+		double capacity = 0D;
+		for (PowerStorage storage : storages) {
+			store += storage.getkWattHourStored();
+			capacity += storage.getCurrentMaxCapacity();
 		}
 		setStoredEnergy(store);
+		setStoredPowerCapacity(capacity);
 
 		if (logger.isLoggable(Level.FINEST)) {
 			logger.finest(Msg.getString("PowerGrid.log.totalPowerStored", //$NON-NLS-1$
 					Double.toString(totalEnergyStored)));
+			logger.finest(Msg.getString("PowerGrid.log.totalPowerStorageCapacity", //$NON-NLS-1$
+					Double.toString(energyStorageCapacity)));
 		}
 	}
 
@@ -374,34 +527,18 @@ public class PowerGrid implements Serializable {
 	 * @throws BuildingException if error determining total power required.
 	 */
 	private void updateTotalRequiredPower() {
-		double power = 0D;
-		boolean powerUp = powerMode == PowerMode.POWER_UP;
-		List<Building> buildings = manager.getBuildings();
-		Iterator<Building> iUsed = buildings.iterator();
-		while (iUsed.hasNext()) {
-			Building building = iUsed.next();
-			if (powerUp) {
-				building.setPowerMode(PowerMode.FULL_POWER);
-				power += building.getFullPowerRequired();
-				if (logger.isLoggable(Level.FINEST)) {
-					logger.finest(Msg.getString("PowerGrid.log.buildingFullPowerUsed", //$NON-NLS-1$
-							building.getNickName(), 
-							Double.toString(
-									Math.round(building.getFullPowerRequired()*100.00)/100.00
-									)));
+		double power = totalDownDemand;
+		if (powerMode == PowerMode.POWER_UP) {
+			// Restore full power to every building.
+			if (!reducedBuildings.isEmpty()) {
+				Building[] restored = reducedBuildings.toArray(new Building[reducedBuildings.size()]);
+				reducedBuildings.clear();
+				Arrays.fill(reduced, false);
+				for (Building building : restored) {
+					building.setPowerMode(PowerMode.FULL_POWER);
 				}
 			}
-
-			power += building.getPoweredDownPowerRequired();
-
-			if (logger.isLoggable(Level.FINEST)) {
-				logger.finest(Msg.getString("PowerGrid.log.buildingPowerDownPowerUsed", //$NON-NLS-1$
-						building.getNickName(), 
-						Double.toString(
-								Math.round(building.getPoweredDownPowerRequired()*100.00)/100.00
-								)));
-			}
-
+			power += totalFullDemand;
 		}
 
 		setRequiredPower(power);
@@ -412,49 +549,21 @@ public class PowerGrid implements Serializable {
 		}
 	}
 
-	/**
-	 * Updates the total energy storage capacity in the grid.
-	 * 
-	 * @throws BuildingException if error determining total energy storage capacity.
-	 */
-	private void updateTotalEnergyStorageCapacity() {
-		double store = 0D;
-		// BuildingManager manager = settlement.getBuildingManager();
-		Iterator<Building> iStore = manager.getBuildings(FunctionType.POWER_STORAGE).iterator();
-		while (iStore.hasNext()) {
-			Building b = iStore.next();
-			store += b.getPowerStorage().getCurrentMaxCapacity();
-		}
-
-		setStoredPowerCapacity(store);
-
-		if (logger.isLoggable(Level.FINEST)) {
-			logger.finest(Msg.getString("PowerGrid.log.totalPowerStorageCapacity", //$NON-NLS-1$
-					Double.toString(energyStorageCapacity)));
-		}
-	}
-
 	/**
 	 * Checks if building generates more power than it uses in a given power mode.
 	 *
-	 * @param building the building
-	 * @param mode     {@link PowerMode} the building's power mode to check.
-	 * @return true if building supplies more power than it uses. throws
-	 *         BuildingException if error in power generation.
+	 * @param index the index of the building on the grid
+	 * @param mode  {@link PowerMode} the building's power mode to check.
+	 * @return true if building supplies more power than it uses.
 	 */
-	private boolean powerSurplus(Building b, PowerMode mode) {
-		double generated = 0D;
-		if (b.hasFunction(FunctionType.POWER_GENERATION)) {
-			generated = b.getPowerGeneration().getGeneratedPower();
-		}
-
+	private boolean powerSurplus(int index, PowerMode mode) {
 		double used = 0D;
 		if (mode == PowerMode.FULL_POWER)
-			used = b.getFullPowerRequired();
+			used = fullDemand[index];
 		else if (mode == PowerMode.POWER_DOWN)
-			used = b.getPoweredDownPowerRequired();
+			used = downDemand[index];
 
-		return generated > used;
+		return generation[index] > used;
 	}
 
 	/**
@@ -466,10 +575,7 @@ public class PowerGrid implements Serializable {
 	private void storeExcessPower(double excessEnergy, double time) {
 		// double totalDelivered = 0;
 		double excess = excessEnergy;
-		Iterator<Building> i = manager.getBuildings(FunctionType.POWER_STORAGE).iterator();
-		while (i.hasNext()) {
-			Building building = i.next();
-			PowerStorage storage = (PowerStorage) building.getFunction(FunctionType.POWER_STORAGE);
+		for (PowerStorage storage : storages) {
 			double stored = storage.getkWattHourStored();
 			double max = storage.getCurrentMaxCapacity();
 			double gap = max - stored;
@@ -613,9 +719,7 @@ public class PowerGrid implements Serializable {
 	private double retrieveStoredEnergy(double energyNeeded, double time) {
 		double retrieved = 0;
 		double needed = energyNeeded;
-		List<Building> list = manager.getBuildings(FunctionType.POWER_STORAGE);
-		for (Building b : list) {
-			PowerStorage storage = (PowerStorage) b.getFunction(FunctionType.POWER_STORAGE);
+		for (PowerStorage storage : storages) {
 
 //			if ((storage.getPowerStored() > 0D) && (neededPower > 0D)) {
 //				double retrievedPower = neededPower;
@@ -757,6 +861,11 @@ public class PowerGrid implements Serializable {
 	 * Prepare object for garbage collection.
 	 */
 	public void destroy() {
+		gridBuildings = null;
+		gridIndices = null;
+		storages = null;
+		changedBuildings = null;
+		reducedBuildings = null;
 		powerMode = null;
 		settlement = null;
 		manager = null;
@@ -0,0 +1,268 @@
+/**
+ * Mars Simulation Project
+ * ThermalEngine.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.structure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mars_sim.msp.core.structure.building.Building;
+import org.mars_sim.msp.core.structure.building.function.Heating;
+import org.mars_sim.msp.core.time.MarsClock;
+
+/**
+ * The ThermalEngine class integrates the temperature of all the heated
+ * buildings of a settlement together. The temperatures, heat capacities, heat
+ * loss coefficients and heat sources are held in primitive arrays, and the
+ * buildings exchange heat with each other through their connectors. Time is
+ * integrated in fixed steps and any leftover time is carried over to the next
+ * call. Each step first exchanges heat across every connection and then lets
+ * each building relax toward the temperature its heat source and losses settle
+ * at. Both parts are solved exactly over the step, so the exchange conserves
+ * heat and no temperature can overshoot however fast the simulation runs.
+ */
+public class ThermalEngine {
+
+	/** The fixed integration step [millisols]. */
+	public static final double STEP = .5D;
+	/** The highest temperature a building may reach [deg C]. */
+	private static final double MAX_TEMPERATURE = 45D;
+
+	/** The heated buildings the arrays were built from. */
+	private Building[] heatedBuildings = new Building[0];
+	/** The buildings in the arrays. */
+	private Building[] buildings = new Building[0];
+	/** The heating function of each building. */
+	private Heating[] heatings = new Heating[0];
+
+	/** The temperature of each building [deg C]. */
+	private double[] temperature = new double[0];
+	/** The heat capacity of each building [kJ/K]. */
+	private double[] heatCapacity = new double[0];
+	/** The heat lost to the outside per degree of each building [kW/K]. */
+	private double[] lossCoefficient = new double[0];
+	/** The net heat flowing into each building [kW]. */
+	private double[] source = new double[0];
+
+	/** The first building of each connection. */
+	private int[] connectionFrom = new int[0];
+	/** The second building of each connection. */
+	private int[] connectionTo = new int[0];
+	/** The conductance of each connection [kW/K]. */
+	private double[] connectionConductance = new double[0];
+
+	/** The time not yet integrated [millisols]. */
+	private double pendingTime;
+
+	/**
+	 * Time passing for the settlement's buildings.
+	 *
+	 * @param time         amount of time passing (in millisols)
+	 * @param heated       the buildings with a heating system.
+	 * @param settlement   the settlement.
+	 * @param outsideTemperature the outside temperature [deg C]
+	 */
+	public void timePassing(double time, List<Building> heated, Settlement settlement, double outsideTemperature) {
+		if (!isCurrent(heated))
+			rebuild(heated, settlement);
+
+		int n = heatings.length;
+		if (n == 0)
+			return;
+
+		// Gather the current state of each building.
+		for (int i = 0; i < n; i++) {
+			Heating heating = heatings[i];
+			temperature[i] = heating.getCurrentTemperature();
+			heatCapacity[i] = heating.getHeatCapacity();
+			lossCoefficient[i] = heating.getHeatLossCoefficient();
+			source[i] = heating.getHeatSource();
+		}
+
+		integrate(time, outsideTemperature);
+
+		for (int i = 0; i < n; i++) {
+			heatings[i].setCurrentTemperature(temperature[i]);
+		}
+	}
+
+	/**
+	 * Integrates the temperatures in fixed steps, carrying over the leftover
+	 * time.
+	 *
+	 * @param time               amount of time passing (in millisols)
+	 * @param outsideTemperature the outside temperature [deg C]
+	 */
+	void integrate(double time, double outsideTemperature) {
+		pendingTime += time;
+		while (pendingTime >= STEP) {
+			pendingTime -= STEP;
+			step(STEP * MarsClock.SECONDS_PER_MILLISOL, outsideTemperature);
+		}
+	}
+
+	/**
+	 * Integrates the temperatures over one step. The heat exchanged across a
+	 * connection closes the temperature gap between its buildings by the exact
+	 * exponential decay, and each building then decays exactly toward its own
+	 * equilibrium with the outside.
+	 *
+	 * @param seconds            the step [s]
+	 * @param outsideTemperature the outside temperature [deg C]
+	 */
+	private void step(double seconds, double outsideTemperature) {
+		for (int c = 0; c < connectionFrom.length; c++) {
+			int a = connectionFrom[c];
+			int b = connectionTo[c];
+			if (heatCapacity[a] <= 0D || heatCapacity[b] <= 0D)
+				continue;
+			double inverse = (1D / heatCapacity[a]) + (1D / heatCapacity[b]);
+			double gap = temperature[a] - temperature[b];
+			double heat = gap * (1D - Math.exp(-connectionConductance[c] * seconds * inverse)) / inverse;
+			temperature[a] -= heat / heatCapacity[a];
+			temperature[b] += heat / heatCapacity[b];
+		}
+
+		int n = temperature.length;
+		for (int i = 0; i < n; i++) {
+			double capacity = heatCapacity[i];
+			if (capacity <= 0D)
+				continue;
+			double t;
+			if (lossCoefficient[i] > 0D) {
+				double equilibrium = outsideTemperature + (source[i] / lossCoefficient[i]);
+				t = equilibrium + ((temperature[i] - equilibrium) * Math.exp(-lossCoefficient[i] * seconds / capacity));
+			}
+			else {
+				t = temperature[i] + (source[i] * seconds / capacity);
+			}
+			// Safeguard against anomalous heat sources
+			if (t > MAX_TEMPERATURE)
+				t = MAX_TEMPERATURE;
+			else if (t < outsideTemperature)
+				t = outsideTemperature;
+			temperature[i] = t;
+		}
+	}
+
+	/**
+	 * Sets up the arrays directly.
+	 *
+	 * @param temperature     the temperature of each building [deg C]
+	 * @param heatCapacity    the heat capacity of each building [kJ/K]
+	 * @param lossCoefficient the heat loss per degree of each building [kW/K]
+	 * @param source          the net heat source of each building [kW]
+	 * @param connections     the pairs of connected buildings
+	 * @param conductance     the conductance of each connection [kW/K]
+	 */
+	void setUp(double[] temperature, double[] heatCapacity, double[] lossCoefficient, double[] source,
+			int[][] connections, double[] conductance) {
+		this.temperature = temperature;
+		this.heatCapacity = heatCapacity;
+		this.lossCoefficient = lossCoefficient;
+		this.source = source;
+		connectionFrom = new int[connections.length];
+		connectionTo = new int[connections.length];
+		for (int c = 0; c < connections.length; c++) {
+			connectionFrom[c] = connections[c][0];
+			connectionTo[c] = connections[c][1];
+		}
+		connectionConductance = conductance;
+	}
+
+	/**
+	 * Gets the temperature of a building in the arrays.
+	 *
+	 * @param index the index of the building.
+	 * @return temperature [deg C]
+	 */
+	double getTemperature(int index) {
+		return temperature[index];
+	}
+
+	/**
+	 * Checks if the arrays hold the given buildings.
+	 *
+	 * @param heated the buildings with a heating system.
+	 * @return true if current.
+	 */
+	private boolean isCurrent(List<Building> heated) {
+		if (heated.size() != heatedBuildings.length)
+			return false;
+		for (int i = 0; i < heatedBuildings.length; i++) {
+			if (heated.get(i) != heatedBuildings[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Rebuilds the arrays and the connections for a set of buildings.
+	 *
+	 * @param heated     the buildings with a heating system.
+	 * @param settlement the settlement.
+	 */
+	private void rebuild(List<Building> heated, Settlement settlement) {
+		List<Building> list = new ArrayList<Building>();
+		List<Heating> heatingList = new ArrayList<Heating>();
+		for (Building b : heated) {
+			if (b.getThermalGeneration() != null && b.getThermalGeneration().getHeating() != null) {
+				list.add(b);
+				heatingList.add(b.getThermalGeneration().getHeating());
+			}
+		}
+
+		// Buildings without a heating function are kept out of the arrays.
+		int n = list.size();
+		heatedBuildings = heated.toArray(new Building[heated.size()]);
+		buildings = list.toArray(new Building[n]);
+		heatings = heatingList.toArray(new Heating[n]);
+		temperature = new double[n];
+		heatCapacity = new double[n];
+		lossCoefficient = new double[n];
+		source = new double[n];
+
+		Map<Building, Integer> indices = new HashMap<Building, Integer>();
+		for (int i = 0; i < n; i++) {
+			indices.put(list.get(i), i);
+		}
+
+		List<int[]> pairs = new ArrayList<int[]>();
+		for (int i = 0; i < n; i++) {
+			List<Building> adjacent = settlement.getBuildingConnectors(list.get(i));
+			if (adjacent == null)
+				continue;
+			for (Building b : adjacent) {
+				Integer j = indices.get(b);
+				// Add each connection once
+				if (j != null && j > i)
+					pairs.add(new int[] { i, j });
+			}
+		}
+
+		connectionFrom = new int[pairs.size()];
+		connectionTo = new int[pairs.size()];
+		connectionConductance = new double[pairs.size()];
+		for (int c = 0; c < pairs.size(); c++) {
+			int a = pairs.get(c)[0];
+			int b = pairs.get(c)[1];
+			double k = (heatings[a].getVentilationConductance() + heatings[b].getVentilationConductance()) / 2D;
+			connectionFrom[c] = a;
+			connectionTo[c] = b;
+			connectionConductance[c] = k;
+		}
+	}
+
+	/**
+	 * Gets the time not yet integrated.
+	 *
+	 * @return time [millisols]
+	 */
+	public double getPendingTime() {
+		return pendingTime;
+	}
+}
@@ -51,6 +51,9 @@ implements Serializable {
 	private Settlement settlement;
 
 	private BuildingManager manager;
+
+	/** The engine integrating the temperatures of the buildings. */
+	private transient ThermalEngine engine;
 	
 	/**
 	 * Constructor.
@@ -143,6 +146,11 @@ implements Serializable {
 		// Update heat value.
 		determineHeatValue();
 
+		// Integrate the temperatures of all the buildings together.
+		if (engine == null)
+			engine = new ThermalEngine();
+		engine.timePassing(time, manager.getBuildings(FunctionType.THERMAL_GENERATION), settlement,
+				settlement.getOutsideTemperature());
 	}
 
 	/**
@@ -229,5 +237,6 @@ implements Serializable {
 	public void destroy() {
 		manager = null;
 		settlement = null;
+		engine = null;
 	}
 }
\ No newline at end of file
@@ -488,6 +488,8 @@ public class Building extends Structure implements Malfunctionable, Indoor, // C
 		super("Mock Building", new Coordinates(0D, 0D));
 		// Place it in a settlement
 //		enter(LocationCodeType.SETTLEMENT);
+		if (manager != null)
+			settlement = manager.getSettlement();
 	}
 
 	/**
@@ -1053,6 +1055,18 @@ public class Building extends Structure implements Malfunctionable, Indoor, // C
 		return baseLevel;
 	}
 
+	/**
+	 * Gets the power this building currently generates.
+	 * 
+	 * @return power in kW.
+	 */
+	public double getGeneratedPower() {
+		PowerGeneration generation = getPowerGeneration();
+		if (generation != null)
+			return generation.getGeneratedPower();
+		return 0D;
+	}
+
 	/**
 	 * Gets the power this building currently requires for full-power mode.
 	 * 
@@ -1099,7 +1113,20 @@ public class Building extends Structure implements Malfunctionable, Indoor, // C
 	 * Sets the building's heat mode.
 	 */
 	public void setPowerMode(PowerMode powerMode) {
-		this.powerModeCache = powerMode;
+		if (powerModeCache != powerMode) {
+			powerModeCache = powerMode;
+			if (settlement != null && settlement.getPowerGrid() != null)
+				settlement.getPowerGrid().powerModeChanged(this);
+		}
+	}
+
+	/**
+	 * Notifies the power grid that the power generated or required by this
+	 * building has changed.
+	 */
+	public void powerChanged() {
+		if (settlement != null && settlement.getPowerGrid() != null)
+			settlement.getPowerGrid().powerChanged(this);
 	}
 
 	/**
@@ -1194,8 +1221,12 @@ public class Building extends Structure implements Malfunctionable, Indoor, // C
 			eva = (EVA) getFunction(FunctionType.EVA);
 		if (eva != null) {
 			num = eva.getAirlock().getOccupants().size();
-			powerNeededForEVAheater = num * kW_EVA_HEATER * .5D; // assume half of people are doing EVA ingress
-																	// statistically
+			double power = num * kW_EVA_HEATER * .5D; // assume half of people are doing EVA ingress
+														// statistically
+			if (powerNeededForEVAheater != power) {
+				powerNeededForEVAheater = power;
+				powerChanged();
+			}
 		}
 		return num;
 	}
@@ -1539,14 +1570,6 @@ public class Building extends Structure implements Malfunctionable, Indoor, // C
 		return manager.getSettlement();
 	}
 
-	public void extractHeat(double heat) {
-		// Set the instance of thermal generation function.
-		if (furnace == null)
-			furnace = (ThermalGeneration) getFunction(FunctionType.THERMAL_GENERATION);
-
-		heating.setHeatLoss(heat);
-	}
-
 	/*
 	 * @Override public String getShortLocationName() { return nickName + " in " +
 	 * getSettlement().getName(); //getLocationTag().getSettlementName(); }
@@ -247,6 +247,9 @@ public class BuildingManager implements Serializable {
 			// Call to remove all references of this building in all functions
 			removeAllFunctionsfromBFMap(oldBuilding);
 
+			if (settlement.getPowerGrid() != null)
+				settlement.getPowerGrid().buildingsChanged();
+
 			settlement.fireUnitUpdate(UnitEventType.REMOVE_BUILDING_EVENT, oldBuilding);
 		}
 	}
@@ -328,6 +331,9 @@ public class BuildingManager implements Serializable {
 			// Insert this new building into buildingFunctionsMap
 			addAllFunctionstoBFMap(newBuilding);
 
+			if (settlement.getPowerGrid() != null)
+				settlement.getPowerGrid().buildingsChanged();
+
 			settlement.fireUnitUpdate(UnitEventType.ADD_BUILDING_EVENT, newBuilding);
 			// Create new building connections if needed.
 			if (createBuildingConnections) {
@@ -241,6 +241,7 @@ public class FoodProduction extends Function implements Serializable {
 			throw new IllegalStateException("No space to add new foodProduction process.");
 		}
 		processes.add(process);
+		powerChanged();
 
 		// Consume inputs.
 		Inventory inv = getBuilding().getSettlementInventory();
@@ -303,7 +304,11 @@ public class FoodProduction extends Function implements Serializable {
 		Iterator<FoodProductionProcess> i = processes.iterator();
 		while (i.hasNext()) {
 			FoodProductionProcess process = i.next();
+			boolean running = process.getProcessTimeRemaining() > 0D;
 			process.addProcessTime(time);
+			// A process stops drawing power once its process time is over.
+			if (running && process.getProcessTimeRemaining() == 0D)
+				powerChanged();
 
 			if ((process.getProcessTimeRemaining() == 0D) && (process.getWorkTimeRemaining() == 0D)) {
 				finishedProcesses.add(process);
@@ -492,6 +497,7 @@ public class FoodProduction extends Function implements Serializable {
 		}
 
 		processes.remove(process);
+		powerChanged();
 
 		// Log process ending.
 		if (logger.isLoggable(Level.FINEST)) {
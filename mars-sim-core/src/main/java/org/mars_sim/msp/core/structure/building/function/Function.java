@@ -115,6 +115,14 @@ public abstract class Function implements Serializable {
 	 */
 	public abstract double getPoweredDownPowerRequired();
 
+	/**
+	 * Notifies the power grid that the power generated or required by this
+	 * function has changed.
+	 */
+	protected void powerChanged() {
+		building.powerChanged();
+	}
+
 	/**
 	 * Perform any actions needed when removing this building function from the
 	 * settlement.
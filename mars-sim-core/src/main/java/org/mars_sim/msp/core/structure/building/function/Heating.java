@@ -20,7 +20,6 @@ import org.mars_sim.msp.core.time.MarsClock;
 import org.mars_sim.msp.core.time.MasterClock;
 
 import java.io.Serializable;
-import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -80,6 +79,8 @@ implements Serializable {
 	
 	/** The speed of the ventilation fan */
 	private static final double CFM  = 50;
+	/** The volume flow of 1 CFM [m^3/s] */
+	private static final double CFM_TO_M3_PER_SEC = 0.000471947;
 	
 	/** The average volume of a airlock [m^3] */	
     private static double AIRLOCK_VOLUME_IN_CM = Building.AIRLOCK_VOLUME_IN_CM; // = 12 [in m^3]
@@ -124,7 +125,8 @@ implements Serializable {
 //	private double n_sum = n_CO2 + n_air;
     
 //    private static final int HEAT_CAP = 200;  
- 	private static final int PER_UPDATE = 2 ; // must be a multiple of 2
+	/** The heat capacity of the interior structure and furnishings per floor area [kJ/K/m^2] */
+ 	private static final double INTERIOR_HEAT_CAPACITY = 20D;
     /** The cache for msols */     
  	private int msolCache;
     /** The counter for heating cycle */ 	
@@ -165,24 +167,17 @@ implements Serializable {
     private double U_value_area_wall;
 	/** The heat generated by the heating system. */
 	private double heatGeneratedCache = 0; // the initial value is zero
-	/** The heat extracted by the ventilation system. */
-	private double heatLossFromVent;
 	/** The current temperature of this building. */
 	private double currentTemperature;
-	/** The previously recorded temperature of this building. */
-	private double[] temperatureCache = new double[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
-	
-	private double timeSlice; 
+	/** The net heat flowing into this building [kW]. */
+	private double heatSource;
+	/** The heat lost through the hull per degree of difference from the outside [kW/K]. */
+	private double heatLossCoefficient;
 	
 	private double t_initial;
 	
 	//private double emissivity;
 	
-	private double conversion_factor;
-	
-	private double heat_sink = 0;
-	
-	private double area_factor;
 	
 	/** is this building a greenhouse */
 	private boolean isGreenhouse = false;
@@ -208,8 +203,6 @@ implements Serializable {
 	/** THe emissivity of the greenhouse canopy per millisol */
 	//private static Map<Integer, Double> emissivityMap;
 	
-	private List<Building> adjacentBuildings;
-	
 	/**
 	 * Constructor.
 	 * @param building the building this function is for.
@@ -239,7 +232,6 @@ implements Serializable {
 
 		floorArea = length * width ;
 
-		area_factor = Math.sqrt(Math.sqrt(floorArea));
 		
 		if (isHallway()) {
 			isHallway = true;
@@ -290,7 +282,6 @@ implements Serializable {
 		U_value_area_crack_length_for_airlock = 0.244 * .075 * airChangePerHr * q_H_factor * (2 * (2 + 6) + 4 * (.5 + .5) );
 		//assuming two EVA airlock
 
-		timeSlice = MarsClock.SECONDS_PER_MILLISOL / PER_UPDATE ;
 	
 		// References : 
 		// (1) https://en.wiktionary.org/wiki/humid_heat
@@ -311,18 +302,6 @@ implements Serializable {
 		
 		currentTemperature = t_initial;
 	
-		for (int i=0; i<temperatureCache.length; i++) {
-			temperatureCache[i] = t_initial;
-		}
-		
-		//temperatureCache[0] = t_initial;
-		//temperatureCache[1] = t_initial;
-		//temperatureCache[2] = t_initial;
-		//temperatureCache[3] = t_initial;
-		
-		//for (double tc : temperatureCache) {
-		//	tc = t_initial;
-		//}
 		
 //		emissivityMap = new HashMap<>();
 //
@@ -434,17 +413,15 @@ implements Serializable {
 	}
 
 	/**
-	 * Determines the change in temperature 
-	 * @param t_in_C
-	 * @param delta_time in millisols
-	 * @return delta temperature in C
+	 * Updates the heat sources and the heat loss coefficient of this building for
+	 * the thermal engine of the settlement.
+	 * @param t_in_C the current temperature inside
 	 */
-	public double determineDeltaTemperature(double t_in_C, double delta_time) {
+	public void updateThermalLoad(double t_in_C) {
 
-		// THIS IS A THREE-PART CALCULATION
+		// THIS IS A TWO-PART CALCULATION
 		double t_out_C = settlement.getOutsideTemperature();
 		// heatGain and heatLoss are to be converted from kJ to BTU below
-		double d_t =  t_in_C - t_out_C; //1.8 =  9D / 5D;
 		double t_in_K = t_in_C + C_TO_K;
 		double t_out_K = t_out_C + C_TO_K;
 		
@@ -644,11 +621,11 @@ implements Serializable {
 		//			+ Math.round(heatAirlock/1000D*10_000D)/10_000D + " kW");
 
 
-		// (2b) CALCULATE HEAT LOSS DUE TO STRUCTURE		
+		// (2b) CALCULATE HEAT LOSS COEFFICIENT DUE TO STRUCTURE [kW/K]
 		double structuralLoss = 0;
 	
 		if (num > 0) {
-			structuralLoss = CLF * d_t
+			structuralLoss = CLF
 					* (U_value_area_ceiling_or_floor * 2D
 					+ U_value_area_wall
 					+ U_value_area_crack_length_for_airlock * weather.getWindSpeed(location)) / 1000;
@@ -656,13 +633,13 @@ implements Serializable {
 		}
 		else {
 			if (isGreenhouse) {
-				structuralLoss = CLF * d_t
+				structuralLoss = CLF
 						* (U_value_area_ceiling_or_floor
 						//+ U_value_area_wall
 						+ U_value_area_crack_length * weather.getWindSpeed(location))/ 1000;		
 			}
 			else {
-				structuralLoss = CLF * d_t
+				structuralLoss = CLF
 					* (U_value_area_ceiling_or_floor * 2D
 					+ U_value_area_wall
 					+ U_value_area_crack_length * weather.getWindSpeed(location))/ 1000;
@@ -675,17 +652,12 @@ implements Serializable {
 		//	System.out.println(building.getNickName() + "'s structuralLoss : " 
 		//			+ Math.round(structuralLoss*10_000D)/10_000D + " kW");
 
-		// (2c) CALCULATE HEAT LOSS DUE TO VENTILATION
-		double ventilationHeatLoss = heatLossFromVent - heatGainVentilation(t_in_C, delta_time); 
-		// reset heatExtracted to zero
-		heatLossFromVent = 0;
-		
-		//if (isGreenhouse) 
-		//	System.out.println(building.getNickName() + "'s ventilationHeatLoss : " 
-		//			+ Math.round(ventilationHeatLoss*10_000D)/10_000D + " kW");
+		// (2c) HEAT LOSS DUE TO VENTILATION
+		// Note : the air exchange with adjacent buildings is modeled as conduction by the thermal engine
 		
-		// (2d) CALCULATE HEAT LOSS DUE TO HEAT RADIATED BACK TO OUTSIDE
-		double solarHeatLoss =  0;
+		// (2d) CALCULATE HEAT LOSS COEFFICIENT DUE TO HEAT RADIATED BACK TO OUTSIDE [kW/K]
+		// Note : the radiation is linearized around the current temperatures
+		double radiativeLoss =  0;
 		
 		if (isGreenhouse) {
 			double emissivity = EMISSIVITY_DAY + EMISSIVITY_NIGHT * (1 - I);
@@ -693,333 +665,17 @@ implements Serializable {
 				emissivity = 1;
 			else if (emissivity < .2)
 				emissivity = .2;
-			solarHeatLoss = emissivity * STEFAN_BOLTZMANN_CONSTANT
-					* ( Math.pow(t_in_K, 4) - Math.pow(t_out_K, 4) ) * hullArea /1000D;
+			radiativeLoss = emissivity * STEFAN_BOLTZMANN_CONSTANT
+					* (t_in_K * t_in_K + t_out_K * t_out_K) * (t_in_K + t_out_K) * hullArea /1000D;
 		}
-		else {
-			solarHeatLoss = 0;
-		}		
 		
 		
-		//if (isGreenhouse) 
-		//	System.out.println(building.getNickName() + "'s solarHeatLoss : " 
-		//		+ Math.round(solarHeatLoss*10_000D)/10_000D + " kW");
-
 		// (2e) At high RH, the air has close to the maximum water vapor that it can hold, 
 		// so evaporation, and therefore heat loss, is decreased.
 		
-		// (2f) CALCULATE TOTAL HEAT LOSS	
-		double heatLoss = heatAirlock + structuralLoss + ventilationHeatLoss + solarHeatLoss;
-		
-		//if (isGreenhouse) 
-		//	System.out.println(building.getNickName() + "'s heatLoss : " 
-		//			+ Math.round(heatLoss*10_000D)/10_000D + " kW");
-
-		// (3) CALCULATE THE INSTANTANEOUS CHANGE OF TEMPERATURE (DELTA T)
-		// delta t = (heatGain - heatLoss) / (time_interval * C_s * mass) ;
-		
-		// (3a) FIND THE DIFFERENCE between heat gain and heat loss
-		double d_heat1 = heatGain - heatLoss;
-			
-		// (3b) FIND the CONVERSION FACTOR
-		double c_factor = 1 / (conversion_factor * delta_time); 
-		//if (isGreenhouse) 
-		//	System.out.println(building.getNickName() + "'s c_factor : " 
-		//			+ Math.round(c_factor*10000D)/10000D);
-
-		// (3c) USE HEAT SINK to reduce the value of d_heat
-		double d_heat2 = 0;//d_heat1;
-		
-		if (t_in_C <= t_initial - 2 * T_LOWER_SENSITIVITY
-				|| t_in_C >= t_initial + 2 * T_UPPER_SENSITIVITY)	
-			d_heat2 = computeHeatSink(d_heat1, c_factor);
-		else
-			d_heat2 = d_heat1;
-
-		//if (isGreenhouse) 
-		//	System.out.println(building.getNickName() + "'s d_heat : " 
-		//			+ Math.round(d_heat1*100D)/100D + " --> " + Math.round(d_heat2*100D)/100D);
-	
-		// (3d) FIND THE CHANGE OF TEMPERATURE (in degress celsius)  
-		// Using the equation : heat = mass * specific heat capacity * delta temperature
-		// d_t = d_heat / mass / C_s
-		double d_t_C = c_factor * d_heat2 ; 
-		//applyHeatBuffer(changeOfTinC);
-		//if (isGreenhouse) 
-		//	System.out.println(building.getNickName() + "'s d_t_C : " 
-		//			+ Math.round(d_t_C*100D)/100D);
-		return d_t_C;
-	}
-
-	/***
-	 * Computes the amount of heat absorbed or release by the heat sink 
-	 * @param delta_heat
-	 * @param c_factor
-	 * @return heat
-	 */
-	public double computeHeatSink(double delta_heat, double c_factor) {
-		double d_heat = delta_heat; 
-		// (3c0 FIND THE HEAT TO BE ABSORBED OR RELEASED BY THE HEAT SINK
-		double limit = 1/c_factor; // = 210.9404 or 213.4221 at the start of the sim
-		//if (isGreenhouse) System.out.println(building.getNickName() + "'s limit : " + Math.round(limit*10000D)/10000D);
-			
-		double efficiency = 1;
-		double transfer = 0;
-
-		if (heat_sink <= 5*floorArea) { // max out in absorbing heat
-			efficiency = 1;
-		}
-		else if (heat_sink <= 10*floorArea) { // max out in absorbing heat
-			efficiency = .9;
-		}
-		else if (heat_sink <= 15*floorArea) { // max out in absorbing heat
-			efficiency = .8;
-		}			
-		else if (heat_sink <= 20*floorArea) { // max out in absorbing heat
-			efficiency = .7;
-		}	
-		else if (heat_sink <= 25*floorArea) { // max out in absorbing heat
-			efficiency = .6;
-		}	
-		else if (heat_sink <= 30*floorArea) { // max out in absorbing heat
-			efficiency = .5;
-		}	
-		else if (heat_sink <= 35*floorArea) { // max out in absorbing heat
-			efficiency = .4;
-		}	
-		else if (heat_sink <= 40*floorArea) { // max out in absorbing heat
-			efficiency = .3;
-		}	
-		else if (heat_sink <= 45*floorArea) { // max out in absorbing heat
-			efficiency = .2;
-		}	
-		else if (heat_sink <= 50*floorArea) { // max out in absorbing heat
-			efficiency = .1;
-		}	
-		else {
-			efficiency = 0;
-		}
-		
-		if (d_heat > 0) {
-					
-			if (d_heat/limit > 3) {				// e.g. 7 > 5
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [0] ");
-				transfer = .75 * d_heat * efficiency;		// d = 7 - 5 = 2				
-			}
-			else if (d_heat/limit > 2.5) {				// e.g. 7 > 5
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [1] ");
-				transfer = .6 * d_heat * efficiency;		// d = 7 - 5 = 2				
-			}
-
-			else if (d_heat/limit > 2) {				// e.g. 7 > 5
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [1] ");
-				transfer = .45 * d_heat * efficiency;		// d = 7 - 5 = 2				
-			}
-			else if (d_heat/limit > 1.5 ) {		// e.g. 4 > .5 * 5 
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [2] ");
-				transfer = .3 * d_heat * efficiency;	// d = 4 - .5 * 5 = 4 - 2.5 = 1.5			
-			}
-			else if (d_heat/limit > 1 ) {		// e.g. 4 > .5 * 5 
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [2] ");
-				transfer = .15 * d_heat * efficiency;	// d = 4 - .5 * 5 = 4 - 2.5 = 1.5			
-			}
-			else {
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [3] ");
-				transfer = .1 * d_heat * efficiency;	// d = 2 - .25 * 5 = 2 - 1.25 = 0.75			
-			}
-			
-			// suck up heat
-			heat_sink += transfer;						
-			d_heat -= transfer;	
-
-		}
-		
-		else if (d_heat < 0) {
-			double delta = Math.abs(d_heat);
-			if (delta/limit > 3) { 			// e.g. -7 < -5
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [4] ");
-				transfer = .75 * d_heat * efficiency;	// d = -7 + 5 = -2; d is negative
-			}
-			else if (delta/limit > 2.5) { 			// e.g. -7 < -5
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [5] ");
-				transfer = .6 * d_heat * efficiency;	// d = -7 + 5 = -2; d is negative
-			}
-			else if (delta/limit > 2) { 			// e.g. -7 < -5
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [5] ");
-				transfer = .5 * d_heat * efficiency;	// d = -7 + 5 = -2; d is negative
-			}
-			else if (delta/limit > 1.5) { 	// e.g. -4 < -.5 * 5
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [6] ");
-				transfer = .35 * delta * efficiency; // d = -4 + .5 * 5 = -4 + 2.5 = -1.5; d is -ve
-			}
-			else if (delta/limit > 1) { 	// e.g. -4 < -.5 * 5
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [6] ");
-				transfer = .25 * delta * efficiency; // d = -4 + .5 * 5 = -4 + 2.5 = -1.5; d is -ve
-			}
-			else { 	
-				//if (buildingType.equalsIgnoreCase("lander hab")) System.out.print(" [7] ");
-				transfer = .15 * d_heat * efficiency; // d = -2 + .25 * 5 = -2 + 1.25 = -0.75; d is -ve
-			}
-			
-			//if (heat_sink >= -50*floorArea) { // max out in releasing heat
-				// release heat
-			//	heat_sink += transfer;  
-			//	d_heat -= transfer; 	
-			//}
-
-		}
-		
-		//if (isGreenhouse)
-		//	System.out.println(building.getNickName() +"'s Heat Sink has " + Math.round(heat_sink*10.0)/10.0 + " kW"
-		//			+ "    Transferred : " + Math.round(transfer*10.0)/10.0 + " kW");
-		
-		return d_heat;
-	}
-
-	/**
-	 * Computes heat gain from adjacent room(s) due to air ventilation. This helps the temperature equilibrium
-	 * @param t temperature
-	 * @return temperature
-	 */
-	public double heatGainVentilation(double t, double time) {
-		double total_gain = 0; //heat_dump_1 = 0 , heat_dump_2 = 0;
-		boolean tooLow = t < (t_initial - 3.0 * T_LOWER_SENSITIVITY);
-		boolean tooHigh = t > (t_initial + 3.0 * T_UPPER_SENSITIVITY);
-		double speed_factor = .01 * time * CFM;
-		
-		if (tooLow || tooHigh) { // this temperature range is arbitrary
-			// TODO : determine if someone opens a hatch ??
-			//LogConsolidated.log(logger, Level.WARNING, 2000, sourceName, 
-			//		"The temperature for " + building + " in " + settlement 
-			//	+ " is " + Math.round(t*100D)/100D + " C"
-			//	, null);
-			//LogConsolidated.log(logger, Level.WARNING, 5000, sourceName, "time : " + Math.round(time*1000D)/1000D, null);
-			// Note : time = .121 at x128
-			
-			if (adjacentBuildings == null) {
-				adjacentBuildings = settlement.getBuildingConnectors(building);
-			}
-			
-			int size = adjacentBuildings.size();
-			//area_factor = Math.sqrt(Math.sqrt(floorArea));
-			
-//			if (isHallway)
-//				area_factor = .5;
-//			else if (isGreenhouse) 
-//				area_factor = 1.5;
-//			else if (isLargeGreenhouse()) 
-//				area_factor = 2.3;
-//			else if (isGarage())
-//				area_factor = 2;
-//			else if (isLoadingDockGarage())
-//				area_factor = 2.5;
-		
-			
-			for (int i = 0; i < size; i++) {
-				double t_next = adjacentBuildings.get(i).getCurrentTemperature();
-				double t_i = adjacentBuildings.get(i).getInitialTemperature();
-				//LogConsolidated.log(logger, Level.WARNING, 2000, sourceName, 
-				//		"The temperature for the adj " + adjacentBuildings.get(i) + " in " + settlement 
-				//	+ " is " + Math.round(t*100D)/100D + " C"
-				//	, null);
-
-				boolean too_low_next = t_next < (t_i - 2.5 * T_LOWER_SENSITIVITY);
-				boolean too_high_next = t_next > (t_i + 2.5 * T_UPPER_SENSITIVITY);
-				
-				double d_t = Math.abs(t - t_next);
-
-				double gain = 0;
-				if (tooLow) {
-					if (too_high_next) {
-						if (t_next > t) {
-							// heat coming in
-							gain = 2D * speed_factor * d_t*area_factor;
-							gain = Math.min(gain, CFM/size*2D*area_factor);
-						}
-						else {
-							// heat coming in
-							gain = speed_factor * d_t*area_factor;
-							gain = Math.min(gain, CFM/size*area_factor);
-							// heat is leaving
-						//	gain = - 2D * speed_factor * d_t;
-						//	gain = Math.max(gain, -CFM/size*2D);
-						}
-					}
-					else if (!too_low_next) {
-						if (t_next > t) {
-							// heat coming in
-							gain = speed_factor * d_t*area_factor;
-							gain = Math.min(gain, CFM/size*2D);
-						}
-						else {
-							// heat coming in
-							gain = .5 *speed_factor * d_t*area_factor;
-							gain = Math.min(gain, CFM/size);
-						}
-						//else if (t_next - T_LOWER_SENSITIVITY < t) {
-							// heat is leaving
-						//	gain = -speed_factor * d_t;
-						//	gain = Math.max(gain, -CFM/size*2D);
-						//}
-					}
-				}
-				
-				else if (tooHigh) {
-					if (too_low_next) {
-						if (t > t_next) {
-							// heat is leaving
-							gain = -2D *speed_factor * d_t*area_factor;
-							gain = Math.max(gain, -CFM/size*2D*area_factor);
-						}
-						else {
-							// heat is leaving
-							gain = -speed_factor * d_t*area_factor;
-							gain = Math.max(gain, -CFM/size*area_factor);
-						}
-						//else if (t < t_next + T_LOWER_SENSITIVITY) {
-							// heat coming in
-						//	gain = 2D *speed_factor * d_t;
-						//	gain = Math.min(gain, CFM/size*2D);
-						//}
-					}
-					else if (!too_high_next) {
-						if (t > t_next) {
-							// heat is leaving
-							gain = -speed_factor * d_t*area_factor;
-							gain = Math.max(gain, -CFM/size*2D);
-						}
-						else {
-							// heat is leaving
-							gain = -.5 * speed_factor * d_t*area_factor;
-							gain = Math.max(gain, -CFM/size);
-						}
-						//else if (t < t_next + T_LOWER_SENSITIVITY) {
-							// heat coming in
-						//	gain = speed_factor * d_t;
-						//	gain = Math.min(gain, CFM/size*2D);
-						//}
-					}
-					
-				}
-				
-				adjacentBuildings.get(i).extractHeat(gain);
-				
-				total_gain += gain;
-
-			}
-		
-//			if (total_gain > 0)
-//				LogConsolidated.log(logger, Level.INFO, 20000, sourceName, 
-//						"Pumping in " + Math.round(total_gain*100D)/100D + " kW of heat by air vent to " 
-//				+ building + " in " + settlement + " from adjacent building(s).", null);
-//			else if (total_gain < 0)
-//				LogConsolidated.log(logger, Level.INFO, 20000, sourceName, 
-//						"Dumping off " + -Math.round(total_gain*100D)/100D + " kW of excess heat by air vent from " 
-//				+ building + " in " + settlement + " to adjacent building(s).", null);
-
-		}
-		
-		return total_gain;
+		// (2f) CALCULATE THE NET HEAT SOURCE AND THE HEAT LOSS COEFFICIENT
+		heatSource = heatGain - heatAirlock;
+		heatLossCoefficient = structuralLoss + radiativeLoss;
 	}
 
 	
@@ -1089,7 +745,9 @@ implements Serializable {
 
 
 	/**
-	 * Time passing for the building.
+	 * Time passing for the building. The temperature itself is integrated by the
+	 * thermal engine of the settlement; the heat sources and losses are updated
+	 * once per millisol.
 	 * @param deltaTime amount of time passing (in millisols)
 	 */
 	public void timePassing(double deltaTime) {
@@ -1098,149 +756,69 @@ implements Serializable {
 
 		if (msolCache != msol) {
 			msolCache = msol;
-			cycleThermalControl(deltaTime);
+			cycleThermalControl();
 		}
-	
-//		double time_ratio = masterClock.getTimeRatio();
-//		double time_ratio_1 = Math.sqrt(time_ratio/2); // sqrt(128) = 11.3137 
-//		double time_ratio_2 = Math.sqrt(Math.sqrt(time_ratio_1/2)); // sqrt(sqrt(11.3137/4)) = 1.2968
-//		double update = Math.round(PER_UPDATE * time_ratio_2);
-//		if (update < 1)
-//			update = 1;
-//	
-//		LogConsolidated.log(logger, Level.INFO, 100, sourceName, 
-//		//		" msol : "
-//		//		+ _msol
-//				//Math.round(_msol*1000D)/1000D 
-//				 " c : " + counts
-//				, null);
-//
-//		if (msolCache != msol && counts % (int)update == 0) {
-//			msolCache = msol;
-//			counts = 0;
-//
-//			// Note 1 : the goal is to reduce dt to no more than ~1.6 millisols or else the temperature would
-//			// fluctuate too much and the heat gain/loss would not be fine grained enough.
-//
-//
-//			double limit = MSOL_LIMIT/time_ratio_2;
-//			double new_deltaTime = update * deltaTime;
-//
-//			// Note 2 : if msol accidentally skips a millisols, the size of the delta time is still safe to use.
-//
-//			int numCycles = (int)(Math.round(new_deltaTime/limit));
-//			if (numCycles < 1)
-//				numCycles = 1;
-//			
-//			// Computes the dt (the final delta time). 
-//			double dt = new_deltaTime/numCycles;
-//			
-//			//if (isGreenhouse)
-//			//	emissivity = emissivityMap.get(msol);
-//			//else
-//			//	emissivity = EMISSIVITY_INSULATED;
-//
-//			int countDown = numCycles;
-//			
-//			while (countDown != 0) {
-//				countDown--;
-//				cycleThermalControl(dt);
-//				//LogConsolidated.log(logger, Level.INFO, 1000, sourceName, 
-//				//	"  msol : " + _msol
-//				//	+ "   update : " + Math.round(update*1000.0)/1000.0
-//				//	+ "   limit : " + Math.round(limit*1000.0)/1000.0
-//				//	+ "   new_deltaTime : " + Math.round(new_deltaTime*1000.0)/1000.0
-//				//	+ "   numCycles : " + numCycles
-//				//	+ "   dt : " + Math.round(dt*1000.0)/1000.0 + " "
-//				//	, null);
-//			}
-//			
-//		}
-//
-//		//adjustHeatMode();
 	}
 
 	/**
 	 * Notifies thermal control subsystem for the temperature change and power up and power down
-	 * via 3 steps (this method houses the main thermal control codes)
-	 * @param delta_time in millisols
+	 * via 2 steps (this method houses the main thermal control codes)
 	 */
-	public void cycleThermalControl(double delta_time) {
-		// Detect temperatures
-		double old_t = currentTemperature;
-		double new_t = 0;
-		double t_out = settlement.getOutsideTemperature();
+	public void cycleThermalControl() {
+		// STEP 1 : CALCULATE HEAT GAIN AND THE HEAT LOSS COEFFICIENT
+		updateThermalLoad(currentTemperature);
+		
+		// STEP 2 : CHANGE THE HEAT MODE
+		// Turn heat source off if reaching certain temperature thresholds
+		adjustHeatMode();
+	}
 
+	/**
+	 * Gets the heat capacity of the air and the interior of this building.
+	 * @return heat capacity [kJ/K]
+	 */
+	public double getHeatCapacity() {
 		if (mass == 0) {
 			int id = building.getInhabitableID();
 			mass = building.getSettlement().getCompositionOfAir().getTotalMass()[id];
-			conversion_factor = C_s * mass / timeSlice; 
-			//System.out.println(building.getNickName() + "'s total mass : " + mass);
 			// also, mass = density * HEIGHT * floorArea * M_TO_FT * M_TO_FT * M_TO_FT;
 		}
-		
-		// STEP 1 : CALCULATE HEAT GAIN/LOSS AND RELATE IT TO THE TEMPERATURE CHANGE
-		double dt = 0;
-		if (conversion_factor != 0)
-			dt = determineDeltaTemperature(old_t, delta_time);
-			
-		// STEP 2 : LIMIT THE TEMPERATURE CHANGE
-		// Limit any spurious change of temperature for the sake of stability 
-		if (old_t < t_initial + 5.0 * T_LOWER_SENSITIVITY) {
-			if (dt < -5)
-				dt = -5;
-		}
-		else if (old_t > t_initial + 5.0 * T_UPPER_SENSITIVITY) {
-			if (dt > 5)
-				dt = 5;			
-		}		
+		return C_s * mass + INTERIOR_HEAT_CAPACITY * floorArea;
+	}
 
-		//System.out.println(building.getNickName() + "'s dt = " + Math.round(dt*10.0)/10.0);
-		// Limit the current temperature
-		new_t = old_t + dt;
-		// Safeguard against anomalous dt that would have crashed mars-sim
-		if (new_t > 45)
-			new_t = 45;
-		else if (new_t < t_out)
-			new_t = t_out;
-		
-		// Stabilize the temperature by delaying the change
-		double t = 0;
-		int size = temperatureCache.length;
-		for (int i=0; i<size; i++) {
-			t += temperatureCache[i];
-		}
-			
-//		currentTemperature = (temperatureCache[0] 
-//							+ temperatureCache[1]
-//							+ temperatureCache[2]
-//							+ temperatureCache[3]
-//							+ old_t 
-//							+ new_t)
-//							/6D;
-
-		currentTemperature = (t + old_t + new_t) / (size + 2);
-		
-		for (int i=size-1; i<0; i--) {
-			temperatureCache[i] = temperatureCache[i-1];
-		}
-		
-		
-		//temperatureCache[3] = temperatureCache[2];
-		//temperatureCache[2] = temperatureCache[1];		
-		//temperatureCache[1] = temperatureCache[0];
-		
-		temperatureCache[0] = old_t;
-		
-		//for (int i = 0; i < 4; i++) {
-		//	temperatureCache[0] = old_t;		
-		//}
-		
-		
-		// STEP 3 : CHANGE THE HEAT MODE
-		// Turn heat source off if reaching certain temperature thresholds
-		adjustHeatMode();
-		
+	/**
+	 * Gets the net heat flowing into this building, excluding the heat lost 
+	 * through the hull and to adjacent buildings.
+	 * @return heat [kW]
+	 */
+	public double getHeatSource() {
+		return heatSource;
+	}
+
+	/**
+	 * Gets the heat lost through the hull for each degree of difference from 
+	 * the outside temperature.
+	 * @return heat loss coefficient [kW/K]
+	 */
+	public double getHeatLossCoefficient() {
+		return heatLossCoefficient;
+	}
+
+	/**
+	 * Gets the heat exchanged with an adjacent building through the ventilation
+	 * fan for each degree of difference in temperature.
+	 * @return conductance [kW/K]
+	 */
+	public double getVentilationConductance() {
+		return CFM * CFM_TO_M3_PER_SEC * dryAirDensity * C_p;
+	}
+
+	/**
+	 * Sets the current temperature of this building. 
+	 * @param temperature (deg C)
+	 */
+	public void setCurrentTemperature(double temperature) {
+		currentTemperature = temperature;
 	}
 
 	/**
@@ -1256,7 +834,10 @@ implements Serializable {
 	 * @param power
 	 */
 	public void setPowerRequired(double power) {
-		powerRequired = power;
+		if (powerRequired != power) {
+			powerRequired = power;
+			powerChanged();
+		}
 	}
 	
 	/**
@@ -1291,15 +872,6 @@ implements Serializable {
 
 	}
 
-	/**
-	 * Sets the amount of heat loss from ventilation for this building
-	 * Note : heat loss if negative. heat gain if positive
-	 * @param heatLoss removed or added
-	 */
-	public void setHeatLoss(double heatLoss) {
-		heatLossFromVent = heatLossFromVent + heatLoss;
-	}
-
 	/**
 	 * Flags the presence of the heat loss due to opening an airlock outer door
 	 * @param value
@@ -1344,7 +916,6 @@ implements Serializable {
 		settlement = null;
 		manager = null;
 		farm = null;
-		adjacentBuildings = null;
 	}
 
 }
\ No newline at end of file
@@ -291,6 +291,7 @@ public class Manufacture extends Function implements Serializable {
 			throw new IllegalStateException("No space to add new manufacturing process.");
 		}
 		processes.add(process);
+		powerChanged();
 
 		// Consume inputs.
 		for (ManufactureProcessItem item : process.getInfo().getInputList()) {
@@ -419,7 +420,11 @@ public class Manufacture extends Function implements Serializable {
 		Iterator<ManufactureProcess> i = processes.iterator();
 		while (i.hasNext()) {
 			ManufactureProcess process = i.next();
+			boolean running = process.getProcessTimeRemaining() > 0D;
 			process.addProcessTime(time);
+			// A process stops drawing power once its process time is over.
+			if (running && process.getProcessTimeRemaining() == 0D)
+				powerChanged();
 
 			if ((process.getProcessTimeRemaining() == 0D) && (process.getWorkTimeRemaining() == 0D)) {
 				finishedProcesses.add(process);
@@ -628,6 +633,7 @@ public class Manufacture extends Function implements Serializable {
 		}
 
 		processes.remove(process);
+		powerChanged();
 
 		// Untag an 3D Printer (upon the process is ended or discontinued)
 		// if (numPrinterInUse >= 1)
@@ -217,6 +217,7 @@ public class PowerGeneration extends Function implements Serializable {
 
 		if (powerGeneratedCache != powerGenerated) {
 			powerGeneratedCache = powerGenerated;
+			powerChanged();
 		}
 
 //		for (PowerSource source : powerSources) {
@@ -84,6 +84,9 @@ implements Serializable {
 	
 	/** The energy last stored in the battery. */
 	private double kWhCache;
+
+	/** The power last drawn to charge the battery (kW). */
+	private double chargingPower;
 	
 	/** 
 	 * The energy currently stored in the battery 
@@ -307,6 +310,18 @@ implements Serializable {
 	@Override
 	public void timePassing(double time) {
 		this.time = time;
+
+		// Report the power drawn by the last charge to the grid.
+		double power = 0D;
+		double delta = kWhStored - kWhCache;
+		if (delta > 0 && time > 0)
+			power = delta / time / HOURS_PER_MILLISOL;
+		kWhCache = kWhStored;
+		if (chargingPower != power) {
+			chargingPower = power;
+			powerChanged();
+		}
+
         // check for the passing of each day
         int solElapsed = marsClock.getMissionSol();
         
@@ -338,13 +353,7 @@ implements Serializable {
 	
 	@Override
 	public double getFullPowerRequired() {
-		double delta = kWhStored - kWhCache;
-		if (delta > 0 && time > 0) {
-			kWhCache = kWhStored;
-			return delta/time/HOURS_PER_MILLISOL; 
-		}
-		else
-			return 0;
+		return chargingPower;
 	}
 
 	@Override
@@ -38,6 +38,8 @@ public class ResourceProcessing extends Function implements Serializable {
 	
 	private List<ResourceProcess> resourceProcesses;
 
+	private double powerRequiredCache;
+
 	private static BuildingConfig buildingConfig;
 
 	/**
@@ -173,6 +175,13 @@ public class ResourceProcessing extends Function implements Serializable {
 		while (i.hasNext()) {
 			i.next().processResources(time, productionLevel, getBuilding().getSettlementInventory());
 		}
+
+		// Report processes that have been toggled to the grid.
+		double power = getFullPowerRequired();
+		if (powerRequiredCache != power) {
+			powerRequiredCache = power;
+			powerChanged();
+		}
 	}
 
 	/**
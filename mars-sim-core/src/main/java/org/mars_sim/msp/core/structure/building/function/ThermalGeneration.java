@@ -45,6 +45,8 @@ implements Serializable {
 	
 	private double powerGeneratedCache;
 
+	private double electricPowerCache;
+
 	//private boolean sufficientHeat;
 
 	private Heating heating;
@@ -406,6 +408,12 @@ implements Serializable {
 		if (powerGeneratedCache != powerGenerated) {
 			powerGeneratedCache = powerGenerated;
 		}
+
+		double electricPower = getElectricPowerRequired();
+		if (electricPowerCache != electricPower) {
+			electricPowerCache = electricPower;
+			powerChanged();
+		}
 		
 		// set new efficiency 
 /*		
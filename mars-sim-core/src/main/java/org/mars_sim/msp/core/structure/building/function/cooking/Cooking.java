@@ -97,6 +97,7 @@ implements Serializable {
     private int mealCounterPerSol = 0;
     private int solCache = 1;
     private int numCookableMeal;
+    private int numCooksCache;
     
     // Dynamically adjusted the rate of generating meals
     //public double mealsReplenishmentRate;
@@ -950,6 +951,13 @@ implements Serializable {
      */
     public void timePassing(double time) {
 
+        // Report a change in the number of cooks to the grid.
+        int cooks = getNumCooks();
+        if (numCooksCache != cooks) {
+            numCooksCache = cooks;
+            powerChanged();
+        }
+
 	    int msol = marsClock.getMillisolInt();
 	    if (msolCache != msol && msol % RECHECKING_FREQ == 0) {
 	    	msolCache = msol;
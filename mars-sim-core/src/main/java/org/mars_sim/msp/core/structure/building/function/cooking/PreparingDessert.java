@@ -131,6 +131,8 @@ implements Serializable {
  	private int msolCache;
  	
 	private int solCache = 1;
+
+	private int numCooksCache;
 	
 	private int cookCapacity; // used in timePassing
 
@@ -714,6 +716,13 @@ implements Serializable {
      */
     public void timePassing(double time) {
 
+        // Report a change in the number of cooks to the grid.
+        int cooks = getNumCooks();
+        if (numCooksCache != cooks) {
+            numCooksCache = cooks;
+            powerChanged();
+        }
+
 	    int msol = marsClock.getMillisolInt();
 	    
 	    if (msolCache != msol) {
@@ -123,6 +123,8 @@ public class Crop implements Serializable {
 	// Data members
 	/** The cache for msols */
 	private int msolCache;
+	/** The index of the current phase, looked up again whenever the phase type changes. */
+	private transient int phaseNumCache = -1;
 	/** The current sol of month. */
 	private int currentSol = 1;
 	/** True if this crop is generated at the start of the sim . */
@@ -190,6 +192,10 @@ public class Crop implements Serializable {
 	private double inedibleBiomass;
 	
 	private double edibleBiomass;
+	/** The farm growing time when the crop was last evaluated (millisols). */
+	private double lastEvaluated;
+	/** The farm growing time when the crop is next due to be evaluated (millisols). */
+	private double dueTime;
 	
 	/** The cache values of the pastor environment factors influencing the crop */
 	private Double[] environment = new Double[] { 1.0, // light
@@ -205,6 +211,7 @@ public class Crop implements Serializable {
 
 	/** Current phase of crop. */
 	private PhaseType phaseType;
+	private transient PhaseType phaseTypeCache;
 	private CropCategoryType cropCategoryType;
 
 	private CropType cropType;
@@ -818,10 +825,12 @@ public class Crop implements Serializable {
 					cumulativeDailyPAR = 0;
 				}
 
-				int msol = marsClock.getMillisolInt();
+				// Check the health once in every CHECK_HEALTH_FREQUENCY millisols, even
+				// if the crop has not been evaluated at the exact millisol.
+				int slot = marsClock.getMillisolInt() / CHECK_HEALTH_FREQUENCY;
 
-				if (msolCache != msol && msol % CHECK_HEALTH_FREQUENCY == 0) {
-					msolCache = msol;
+				if (msolCache != slot) {
+					msolCache = slot;
 
 					computeHealth();
 				}
@@ -855,6 +864,53 @@ public class Crop implements Serializable {
 
 	}
 
+	/**
+	 * Brings the crop up to date with the growing time of its farm.
+	 * 
+	 * @param growingClock the total growing time of the farm (millisols)
+	 */
+	public void evaluate(double growingClock) {
+		double time = growingClock - lastEvaluated;
+		lastEvaluated = growingClock;
+		timePassing(time);
+	}
+
+	/**
+	 * Schedules the next evaluation of the crop, either after the longest
+	 * interval or as soon as it is due to enter its next growing phase.
+	 * 
+	 * @param maxInterval the longest growing time between two evaluations
+	 *                    (millisols)
+	 */
+	public void scheduleEvaluation(double maxInterval) {
+		double interval = maxInterval;
+		int current = getCurrentPhaseNum();
+		if (current > 1 && current < phases.size() - 2) {
+			double timeToNextPhase = getUpperPercent(current) / 100D * growingTime - growingTimeCompleted;
+			if (timeToNextPhase < interval)
+				interval = Math.max(timeToNextPhase, MIN);
+		}
+		dueTime = lastEvaluated + interval;
+	}
+
+	/**
+	 * Sets the farm growing time the crop has been evaluated up to.
+	 * 
+	 * @param growingClock the total growing time of the farm (millisols)
+	 */
+	public void setLastEvaluated(double growingClock) {
+		lastEvaluated = growingClock;
+	}
+
+	/**
+	 * Gets the farm growing time when the crop is next due to be evaluated.
+	 * 
+	 * @return growing time (millisols)
+	 */
+	public double getDueTime() {
+		return dueTime;
+	}
+
 	public void turnOnLighting(double kW) {
 		lightingPower = kW;
 	}
@@ -1313,12 +1369,17 @@ public class Crop implements Serializable {
 	}
 
 	public int getCurrentPhaseNum() {
-		for (Entry<Integer, Phase> entry : phases.entrySet()) {
-			if (entry.getValue().getPhaseType() == phaseType) {
-				return entry.getKey();
+		if (phaseTypeCache != phaseType) {
+			phaseNumCache = -1;
+			for (Entry<Integer, Phase> entry : phases.entrySet()) {
+				if (entry.getValue().getPhaseType() == phaseType) {
+					phaseNumCache = entry.getKey();
+					break;
+				}
 			}
+			phaseTypeCache = phaseType;
 		}
-		return -1;
+		return phaseNumCache;
 	}
 
 	/**
@@ -9,9 +9,11 @@ package org.mars_sim.msp.core.structure.building.function.farming;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,6 +78,8 @@ public class Farming extends Function implements Serializable {
 
 	private static final int NUM_INSPECTIONS = 2;
 	private static final int NUM_CLEANING = 2;
+	/** The longest growing time between two evaluations of a crop (millisols). */
+	private static final double MAX_EVALUATION_INTERVAL = 25D;
 
 	// private static ItemResource LED_Item;
 	// private static ItemResource HPS_Item;
@@ -92,9 +96,13 @@ public class Farming extends Function implements Serializable {
 
 	private double powerGrowingCrop;
 	private double powerSustainingCrop;
+	private double fullPowerCache;
+	private double downPowerCache;
 	private double maxGrowingArea;
 	private double remainingGrowingArea;
 	private double totalMaxHarvest = 0;
+	/** The total growing time of the farm, weighted by its production level (millisols). */
+	private double growingClock;
 
 	/** The amount of air moisture in the greenhouse */
 	private double moisture = 0;
@@ -111,6 +119,10 @@ public class Farming extends Function implements Serializable {
 	private List<String> plantedCrops;
 	/** List of crops the greenhouse is currently growing */
 	private List<Crop> crops;
+	/** The crops in the order they are due to be evaluated. */
+	private transient PriorityQueue<Crop> cropQueue;
+	/** True if a crop may have finished since the crops were last checked. */
+	private transient boolean cropFinished;
 
 	private List<String> inspectionList, cleaningList;
 
@@ -718,6 +730,9 @@ public class Farming extends Function implements Serializable {
 		// becoming very small double values and an endless loop occurs.
 		while (needyCrop != null && timeRemaining > .00001D) {
 
+			// Bring the crop up to date before working on it.
+			evaluateCrop(needyCrop);
+
 			timeRemaining = needyCrop.addWork(unit, timeRemaining);
 
 			needyCropCache = needyCrop;
@@ -837,6 +852,9 @@ public class Farming extends Function implements Serializable {
 	 */
 	public void timePassing(double time) {
 
+		if (cropQueue == null)
+			buildCropQueue();
+
 		// check for the passing of each day
 		int solElapsed = marsClock.getMissionSol();
 		if (solCache != solElapsed) {
@@ -845,9 +863,12 @@ public class Farming extends Function implements Serializable {
 			for (String s : cleaningMap.keySet()) {
 				cleaningMap.put(s, 0);
 			}
-			// Reset cumulativeDailyPAR
-			for (Crop c : crops)
+			// Close out the previous sol of every crop before resetting cumulativeDailyPAR
+			for (Crop c : crops) {
+				c.evaluate(growingClock);
 				c.resetPAR();
+			}
+			buildCropQueue();
 			
 			// Limit the size of the dailyWaterUsage to x key value pairs
 			if (dailyWaterUsage.size() > MAX_NUM_SOLS)
@@ -861,20 +882,45 @@ public class Farming extends Function implements Serializable {
 		else if (building.getPowerMode() == PowerMode.POWER_DOWN)
 			productionLevel = .5D;
 
-		// Add time to each crop.
+		growingClock += time * productionLevel;
+
+		// Evaluate the crops that are due.
+		boolean evaluated = false;
+		while (!cropQueue.isEmpty() && cropQueue.peek().getDueTime() <= growingClock) {
+			Crop crop = cropQueue.poll();
+			crop.evaluate(growingClock);
+			crop.scheduleEvaluation(MAX_EVALUATION_INTERVAL);
+			cropQueue.add(crop);
+			evaluated = true;
+		}
+
+		// Report changes in the crops' phases and lighting to the grid.
+		double fullPower = getFullPowerRequired();
+		double downPower = getPoweredDownPowerRequired();
+		if (fullPowerCache != fullPower || downPowerCache != downPower) {
+			fullPowerCache = fullPower;
+			downPowerCache = downPower;
+			powerChanged();
+		}
+
+		if (!evaluated && !cropFinished)
+			return;
+		cropFinished = false;
+
+		// Remove old crops.
 		Iterator<Crop> i = crops.iterator();
 		List<String> harvestedCrops = null;
 		int numCrops2Plant = 0;
 		while (i.hasNext()) {
 			Crop crop = i.next();
-			crop.timePassing(time * productionLevel);
-			// Remove old crops.
 			if (crop.getPhaseType() == PhaseType.FINISHED) {
+				crop.evaluate(growingClock);
 				remainingGrowingArea = remainingGrowingArea + crop.getGrowingArea();
 				if (harvestedCrops == null)
 					harvestedCrops = new ArrayList<>();
 				harvestedCrops.add(crop.getCropType().getName());
 				i.remove();
+				cropQueue.remove(crop);
 				plantedCrops.remove(crop.getCropType().getName());
 				numCrops2Plant++;
 			}
@@ -925,6 +971,9 @@ public class Farming extends Function implements Serializable {
 			// System.out.println("Farming timePassing() : calling plantACrop()");
 			Crop crop = plantACrop(cropType, false, 0);
 			crops.add(crop);
+			crop.setLastEvaluated(growingClock);
+			crop.scheduleEvaluation(MAX_EVALUATION_INTERVAL);
+			cropQueue.add(crop);
 
 			settlement.fireUnitUpdate(UnitEventType.CROP_EVENT, crop);
 		}
@@ -934,7 +983,33 @@ public class Farming extends Function implements Serializable {
 
 	}
 
-	
+	/**
+	 * Brings a crop up to date with the growing time of the farm.
+	 * 
+	 * @param crop the crop.
+	 */
+	private void evaluateCrop(Crop crop) {
+		crop.evaluate(growingClock);
+		if (cropQueue != null && cropQueue.remove(crop)) {
+			crop.scheduleEvaluation(MAX_EVALUATION_INTERVAL);
+			cropQueue.add(crop);
+		}
+		if (crop.getPhaseType() == PhaseType.FINISHED)
+			cropFinished = true;
+	}
+
+	/**
+	 * Builds the queue of crops ordered by when they are due to be evaluated.
+	 */
+	private void buildCropQueue() {
+		cropQueue = new PriorityQueue<Crop>(Math.max(1, crops.size()), Comparator.comparingDouble(Crop::getDueTime));
+		for (Crop crop : crops) {
+			crop.scheduleEvaluation(MAX_EVALUATION_INTERVAL);
+			cropQueue.add(crop);
+		}
+		cropFinished = true;
+	}
+
 	/**
 	 * Gets the amount of power required when function is at full power.
 	 * 
@@ -1632,6 +1707,7 @@ public class Farming extends Function implements Serializable {
 		}
 
 		crops = null;
+		cropQueue = null;
 
 	}
 
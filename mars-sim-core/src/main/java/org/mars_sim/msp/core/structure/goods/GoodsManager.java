@@ -168,6 +168,8 @@ public class GoodsManager implements Serializable {
 	private double tourism_factor = 1;
 
 	private double vp_cache;
+	/** The revision of the goods values, incremented on each update. */
+	private int valuesRevision = 0;
 
 	private Map<Good, Double> goodsValues;
 	private Map<Good, Double> goodsDemandCache;
@@ -294,11 +296,22 @@ public class GoodsManager implements Serializable {
 //			updateGoodValue(good, true); 
 //		}
 //		 
+		valuesRevision++;
 		settlement.fireUnitUpdate(UnitEventType.GOODS_VALUE_EVENT);
 
 		initialized = true;
 	}
 
+	/**
+	 * Gets the revision of the goods values. It changes whenever the goods values
+	 * are updated.
+	 * 
+	 * @return revision number
+	 */
+	public int getValuesRevision() {
+		return valuesRevision;
+	}
+
 	/**
 	 * Updates the value of a good at the settlement.
 	 * 
@@ -309,8 +322,10 @@ public class GoodsManager implements Serializable {
 	public void updateGoodValue(Good good, boolean collectiveUpdate) {
 		if (good != null) {
 			goodsValues.put(good, determineGoodValue(good, getNumberOfGoodForSettlement(good), false));
-			if (!collectiveUpdate)
+			if (!collectiveUpdate) {
+				valuesRevision++;
 				settlement.fireUnitUpdate(UnitEventType.GOODS_VALUE_EVENT, good);
+			}
 		} else
 			throw new IllegalArgumentException("Good is null.");
 	}
@@ -526,9 +541,8 @@ public class GoodsManager implements Serializable {
 
 	public double getTotalSupplyAmount(AmountResource resource, double supplyStored, int solElapsed) {
 		double totalSupplyAmount = 0;
-		String r = resource.getName().toLowerCase();
 
-		double supplyAmount = inv.getAmountSupplyAmount(r);
+		double supplyAmount = inv.getAmountSupplyAmount(resource.getID());
 		supplyAmount = Math.round(supplyAmount * 1000000.0) / 1000000.0;
 //        int supplyRequest = inv.getAmountSupplyRequest(r);
 
@@ -562,12 +576,9 @@ public class GoodsManager implements Serializable {
 	 * @return
 	 */
 	public double getNewDemandAmount(AmountResource resource, int solElapsed) {
-		String r = resource.getName().toLowerCase();
-
 		// sDemand is the amount of successful demand
-		double sDemand = inv.getAmountDemandAmount(r);
+		double sDemand = inv.getAmountDemandAmount(resource.getID());
 		// sDemand = Math.round(sDemand * 1000000.0) / 1000000.0;
-		int requests = inv.getAmountDemandTotalRequest(r);
 
 		// Get the average demand per orbit
 		// total average demand = projected demand + real demand usage
@@ -8,6 +8,7 @@
 package org.mars_sim.msp.core.terminal;
 
 import java.awt.geom.Point2D;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -33,6 +34,8 @@ import org.mars_sim.msp.core.Msg;
 import org.mars_sim.msp.core.Simulation;
 import org.mars_sim.msp.core.Unit;
 import org.mars_sim.msp.core.UnitManager;
+import org.mars_sim.msp.core.ensemble.EnsembleMember;
+import org.mars_sim.msp.core.ensemble.SimulationFork;
 import org.mars_sim.msp.core.location.LocationStateType;
 import org.mars_sim.msp.core.mars.Mars;
 import org.mars_sim.msp.core.mars.MarsSurface;
@@ -110,6 +113,9 @@ public class ChatUtils {
 	private static boolean expertMode = false;
 
 	private static final double RADIANS_TO_DEGREES = 180D/Math.PI;
+
+	/** The most branches a fork may run, each a whole simulation in memory. */
+	private static final int MAX_FORK_BRANCHES = 8;
 	
 	public final static String SYSTEM = "System";
 	public final static String SYSTEM_PROMPT = "System : ";
@@ -178,7 +184,8 @@ public class ChatUtils {
 			"vehicle", "rover", 
 			"hi", "hello", "hey",
 			"proposal",
-			"reset clock thread", "reset clock pulse", "reset clock listener"
+			"reset clock thread", "reset clock pulse", "reset clock listener",
+			"fork"
 	};
 
 	public final static String SWITCHES = 
@@ -3808,6 +3815,79 @@ public class ChatUtils {
 //		 return false;
 //	}
 	
+	/**
+	 * Forks the simulation into branches that run in the background and logs how
+	 * they diverged. With no policies given, each branch draws its own random
+	 * numbers, so the branches only measure how much the outcome varies with the
+	 * seed. With policies given as name=value, the first branch goes on as forked
+	 * and the others take the policies, all drawing the same random numbers, so
+	 * that they differ by the policies only.
+	 * Usage : fork [branches] [sols] [policy=value ...]
+	 * 
+	 * @param text the input string
+	 * @param responseText the response
+	 * @return the response
+	 */
+	public static StringBuffer forkSimulation(String text, StringBuffer responseText) {
+		String[] words = text.trim().split("\\s+");
+		String usage = "Usage : fork [branches] [sols] [policy=value ...] with 1 to " + MAX_FORK_BRANCHES
+				+ " branches and the policies " + EnsembleMember.POLICIES + System.lineSeparator();
+		final int num;
+		final double sols;
+		final Map<String, String> policy = new HashMap<>();
+		try {
+			num = words.length > 1 ? Integer.parseInt(words[1]) : 2;
+			sols = words.length > 2 ? Double.parseDouble(words[2]) : 1D;
+			for (int i = 3; i < words.length; i++) {
+				String[] pair = words[i].split("=", 2);
+				if (pair.length < 2 || !EnsembleMember.POLICIES.contains(pair[0]))
+					return responseText.append(usage);
+				// The priorities are whole numbers and the factors are not
+				if (pair[0].equals(EnsembleMember.REPAIR_PRIORITY) || pair[0].equals(EnsembleMember.MAINTENANCE_PRIORITY)
+						|| pair[0].equals(EnsembleMember.EVA_SUIT_PRIORITY))
+					Integer.parseInt(pair[1]);
+				else
+					Double.parseDouble(pair[1]);
+				policy.put(pair[0], pair[1]);
+			}
+		} catch (NumberFormatException e) {
+			return responseText.append(usage);
+		}
+		if (num < 1 || num > MAX_FORK_BRANCHES || (!policy.isEmpty() && num < 2) || !(sols > 0D))
+			return responseText.append(usage);
+
+		final SimulationFork fork;
+		try {
+			fork = new SimulationFork(sim);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Cannot fork the simulation", e);
+			return responseText.append("The simulation cannot be forked : " + e.getMessage() + System.lineSeparator());
+		}
+		fork.setSeed(System.nanoTime(), !policy.isEmpty());
+
+		Thread thread = new Thread(() -> {
+			try {
+				List<Map<String, String>> policies = new ArrayList<>();
+				policies.add(new HashMap<>());
+				for (int i = 1; i < num; i++)
+					policies.add(policy);
+				logger.info("Branches of the fork after " + sols + " sols :" + System.lineSeparator()
+						+ SimulationFork.report(fork.run(policies, sols)));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "simulation-fork");
+		thread.setDaemon(true);
+		thread.start();
+
+		String s = "Forked " + Math.round(fork.getStateSize() / 1_000.0) + " KB of state into " + num
+				+ " branches running for " + sols + " sols"
+				+ (policy.isEmpty() ? " with their own seeds" : ", all but the first with " + policy)
+				+ ". Their outcome will be logged.";
+		logger.config(s);
+		return responseText.append(s + System.lineSeparator());
+	}
+	
 	/*
 	 * Asks the system a question
 	 * 
@@ -3860,6 +3940,10 @@ public class ChatUtils {
 				return responseText.toString();
 			}
 			
+			else if (text.toLowerCase().startsWith("fork")) {
+				return forkSimulation(text, responseText).toString();
+			}
+			
 		}
 		
 		else if (text.toLowerCase().contains("log")) {
@@ -18,8 +18,10 @@ public interface ClockListener {
 	public void clockPulse(double time);
 
 	/**
-	 * Change in time for map related class
-	 * param time the amount of time changed. (millisols)
+	 * Change in time for map related class, sent out at a fixed frame rate
+	 * rather than with each clock pulse. It runs on the clock listener thread
+	 * between two clock pulses, so the units do not change while it reads them.
+	 * param time the amount of time changed since the last ui pulse. (millisols)
 	 */
 	public void uiPulse(double time);
 	
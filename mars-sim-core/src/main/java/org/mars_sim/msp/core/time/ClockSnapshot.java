@@ -0,0 +1,70 @@
+/**
+ * Mars Simulation Project
+ * ClockSnapshot.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.core.time;
+
+/**
+ * An immutable snapshot of the master clock, published once the clock
+ * listeners have processed a pulse. The UI reads the latest one at its own
+ * frame rate instead of being driven by the clock pulses. It holds the clock
+ * only, as the settlements and units are too many to copy at each pulse, so
+ * the ui pulses read those on the clock listener thread between two pulses.
+ */
+public final class ClockSnapshot {
+
+	/** The number of the pulse. */
+	private final long pulse;
+	/** The length of the pulse in millisols. */
+	private final double time;
+	/** The millisols pulsed since the clock listeners started. */
+	private final double totalTime;
+	/** The simulation time ratio. */
+	private final double timeRatio;
+	/** The martian time at the end of the pulse. */
+	private final MarsClock marsTime;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pulse     the number of the pulse
+	 * @param time      the length of the pulse in millisols
+	 * @param totalTime the millisols pulsed so far
+	 * @param timeRatio the simulation time ratio
+	 * @param marsTime  a copy of the martian clock, which must not be changed
+	 */
+	public ClockSnapshot(long pulse, double time, double totalTime, double timeRatio, MarsClock marsTime) {
+		this.pulse = pulse;
+		this.time = time;
+		this.totalTime = totalTime;
+		this.timeRatio = timeRatio;
+		this.marsTime = marsTime;
+	}
+
+	public long getPulse() {
+		return pulse;
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+	public double getTotalTime() {
+		return totalTime;
+	}
+
+	public double getTimeRatio() {
+		return timeRatio;
+	}
+
+	/**
+	 * Gets the martian time at the end of the pulse.
+	 *
+	 * @return a clone of the martian clock
+	 */
+	public MarsClock getMarsTime() {
+		return marsTime == null ? null : (MarsClock) marsTime.clone();
+	}
+}
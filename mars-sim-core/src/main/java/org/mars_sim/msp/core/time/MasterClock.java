@@ -14,7 +14,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
-import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -39,8 +38,6 @@ public class MasterClock implements Serializable {
 	private static String sourceName = logger.getName().substring(logger.getName().lastIndexOf(".") + 1,
 			logger.getName().length());
 
-	private static final double PERIOD_IN_MILLISOLS = 1500D / MarsClock.SECONDS_PER_MILLISOL;
-
 //	private static final int ONE_THOUSAND = 1000;
 
 	// Data members
@@ -72,30 +69,34 @@ public class MasterClock implements Serializable {
 	
 	/** The last uptime in terms of number of pulses. */
 	private transient long tLast;
-	/** The cache for accumulating millisols up to a limit before sending out a clock pulse. */
-	private transient double timeCache;
+	/** The millisols pulsed since the clock listeners started. */
+	private transient double pulsedTime;
+	/** The snapshot of the last pulse processed by the clock listeners. */
+	private transient volatile ClockSnapshot snapshot;
+	/** The millisols of the ui frames not yet sent out. Guarded by this. */
+	private transient double uiTime;
+	/** Is a ui pulse queued on the clock listener thread. Guarded by this. */
+	private transient boolean uiPulseQueued;
 
 	/** Is FXGL is in use. */
 	public boolean isFXGL = false;
-	/** The time between two ui pulses. */	
-	private float pulseTime;
 	/** The maximum number of counts allowed in waiting for other threads to execute. */
 	private int noDelaysPerYield = 0;
 	/** The measure of tolerance of the maximum number of lost frames for saving a simulation. */
 	private int maxFrameSkips = 0;
 	/** The total number of pulses cumulated. */
 	private long totalPulses = 1;
-	/** The cache for the last nano time of an ui pulse. */	
-	private long t01;
 	/** Mode for saving a simulation. */
 	private double tpfCache = 0;
-	/** The UI refresh cycle. */
-	private double refresh;
 
 	/** The file to save or load the simulation. */
 	private transient volatile File file;
 	/** The thread for running the clock listeners. */
 	private transient ExecutorService clockListenerExecutor;
+	/** The thread for sending out ui pulses. */
+	private transient UIRefreshScheduler uiRefreshScheduler;
+	/** The governor of the pulse length. */
+	private transient TimeRatioGovernor governor = new TimeRatioGovernor();
 	
 	/** A list of clock listeners. */
 	private transient List<ClockListener> clockListeners;
@@ -468,17 +469,6 @@ public class MasterClock implements Serializable {
 		exitProgram = true;
 	}
 
-	/**
-	 * Computes the time pulse in millisols in other words, the number of realworld
-	 * seconds that have elapsed since it was last called
-	 * 
-	 * @return time pulse length in millisols
-	 * @throws Exception if time pulse length could not be determined.
-	 */
-	public double computeTimePulseInMillisols(long elapsedMilliseconds) {
-		return computeTimePulseInSeconds(elapsedMilliseconds) / MarsClock.SECONDS_PER_MILLISOL;
-	}
-
 	/**
 	 * Computes the time pulse in seconds. It varies, depending on the time ratio
 	 * 
@@ -574,6 +564,45 @@ public class MasterClock implements Serializable {
 		return adjustedTR;
 	}
 
+	/**
+	 * Gets the governor of the pulse length.
+	 * 
+	 * @return the governor
+	 */
+	public TimeRatioGovernor getTimeRatioGovernor() {
+		if (governor == null)
+			governor = new TimeRatioGovernor();
+		return governor;
+	}
+
+	/**
+	 * Gets the time ratio achieved, which falls short of the requested time
+	 * ratio when the processor cannot keep up.
+	 * 
+	 * @return ratio
+	 */
+	public double getAchievedTimeRatio() {
+		return getTimeRatioGovernor().getAchievedRatio();
+	}
+
+	/**
+	 * Gets the share of the requested time ratio not achieved.
+	 * 
+	 * @return the deficit from 0 to 1
+	 */
+	public double getTimeRatioDeficit() {
+		return getTimeRatioGovernor().getDeficit();
+	}
+
+	/**
+	 * Gets the share of the elapsed time left over after the clock pulses.
+	 * 
+	 * @return the CPU headroom
+	 */
+	public double getCPUHeadroom() {
+		return getTimeRatioGovernor().getHeadroom();
+	}
+
 	/**
 	 * Gets the current time between update (TBU)
 	 * 
@@ -771,7 +800,7 @@ public class MasterClock implements Serializable {
 			// Get the time pulse length in millisols.
 			// double timePulse = millis / 1000 * timeRatio / MarsClock.SECONDS_IN_MILLISOL;
 			// Get the time pulse length in millisols.
-			double timePulse = computeTimePulseInMillisols(millis);
+			double timePulse = getTimeRatioGovernor().govern(millis, currentTR);
 			// Incrementing total time pulse number.
 			totalPulses++;
 
@@ -780,11 +809,7 @@ public class MasterClock implements Serializable {
 					&& !clockListenerExecutor.isTerminated()
 					&& !clockListenerExecutor.isShutdown()) {	
 					
-					// Add time pulse length to Earth and Mars clocks.
-					earthClock.addTime(millis * currentTR);
-					marsClock.addTime(timePulse);
-					
-					fireClockPulse(timePulse);		
+					passTime(timePulse);
 				}
 				else {
 					// NOTE: when resuming from power saving, timePulse becomes zero
@@ -797,6 +822,20 @@ public class MasterClock implements Serializable {
 		}
 	}
 
+	/**
+	 * Fires the time pulse to the clock listeners in the sub-steps set up by the
+	 * governor.
+	 * 
+	 * @param timePulse the time pulse length in millisols
+	 */
+	void passTime(double timePulse) {
+		int steps = getTimeRatioGovernor().getSubSteps();
+		double step = timePulse / steps;
+		for (int i = 0; i < steps; i++) {
+			fireClockPulse(step);
+		}
+	}
+
 	private void shutdownAndAwaitTermination(ExecutorService pool) {
 		pool.shutdown(); // Disable new tasks from being submitted
 		try {
@@ -856,21 +895,25 @@ public class MasterClock implements Serializable {
 		});
 	}
 
-	public double getRefresh() {
-		return refresh;
-	}
-
 	/** Gets the time between two ui pulses. */
 	public float getPulseTime( ) {
-		return pulseTime;
+		return uiRefreshScheduler == null ? 0 : uiRefreshScheduler.getFrameTime();
+	}
+
+	/**
+	 * Gets the snapshot of the last pulse processed by the clock listeners.
+	 * 
+	 * @return the snapshot, or null before the first pulse
+	 */
+	public ClockSnapshot getSnapshot() {
+		return snapshot;
 	}
 	
 	/**
 	 * Prepares clock listener tasks for setting up threads.
 	 */
-	public class ClockListenerTask implements Runnable {
+	public class ClockListenerTask {
 
-		private double time;
 		private ClockListener listener;
 
 		public ClockListener getClockListener() {
@@ -881,67 +924,108 @@ public class MasterClock implements Serializable {
 			this.listener = listener;
 		}
 
-		public void insertTime(double time) {
+		private void clockPulse(double time) {
+			// The most important job for CLockListener is to send a clock pulse to
+			// Simulation's clockPulse()
+			// so that UpTimer, Mars, UnitManager, ScientificStudyManager, TransportManager
+			// gets updated.
+			listener.clockPulse(time);
+		}
+	}
+
+	/**
+	 * Fires the clock pulse to each clock listener. The Earth and Mars clocks are
+	 * advanced on the clock listener thread just before the listeners get the
+	 * pulse, so that each pulse is seen with the clocks at its own end even when
+	 * several are queued.
+	 */
+	public void fireClockPulse(double time) {
+		pulsedTime += time;
+		getTimeRatioGovernor().queued();
+		clockListenerExecutor.execute(new ClockPulseTask(time, totalPulses, pulsedTime, currentTR));
+	}
+
+	/**
+	 * Advances the clocks by a pulse, sends it to the clock listeners and
+	 * publishes the snapshot of the clocks once they have processed it.
+	 */
+	private class ClockPulseTask implements Runnable {
+
+		private final double time;
+		private final long pulse;
+		private final double totalTime;
+		private final double timeRatio;
+		private final EarthClock earth;
+		private final MarsClock mars;
+
+		private ClockPulseTask(double time, long pulse, double totalTime, double timeRatio) {
 			this.time = time;
+			this.pulse = pulse;
+			this.totalTime = totalTime;
+			this.timeRatio = timeRatio;
+			this.earth = earthClock;
+			this.mars = marsClock;
 		}
 
 		@Override
 		public void run() {
+			long start = System.nanoTime();
 			try {
-
-				// The most important job for CLockListener is to send a clock pulse to
-				// Simulation's clockPulse()
-				// so that UpTimer, Mars, UnitManager, ScientificStudyManager, TransportManager
-				// gets updated.
-				listener.clockPulse(time);
-				timeCache += time;
-
-				if (timeCache > refresh) {
-					// Set refresh to the new value
-					refresh = PERIOD_IN_MILLISOLS * time;
-					long t02 = System.nanoTime();
-					pulseTime = (t02-t01)/1_000_000_000F;
-//					System.out.println("time : " + time + "   refresh : " + refresh + "   Rate : " + pulseTime + " s");
-					t01 = t02;
-					// at the start of the sim, delta is ~.18 s
-					
-					// The secondary job of CLockListener is to send uiPulse() out to
-					// MainDesktopPane,
-					// which in terms sends a clock pulse out to update all unit windows and tool
-					// windows
-					//
-					// It also sends an ui pulse out to the following class and map related panels:
-					// 1. SettlementMapPanel
-					// 2. ArrivingSettlementDetailPanel
-					// 3. GlobeDisplay
-					// 4. MapPanel
-					// 5. ResupplyDetailPanel
-					// 6. Telegraph
-					// 7. TimeWindow
-					// 8. EventTableModel
-					// 9. NotificationWindow
-					listener.uiPulse(time);
-					timeCache = 0;
+				earth.addTime(time * MarsClock.SECONDS_PER_MILLISOL * 1000D);
+				mars.addTime(time);
+				for (ClockListenerTask task : clockListenerTasks) {
+					task.clockPulse(time);
 				}
-
-			} catch (ConcurrentModificationException e) {
-				e.printStackTrace();
+				snapshot = new ClockSnapshot(pulse, time, totalTime, timeRatio, (MarsClock) mars.clone());
+			} finally {
+				getTimeRatioGovernor().processed(time, System.nanoTime() - start);
 			}
 		}
 	}
 
 	/**
-	 * Fires the clock pulse to each clock listener
+	 * Queues a ui frame on the clock listener thread. Called by the
+	 * {@link UIRefreshScheduler} at its frame rate. The frame runs between two
+	 * clock pulses, so the listeners read the settlements and units while no
+	 * clock listener changes them. While a frame is still queued, the time of
+	 * the next ones is added to it rather than queuing another.
+	 * 
+	 * @param time the millisols since the last ui frame
 	 */
-	public void fireClockPulse(double time) {
+	private void queueUIPulse(double time) {
+		boolean queue;
+		synchronized (this) {
+			uiTime += time;
+			queue = !uiPulseQueued;
+			uiPulseQueued = true;
+		}
+		if (queue)
+			clockListenerExecutor.execute(() -> {
+				double pulse;
+				synchronized (this) {
+					pulse = uiTime;
+					uiTime = 0;
+					uiPulseQueued = false;
+				}
+				fireUIPulse(pulse);
+			});
+	}
+
+	/**
+	 * Fires the ui pulse to each clock listener, which sends it out to
+	 * MainDesktopPane, which in turn updates all unit windows and tool windows,
+	 * and to the map related panels. Runs on the clock listener thread between
+	 * two clock pulses.
+	 * 
+	 * @param time the millisols since the last ui pulse
+	 */
+	public void fireUIPulse(double time) {
 		for (ClockListenerTask task : clockListenerTasks) {
-			if (task != null) {
-				task.insertTime(time);
-				clockListenerExecutor.execute(task);
+			try {
+				task.getClockListener().uiPulse(time);
+			} catch (RuntimeException e) {
+				logger.log(Level.SEVERE, "Could not send a ui pulse to " + task.getClockListener(), e);
 			}
-
-			else
-				return;
 		}
 	}
 
@@ -1043,14 +1127,26 @@ public class MasterClock implements Serializable {
 			// clockListenerExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
 			clockListenerExecutor = Executors.newSingleThreadExecutor();
 
+		if (uiRefreshScheduler == null)
+			uiRefreshScheduler = new UIRefreshScheduler(this::getSnapshot, this::queueUIPulse,
+					UIRefreshScheduler.FRAME_RATE);
+		uiRefreshScheduler.start();
 	}
 
 	/**
 	 * Shuts down clock listener thread pool executor
 	 */
 	public void endClockListenerExecutor() {
+		if (uiRefreshScheduler != null)
+			uiRefreshScheduler.stop();
 		if (clockListenerExecutor != null)
 			clockListenerExecutor.shutdownNow();
+		// The queued pulses may have been dropped
+		getTimeRatioGovernor().clearPending();
+		synchronized (this) {
+			uiTime = 0;
+			uiPulseQueued = false;
+		}
 	}
 
 	// To be called by TransportWizard and ConstructionWizard
@@ -1087,9 +1183,8 @@ public class MasterClock implements Serializable {
 				// resetTotalPulses();
 				// }
 				// else {
-				double t = tpfCache * currentTR;
 				// Get the time pulse length in millisols.
-				double timePulse = t / MarsClock.SECONDS_PER_MILLISOL;
+				double timePulse = getTimeRatioGovernor().govern(tpfCache * 1000D, currentTR);
 				// tpfCache : 0.117 tpfCache * timeRatio : 14.933 elapsedLast : 9315.0(inc)
 				// timePulse : 0.168
 
@@ -1100,10 +1195,7 @@ public class MasterClock implements Serializable {
 				// || !clockListenerExecutor.isTerminating()
 						&& clockListenerExecutor != null && !clockListenerExecutor.isTerminated()
 						&& !clockListenerExecutor.isShutdown()) {
-					// Add time pulse length to Earth and Mars clocks.
-					earthClock.addTime(1000D * t);
-					marsClock.addTime(timePulse);
-					fireClockPulse(timePulse);
+					passTime(timePulse);
 				}
 
 				// Set tpfCache back to zero
@@ -1145,6 +1237,7 @@ public class MasterClock implements Serializable {
 	 * Prepare object for garbage collection.
 	 */
 	public void destroy() {
+		endClockListenerExecutor();
 		simulationConfig = null;
 		sim = null;
 		marsClock = null;
@@ -1153,6 +1246,8 @@ public class MasterClock implements Serializable {
 		uptimer = null;
 		clockThreadTask = null;
 		clockListenerExecutor = null;
+		uiRefreshScheduler = null;
+		snapshot = null;
 		file = null;
 
 		clockListeners = null;
@@ -0,0 +1,211 @@
+/**
+ * Mars Simulation Project
+ * TimeRatioGovernor.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.core.time;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The TimeRatioGovernor decides how much simulated time a clock pulse may
+ * cover. Pulses are split into sub-steps no longer than {@link #MAX_PULSE} so
+ * that thermal control and air composition run for every millisol. The cost of
+ * a sub-step is measured per subsystem, and when the requested time ratio needs
+ * more sub-steps than the processor can afford, the simulation falls behind the
+ * requested ratio instead of taking longer steps. No time is passed while
+ * sub-steps are still waiting to be processed, so the queue of sub-steps stays
+ * bounded. The time ratio achieved is measured from the sub-steps processed.
+ */
+public class TimeRatioGovernor {
+
+	/** The longest sub-step in millisols. Heating cycles once per millisol. */
+	public static final double MAX_PULSE = 1D;
+	/** The most sub-steps in a pulse, bounding the catch up after a stall. */
+	public static final int MAX_SUB_STEPS = 64;
+	/** The share of the elapsed time the sub-steps may use. */
+	public static final double TARGET_LOAD = .8D;
+
+	/** The weight of the latest measure in the running averages. */
+	private static final double SMOOTHING = .1D;
+
+	/** The average cost of a sub-step per subsystem in nanoseconds. */
+	private final Map<String, Double> costs = new ConcurrentHashMap<>();
+
+	/** The number of sub-steps in the last pulse. */
+	private volatile int subSteps = 1;
+	/** The number of sub-steps queued and not yet processed. Guarded by this. */
+	private int pendingSteps;
+	/** The millisols processed since the last pulse. Guarded by this. */
+	private double processedTime;
+	/** The time spent processing since the last pulse in nanoseconds. Guarded by this. */
+	private long busyTime;
+	/** The averaged time ratio achieved. */
+	private volatile double achievedRatio;
+	/** The averaged share of the time ratio not achieved. */
+	private volatile double deficit;
+	/** The averaged share of the elapsed time left over. */
+	private volatile double headroom = 1D;
+
+	/**
+	 * Records the time a subsystem took to process a sub-step.
+	 *
+	 * @param subsystem the name of the subsystem
+	 * @param start     the time it started in nanoseconds
+	 * @return the time it ended in nanoseconds
+	 */
+	public long record(String subsystem, long start) {
+		long end = System.nanoTime();
+		costs.merge(subsystem, (double) (end - start), (old, cost) -> old + SMOOTHING * (cost - old));
+		return end;
+	}
+
+	/**
+	 * Gets the average cost of a sub-step.
+	 *
+	 * @return the cost in nanoseconds
+	 */
+	public double getPulseCost() {
+		double cost = 0;
+		for (double c : costs.values())
+			cost += c;
+		return cost;
+	}
+
+	/**
+	 * Gets the average cost of a sub-step per subsystem.
+	 *
+	 * @return the costs in nanoseconds
+	 */
+	public Map<String, Double> getCosts() {
+		return Collections.unmodifiableMap(costs);
+	}
+
+	/**
+	 * Records that a sub-step has been queued for processing.
+	 */
+	public synchronized void queued() {
+		pendingSteps++;
+	}
+
+	/**
+	 * Records that a queued sub-step has been processed.
+	 *
+	 * @param time      the length of the sub-step in millisols
+	 * @param busyNanos the time it took to process in nanoseconds
+	 */
+	public synchronized void processed(double time, long busyNanos) {
+		pendingSteps = Math.max(0, pendingSteps - 1);
+		processedTime += time;
+		busyTime += busyNanos;
+	}
+
+	/**
+	 * Forgets the queued sub-steps, when the queue they were in is dropped.
+	 */
+	public synchronized void clearPending() {
+		pendingSteps = 0;
+	}
+
+	/**
+	 * Gets the number of sub-steps queued and not yet processed.
+	 *
+	 * @return the number of sub-steps
+	 */
+	public synchronized int getPendingSteps() {
+		return pendingSteps;
+	}
+
+	/**
+	 * Computes the time to pass for the elapsed real time and sets up its
+	 * sub-steps. The time ratio achieved is measured from the time processed
+	 * since the last call. While earlier sub-steps are still pending no time is
+	 * passed, and the elapsed time is counted in the deficit.
+	 *
+	 * @param elapsedMillis the elapsed real time in milliseconds
+	 * @param timeRatio     the requested time ratio
+	 * @return the time to pass in millisols
+	 */
+	public double govern(double elapsedMillis, double timeRatio) {
+		double requested = elapsedMillis * timeRatio / 1000D / MarsClock.SECONDS_PER_MILLISOL;
+		if (requested <= 0)
+			return 0;
+
+		int pending;
+		double processed;
+		long busy;
+		synchronized (this) {
+			pending = pendingSteps;
+			processed = processedTime;
+			busy = busyTime;
+			processedTime = 0;
+			busyTime = 0;
+		}
+
+		double elapsedNanos = elapsedMillis * 1_000_000D;
+		achievedRatio = average(achievedRatio, processed * MarsClock.SECONDS_PER_MILLISOL * 1000D / elapsedMillis);
+		deficit = average(deficit, Math.max(0D, 1D - processed / requested));
+		headroom = average(headroom, Math.max(0D, 1D - busy / elapsedNanos));
+
+		// Back off until the listeners have caught up
+		if (pending > 0) {
+			subSteps = 0;
+			return 0;
+		}
+
+		int steps = (int) Math.min(MAX_SUB_STEPS, Math.ceil(requested / MAX_PULSE));
+
+		// Only as many sub-steps as the processor can do in the time
+		double budget = elapsedNanos * TARGET_LOAD;
+		double cost = getPulseCost();
+		if (cost > 0)
+			steps = (int) Math.max(1, Math.min(steps, budget / cost));
+
+		subSteps = steps;
+		return Math.min(requested, steps * MAX_PULSE);
+	}
+
+	private double average(double average, double value) {
+		return average + SMOOTHING * (value - average);
+	}
+
+	/**
+	 * Gets the number of sub-steps to split the last governed pulse into.
+	 *
+	 * @return the number of sub-steps, zero if no time is passed
+	 */
+	public int getSubSteps() {
+		return subSteps;
+	}
+
+	/**
+	 * Gets the time ratio achieved by the sub-steps processed.
+	 *
+	 * @return the time ratio
+	 */
+	public double getAchievedRatio() {
+		return achievedRatio;
+	}
+
+	/**
+	 * Gets the share of the requested time ratio not achieved.
+	 *
+	 * @return the deficit from 0 to 1
+	 */
+	public double getDeficit() {
+		return deficit;
+	}
+
+	/**
+	 * Gets the share of the elapsed time left over after processing the
+	 * sub-steps.
+	 *
+	 * @return the headroom from 0 to 1
+	 */
+	public double getHeadroom() {
+		return headroom;
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * Mars Simulation Project
+ * UIRefreshScheduler.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.core.time;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The UIRefreshScheduler times the ui pulses at a fixed frame rate on its own
+ * thread. Each frame reads the latest {@link ClockSnapshot} and passes on the
+ * time pulsed since the last frame, which the master clock sends out on the
+ * clock listener thread between two pulses. Frames that come due while the
+ * previous one is still being passed on are dropped, as are frames with no
+ * new pulse.
+ */
+public class UIRefreshScheduler {
+
+	/** Initialized logger. */
+	private static Logger logger = Logger.getLogger(UIRefreshScheduler.class.getName());
+
+	/** The default number of ui frames per second. */
+	public static final int FRAME_RATE = 10;
+
+	/** The source of clock snapshots. */
+	private final Supplier<ClockSnapshot> source;
+	/** Receives the millisols since the last frame. */
+	private final DoubleConsumer uiPulse;
+	/** The time between frames in nanoseconds. */
+	private final long period;
+
+	private ScheduledExecutorService service;
+
+	/** The time the next frame is due. */
+	private long nextFrame;
+	/** The snapshot of the last frame. */
+	private ClockSnapshot last;
+	/** The time of the last frame. */
+	private long lastFrameTime;
+	/** The time between the last two frames in seconds. */
+	private volatile float frameTime;
+	/** The number of frames sent out. */
+	private volatile long frames;
+	/** The number of frames dropped for being late. */
+	private volatile long droppedFrames;
+
+	/**
+	 * Constructor
+	 *
+	 * @param source    the source of clock snapshots
+	 * @param uiPulse   receives the millisols since the last frame
+	 * @param frameRate the number of frames per second
+	 */
+	public UIRefreshScheduler(Supplier<ClockSnapshot> source, DoubleConsumer uiPulse, int frameRate) {
+		this.source = source;
+		this.uiPulse = uiPulse;
+		period = TimeUnit.SECONDS.toNanos(1) / frameRate;
+	}
+
+	/**
+	 * Starts sending out frames.
+	 */
+	public synchronized void start() {
+		if (service == null) {
+			service = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "ui-refresh");
+				t.setDaemon(true);
+				return t;
+			});
+			nextFrame = System.nanoTime();
+			service.scheduleAtFixedRate(this::tick, 0, period, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Stops sending out frames.
+	 */
+	public synchronized void stop() {
+		if (service != null) {
+			service.shutdownNow();
+			service = null;
+		}
+	}
+
+	private void tick() {
+		// An exception would cancel all later frames
+		try {
+			frame(System.nanoTime());
+		} catch (RuntimeException e) {
+			logger.log(Level.SEVERE, "A ui frame failed", e);
+		}
+	}
+
+	/**
+	 * Runs the frame that was due at the time of the next frame.
+	 *
+	 * @param now the current time in nanoseconds
+	 * @return true if a ui pulse was sent out
+	 */
+	boolean frame(long now) {
+		long late = now - nextFrame;
+		nextFrame += period;
+		// A fixed rate executor runs the frames missed by a slow one back to back
+		if (late >= period) {
+			droppedFrames++;
+			return false;
+		}
+
+		ClockSnapshot snapshot = source.get();
+		if (snapshot == null || snapshot == last)
+			return false;
+
+		double time = snapshot.getTime();
+		if (last != null && snapshot.getTotalTime() > last.getTotalTime())
+			time = snapshot.getTotalTime() - last.getTotalTime();
+		last = snapshot;
+
+		if (frames > 0)
+			frameTime = (now - lastFrameTime) / 1_000_000_000F;
+		lastFrameTime = now;
+		frames++;
+
+		uiPulse.accept(time);
+		return true;
+	}
+
+	/**
+	 * Gets the time between the last two frames.
+	 *
+	 * @return the time in seconds
+	 */
+	public float getFrameTime() {
+		return frameTime;
+	}
+
+	public long getFrames() {
+		return frames;
+	}
+
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+}
@@ -11,12 +11,14 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.logging.Logger;
 
+import org.mars_sim.msp.core.tool.SaveCodec.Restorable;
+
 
 /**
  * The UpTimer class keeps track of how long an instance of the simulation
  * has been running in real time.
  */
-public class UpTimer implements Serializable {
+public class UpTimer implements Serializable, Restorable {
 
 	/** default serial id. */
 	private static final long serialVersionUID = -4992839027918134952L;
@@ -59,6 +61,11 @@ public class UpTimer implements Serializable {
     private void readObject(java.io.ObjectInputStream in)
             throws IOException, ClassNotFoundException {
         in.defaultReadObject();
+        restoreTransientData();
+    }
+
+    @Override
+    public void restoreTransientData() {
         lastcall = System.nanoTime() / NANOSECONDS_PER_MILLISECONDS;
     }
 
@@ -0,0 +1,1557 @@
+/**
+ * Mars Simulation Project
+ * SaveCodec.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.tool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * The SaveCodec class reads and writes the simulation model in a compact,
+ * versioned binary format. Every object is written once and referred to by id
+ * afterwards, so units and the other shared objects of the model are stored
+ * only once. The ids are counted within sections, one for each object written
+ * at the top and one for each {@link Section} such as a unit, so an object
+ * added to one unit does not renumber the objects of the others and two saves
+ * of the same simulation share most of their bytes. Each class is described by a table of its field names and types
+ * the first time it is written, which lets a save survive fields being added,
+ * removed, renamed or reordered. Primitive arrays are written directly and
+ * collections and maps are written as their elements. The objects are created
+ * by Java serialization itself, so transient fields are left at their default
+ * value and readResolve is honored. A readObject hook is run on the new object
+ * before its fields are set, so classes restore their transient data with
+ * {@link Restorable} instead. Objects of the JDK that the codec does not know
+ * about are embedded with Java serialization in a single stream, so the objects
+ * they share are still shared after loading.
+ */
+public class SaveCodec {
+
+	/** default logger. */
+	private static Logger logger = Logger.getLogger(SaveCodec.class.getName());
+
+	/** The magic number at the start of a binary save ("MSIM"). */
+	public static final int MAGIC = 0x4D53494D;
+	/** The version of the format. */
+	public static final int VERSION = 3;
+	/** The first version with a single Java serialization stream. */
+	private static final int SHARED_JAVA_STREAM = 2;
+	/** The first version with ids counted within sections. */
+	private static final int SECTIONS = 3;
+
+	// Value tags
+	private static final int NULL = 0;
+	private static final int REF = 1;
+	private static final int STRING = 2;
+	private static final int BOOLEAN = 3;
+	private static final int BYTE = 4;
+	private static final int CHAR = 5;
+	private static final int SHORT = 6;
+	private static final int INT = 7;
+	private static final int LONG = 8;
+	private static final int FLOAT = 9;
+	private static final int DOUBLE = 10;
+	private static final int ENUM = 11;
+	private static final int CLASS = 12;
+	private static final int PRIMITIVE_ARRAY = 13;
+	private static final int ARRAY = 14;
+	private static final int COLLECTION = 15;
+	private static final int MAP = 16;
+	private static final int WRAPPED = 17;
+	private static final int ENUM_SET = 18;
+	private static final int ENUM_MAP = 19;
+	private static final int OBJECT = 20;
+	private static final int JAVA = 21;
+	private static final int SECTION = 22;
+	private static final int SECTION_REF = 23;
+
+	// Flags of a wrapped collection
+	private static final int SYNCHRONIZED = 1;
+	private static final int UNMODIFIABLE = 2;
+	private static final int FIXED_SIZE = 4;
+
+	// Shapes of a wrapped collection
+	private static final int SHAPE_COLLECTION = 0;
+	private static final int SHAPE_LIST = 1;
+	private static final int SHAPE_SET = 2;
+	private static final int SHAPE_MAP = 3;
+	private static final int SHAPE_SORTED_SET = 4;
+	private static final int SHAPE_NAVIGABLE_SET = 5;
+	private static final int SHAPE_SORTED_MAP = 6;
+	private static final int SHAPE_NAVIGABLE_MAP = 7;
+
+	/** The type code of a reference field. */
+	private static final char REFERENCE = 'L';
+
+	/** The class descriptions, computed once per class. */
+	private static final ClassValue<ClassInfo> CLASS_INFO = new ClassValue<ClassInfo>() {
+		@Override
+		protected ClassInfo computeValue(Class<?> type) {
+			return new ClassInfo(type);
+		}
+	};
+
+	/**
+	 * An object that has transient data to restore after it is read. This is the
+	 * counterpart of the readObject method of Java serialization.
+	 */
+	public interface Restorable {
+
+		/**
+		 * Restores the transient data after the object has been read.
+		 */
+		void restoreTransientData();
+	}
+
+	/**
+	 * An object that starts a section of its own. The objects first written
+	 * within it are counted from its start, and referred to by its key from the
+	 * other sections.
+	 */
+	public interface Section {
+
+		/**
+		 * Gets the key of the section, unique and the same from one save to the
+		 * next.
+		 *
+		 * @return the key
+		 */
+		long getSectionKey();
+	}
+
+	/**
+	 * The names a field had in older saves, so its value is kept when the field
+	 * is renamed.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.FIELD)
+	public @interface FormerNames {
+
+		/**
+		 * Gets the former names of the field.
+		 *
+		 * @return the names
+		 */
+		String[] value();
+	}
+
+	/**
+	 * Checks if data starts with a binary save.
+	 *
+	 * @param data the uncompressed data.
+	 * @return true if a binary save.
+	 */
+	public static boolean isBinarySave(byte[] data) {
+		return data.length >= 4 && ((data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8
+				| (data[3] & 0xFF)) == MAGIC;
+	}
+
+	/**
+	 * Opens a stream to read objects from, either a binary save or a save made
+	 * with Java serialization.
+	 *
+	 * @param data the uncompressed data.
+	 * @return the object input.
+	 * @throws IOException if error reading the header.
+	 */
+	public static ObjectInput openInput(byte[] data) throws IOException {
+		if (isBinarySave(data))
+			return new Reader(new ByteArrayInputStream(data));
+		return new ObjectInputStream(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * The description of a class.
+	 */
+	private static final class ClassInfo {
+
+		private final Class<?> type;
+		/** The fields to save, superclass fields first. */
+		private final Field[] fields;
+		/** The type code of each field. */
+		private final char[] codes;
+		/** The key of each field in the class table. */
+		private final String[] keys;
+		/** The fields by key. */
+		private final Map<String, Field> fieldsByKey = new HashMap<String, Field>();
+		/** True if Java serialization replaces the objects with readResolve. */
+		private final boolean readResolve;
+		/** True if the class extends a serializable class of the JDK. */
+		private final boolean extendsJdk;
+
+		private ClassInfo(Class<?> type) {
+			this.type = type;
+
+			List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+			for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+				hierarchy.add(0, c);
+			}
+			boolean jdk = false;
+			for (Class<?> c : hierarchy) {
+				if (isJdkClass(c))
+					jdk = true;
+			}
+			extendsJdk = jdk;
+
+			List<Field> list = new ArrayList<Field>();
+			Map<String, Integer> counts = new HashMap<String, Integer>();
+			if (!jdk && !type.isInterface()) {
+				for (Class<?> c : hierarchy) {
+					for (Field f : c.getDeclaredFields()) {
+						int modifiers = f.getModifiers();
+						if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers))
+							continue;
+						f.setAccessible(true);
+						list.add(f);
+						Integer count = counts.get(f.getName());
+						counts.put(f.getName(), count == null ? 1 : count + 1);
+					}
+				}
+			}
+
+			fields = list.toArray(new Field[list.size()]);
+			codes = new char[fields.length];
+			keys = new String[fields.length];
+			for (int i = 0; i < fields.length; i++) {
+				Field f = fields[i];
+				codes[i] = getTypeCode(f.getType());
+				// Qualify the names that are shadowed in the hierarchy
+				keys[i] = counts.get(f.getName()) > 1 ? f.getDeclaringClass().getName() + '#' + f.getName()
+						: f.getName();
+				fieldsByKey.put(keys[i], f);
+			}
+			for (Field f : fields) {
+				FormerNames former = f.getAnnotation(FormerNames.class);
+				if (former != null) {
+					for (String name : former.value()) {
+						if (!fieldsByKey.containsKey(name))
+							fieldsByKey.put(name, f);
+					}
+				}
+			}
+
+			readResolve = findReadResolve(type) != null;
+		}
+
+		private static Method findReadResolve(Class<?> type) {
+			for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+				try {
+					Method m = c.getDeclaredMethod("readResolve");
+					if (c != type && Modifier.isPrivate(m.getModifiers()))
+						return null;
+					m.setAccessible(true);
+					return m;
+				} catch (NoSuchMethodException e) {
+					// Look in the superclass
+				} catch (RuntimeException e) {
+					return null;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Gets the field matching a key, allowing for a field that is no longer or
+		 * newly shadowed.
+		 */
+		private Field getField(String key) {
+			Field f = fieldsByKey.get(key);
+			if (f == null) {
+				int i = key.indexOf('#');
+				if (i >= 0)
+					f = fieldsByKey.get(key.substring(i + 1));
+			}
+			return f;
+		}
+	}
+
+	/**
+	 * An endless Java serialization stream of new instances of a class, with no
+	 * field data. Reading from it creates each object the way Java serialization
+	 * does, by running the no-arg constructor of the first class that is not
+	 * serializable.
+	 */
+	private static final class InstanceStream extends InputStream {
+
+		/** The header and the first object with its class description. */
+		private byte[] data;
+		/** The next object, referring back to the class description. */
+		private final byte[] next;
+		private int pos;
+
+		private InstanceStream(Class<?> type) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeShort(ObjectStreamConstants.STREAM_MAGIC);
+			out.writeShort(ObjectStreamConstants.STREAM_VERSION);
+			out.writeByte(ObjectStreamConstants.TC_OBJECT);
+			out.writeByte(ObjectStreamConstants.TC_CLASSDESC);
+			out.writeUTF(type.getName());
+			out.writeLong(ObjectStreamClass.lookup(type).getSerialVersionUID());
+			out.writeByte(ObjectStreamConstants.SC_SERIALIZABLE);
+			out.writeShort(0);
+			out.writeByte(ObjectStreamConstants.TC_ENDBLOCKDATA);
+			out.writeByte(ObjectStreamConstants.TC_NULL);
+			out.close();
+			data = bytes.toByteArray();
+
+			bytes = new ByteArrayOutputStream();
+			out = new DataOutputStream(bytes);
+			out.writeByte(ObjectStreamConstants.TC_OBJECT);
+			out.writeByte(ObjectStreamConstants.TC_REFERENCE);
+			out.writeInt(ObjectStreamConstants.baseWireHandle);
+			out.close();
+			next = bytes.toByteArray();
+		}
+
+		@Override
+		public int read() {
+			if (pos == data.length) {
+				data = next;
+				pos = 0;
+			}
+			return data[pos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0)
+				return 0;
+			if (pos == data.length) {
+				data = next;
+				pos = 0;
+			}
+			int n = Math.min(len, data.length - pos);
+			System.arraycopy(data, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+	}
+
+	/**
+	 * A stream of the Java serialization data embedded in a save, fed one
+	 * object at a time.
+	 */
+	private static final class ChunkStream extends InputStream {
+
+		private byte[] data = new byte[0];
+		private int pos;
+
+		private void add(byte[] chunk) {
+			byte[] joined = new byte[data.length - pos + chunk.length];
+			System.arraycopy(data, pos, joined, 0, data.length - pos);
+			System.arraycopy(chunk, 0, joined, data.length - pos, chunk.length);
+			data = joined;
+			pos = 0;
+		}
+
+		@Override
+		public int read() {
+			return pos < data.length ? data[pos++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0)
+				return 0;
+			if (pos == data.length)
+				return -1;
+			int n = Math.min(len, data.length - pos);
+			System.arraycopy(data, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+	}
+
+	private static boolean isJdkClass(Class<?> c) {
+		String name = c.getName();
+		return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+				|| name.startsWith("jdk.");
+	}
+
+	private static char getTypeCode(Class<?> c) {
+		if (c == boolean.class)
+			return 'Z';
+		else if (c == byte.class)
+			return 'B';
+		else if (c == char.class)
+			return 'C';
+		else if (c == short.class)
+			return 'S';
+		else if (c == int.class)
+			return 'I';
+		else if (c == long.class)
+			return 'J';
+		else if (c == float.class)
+			return 'F';
+		else if (c == double.class)
+			return 'D';
+		return REFERENCE;
+	}
+
+	/**
+	 * Checks if a class is a collection or map of the JDK that can be created
+	 * empty and filled with its elements.
+	 */
+	private static boolean isPlainContainer(Class<?> c) {
+		if (!c.getName().startsWith("java.util.") || c.getName().indexOf('$') >= 0)
+			return false;
+		if (!Collection.class.isAssignableFrom(c) && !Map.class.isAssignableFrom(c))
+			return false;
+		if (Modifier.isAbstract(c.getModifiers()))
+			return false;
+		try {
+			c.getConstructor();
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the comparator of a sorted collection or map.
+	 */
+	private static Comparator<?> getComparator(Object o) {
+		if (o instanceof SortedSet)
+			return ((SortedSet<?>) o).comparator();
+		else if (o instanceof SortedMap)
+			return ((SortedMap<?, ?>) o).comparator();
+		else if (o instanceof PriorityQueue)
+			return ((PriorityQueue<?>) o).comparator();
+		else if (o instanceof PriorityBlockingQueue)
+			return ((PriorityBlockingQueue<?>) o).comparator();
+		return null;
+	}
+
+	private static boolean isSorted(Class<?> c) {
+		return SortedSet.class.isAssignableFrom(c) || SortedMap.class.isAssignableFrom(c)
+				|| PriorityQueue.class.isAssignableFrom(c) || PriorityBlockingQueue.class.isAssignableFrom(c);
+	}
+
+	/**
+	 * Gets the wrapper flags of one of the collections returned by Collections,
+	 * Arrays.asList or List.of.
+	 *
+	 * @return the flags, or -1 if not a wrapper.
+	 */
+	private static int getWrapperFlags(Class<?> c) {
+		String name = c.getName();
+		if (name.startsWith("java.util.Collections$Synchronized"))
+			return SYNCHRONIZED;
+		else if (name.startsWith("java.util.Collections$Unmodifiable")
+				|| name.startsWith("java.util.Collections$Empty")
+				|| name.startsWith("java.util.Collections$Singleton")
+				|| name.startsWith("java.util.ImmutableCollections$"))
+			return UNMODIFIABLE;
+		else if (name.equals("java.util.Arrays$ArrayList"))
+			return FIXED_SIZE;
+		return -1;
+	}
+
+	private static int getShape(Object o) {
+		if (o instanceof NavigableMap)
+			return SHAPE_NAVIGABLE_MAP;
+		else if (o instanceof SortedMap)
+			return SHAPE_SORTED_MAP;
+		else if (o instanceof Map)
+			return SHAPE_MAP;
+		else if (o instanceof List)
+			return SHAPE_LIST;
+		else if (o instanceof NavigableSet)
+			return SHAPE_NAVIGABLE_SET;
+		else if (o instanceof SortedSet)
+			return SHAPE_SORTED_SET;
+		else if (o instanceof Set)
+			return SHAPE_SET;
+		return SHAPE_COLLECTION;
+	}
+
+	/**
+	 * Writes objects in the binary format.
+	 */
+	public static class Writer extends DataOutputStream implements ObjectOutput {
+
+		/** The ids of the objects written so far. */
+		private final Map<Object, Id> objectIds = new IdentityHashMap<Object, Id>();
+		/** The ids of the strings written so far. */
+		private final Map<String, Id> stringIds = new HashMap<String, Id>();
+		/** The keys of the sections written so far. */
+		private final Set<Long> sectionKeys = new HashSet<Long>();
+		/** The indices of the classes written so far. */
+		private final Map<Class<?>, Integer> classIds = new HashMap<Class<?>, Integer>();
+		/** The classes whose field table has been written. */
+		private final Set<Class<?>> described = new HashSet<Class<?>>();
+		/** The Java serialization data not yet written. */
+		private final ByteArrayOutputStream javaBytes = new ByteArrayOutputStream();
+		/** The stream of the objects embedded with Java serialization. */
+		private ObjectOutputStream javaOut;
+		/** The section being written, or null between objects. */
+		private Scope scope;
+		/** The number of objects written at the top. */
+		private int roots;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param out the output stream.
+		 * @throws IOException if error writing the header.
+		 */
+		public Writer(OutputStream out) throws IOException {
+			super(out);
+			writeInt(MAGIC);
+			writeShort(VERSION);
+		}
+
+		@Override
+		public void writeObject(Object o) throws IOException {
+			boolean root = scope == null;
+			if (root) {
+				scope = new Scope(-++roots);
+				sectionKeys.add(scope.key);
+			}
+			try {
+				encode(o);
+			} catch (IllegalAccessException e) {
+				throw (IOException) new NotSerializableException(e.getMessage()).initCause(e);
+			} finally {
+				if (root)
+					scope = null;
+			}
+		}
+
+		private void encode(Object o) throws IOException, IllegalAccessException {
+			if (o == null) {
+				writeByte(NULL);
+				return;
+			}
+
+			Class<?> c = o.getClass();
+			if (c == String.class) {
+				Id id = stringIds.get(o);
+				if (id != null) {
+					writeRef(id);
+				} else {
+					stringIds.put((String) o, scope.next());
+					writeByte(STRING);
+					writeString((String) o);
+				}
+				return;
+			}
+			if (writeBoxed(o, c))
+				return;
+
+			Id id = objectIds.get(o);
+			if (id != null) {
+				writeRef(id);
+				return;
+			}
+			if (o instanceof Section && sectionKeys.add(((Section) o).getSectionKey())) {
+				Scope outer = scope;
+				scope = new Scope(((Section) o).getSectionKey());
+				writeByte(SECTION);
+				writeVarLong(scope.key);
+				try {
+					encodeNew(o, c);
+				} finally {
+					scope = outer;
+				}
+			} else {
+				encodeNew(o, c);
+			}
+		}
+
+		/**
+		 * Writes an object the first time it is met.
+		 */
+		private void encodeNew(Object o, Class<?> c) throws IOException, IllegalAccessException {
+			objectIds.put(o, scope.next());
+
+			if (o instanceof Enum) {
+				writeByte(ENUM);
+				writeClass(((Enum<?>) o).getDeclaringClass());
+				encode(((Enum<?>) o).name());
+			} else if (o instanceof Class) {
+				writeByte(CLASS);
+				writeClass((Class<?>) o);
+			} else if (c.isArray()) {
+				writeArray(o, c);
+			} else if (o instanceof EnumSet) {
+				EnumSet<?> set = (EnumSet<?>) o;
+				writeByte(ENUM_SET);
+				// The complement of an empty set tells its element type
+				Enum<?> first = (Enum<?>) (set.isEmpty() ? EnumSet.complementOf(set) : set).iterator().next();
+				writeClass(first.getDeclaringClass());
+				writeVarInt(set.size());
+				for (Object e : set) {
+					encode(e);
+				}
+			} else if (o instanceof EnumMap && !((EnumMap<?, ?>) o).isEmpty()) {
+				EnumMap<?, ?> map = (EnumMap<?, ?>) o;
+				writeByte(ENUM_MAP);
+				writeClass(((Enum<?>) map.keySet().iterator().next()).getDeclaringClass());
+				writeEntries(map);
+			} else if (isPlainContainer(c)) {
+				writeByte(o instanceof Map ? MAP : COLLECTION);
+				writeClass(c);
+				if (isSorted(c))
+					encode(getComparator(o));
+				if (o instanceof Map)
+					writeEntries((Map<?, ?>) o);
+				else
+					writeElements((Collection<?>) o);
+			} else if ((o instanceof Collection || o instanceof Map) && getWrapperFlags(c) >= 0) {
+				int shape = getShape(o);
+				writeByte(WRAPPED);
+				writeByte(getWrapperFlags(c));
+				writeByte(shape);
+				if (shape >= SHAPE_SORTED_SET)
+					encode(getComparator(o));
+				if (o instanceof Map)
+					writeEntries((Map<?, ?>) o);
+				else
+					writeElements((Collection<?>) o);
+			} else if (!(o instanceof Serializable)) {
+				throw new NotSerializableException(c.getName());
+			} else if (isJdkClass(c) || o instanceof Externalizable || CLASS_INFO.get(c).extendsJdk) {
+				writeByte(JAVA);
+				if (javaOut == null)
+					javaOut = new ObjectOutputStream(javaBytes);
+				javaOut.writeObject(o);
+				javaOut.flush();
+				writeVarInt(javaBytes.size());
+				javaBytes.writeTo(this);
+				javaBytes.reset();
+			} else {
+				writeByte(OBJECT);
+				writeClass(c);
+				ClassInfo info = CLASS_INFO.get(c);
+				if (described.add(c)) {
+					writeVarInt(info.fields.length);
+					for (int i = 0; i < info.fields.length; i++) {
+						writeString(info.keys[i]);
+						writeByte(info.codes[i]);
+					}
+				}
+				writeFields(o, info);
+			}
+		}
+
+		private boolean writeBoxed(Object o, Class<?> c) throws IOException {
+			if (c == Integer.class) {
+				writeByte(INT);
+				writeInt((Integer) o);
+			} else if (c == Double.class) {
+				writeByte(DOUBLE);
+				writeDouble((Double) o);
+			} else if (c == Boolean.class) {
+				writeByte(BOOLEAN);
+				writeBoolean((Boolean) o);
+			} else if (c == Long.class) {
+				writeByte(LONG);
+				writeLong((Long) o);
+			} else if (c == Float.class) {
+				writeByte(FLOAT);
+				writeFloat((Float) o);
+			} else if (c == Short.class) {
+				writeByte(SHORT);
+				writeShort((Short) o);
+			} else if (c == Byte.class) {
+				writeByte(BYTE);
+				writeByte((Byte) o);
+			} else if (c == Character.class) {
+				writeByte(CHAR);
+				writeChar((Character) o);
+			} else {
+				return false;
+			}
+			return true;
+		}
+
+		private void writeFields(Object o, ClassInfo info) throws IOException, IllegalAccessException {
+			Field[] fields = info.fields;
+			char[] codes = info.codes;
+			for (int i = 0; i < fields.length; i++) {
+				Field f = fields[i];
+				switch (codes[i]) {
+				case 'Z':
+					writeBoolean(f.getBoolean(o));
+					break;
+				case 'B':
+					writeByte(f.getByte(o));
+					break;
+				case 'C':
+					writeChar(f.getChar(o));
+					break;
+				case 'S':
+					writeShort(f.getShort(o));
+					break;
+				case 'I':
+					writeInt(f.getInt(o));
+					break;
+				case 'J':
+					writeLong(f.getLong(o));
+					break;
+				case 'F':
+					writeFloat(f.getFloat(o));
+					break;
+				case 'D':
+					writeDouble(f.getDouble(o));
+					break;
+				default:
+					encode(f.get(o));
+				}
+			}
+		}
+
+		private void writeArray(Object o, Class<?> c) throws IOException, IllegalAccessException {
+			Class<?> component = c.getComponentType();
+			int length = Array.getLength(o);
+			if (component.isPrimitive()) {
+				writeByte(PRIMITIVE_ARRAY);
+				char code = getTypeCode(component);
+				writeByte(code);
+				writeVarInt(length);
+				switch (code) {
+				case 'Z':
+					for (boolean v : (boolean[]) o)
+						writeBoolean(v);
+					break;
+				case 'B':
+					write((byte[]) o, 0, length);
+					break;
+				case 'C':
+					for (char v : (char[]) o)
+						writeChar(v);
+					break;
+				case 'S':
+					for (short v : (short[]) o)
+						writeShort(v);
+					break;
+				case 'I':
+					for (int v : (int[]) o)
+						writeInt(v);
+					break;
+				case 'J':
+					for (long v : (long[]) o)
+						writeLong(v);
+					break;
+				case 'F':
+					for (float v : (float[]) o)
+						writeFloat(v);
+					break;
+				default:
+					for (double v : (double[]) o)
+						writeDouble(v);
+				}
+			} else {
+				writeByte(ARRAY);
+				writeClass(component);
+				writeVarInt(length);
+				for (Object e : (Object[]) o) {
+					encode(e);
+				}
+			}
+		}
+
+		private void writeElements(Collection<?> collection) throws IOException, IllegalAccessException {
+			Object[] elements = collection.toArray();
+			writeVarInt(elements.length);
+			for (Object e : elements) {
+				encode(e);
+			}
+		}
+
+		private void writeEntries(Map<?, ?> map) throws IOException, IllegalAccessException {
+			Object[] entries = map.entrySet().toArray();
+			writeVarInt(entries.length);
+			for (Object e : entries) {
+				Map.Entry<?, ?> entry = (Map.Entry<?, ?>) e;
+				encode(entry.getKey());
+				encode(entry.getValue());
+			}
+		}
+
+		private void writeClass(Class<?> c) throws IOException {
+			Integer index = classIds.get(c);
+			if (index != null) {
+				writeVarInt(index + 1);
+			} else {
+				classIds.put(c, classIds.size());
+				writeVarInt(0);
+				writeString(c.getName());
+			}
+		}
+
+		private void writeString(String s) throws IOException {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+
+		/**
+		 * Writes a non-negative int in as few bytes as it needs.
+		 */
+		private void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+
+		private void writeVarLong(long value) throws IOException {
+			// Zigzag, so that small negative keys stay short
+			long v = value << 1 ^ value >> 63;
+			while ((v & ~0x7FL) != 0) {
+				writeByte((int) (v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			writeByte((int) v);
+		}
+
+		/**
+		 * Writes a reference to an object already written, by its index alone
+		 * within the same section.
+		 */
+		private void writeRef(Id id) throws IOException {
+			if (id.scope == scope) {
+				writeByte(REF);
+			} else {
+				writeByte(SECTION_REF);
+				writeVarLong(id.scope.key);
+			}
+			writeVarInt(id.index);
+		}
+	}
+
+	/**
+	 * A section being written.
+	 */
+	private static class Scope {
+
+		private final long key;
+		private int size;
+
+		Scope(long key) {
+			this.key = key;
+		}
+
+		/**
+		 * Gets the id of the next object of the section.
+		 */
+		Id next() {
+			return new Id(this, size++);
+		}
+	}
+
+	/**
+	 * The id of an object written, as its section and its index within it.
+	 */
+	private static class Id {
+
+		private final Scope scope;
+		private final int index;
+
+		Id(Scope scope, int index) {
+			this.scope = scope;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * A class of the class table of a save being read.
+	 */
+	private static final class ClassEntry {
+
+		private final String name;
+		/** The class, or null if it no longer exists. */
+		private final Class<?> type;
+		/** The saved field type codes. */
+		private char[] codes;
+		/** The local field matching each saved field, or null to skip it. */
+		private Field[] targets;
+
+		private ClassEntry(String name, Class<?> type) {
+			this.name = name;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * Reads objects in the binary format.
+	 */
+	public static class Reader extends DataInputStream implements ObjectInput {
+
+		/** The objects read so far of the section being read, by id. */
+		private List<Object> objects;
+		/** The objects read so far, by section key. */
+		private final Map<Long, List<Object>> sections = new HashMap<Long, List<Object>>();
+		/** The number of objects read at the top. */
+		private int roots;
+		/** The class table. */
+		private final List<ClassEntry> classes = new ArrayList<ClassEntry>();
+		/** The streams that create the instances of each class. */
+		private final Map<Class<?>, ObjectInputStream> instantiators = new HashMap<Class<?>, ObjectInputStream>();
+		/** The Java serialization data read so far. */
+		private final ChunkStream javaBytes = new ChunkStream();
+		/** The stream of the objects embedded with Java serialization. */
+		private ObjectInputStream javaIn;
+		/** The version of the save. */
+		private final int version;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param in the input stream.
+		 * @throws IOException if not a binary save or a newer version.
+		 */
+		public Reader(InputStream in) throws IOException {
+			super(in);
+			if (readInt() != MAGIC)
+				throw new StreamCorruptedException("Not a binary save");
+			version = readUnsignedShort();
+			if (version > VERSION)
+				throw new StreamCorruptedException("Unsupported save version " + version);
+			if (version < SECTIONS) {
+				// Older saves count the ids across the whole save
+				objects = new ArrayList<Object>();
+			}
+		}
+
+		/**
+		 * Gets the version of the save.
+		 *
+		 * @return version
+		 */
+		public int getVersion() {
+			return version;
+		}
+
+		@Override
+		public Object readObject() throws ClassNotFoundException, IOException {
+			boolean root = objects == null;
+			if (root)
+				objects = openSection(-++roots);
+			try {
+				return decode();
+			} catch (IllegalAccessException e) {
+				throw (IOException) new InvalidClassException(e.getMessage()).initCause(e);
+			} finally {
+				if (root)
+					objects = null;
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object decode() throws IOException, ClassNotFoundException, IllegalAccessException {
+			int tag = readByte();
+			switch (tag) {
+			case NULL:
+				return null;
+			case REF:
+				return objects.get(readVarInt());
+			case SECTION_REF: {
+				List<Object> section = sections.get(readVarLong());
+				if (section == null)
+					throw new StreamCorruptedException("Unknown section");
+				return section.get(readVarInt());
+			}
+			case SECTION: {
+				List<Object> outer = objects;
+				objects = openSection(readVarLong());
+				try {
+					return decode();
+				} finally {
+					objects = outer;
+				}
+			}
+			case STRING: {
+				String s = readString();
+				objects.add(s);
+				return s;
+			}
+			case BOOLEAN:
+				return readBoolean();
+			case BYTE:
+				return readByte();
+			case CHAR:
+				return readChar();
+			case SHORT:
+				return readShort();
+			case INT:
+				return readInt();
+			case LONG:
+				return readLong();
+			case FLOAT:
+				return readFloat();
+			case DOUBLE:
+				return readDouble();
+			case ENUM: {
+				int id = reserve();
+				ClassEntry entry = readClass();
+				String name = (String) decode();
+				Object value = null;
+				if (entry.type != null) {
+					try {
+						value = Enum.valueOf((Class<? extends Enum>) entry.type, name);
+					} catch (IllegalArgumentException e) {
+						logger.warning("Skipping the unknown constant " + name + " of " + entry.name);
+					}
+				}
+				objects.set(id, value);
+				return value;
+			}
+			case CLASS: {
+				Class<?> c = readClass().type;
+				objects.add(c);
+				return c;
+			}
+			case PRIMITIVE_ARRAY:
+				return readPrimitiveArray();
+			case ARRAY: {
+				int id = reserve();
+				ClassEntry entry = readClass();
+				int length = readVarInt();
+				Object[] array = (Object[]) Array.newInstance(entry.type == null ? Object.class : entry.type,
+						length);
+				objects.set(id, array);
+				for (int i = 0; i < length; i++) {
+					array[i] = decode();
+				}
+				return array;
+			}
+			case ENUM_SET: {
+				int id = reserve();
+				ClassEntry entry = readClass();
+				EnumSet set = EnumSet.noneOf((Class<Enum>) entry.type);
+				objects.set(id, set);
+				int size = readVarInt();
+				for (int i = 0; i < size; i++) {
+					Object e = decode();
+					if (e != null)
+						set.add(e);
+				}
+				return set;
+			}
+			case ENUM_MAP: {
+				int id = reserve();
+				ClassEntry entry = readClass();
+				EnumMap map = new EnumMap((Class<Enum>) entry.type);
+				objects.set(id, map);
+				readEntries(map);
+				return map;
+			}
+			case COLLECTION:
+			case MAP: {
+				int id = reserve();
+				Class<?> c = readClass().type;
+				Comparator<?> comparator = isSorted(c) ? (Comparator<?>) decode() : null;
+				Object container = newContainer(c, comparator);
+				objects.set(id, container);
+				if (tag == MAP)
+					readEntries((Map) container);
+				else
+					readElements((Collection) container);
+				return container;
+			}
+			case WRAPPED:
+				return readWrapped();
+			case JAVA: {
+				int id = reserve();
+				byte[] bytes = new byte[readVarInt()];
+				readFully(bytes);
+				Object value;
+				if (version < SHARED_JAVA_STREAM) {
+					// Older saves embed each object in a stream of its own
+					value = new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+				} else {
+					javaBytes.add(bytes);
+					if (javaIn == null)
+						javaIn = new ObjectInputStream(javaBytes);
+					value = javaIn.readObject();
+				}
+				objects.set(id, value);
+				return value;
+			}
+			case OBJECT:
+				return readInstance();
+			default:
+				throw new StreamCorruptedException("Unknown tag " + tag);
+			}
+		}
+
+		private Object readInstance() throws IOException, ClassNotFoundException, IllegalAccessException {
+			int id = reserve();
+			ClassEntry entry = readClass();
+			if (entry.codes == null)
+				readFieldTable(entry);
+
+			if (entry.type == null) {
+				// The class no longer exists, so read past its fields.
+				for (char code : entry.codes) {
+					readValue(code, null, null);
+				}
+				return null;
+			}
+
+			ClassInfo info = CLASS_INFO.get(entry.type);
+			Object o = newInstance(entry.type);
+			objects.set(id, o);
+			if (info.readResolve) {
+				// Java serialization has already replaced the new object, so its
+				// saved fields are read past as they would have been discarded
+				for (char code : entry.codes) {
+					readValue(code, null, null);
+				}
+				return o;
+			}
+
+			for (int i = 0; i < entry.codes.length; i++) {
+				readValue(entry.codes[i], entry.targets[i], o);
+			}
+			if (o instanceof Restorable)
+				((Restorable) o).restoreTransientData();
+			return o;
+		}
+
+		/**
+		 * Creates a new instance of a class the way Java serialization does.
+		 *
+		 * @param type the class.
+		 * @return the new instance, or its replacement if the class has readResolve.
+		 */
+		private Object newInstance(Class<?> type) throws IOException, ClassNotFoundException {
+			ObjectInputStream in = instantiators.get(type);
+			if (in == null) {
+				in = new ObjectInputStream(new InstanceStream(type));
+				instantiators.put(type, in);
+			}
+			return in.readObject();
+		}
+
+		/**
+		 * Reads the field table of a class and matches it to the local fields.
+		 */
+		private void readFieldTable(ClassEntry entry) throws IOException {
+			int count = readVarInt();
+			char[] codes = new char[count];
+			Field[] targets = new Field[count];
+			ClassInfo info = entry.type == null ? null : CLASS_INFO.get(entry.type);
+			for (int i = 0; i < count; i++) {
+				String key = readString();
+				codes[i] = (char) readByte();
+				if (info != null) {
+					targets[i] = info.getField(key);
+					if (targets[i] == null)
+						logger.fine("Skipping the removed field " + key + " of " + entry.name);
+				}
+			}
+			entry.codes = codes;
+			entry.targets = targets;
+		}
+
+		/**
+		 * Reads a field value and sets it on an object.
+		 *
+		 * @param code   the saved type code.
+		 * @param target the field to set, or null to skip the value.
+		 * @param o      the object.
+		 */
+		private void readValue(char code, Field target, Object o)
+				throws IOException, ClassNotFoundException, IllegalAccessException {
+			// Set the primitives directly when the type is unchanged
+			boolean same = target != null && getTypeCode(target.getType()) == code;
+			Object value;
+			switch (code) {
+			case 'Z':
+				boolean z = readBoolean();
+				if (same) {
+					target.setBoolean(o, z);
+					return;
+				}
+				value = z;
+				break;
+			case 'B':
+				byte b = readByte();
+				if (same) {
+					target.setByte(o, b);
+					return;
+				}
+				value = b;
+				break;
+			case 'C':
+				char c = readChar();
+				if (same) {
+					target.setChar(o, c);
+					return;
+				}
+				value = c;
+				break;
+			case 'S':
+				short s = readShort();
+				if (same) {
+					target.setShort(o, s);
+					return;
+				}
+				value = s;
+				break;
+			case 'I':
+				int i = readInt();
+				if (same) {
+					target.setInt(o, i);
+					return;
+				}
+				value = i;
+				break;
+			case 'J':
+				long j = readLong();
+				if (same) {
+					target.setLong(o, j);
+					return;
+				}
+				value = j;
+				break;
+			case 'F':
+				float f = readFloat();
+				if (same) {
+					target.setFloat(o, f);
+					return;
+				}
+				value = f;
+				break;
+			case 'D':
+				double d = readDouble();
+				if (same) {
+					target.setDouble(o, d);
+					return;
+				}
+				value = d;
+				break;
+			default:
+				value = decode();
+			}
+			if (target != null)
+				setConverted(target, o, value);
+		}
+
+		/**
+		 * Sets a field whose type has changed since the save, if the value can be
+		 * converted.
+		 */
+		private void setConverted(Field target, Object o, Object value) throws IllegalAccessException {
+			Class<?> t = target.getType();
+			if (!t.isPrimitive()) {
+				if (value == null || t.isInstance(value))
+					target.set(o, value);
+				else
+					logger.warning("Skipping the changed field " + target);
+			} else if (value instanceof Number) {
+				Number n = (Number) value;
+				if (t == int.class)
+					target.setInt(o, n.intValue());
+				else if (t == long.class)
+					target.setLong(o, n.longValue());
+				else if (t == double.class)
+					target.setDouble(o, n.doubleValue());
+				else if (t == float.class)
+					target.setFloat(o, n.floatValue());
+				else if (t == short.class)
+					target.setShort(o, n.shortValue());
+				else if (t == byte.class)
+					target.setByte(o, n.byteValue());
+				else
+					logger.warning("Skipping the changed field " + target);
+			} else if (value instanceof Boolean && t == boolean.class) {
+				target.setBoolean(o, (Boolean) value);
+			} else if (value instanceof Character && t == char.class) {
+				target.setChar(o, (Character) value);
+			} else {
+				logger.warning("Skipping the changed field " + target);
+			}
+		}
+
+		private Object readPrimitiveArray() throws IOException {
+			char code = (char) readByte();
+			int length = readVarInt();
+			Object array;
+			switch (code) {
+			case 'Z': {
+				boolean[] a = new boolean[length];
+				for (int i = 0; i < length; i++)
+					a[i] = readBoolean();
+				array = a;
+				break;
+			}
+			case 'B': {
+				byte[] a = new byte[length];
+				readFully(a);
+				array = a;
+				break;
+			}
+			case 'C': {
+				char[] a = new char[length];
+				for (int i = 0; i < length; i++)
+					a[i] = readChar();
+				array = a;
+				break;
+			}
+			case 'S': {
+				short[] a = new short[length];
+				for (int i = 0; i < length; i++)
+					a[i] = readShort();
+				array = a;
+				break;
+			}
+			case 'I': {
+				int[] a = new int[length];
+				for (int i = 0; i < length; i++)
+					a[i] = readInt();
+				array = a;
+				break;
+			}
+			case 'J': {
+				long[] a = new long[length];
+				for (int i = 0; i < length; i++)
+					a[i] = readLong();
+				array = a;
+				break;
+			}
+			case 'F': {
+				float[] a = new float[length];
+				for (int i = 0; i < length; i++)
+					a[i] = readFloat();
+				array = a;
+				break;
+			}
+			default: {
+				double[] a = new double[length];
+				for (int i = 0; i < length; i++)
+					a[i] = readDouble();
+				array = a;
+			}
+			}
+			objects.add(array);
+			return array;
+		}
+
+		private Object newContainer(Class<?> c, Comparator<?> comparator) throws IOException {
+			try {
+				if (comparator != null) {
+					try {
+						return c.getConstructor(Comparator.class).newInstance(comparator);
+					} catch (NoSuchMethodException e) {
+						return c.getConstructor(int.class, Comparator.class).newInstance(11, comparator);
+					}
+				}
+				return c.getConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw (IOException) new InvalidClassException(c.getName(), e.toString()).initCause(e);
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object readWrapped() throws IOException, ClassNotFoundException, IllegalAccessException {
+			int id = reserve();
+			int flags = readByte();
+			int shape = readByte();
+			Comparator comparator = shape >= SHAPE_SORTED_SET ? (Comparator) decode() : null;
+			boolean synced = (flags & SYNCHRONIZED) != 0;
+			boolean unmodifiable = (flags & UNMODIFIABLE) != 0;
+			if (shape == SHAPE_MAP || shape == SHAPE_SORTED_MAP || shape == SHAPE_NAVIGABLE_MAP) {
+				Map map = shape == SHAPE_MAP ? new LinkedHashMap() : new TreeMap(comparator);
+				Map wrapper = map;
+				if (shape == SHAPE_NAVIGABLE_MAP) {
+					if (synced)
+						wrapper = Collections.synchronizedNavigableMap((NavigableMap) map);
+					else if (unmodifiable)
+						wrapper = Collections.unmodifiableNavigableMap((NavigableMap) map);
+				} else if (shape == SHAPE_SORTED_MAP) {
+					if (synced)
+						wrapper = Collections.synchronizedSortedMap((SortedMap) map);
+					else if (unmodifiable)
+						wrapper = Collections.unmodifiableSortedMap((SortedMap) map);
+				} else if (synced) {
+					wrapper = Collections.synchronizedMap(map);
+				} else if (unmodifiable) {
+					wrapper = Collections.unmodifiableMap(map);
+				}
+				objects.set(id, wrapper);
+				readEntries(map);
+				return wrapper;
+			}
+
+			if ((flags & FIXED_SIZE) != 0) {
+				Object[] array = new Object[readVarInt()];
+				List list = Arrays.asList(array);
+				objects.set(id, list);
+				for (int i = 0; i < array.length; i++) {
+					array[i] = decode();
+				}
+				return list;
+			}
+
+			Collection collection;
+			if (shape == SHAPE_SORTED_SET || shape == SHAPE_NAVIGABLE_SET)
+				collection = new TreeSet(comparator);
+			else if (shape == SHAPE_SET)
+				collection = new LinkedHashSet();
+			else
+				collection = new ArrayList();
+			Collection wrapper = collection;
+			if (synced) {
+				if (shape == SHAPE_NAVIGABLE_SET)
+					wrapper = Collections.synchronizedNavigableSet((NavigableSet) collection);
+				else if (shape == SHAPE_SORTED_SET)
+					wrapper = Collections.synchronizedSortedSet((SortedSet) collection);
+				else if (shape == SHAPE_SET)
+					wrapper = Collections.synchronizedSet((Set) collection);
+				else if (shape == SHAPE_LIST)
+					wrapper = Collections.synchronizedList((List) collection);
+				else
+					wrapper = Collections.synchronizedCollection(collection);
+			} else if (unmodifiable) {
+				if (shape == SHAPE_NAVIGABLE_SET)
+					wrapper = Collections.unmodifiableNavigableSet((NavigableSet) collection);
+				else if (shape == SHAPE_SORTED_SET)
+					wrapper = Collections.unmodifiableSortedSet((SortedSet) collection);
+				else if (shape == SHAPE_SET)
+					wrapper = Collections.unmodifiableSet((Set) collection);
+				else if (shape == SHAPE_LIST)
+					wrapper = Collections.unmodifiableList((List) collection);
+				else
+					wrapper = Collections.unmodifiableCollection(collection);
+			}
+			objects.set(id, wrapper);
+			readElements(collection);
+			return wrapper;
+		}
+
+		private void readElements(Collection<Object> collection)
+				throws IOException, ClassNotFoundException, IllegalAccessException {
+			int size = readVarInt();
+			for (int i = 0; i < size; i++) {
+				collection.add(decode());
+			}
+		}
+
+		private void readEntries(Map<Object, Object> map)
+				throws IOException, ClassNotFoundException, IllegalAccessException {
+			int size = readVarInt();
+			for (int i = 0; i < size; i++) {
+				Object key = decode();
+				map.put(key, decode());
+			}
+		}
+
+		private ClassEntry readClass() throws IOException {
+			int index = readVarInt();
+			if (index > 0)
+				return classes.get(index - 1);
+
+			String name = readString();
+			Class<?> type = null;
+			try {
+				type = Class.forName(name, false, SaveCodec.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				logger.warning("Skipping the objects of the removed class " + name);
+			}
+			ClassEntry entry = new ClassEntry(name, type);
+			classes.add(entry);
+			return entry;
+		}
+
+		/**
+		 * Reserves the id of an object that is about to be read, so that the
+		 * objects it contains may refer back to it.
+		 */
+		private int reserve() {
+			objects.add(null);
+			return objects.size() - 1;
+		}
+
+		private List<Object> openSection(long key) throws StreamCorruptedException {
+			List<Object> section = new ArrayList<Object>();
+			if (sections.put(key, section) != null)
+				throw new StreamCorruptedException("Duplicate section " + key);
+			return section;
+		}
+
+		private String readString() throws IOException {
+			byte[] bytes = new byte[readVarInt()];
+			readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		private int readVarInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return value;
+			}
+			throw new StreamCorruptedException("Malformed length");
+		}
+
+		private long readVarLong() throws IOException {
+			long v = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = readByte();
+				v |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return v >>> 1 ^ -(v & 1);
+			}
+			throw new StreamCorruptedException("Malformed key");
+		}
+	}
+}
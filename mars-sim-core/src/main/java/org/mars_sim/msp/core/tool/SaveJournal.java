@@ -0,0 +1,366 @@
+/**
+ * Mars Simulation Project
+ * SaveJournal.java
+ * @version 3.1.0 2019-01-12
+ */
+package org.mars_sim.msp.core.tool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The SaveJournal class keeps an append-only journal next to a full save, the
+ * checkpoint. Each record of the journal holds a later state of the simulation
+ * as the parts of the checkpoint it shares and the bytes that changed, so a
+ * save between checkpoints costs time in proportion to what has changed. The
+ * state is cut into chunks at boundaries found from the content itself, which
+ * keeps unchanged parts matching even when data before them grows or shrinks.
+ * On load the latest complete record is applied onto the checkpoint.
+ */
+public class SaveJournal {
+
+	/** default logger. */
+	private static Logger logger = Logger.getLogger(SaveJournal.class.getName());
+
+	/** The extension of a journal file. */
+	public static final String EXTENSION = ".journal";
+
+	/** The magic number at the start of each record. */
+	private static final int RECORD_MAGIC = 0x4D534A52;
+	/** The maximum number of records before a new checkpoint is made. */
+	private static final int MAX_RECORDS = 20;
+	/** The largest journal before a new checkpoint is made, as a fraction of the checkpoint. */
+	private static final double MAX_JOURNAL_FRACTION = .5D;
+
+	/** The smallest chunk [bytes]. */
+	private static final int MIN_CHUNK = 1024;
+	/** The largest chunk [bytes]. */
+	private static final int MAX_CHUNK = 16 * 1024;
+	/** The mask giving an average chunk of about 4 KB past the minimum. */
+	private static final int BOUNDARY_MASK = 0xFFF;
+
+	// Record operations
+	private static final int END = 0;
+	private static final int COPY = 1;
+	private static final int LITERAL = 2;
+
+	/** The random values of the rolling hash, one per byte value. */
+	private static final int[] GEAR = new int[256];
+
+	static {
+		Random random = new Random(0x6D617273L);
+		for (int i = 0; i < GEAR.length; i++) {
+			GEAR[i] = random.nextInt();
+		}
+	}
+
+	/** The checkpoint file the journal belongs to. */
+	private File checkpoint;
+	/** The hash of the checkpoint data. */
+	private long checkpointId;
+	/** The chunks of the checkpoint data by digest, as offset and length. */
+	private Map<ByteBuffer, int[]> chunks;
+	/** The number of records written since the checkpoint. */
+	private int records;
+
+	/**
+	 * Gets the journal file of a save file.
+	 *
+	 * @param file the save file.
+	 * @return the journal file.
+	 */
+	public static File getJournalFile(File file) {
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		if (dot > 0)
+			name = name.substring(0, dot);
+		return new File(file.getParentFile(), name + EXTENSION);
+	}
+
+	/**
+	 * Moves the journal of a save file along with the save file.
+	 *
+	 * @param from the save file moved.
+	 * @param to   the new save file.
+	 * @throws IOException if error moving.
+	 */
+	public static void move(File from, File to) throws IOException {
+		File journal = getJournalFile(from);
+		if (journal.exists())
+			Files.move(journal.toPath(), getJournalFile(to).toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Checks if the next save to a file may be appended to its journal instead of
+	 * writing a new checkpoint.
+	 *
+	 * @param file the save file.
+	 * @return true if a record can be appended.
+	 */
+	public synchronized boolean canAppend(File file) {
+		if (chunks == null || !file.equals(checkpoint) || !file.exists() || records >= MAX_RECORDS)
+			return false;
+		return getJournalFile(file).length() <= file.length() * MAX_JOURNAL_FRACTION;
+	}
+
+	/**
+	 * Starts a new journal after a checkpoint has been written. Any older journal
+	 * of the file is deleted since the checkpoint supersedes it.
+	 *
+	 * @param file the save file.
+	 * @param data the uncompressed data of the checkpoint, whose chunk digests
+	 *             are kept to match the next records against.
+	 * @throws IOException if error deleting the older journal.
+	 */
+	public synchronized void checkpoint(File file, byte[] data) throws IOException {
+		Files.deleteIfExists(getJournalFile(file).toPath());
+		attach(file, data, 0);
+	}
+
+	/**
+	 * Appends a record of the current state to the journal.
+	 *
+	 * @param data the uncompressed data of the current state.
+	 * @return the size of the record [bytes].
+	 * @throws IOException if error writing the journal.
+	 */
+	public synchronized int append(byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(
+				new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED)));
+		out.writeLong(checkpointId);
+		out.writeInt(records + 1);
+		out.writeInt(data.length);
+
+		int copyOffset = 0;
+		int copyLength = 0;
+		int literalStart = -1;
+		int start = 0;
+		while (start < data.length) {
+			int end = nextBoundary(data, start);
+			int[] chunk = chunks.get(digest(data, start, end - start));
+			if (chunk != null && chunk[1] == end - start) {
+				if (literalStart >= 0) {
+					writeLiteral(out, data, literalStart, start);
+					literalStart = -1;
+				}
+				if (copyLength > 0 && copyOffset + copyLength == chunk[0]) {
+					copyLength += chunk[1];
+				} else {
+					writeCopy(out, copyOffset, copyLength);
+					copyOffset = chunk[0];
+					copyLength = chunk[1];
+				}
+			} else {
+				writeCopy(out, copyOffset, copyLength);
+				copyLength = 0;
+				if (literalStart < 0)
+					literalStart = start;
+			}
+			start = end;
+		}
+		writeCopy(out, copyOffset, copyLength);
+		if (literalStart >= 0)
+			writeLiteral(out, data, literalStart, data.length);
+		out.writeByte(END);
+		out.close();
+
+		DataOutputStream journal = new DataOutputStream(new FileOutputStream(getJournalFile(checkpoint), true));
+		try {
+			journal.writeInt(RECORD_MAGIC);
+			journal.writeInt(bytes.size());
+			bytes.writeTo(journal);
+		} finally {
+			journal.close();
+		}
+		records++;
+		return bytes.size() + 8;
+	}
+
+	/**
+	 * Applies the latest record of the journal of a save file onto its
+	 * checkpoint, and keeps the journal for the next saves.
+	 *
+	 * @param file the save file.
+	 * @param data the uncompressed data of the checkpoint.
+	 * @return the uncompressed data of the latest state.
+	 */
+	public synchronized byte[] load(File file, byte[] data) {
+		long id = hash(data, 0, data.length);
+		List<byte[]> list = new ArrayList<byte[]>();
+
+		File journalFile = getJournalFile(file);
+		if (journalFile.exists()) {
+			try {
+				DataInputStream in = new DataInputStream(
+						new ByteArrayInputStream(Files.readAllBytes(journalFile.toPath())));
+				while (in.available() >= 8 && in.readInt() == RECORD_MAGIC) {
+					int length = in.readInt();
+					// A record cut short by an interrupted save ends the journal.
+					if (length < 0 || length > in.available())
+						break;
+					byte[] record = new byte[length];
+					in.readFully(record);
+					list.add(record);
+				}
+			} catch (IOException e) {
+				logger.warning("Cannot read the journal " + journalFile + " : " + e.getMessage());
+			}
+		}
+
+		attach(file, data, list.size());
+
+		// Each record holds a whole state, so only the latest good one is needed.
+		for (int i = list.size() - 1; i >= 0; i--) {
+			try {
+				byte[] state = applyRecord(list.get(i), id, data);
+				if (state != null) {
+					logger.config("Restored journal record " + (i + 1) + " of " + list.size() + " onto "
+							+ file.getName() + ".");
+					return state;
+				}
+			} catch (IOException e) {
+				logger.warning("Ignoring a damaged journal record in " + journalFile);
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Binds the journal to a checkpoint and indexes its chunks.
+	 */
+	private void attach(File file, byte[] data, int recordCount) {
+		checkpoint = file;
+		checkpointId = hash(data, 0, data.length);
+		records = recordCount;
+		// Only the digests are kept, not the checkpoint data itself
+		chunks = new HashMap<ByteBuffer, int[]>();
+		int start = 0;
+		while (start < data.length) {
+			int end = nextBoundary(data, start);
+			ByteBuffer key = digest(data, start, end - start);
+			if (!chunks.containsKey(key))
+				chunks.put(key, new int[] { start, end - start });
+			start = end;
+		}
+	}
+
+	/**
+	 * Rebuilds the state held by a record.
+	 *
+	 * @return the state, or null if the record belongs to another checkpoint.
+	 */
+	private static byte[] applyRecord(byte[] record, long id, byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(record)));
+		if (in.readLong() != id)
+			return null;
+		in.readInt();
+		byte[] state = new byte[in.readInt()];
+		int position = 0;
+		while (true) {
+			int op = in.readByte();
+			if (op == END) {
+				break;
+			} else if (op == COPY) {
+				int offset = in.readInt();
+				int length = in.readInt();
+				System.arraycopy(data, offset, state, position, length);
+				position += length;
+			} else if (op == LITERAL) {
+				int length = in.readInt();
+				in.readFully(state, position, length);
+				position += length;
+			} else {
+				throw new IOException("Unknown journal operation " + op);
+			}
+		}
+		if (position != state.length)
+			throw new EOFException("Incomplete journal record");
+		return state;
+	}
+
+	private static void writeCopy(DataOutputStream out, int offset, int length) throws IOException {
+		if (length > 0) {
+			out.writeByte(COPY);
+			out.writeInt(offset);
+			out.writeInt(length);
+		}
+	}
+
+	private static void writeLiteral(DataOutputStream out, byte[] data, int from, int to) throws IOException {
+		out.writeByte(LITERAL);
+		out.writeInt(to - from);
+		out.write(data, from, to - from);
+	}
+
+	/**
+	 * Finds the end of the chunk starting at an offset.
+	 *
+	 * @param data  the data.
+	 * @param start the start of the chunk.
+	 * @return the end of the chunk (exclusive).
+	 */
+	static int nextBoundary(byte[] data, int start) {
+		int max = Math.min(data.length, start + MAX_CHUNK);
+		int min = start + MIN_CHUNK;
+		if (min >= max)
+			return max;
+		int hash = 0;
+		for (int i = start; i < max; i++) {
+			hash = (hash << 1) + GEAR[data[i] & 0xFF];
+			if (i >= min && (hash & BOUNDARY_MASK) == 0)
+				return i + 1;
+		}
+		return max;
+	}
+
+	/**
+	 * Computes the SHA-256 digest of a chunk, strong enough to stand for its
+	 * bytes.
+	 */
+	private static ByteBuffer digest(byte[] data, int offset, int length) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			md.update(data, offset, length);
+			return ByteBuffer.wrap(md.digest());
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Computes a 64-bit hash (FNV-1a with a final mix) of a range of bytes.
+	 */
+	static long hash(byte[] data, int offset, int length) {
+		long h = 0xCBF29CE484222325L;
+		for (int i = offset; i < offset + length; i++) {
+			h ^= data[i];
+			h *= 0x100000001B3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return h ^ length;
+	}
+}
@@ -134,18 +134,15 @@ public abstract class GroundVehicle extends Vehicle implements Serializable {
 	}
 
 	/**
-	 * Gets the average angle of terrain over next 7.4km distance in a given
-	 * direction from the vehicle.
+	 * Gets the angle of terrain in a given direction from the vehicle, looked up
+	 * from the terrain cost grid.
 	 * 
 	 * @return ground vehicle's current terrain grade angle from horizontal
 	 *         (radians)
 	 */
 	public double getTerrainGrade(Direction direction) {
 		// Determine the terrain grade in a given direction from the vehicle.
-		// SurfaceFeatures surface =
-		// Simulation.instance().getMars().getSurfaceFeatures();
-		// TerrainElevation terrain = surface.getTerrainElevation();
-		return terrain.determineTerrainDifficulty(getCoordinates(), direction);
+		return terrain.getCostGrid().getGrade(getCoordinates(), direction);
 	}
 
 	/**
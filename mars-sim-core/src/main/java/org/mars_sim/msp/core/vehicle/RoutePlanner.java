@@ -0,0 +1,426 @@
+/**
+ * Mars Simulation Project
+ * RoutePlanner.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.core.vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Logger;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.mars.TerrainCostGrid;
+import org.mars_sim.msp.core.mars.TerrainElevation;
+
+/**
+ * The RoutePlanner class plans terrain-aware routes for ground vehicles. It
+ * searches the terrain cost grid with A*, avoiding steps that are steeper than
+ * the vehicle can handle, and then straightens the path wherever a direct line
+ * between waypoints stays on passable terrain. Routes are cached per origin
+ * cell, destination cell and vehicle type.
+ * <p>
+ * The search is bounded to the cells that make a detour of at most
+ * {@link #DETOUR_FACTOR} times the direct distance, and to at most
+ * {@link #MAX_SEARCH_CELLS} cells, so a destination with no passable route is
+ * given up on quickly and the vehicle drives straight. The search buffers are
+ * kept between plans. The simulation owns one planner.
+ */
+public class RoutePlanner {
+
+	/** default logger. */
+	private static Logger logger = Logger.getLogger(RoutePlanner.class.getName());
+
+	/** The steepest grade a ground vehicle with no terrain handling will plan over (radians). */
+	private static final double BASE_MAX_GRADE = .15D;
+	/** The additional grade allowed per point of terrain handling capability (radians). */
+	private static final double HANDLING_GRADE = .02D;
+	/** The cost multiplier for driving at the steepest grade. */
+	private static final double GRADE_PENALTY = 3D;
+	/** The maximum number of cached routes. */
+	private static final int MAX_CACHED_ROUTES = 200;
+	/** The longest detour searched, as a multiple of the direct distance. */
+	public static final double DETOUR_FACTOR = 2D;
+	/** The least detour searched, for short routes (km). */
+	private static final double MIN_DETOUR = 100D;
+	/** The most cells a search may close. */
+	public static final int MAX_SEARCH_CELLS = 20000;
+
+	/** The terrain to plan routes over. */
+	private TerrainElevation terrain;
+	/** The cached route waypoints, least recently used first. */
+	private Map<RouteKey, int[]> routeCache;
+
+	/** The cost of reaching each cell in the current search. */
+	private double[] cost;
+	/** The cell each cell was reached from in the current search. */
+	private int[] parent;
+	/** The search each cell was last reached in. */
+	private int[] reached;
+	/** The search each cell was last closed in. */
+	private int[] closed;
+	/** The number of the current search. */
+	private int search;
+	/** The number of cells closed by the last search. */
+	private int lastSearchSize;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param terrain the terrain elevation.
+	 */
+	public RoutePlanner(TerrainElevation terrain) {
+		this.terrain = terrain;
+		routeCache = new LinkedHashMap<RouteKey, int[]>(16, .75F, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<RouteKey, int[]> eldest) {
+				return size() > MAX_CACHED_ROUTES;
+			}
+		};
+	}
+
+	/**
+	 * Gets the route for a ground vehicle between two locations.
+	 *
+	 * @param origin      the starting location.
+	 * @param destination the destination.
+	 * @param vehicle     the ground vehicle.
+	 * @return the waypoints to drive through, ending with the destination.
+	 */
+	public List<Coordinates> getRoute(Coordinates origin, Coordinates destination, GroundVehicle vehicle) {
+		return getRoute(origin, destination, vehicle.getVehicleType(), getMaxGrade(vehicle));
+	}
+
+	/**
+	 * Gets the route between two locations for a type of vehicle.
+	 *
+	 * @param origin      the starting location.
+	 * @param destination the destination.
+	 * @param vehicleType the type of vehicle.
+	 * @param maxGrade    the steepest grade the vehicle will plan over (radians).
+	 * @return the waypoints to drive through, ending with the destination.
+	 */
+	public synchronized List<Coordinates> getRoute(Coordinates origin, Coordinates destination, String vehicleType,
+			double maxGrade) {
+		TerrainCostGrid grid = terrain.getCostGrid();
+		int start = grid.getIndex(origin);
+		int goal = grid.getIndex(destination);
+
+		List<Coordinates> result = new ArrayList<Coordinates>();
+		if (start != goal) {
+			RouteKey key = new RouteKey(start, goal, vehicleType);
+			int[] waypoints = routeCache.get(key);
+			if (waypoints == null) {
+				waypoints = planRoute(grid, start, goal, maxGrade);
+				routeCache.put(key, waypoints);
+			}
+			for (int waypoint : waypoints) {
+				result.add(grid.getCoordinates(waypoint));
+			}
+		}
+		result.add(destination);
+
+		return result;
+	}
+
+	/**
+	 * Gets the distance a ground vehicle drives along its route between two
+	 * locations.
+	 *
+	 * @param origin      the starting location.
+	 * @param destination the destination.
+	 * @param vehicle     the ground vehicle.
+	 * @return distance (km)
+	 */
+	public double getRouteDistance(Coordinates origin, Coordinates destination, GroundVehicle vehicle) {
+		return getDistance(origin, getRoute(origin, destination, vehicle));
+	}
+
+	/**
+	 * Gets the distance from a location through a list of waypoints.
+	 *
+	 * @param origin    the starting location.
+	 * @param waypoints the waypoints in order.
+	 * @return distance (km)
+	 */
+	public static double getDistance(Coordinates origin, List<Coordinates> waypoints) {
+		double result = 0D;
+		Coordinates previous = origin;
+		for (Coordinates waypoint : waypoints) {
+			result += previous.getDistance(waypoint);
+			previous = waypoint;
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the steepest grade a ground vehicle will plan over.
+	 *
+	 * @param vehicle the ground vehicle.
+	 * @return grade angle (radians)
+	 */
+	public static double getMaxGrade(GroundVehicle vehicle) {
+		return BASE_MAX_GRADE + (HANDLING_GRADE * vehicle.getTerrainHandlingCapability());
+	}
+
+	/**
+	 * Plans a route between two cells.
+	 *
+	 * @param grid     the terrain cost grid.
+	 * @param start    the starting cell.
+	 * @param goal     the destination cell.
+	 * @param maxGrade the steepest passable grade (radians).
+	 * @return the intermediate waypoint cells, or an empty array to drive straight.
+	 */
+	private int[] planRoute(TerrainCostGrid grid, int start, int goal, double maxGrade) {
+		startSearch();
+		double direct = grid.getSurfaceDistance(start, goal);
+		double maxDetour = Math.max(direct * DETOUR_FACTOR, direct + MIN_DETOUR);
+
+		PriorityQueue<Node> open = new PriorityQueue<Node>();
+		reach(start, 0D, -1);
+		open.add(new Node(start, direct));
+
+		int closedCells = 0;
+		while (!open.isEmpty() && closedCells < MAX_SEARCH_CELLS) {
+			int current = open.poll().index;
+			if (closed[current] == search)
+				continue;
+			if (current == goal) {
+				lastSearchSize = closedCells;
+				return smoothPath(grid, tracePath(parent, goal), maxGrade);
+			}
+			closed[current] = search;
+			closedCells++;
+
+			int row = grid.getRow(current);
+			int column = grid.getColumn(current);
+			for (int dr = -1; dr <= 1; dr++) {
+				int r = row + dr;
+				if (r < 0 || r >= TerrainCostGrid.ROWS)
+					continue;
+				for (int dc = -1; dc <= 1; dc++) {
+					if (dr == 0 && dc == 0)
+						continue;
+					int next = grid.getIndex(r, column + dc);
+					if (closed[next] == search)
+						continue;
+					double grade = grid.getStepGrade(current, next);
+					if (grade > maxGrade && next != goal)
+						continue;
+					double toGoal = grid.getSurfaceDistance(next, goal);
+					if (reached[next] != search && grid.getSurfaceDistance(start, next) + toGoal > maxDetour)
+						continue;
+					double stepCost = grid.getCellDistance(current, next) * (1D + (GRADE_PENALTY * grade / maxGrade));
+					double newCost = cost[current] + stepCost;
+					if (reached[next] != search || newCost < cost[next]) {
+						reach(next, newCost, current);
+						open.add(new Node(next, newCost + toGoal));
+					}
+				}
+			}
+		}
+
+		lastSearchSize = closedCells;
+		logger.fine("No passable route found from " + grid.getCoordinates(start) + " to "
+				+ grid.getCoordinates(goal) + " in " + closedCells + " cells");
+		return new int[0];
+	}
+
+	/**
+	 * Starts a new search, creating the search buffers if necessary.
+	 */
+	private void startSearch() {
+		if (cost == null) {
+			int size = TerrainCostGrid.ROWS * TerrainCostGrid.COLUMNS;
+			cost = new double[size];
+			parent = new int[size];
+			reached = new int[size];
+			closed = new int[size];
+		}
+		search++;
+		if (search <= 0) {
+			// The search number has wrapped around, so forget all the old ones.
+			Arrays.fill(reached, 0);
+			Arrays.fill(closed, 0);
+			search = 1;
+		}
+	}
+
+	private void reach(int index, double newCost, int from) {
+		cost[index] = newCost;
+		parent[index] = from;
+		reached[index] = search;
+	}
+
+	/**
+	 * Gets the number of cells closed by the last search.
+	 *
+	 * @return number of cells
+	 */
+	synchronized int getLastSearchSize() {
+		return lastSearchSize;
+	}
+
+	/**
+	 * Traces the path of cells from the start to a cell.
+	 *
+	 * @param parent the parent of each searched cell.
+	 * @param end    the last cell.
+	 * @return the cells from the start to the end.
+	 */
+	private static List<Integer> tracePath(int[] parent, int end) {
+		List<Integer> path = new ArrayList<Integer>();
+		for (int i = end; i != -1; i = parent[i]) {
+			path.add(0, i);
+		}
+		return path;
+	}
+
+	/**
+	 * Straightens a path by skipping cells while a direct line from the last
+	 * waypoint stays on passable terrain.
+	 *
+	 * @param grid     the terrain cost grid.
+	 * @param path     the cells from the start to the goal.
+	 * @param maxGrade the steepest passable grade (radians).
+	 * @return the intermediate waypoint cells.
+	 */
+	private static int[] smoothPath(TerrainCostGrid grid, List<Integer> path, double maxGrade) {
+		List<Integer> waypoints = new ArrayList<Integer>();
+		int last = path.size() - 1;
+		int anchor = 0;
+		while (anchor < last) {
+			int next = anchor + 1;
+			while (next < last && isClear(grid, path.get(anchor), path.get(next + 1), maxGrade)) {
+				next++;
+			}
+			if (next < last)
+				waypoints.add(path.get(next));
+			anchor = next;
+		}
+
+		int[] result = new int[waypoints.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = waypoints.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks if every step along the great circle between two cells is passable.
+	 *
+	 * @param grid     the terrain cost grid.
+	 * @param from     the starting cell.
+	 * @param to       the ending cell.
+	 * @param maxGrade the steepest passable grade (radians).
+	 * @return true if clear.
+	 */
+	private static boolean isClear(TerrainCostGrid grid, int from, int to, double maxGrade) {
+		Coordinates a = grid.getCoordinates(from);
+		Coordinates b = grid.getCoordinates(to);
+		double[] va = toVector(a);
+		double[] vb = toVector(b);
+		double angle = a.getAngle(b);
+		if (angle <= 0D)
+			return true;
+
+		int steps = (int) Math.ceil(2D * angle / TerrainCostGrid.CELL_ANGLE);
+		double sinAngle = Math.sin(angle);
+		int previous = from;
+		for (int i = 1; i <= steps; i++) {
+			double t = (double) i / steps;
+			double wa = Math.sin((1D - t) * angle) / sinAngle;
+			double wb = Math.sin(t * angle) / sinAngle;
+			double x = (wa * va[0]) + (wb * vb[0]);
+			double y = (wa * va[1]) + (wb * vb[1]);
+			double z = (wa * va[2]) + (wb * vb[2]);
+			double phi = Math.acos(Math.max(-1D, Math.min(1D, z)));
+			double theta = Math.atan2(y, x);
+			if (theta < 0D)
+				theta += 2D * Math.PI;
+			int cell = grid.getIndex(phi, theta);
+			if (cell != previous) {
+				if (grid.getStepGrade(previous, cell) > maxGrade)
+					return false;
+				previous = cell;
+			}
+		}
+		return true;
+	}
+
+	private static double[] toVector(Coordinates location) {
+		double sinPhi = Math.sin(location.getPhi());
+		return new double[] { sinPhi * Math.cos(location.getTheta()), sinPhi * Math.sin(location.getTheta()),
+				Math.cos(location.getPhi()) };
+	}
+
+	/**
+	 * Prepare object for garbage collection.
+	 */
+	public synchronized void destroy() {
+		routeCache.clear();
+		terrain = null;
+		cost = null;
+		parent = null;
+		reached = null;
+		closed = null;
+	}
+
+	/**
+	 * A cell on the open list of the search.
+	 */
+	private static class Node implements Comparable<Node> {
+
+		private int index;
+		private double estimate;
+
+		private Node(int index, double estimate) {
+			this.index = index;
+			this.estimate = estimate;
+		}
+
+		@Override
+		public int compareTo(Node other) {
+			return Double.compare(estimate, other.estimate);
+		}
+	}
+
+	/**
+	 * The key of a cached route.
+	 */
+	private static class RouteKey {
+
+		private int start;
+		private int goal;
+		private String vehicleType;
+
+		private RouteKey(int start, int goal, String vehicleType) {
+			this.start = start;
+			this.goal = goal;
+			this.vehicleType = vehicleType;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RouteKey))
+				return false;
+			RouteKey other = (RouteKey) obj;
+			return start == other.start && goal == other.goal
+					&& (vehicleType == null ? other.vehicleType == null : vehicleType.equals(other.vehicleType));
+		}
+
+		@Override
+		public int hashCode() {
+			int result = (start * 31) + goal;
+			return (result * 31) + (vehicleType == null ? 0 : vehicleType.hashCode());
+		}
+	}
+}
@@ -127,7 +127,7 @@ public abstract class Vehicle extends Unit
 	/** True if vehicle is salvaged. */
 	private boolean isSalvaged;
 
-	private ArrayList<Coordinates> trail; // A collection of locations that make up the vehicle's trail.
+	private VehicleTrail trail; // The locations that make up the vehicle's trail.
 	private List<Point2D> operatorActivitySpots; // List of operator activity spots.
 	private List<Point2D> passengerActivitySpots; // List of passenger activity spots
 
@@ -174,7 +174,7 @@ public abstract class Vehicle extends Unit
 		vehicleType = vehicleType.toLowerCase();
 
 		direction = new Direction(0);
-		trail = new ArrayList<Coordinates>();
+		trail = new VehicleTrail();
 		status = StatusType.PARKED;
 		isReservedMission = false;
 		distanceMark = false;
@@ -260,7 +260,7 @@ public abstract class Vehicle extends Unit
 		// Initialize vehicle data
 		setDescription(vehicleType);
 		direction = new Direction(0);
-		trail = new ArrayList<Coordinates>();
+		trail = new VehicleTrail();
 		setBaseSpeed(baseSpeed);
 		setBaseMass(baseMass);
 		this.drivetrainEfficiency = fuelEfficiency / 100.0;
@@ -990,7 +990,17 @@ public abstract class Vehicle extends Unit
 	 * @return trail collection
 	 */
 	public Collection<Coordinates> getTrail() {
-		return trail;
+		return trail.getPoints();
+	}
+
+	/**
+	 * Gets the vehicle's trail simplified to a level of detail.
+	 * 
+	 * @param tolerance the distance a dropped location may lie off the trail (km)
+	 * @return trail collection
+	 */
+	public Collection<Coordinates> getTrail(double tolerance) {
+		return trail.getPoints(tolerance);
 	}
 
 	/**
@@ -1001,14 +1011,9 @@ public abstract class Vehicle extends Unit
 	public void addToTrail(Coordinates location) {
 
 		if (getSettlement() != null) {
-			if (trail.size() > 0)
-				trail.clear();
-		} else if (trail.size() > 0) {
-			Coordinates lastLocation = trail.get(trail.size() - 1);
-			if (!lastLocation.equals(location) && (lastLocation.getDistance(location) >= 2D))
-				trail.add(new Coordinates(location));
+			trail.clear();
 		} else
-			trail.add(new Coordinates(location));
+			trail.add(location);
 	}
 
 	/**
@@ -1156,7 +1161,6 @@ public abstract class Vehicle extends Unit
 		malfunctionManager = null;
 		direction = null;
 		vehicleOperator = null;
-		trail.clear();
 		trail = null;
 		towingVehicle = null;
 		status = null;
@@ -0,0 +1,268 @@
+/**
+ * Mars Simulation Project
+ * VehicleTrail.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.core.vehicle;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.mars.Mars;
+
+/**
+ * The VehicleTrail class holds the locations a vehicle has passed through as
+ * packed phi/theta arrays. While the vehicle keeps to the line of the last
+ * segment, each new point moves the end of that segment instead of being
+ * added, and the whole trail is simplified with the Douglas-Peucker algorithm
+ * whenever it grows past its cap, so the trail stays bounded no matter how far
+ * the vehicle travels.
+ */
+public class VehicleTrail implements Serializable {
+
+	/** default serial id. */
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum number of points kept. */
+	public static final int MAX_POINTS = 500;
+	/** The minimum distance between two points (km). */
+	private static final double MIN_SPACING = 2D;
+	/** The distance a merged point may lie off the trail (km). */
+	private static final double BASE_TOLERANCE = .5D;
+	/** The initial capacity of the arrays. */
+	private static final int INITIAL_CAPACITY = 32;
+
+	/** The phi of each point. */
+	private double[] phi = new double[INITIAL_CAPACITY];
+	/** The theta of each point. */
+	private double[] theta = new double[INITIAL_CAPACITY];
+	/** The number of points. */
+	private int size;
+	/** The tolerance the trail has been simplified to (km). */
+	private double tolerance = BASE_TOLERANCE;
+	/** True if the last segment has a direction to keep to. */
+	private boolean hasSegment;
+	/** The phi of the first point added on the last segment. */
+	private double segmentPhi;
+	/** The theta of the first point added on the last segment. */
+	private double segmentTheta;
+
+	/** The number of changes to the trail, used to invalidate the detail cache. */
+	private transient int modCount;
+	/** The last level of detail returned. */
+	private transient List<Coordinates> detailCache;
+	/** The tolerance of the cached level of detail (km). */
+	private transient double detailCacheTolerance;
+	/** The change count of the cached level of detail. */
+	private transient int detailCacheModCount = -1;
+
+	/**
+	 * Adds a location to the end of the trail.
+	 *
+	 * @param location the location.
+	 */
+	public synchronized void add(Coordinates location) {
+		double p = location.getPhi();
+		double t = location.getTheta();
+
+		if (size > 0) {
+			int last = size - 1;
+			if (p == phi[last] && t == theta[last])
+				return;
+			if (getDistance(phi[last], theta[last], p, t) < MIN_SPACING)
+				return;
+			// Extend the last segment if the new point keeps to its line and
+			// leads further from its start. The line is fixed by the first point
+			// of the segment, so a slow turn cannot drift away from it.
+			if (size > 1 && hasSegment
+					&& getOffset(p, t, phi[last - 1], theta[last - 1], segmentPhi, segmentTheta) <= tolerance
+					&& getDistance(phi[last - 1], theta[last - 1], p, t) > getDistance(phi[last - 1],
+							theta[last - 1], phi[last], theta[last])) {
+				phi[last] = p;
+				theta[last] = t;
+				modCount++;
+				return;
+			}
+		}
+
+		if (size == phi.length) {
+			phi = Arrays.copyOf(phi, size * 2);
+			theta = Arrays.copyOf(theta, size * 2);
+		}
+		phi[size] = p;
+		theta[size] = t;
+		size++;
+		modCount++;
+		hasSegment = true;
+		segmentPhi = p;
+		segmentTheta = t;
+
+		// Keep the trail within its cap.
+		while (size > MAX_POINTS) {
+			tolerance *= 2D;
+			compact(tolerance);
+		}
+	}
+
+	/**
+	 * Removes all the points.
+	 */
+	public synchronized void clear() {
+		if (size > 0) {
+			size = 0;
+			tolerance = BASE_TOLERANCE;
+			hasSegment = false;
+			modCount++;
+		}
+	}
+
+	/**
+	 * Gets the number of points.
+	 *
+	 * @return number of points
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Gets all the points of the trail.
+	 *
+	 * @return list of locations
+	 */
+	public synchronized List<Coordinates> getPoints() {
+		List<Coordinates> result = new ArrayList<Coordinates>(size);
+		for (int i = 0; i < size; i++) {
+			result.add(new Coordinates(phi[i], theta[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a level of detail of the trail where no dropped point lies further
+	 * than the tolerance from the remaining trail.
+	 *
+	 * @param detailTolerance the tolerance (km), e.g. the distance covered by a
+	 *                        pixel at the current zoom.
+	 * @return list of locations
+	 */
+	public synchronized List<Coordinates> getPoints(double detailTolerance) {
+		if (detailTolerance <= tolerance || size < 3)
+			return getPoints();
+
+		if (detailCache == null || detailCacheModCount != modCount || detailCacheTolerance != detailTolerance) {
+			boolean[] keep = simplify(detailTolerance);
+			List<Coordinates> result = new ArrayList<Coordinates>();
+			for (int i = 0; i < size; i++) {
+				if (keep[i])
+					result.add(new Coordinates(phi[i], theta[i]));
+			}
+			detailCache = result;
+			detailCacheTolerance = detailTolerance;
+			detailCacheModCount = modCount;
+		}
+		return new ArrayList<Coordinates>(detailCache);
+	}
+
+	/**
+	 * Drops the points that lie within a tolerance of the simplified trail.
+	 *
+	 * @param compactTolerance the tolerance (km)
+	 */
+	private void compact(double compactTolerance) {
+		boolean[] keep = simplify(compactTolerance);
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (keep[i]) {
+				phi[n] = phi[i];
+				theta[n] = theta[i];
+				n++;
+			}
+		}
+		size = n;
+		// The last point may now end a longer segment with another line.
+		hasSegment = false;
+		modCount++;
+	}
+
+	/**
+	 * Finds the points to keep with the Douglas-Peucker algorithm.
+	 *
+	 * @param simplifyTolerance the tolerance (km)
+	 * @return true for each point to keep
+	 */
+	private boolean[] simplify(double simplifyTolerance) {
+		boolean[] keep = new boolean[size];
+		if (size == 0)
+			return keep;
+		keep[0] = true;
+		keep[size - 1] = true;
+
+		int[] stack = new int[size * 2];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = size - 1;
+		while (top > 0) {
+			int end = stack[--top];
+			int start = stack[--top];
+			double maxOffset = 0D;
+			int index = -1;
+			for (int i = start + 1; i < end; i++) {
+				double offset = getOffset(phi[i], theta[i], phi[start], theta[start], phi[end], theta[end]);
+				if (offset > maxOffset) {
+					maxOffset = offset;
+					index = i;
+				}
+			}
+			if (index != -1 && maxOffset > simplifyTolerance) {
+				keep[index] = true;
+				stack[top++] = start;
+				stack[top++] = index;
+				stack[top++] = index;
+				stack[top++] = end;
+			}
+		}
+		return keep;
+	}
+
+	/**
+	 * Gets the distance of a point from the great circle through two other
+	 * points.
+	 *
+	 * @return distance (km)
+	 */
+	private static double getOffset(double p, double t, double p1, double t1, double p2, double t2) {
+		double[] a = toVector(p1, t1);
+		double[] b = toVector(p2, t2);
+		double[] c = toVector(p, t);
+		double nx = (a[1] * b[2]) - (a[2] * b[1]);
+		double ny = (a[2] * b[0]) - (a[0] * b[2]);
+		double nz = (a[0] * b[1]) - (a[1] * b[0]);
+		double length = Math.sqrt((nx * nx) + (ny * ny) + (nz * nz));
+		if (length == 0D)
+			return getDistance(p, t, p1, t1);
+		double dot = ((nx * c[0]) + (ny * c[1]) + (nz * c[2])) / length;
+		return Mars.MARS_RADIUS_KM * Math.abs(Math.asin(Math.max(-1D, Math.min(1D, dot))));
+	}
+
+	/**
+	 * Gets the great circle distance between two points.
+	 *
+	 * @return distance (km)
+	 */
+	private static double getDistance(double p1, double t1, double p2, double t2) {
+		double[] a = toVector(p1, t1);
+		double[] b = toVector(p2, t2);
+		double dot = (a[0] * b[0]) + (a[1] * b[1]) + (a[2] * b[2]);
+		return Mars.MARS_RADIUS_KM * Math.acos(Math.max(-1D, Math.min(1D, dot)));
+	}
+
+	private static double[] toVector(double p, double t) {
+		double sinPhi = Math.sin(p);
+		return new double[] { sinPhi * Math.cos(t), sinPhi * Math.sin(t), Math.cos(p) };
+	}
+}
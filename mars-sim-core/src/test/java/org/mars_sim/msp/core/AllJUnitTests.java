@@ -23,28 +23,46 @@ public class AllJUnitTests extends TestCase {
 	public static Test suite() {
 		TestSuite suite = new TestSuite(AllJUnitTests.class);
 
+		suite.addTestSuite(org.mars_sim.msp.core.TestConfigCache.class);
 		suite.addTestSuite(org.mars_sim.msp.core.TestCoordinates.class);
+		suite.addTestSuite(org.mars_sim.msp.core.TestInitialSettlements.class);
 		suite.addTestSuite(org.mars_sim.msp.core.TestInventory.class);
 		suite.addTestSuite(org.mars_sim.msp.core.TestLocalAreaUtil.class);
+		suite.addTestSuite(org.mars_sim.msp.core.TestLogConsolidated.class);
+		suite.addTestSuite(org.mars_sim.msp.core.ensemble.TestEnsembleRunner.class);
 		suite.addTestSuite(org.mars_sim.msp.core.equipment.JUnitTests.class);
 		suite.addTestSuite(org.mars_sim.msp.core.events.JUnitTests.class);
 		suite.addTestSuite(org.mars_sim.msp.core.malfunction.TestMalfunctionManager.class);
+		suite.addTestSuite(org.mars_sim.msp.core.mars.TestMineralFieldIndex.class);
 		suite.addTestSuite(org.mars_sim.msp.core.person.JUnitTests.class);
 		suite.addTestSuite(org.mars_sim.msp.core.person.ai.JUnitTests.class);
 		suite.addTestSuite(org.mars_sim.msp.core.person.ai.mission.JUnitTests.class);
+		suite.addTestSuite(org.mars_sim.msp.core.person.ai.mission.TestMissionManager.class);
+		suite.addTestSuite(org.mars_sim.msp.core.person.ai.mission.TestMissionRoute.class);
+		suite.addTestSuite(org.mars_sim.msp.core.person.ai.mission.TestTradeProfitMatrix.class);
 		suite.addTest(org.mars_sim.msp.core.person.ai.task.JUnitTests.suite());
 		suite.addTestSuite(org.mars_sim.msp.core.person.medical.JUnitTests.class);
 		suite.addTestSuite(org.mars_sim.msp.core.resource.TestAmountResourceStorage.class);
 		suite.addTestSuite(org.mars_sim.msp.core.resource.TestAmountResourcePhaseStorage.class);
 		suite.addTestSuite(org.mars_sim.msp.core.resource.TestAmountResourceTypeStorage.class);
 		suite.addTestSuite(org.mars_sim.msp.core.resource.TestItemResource.class);
+		suite.addTestSuite(org.mars_sim.msp.core.resource.TestSupplyDemandLedger.class);
 		suite.addTestSuite(org.mars_sim.msp.core.structure.JUnitTests.class);
+		suite.addTestSuite(org.mars_sim.msp.core.structure.TestPowerGrid.class);
+		suite.addTestSuite(org.mars_sim.msp.core.structure.TestThermalEngine.class);
 		suite.addTestSuite(org.mars_sim.msp.core.structure.building.JUnitTests.class);
 		suite.addTest(org.mars_sim.msp.core.structure.building.connection.JUnitTests.suite());
 		suite.addTest(org.mars_sim.msp.core.structure.construction.JUnitTests.suite());
 		suite.addTestSuite(org.mars_sim.msp.core.structure.goods.TestGoods.class);
 		suite.addTestSuite(org.mars_sim.msp.core.structure.goods.TestCreditManager.class);
+		suite.addTestSuite(org.mars_sim.msp.core.time.TestMasterClock.class);
+		suite.addTestSuite(org.mars_sim.msp.core.time.TestTimeRatioGovernor.class);
+		suite.addTestSuite(org.mars_sim.msp.core.time.TestUIRefreshScheduler.class);
+		suite.addTestSuite(org.mars_sim.msp.core.tool.TestSaveCodec.class);
+		suite.addTestSuite(org.mars_sim.msp.core.tool.TestSaveJournal.class);
 		suite.addTestSuite(org.mars_sim.msp.core.vehicle.JUnitTests.class);
+		suite.addTestSuite(org.mars_sim.msp.core.vehicle.TestVehicleTrail.class);
+		suite.addTestSuite(org.mars_sim.msp.core.vehicle.TestRoutePlanner.class);
 
 		return suite;
 	}
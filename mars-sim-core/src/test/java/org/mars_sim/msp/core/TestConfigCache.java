@@ -0,0 +1,56 @@
+package org.mars_sim.msp.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.jdom.CDATA;
+import org.jdom.Document;
+import org.jdom.Element;
+
+import junit.framework.TestCase;
+
+public class TestConfigCache extends TestCase {
+
+    private static Document roundTrip(Document document) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConfigCache.writeDocument(document, bytes);
+        return ConfigCache.readDocument(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    public void testElementTree() throws Exception {
+        Element root = new Element("building-configuration");
+        for (int i = 0; i < 3; i++) {
+            Element building = new Element("building");
+            building.setAttribute("type", "Lander Hab " + i);
+            building.setAttribute("width", "9.0");
+            Element description = new Element("description");
+            description.addContent("A habitat");
+            building.addContent(description);
+            root.addContent(building);
+        }
+        root.addContent(new CDATA("<raw>"));
+
+        Element result = roundTrip(new Document(root)).getRootElement();
+        assertEquals("building-configuration", result.getName());
+        List<?> buildings = result.getChildren("building");
+        assertEquals(3, buildings.size());
+        Element second = (Element) buildings.get(1);
+        assertEquals("Lander Hab 1", second.getAttributeValue("type"));
+        assertEquals("9.0", second.getAttributeValue("width"));
+        assertEquals("A habitat", second.getChildText("description"));
+        assertTrue(result.getContent(result.getContentSize() - 1) instanceof CDATA);
+        assertEquals("<raw>", result.getText());
+    }
+
+    public void testEmptyValues() throws Exception {
+        Element root = new Element("people-configuration");
+        Element name = new Element("person-name");
+        name.setAttribute("value", "");
+        root.addContent(name);
+
+        Element result = roundTrip(new Document(root)).getRootElement();
+        assertEquals("", result.getChild("person-name").getAttributeValue("value"));
+        assertEquals(0, result.getChild("person-name").getContentSize());
+    }
+}
@@ -0,0 +1,51 @@
+package org.mars_sim.msp.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.tool.RandomUtil;
+
+public class TestInitialSettlements extends TestCase {
+
+    private static final long SEED = 42L;
+
+    /**
+     * Builds a new simulation and lists its units by id, relative to the first
+     * settlement since the id counter is shared by all simulations.
+     */
+    private static List<String> build() {
+        RandomUtil.setSeed(SEED);
+        SimulationConfig.loadConfig();
+        Simulation.createNewSimulation(-1, false);
+
+        UnitManager unitManager = Simulation.instance().getUnitManager();
+        List<Unit> units = new ArrayList<Unit>(unitManager.getUnits());
+        Collections.sort(units, new Comparator<Unit>() {
+            @Override
+            public int compare(Unit a, Unit b) {
+                return Integer.compare(a.getIdentifier(), b.getIdentifier());
+            }
+        });
+
+        int first = Integer.MAX_VALUE;
+        for (Settlement settlement : unitManager.getSettlements()) {
+            first = Math.min(first, settlement.getIdentifier());
+        }
+        List<String> result = new ArrayList<String>();
+        for (Unit unit : units) {
+            result.add((unit.getIdentifier() - first) + " " + unit.getName());
+        }
+        return result;
+    }
+
+    public void testSameSeedBuildsSameUnits() {
+        List<String> first = build();
+        assertFalse(first.isEmpty());
+        assertEquals(first, build());
+    }
+}
@@ -0,0 +1,107 @@
+package org.mars_sim.msp.core;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+public class TestLogConsolidated extends TestCase {
+
+    private Logger logger;
+    private List<String> messages;
+
+    @Override
+    public void setUp() {
+        messages = new CopyOnWriteArrayList<String>();
+        logger = Logger.getLogger("test.LogConsolidated" + System.nanoTime());
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    private void waitFor(int count) throws InterruptedException {
+        for (int i = 0; i < 200 && messages.size() < count; i++) {
+            LogConsolidated.flush();
+            Thread.sleep(5);
+        }
+        assertEquals(count, messages.size());
+    }
+
+    public void testSiteSkipsRepeats() throws Exception {
+        LogConsolidated.Site site = LogConsolidated.site(logger, "org.mars_sim.Test");
+        final int[] built = new int[1];
+        for (int i = 0; i < 5; i++) {
+            site.log(Level.WARNING, 60_000, () -> "built " + (++built[0]), null);
+        }
+        waitFor(1);
+        assertEquals("[x1] Test : built 1", messages.get(0));
+        // Skipped messages are never built
+        assertEquals(1, built[0]);
+    }
+
+    public void testSkippedAreCounted() throws Exception {
+        LogConsolidated.Site site = LogConsolidated.site(logger, "org.mars_sim.Test");
+        site.log(Level.WARNING, 30, "first", null);
+        site.log(Level.WARNING, 30, "second", null);
+        site.log(Level.WARNING, 30, "third", null);
+        Thread.sleep(50);
+        site.log(Level.WARNING, 30, "fourth", null);
+        waitFor(2);
+        assertEquals("[x3] Test : fourth", messages.get(1));
+    }
+
+    public void testCallSitesAreSeparate() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            LogConsolidated.log(logger, Level.WARNING, 60_000, "org.mars_sim.Test", "a", null);
+            LogConsolidated.log(logger, Level.WARNING, 60_000, "org.mars_sim.Test", "b", null);
+        }
+        waitFor(2);
+        assertTrue(messages.contains("[x1] Test : a"));
+        assertTrue(messages.contains("[x1] Test : b"));
+    }
+
+    private void logA() {
+        LogConsolidated.log(logger, Level.WARNING, 60_000, "org.mars_sim.Test", "a", null);
+    }
+
+    private void logB() {
+        LogConsolidated.log(logger, Level.WARNING, 60_000, "org.mars_sim.Test", "b", null);
+    }
+
+    public void testMethodsAreSeparate() throws Exception {
+        // Both calls are at the same bytecode index of their method
+        for (int i = 0; i < 3; i++) {
+            logA();
+            logB();
+        }
+        waitFor(2);
+        assertTrue(messages.contains("[x1] Test : a"));
+        assertTrue(messages.contains("[x1] Test : b"));
+    }
+
+    public void testDisabledLevelIsIgnored() throws Exception {
+        logger.setLevel(Level.SEVERE);
+        LogConsolidated.Site site = LogConsolidated.site(logger, "org.mars_sim.Test");
+        site.log(Level.FINE, 0, () -> {
+            throw new AssertionError("Message built for a disabled level");
+        }, null);
+        site.log(Level.SEVERE, 0, "shown", null);
+        waitFor(1);
+    }
+}
@@ -0,0 +1,55 @@
+package org.mars_sim.msp.core.ensemble;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestEnsembleRunner extends TestCase {
+
+    public void testSeedsAreRepeatable() {
+        long[] first = new EnsembleRunner(8, 42L).getSeeds();
+        long[] second = new EnsembleRunner(8, 42L).getSeeds();
+        assertTrue(Arrays.equals(first, second));
+        assertEquals(8, Arrays.stream(first).distinct().count());
+        assertFalse(Arrays.equals(first, new EnsembleRunner(8, 43L).getSeeds()));
+    }
+
+    public void testSummary() {
+        Map<String, Double> a = new HashMap<>();
+        a.put(EnsembleMember.POPULATION, 10D);
+        Map<String, Double> b = new HashMap<>();
+        b.put(EnsembleMember.POPULATION, 14D);
+        Map<String, EnsembleRunner.Summary> summaries = EnsembleRunner.summarize(Arrays.asList(a, null, b));
+
+        EnsembleRunner.Summary population = summaries.get(EnsembleMember.POPULATION);
+        assertEquals(2, population.getCount());
+        assertEquals(12D, population.getMean(), 1e-9);
+        assertEquals(Math.sqrt(8D), population.getStandardDeviation(), 1e-9);
+        assertEquals(10D, population.getMin(), 0D);
+        assertEquals(14D, population.getMax(), 0D);
+    }
+
+    public void testForkDivergence() {
+        Map<String, Double> fork = new HashMap<>();
+        fork.put(EnsembleMember.FOOD, 100D);
+        Map<String, Double> a = new HashMap<>();
+        a.put(EnsembleMember.FOOD, 90D);
+        Map<String, Double> b = new HashMap<>();
+        b.put(EnsembleMember.FOOD, 96D);
+        Map<String, String> policy = Collections.singletonMap(EnsembleMember.CROP_FARM_FACTOR, "2");
+        SimulationFork.Branch first = new SimulationFork.Branch(Collections.<String, String>emptyMap(), fork, a);
+        SimulationFork.Branch second = new SimulationFork.Branch(policy, fork, b);
+        SimulationFork.Branch failed = new SimulationFork.Branch(policy, null, null);
+
+        assertEquals(-10D, first.getChange().get(EnsembleMember.FOOD), 1e-9);
+        assertEquals(6D, second.getDivergence(first).get(EnsembleMember.FOOD), 1e-9);
+        assertTrue(failed.getChange().isEmpty());
+
+        String report = SimulationFork.report(Arrays.asList(first, second, failed));
+        assertTrue(report.contains("vs branch 1"));
+        assertTrue(report.contains("Branch 3 " + policy + " failed"));
+    }
+}
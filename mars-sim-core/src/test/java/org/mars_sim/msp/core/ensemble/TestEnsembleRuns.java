@@ -0,0 +1,75 @@
+package org.mars_sim.msp.core.ensemble;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.Simulation;
+import org.mars_sim.msp.core.SimulationConfig;
+import org.mars_sim.msp.core.tool.RandomUtil;
+
+/**
+ * Runs whole simulations, so it is left out of the unit suite in AllJUnitTests.
+ */
+public class TestEnsembleRuns extends TestCase {
+
+    public void testRunsSideBySide() throws Exception {
+        EnsembleRunner runner = new EnsembleRunner(2, 7L);
+        runner.setSols(0.01D);
+        List<Map<String, Double>> results = runner.run();
+        assertEquals(2, results.size());
+        for (Map<String, Double> result : results) {
+            assertNotNull(result);
+            assertTrue(result.get(EnsembleMember.SETTLEMENTS) > 0D);
+            assertEquals(0.01D, result.get(EnsembleMember.SOLS), 1e-9);
+        }
+
+        // The threads of the simulations end with the runs
+        for (int i = 0; i < 100 && hasSimulationThreads(); i++)
+            Thread.sleep(20L);
+        assertFalse(hasSimulationThreads());
+    }
+
+    public void testForkedBranchesRepeat() throws Exception {
+        RandomUtil.setSeed(11L);
+        SimulationConfig.loadConfig();
+        Simulation.createNewSimulation(-1, false);
+        Simulation sim = Simulation.instance();
+        SimulationFork fork;
+        try {
+            fork = new SimulationFork(sim);
+        } finally {
+            sim.destroyOldSimulation();
+        }
+        assertTrue(fork.getStateSize() > 0);
+
+        // The same policies with the same random numbers give the same outcome
+        fork.setSeed(5L, true);
+        List<Map<String, String>> policies = new ArrayList<Map<String, String>>();
+        for (int i = 0; i < 2; i++) {
+            Map<String, String> policy = new HashMap<String, String>();
+            policy.put(EnsembleMember.TRADE_FACTOR, "2");
+            policies.add(policy);
+        }
+        List<SimulationFork.Branch> branches = fork.run(policies, 0.01D);
+        assertEquals(2, branches.size());
+        SimulationFork.Branch first = branches.get(0);
+        SimulationFork.Branch second = branches.get(1);
+        assertNotNull(first.getFork());
+        assertNotNull(first.getOutcome());
+        assertTrue(first.getFork().get(EnsembleMember.SETTLEMENTS) > 0D);
+        assertEquals(first.getFork(), second.getFork());
+        assertEquals(first.getOutcome(), second.getOutcome());
+    }
+
+    private static boolean hasSimulationThreads() {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.isAlive() && (t.getName().startsWith("trade-analysis") || t.getName().equals("ui-refresh")))
+                return true;
+        }
+        return false;
+    }
+}
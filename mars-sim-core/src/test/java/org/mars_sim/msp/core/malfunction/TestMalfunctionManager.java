@@ -33,6 +33,34 @@ public class TestMalfunctionManager extends TestCase {
 		assertEquals("Third malfunction is malfunction1", malfunction1, sorted.get(2));
 	}
 	
+	public void testCumulativeHazardMatchesPerPulseChance() {
+		double effectiveTime = 20_000D;
+		double wear = 30D;
+		double lifeTime = 50_000D;
+		double pulse = .5D;
+		double period = 40_000D;
+
+		// Sum the chance of the per pulse check, which wears the entity out part way.
+		double e = effectiveTime;
+		double w = wear;
+		double expected = 0D;
+		for (double t = 0D; t < period; t += pulse) {
+			e += pulse;
+			w = Math.max(0D, w - (pulse / lifeTime) * 100D);
+			double wearFactor = (100D - w) / 100D * 9D + 1D;
+			expected += pulse * e * .000_000_001D * wearFactor / 100D;
+		}
+
+		double hazard = MalfunctionManager.getCumulativeHazard(effectiveTime, wear, lifeTime, period);
+		assertEquals(expected, hazard, expected * .001D);
+	}
+
+	public void testTimeToFailureInvertsHazard() {
+		double time = MalfunctionManager.getTimeToFailure(5_000D, 80D, 100_000D, 1D);
+		assertEquals(1D, MalfunctionManager.getCumulativeHazard(5_000D, 80D, 100_000D, time), .001D);
+		assertTrue(MalfunctionManager.getTimeToFailure(5_000D, 80D, 100_000D, 2D) > time);
+	}
+
 	private class MockMalfunction extends Malfunction {
 		
 		private MockMalfunction(String name, int severity, double emergencyWorkTime, double workTime, 
@@ -0,0 +1,82 @@
+package org.mars_sim.msp.core.mars;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.mars_sim.msp.core.Coordinates;
+
+import junit.framework.TestCase;
+
+public class TestMineralFieldIndex extends TestCase {
+
+    private static final String[] TYPES = { "Hematite", "Olivine", "Kamacite" };
+
+    private List<MineralConcentration> concentrations;
+    private MineralFieldIndex index;
+    private Random random;
+
+    @Override
+    protected void setUp() throws Exception {
+        random = new Random(42L);
+        concentrations = new ArrayList<MineralConcentration>();
+        for (int i = 0; i < 2000; i++) {
+            Coordinates location = new Coordinates(random.nextDouble() * Math.PI, random.nextDouble() * 2D * Math.PI);
+            concentrations.add(new MineralConcentration(location, random.nextDouble() * 100D, TYPES[i % TYPES.length]));
+        }
+        index = new MineralFieldIndex(concentrations);
+    }
+
+    public void testConcentrationMatchesFullScan() {
+        for (int n = 0; n < 500; n++) {
+            // Query next to a deposit so that most queries hit something.
+            Coordinates deposit = concentrations.get(random.nextInt(concentrations.size())).getLocation();
+            Coordinates location = new Coordinates(deposit.getPhi() + ((random.nextDouble() - .5D) * .05D),
+                    deposit.getTheta() + ((random.nextDouble() - .5D) * .05D));
+            for (String type : TYPES) {
+                assertEquals(type, getFullScanConcentration(type, location),
+                        index.getMineralConcentration(type.toUpperCase(), location), 1E-9);
+            }
+        }
+    }
+
+    public void testAllConcentrations() {
+        Coordinates location = concentrations.get(0).getLocation();
+        Map<String, Double> all = index.getAllMineralConcentrations(location);
+        assertNotNull(all);
+        for (String type : TYPES) {
+            double expected = getFullScanConcentration(type, location);
+            Double actual = all.get(type);
+            assertEquals(type, expected, (actual == null) ? 0D : actual, 1E-9);
+        }
+    }
+
+    public void testNearbyConcentrations() {
+        Coordinates start = new Coordinates(Math.PI / 3D, 2D);
+        double range = 500D;
+        double angle = (range + MineralFieldIndex.MAX_CONCENTRATION) / Mars.MARS_RADIUS_KM;
+        List<Integer> nearby = index.getNearbyConcentrations(start, angle);
+        for (int i = 0; i < concentrations.size(); i++) {
+            MineralConcentration c = concentrations.get(i);
+            if (range > (start.getDistance(c.getLocation()) - c.getConcentration()))
+                assertTrue("missing " + i, nearby.contains(i));
+        }
+        for (int i = 1; i < nearby.size(); i++) {
+            assertTrue(nearby.get(i - 1) < nearby.get(i));
+        }
+    }
+
+    public void testUnknownType() {
+        assertEquals(0D, index.getMineralConcentration("unobtainium", new Coordinates(1D, 1D)), 0D);
+    }
+
+    private double getFullScanConcentration(String type, Coordinates location) {
+        double result = 0D;
+        for (MineralConcentration c : concentrations) {
+            if (c.getMineralType().equalsIgnoreCase(type))
+                result += RandomMineralMap.getMineralConcentrationEffect(c, location);
+        }
+        return Math.min(100D, result);
+    }
+}
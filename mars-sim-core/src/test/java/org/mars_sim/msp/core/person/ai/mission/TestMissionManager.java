@@ -0,0 +1,157 @@
+package org.mars_sim.msp.core.person.ai.mission;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.SimulationConfig;
+import org.mars_sim.msp.core.events.HistoricalEventManager;
+import org.mars_sim.msp.core.person.GenderType;
+import org.mars_sim.msp.core.person.Person;
+import org.mars_sim.msp.core.person.ai.task.OperateVehicle;
+import org.mars_sim.msp.core.person.ai.task.TaskPhase;
+import org.mars_sim.msp.core.structure.MockSettlement;
+import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.structure.building.BuildingManager;
+import org.mars_sim.msp.core.structure.building.MockBuilding;
+import org.mars_sim.msp.core.structure.building.function.BuildingAirlock;
+import org.mars_sim.msp.core.structure.building.function.EVA;
+import org.mars_sim.msp.core.vehicle.MockVehicle;
+import org.mars_sim.msp.core.vehicle.Vehicle;
+
+public class TestMissionManager extends TestCase {
+
+    private MissionManager manager;
+    private Settlement settlement;
+    private MockBuilding building;
+
+    @Override
+    public void setUp() throws Exception {
+        SimulationConfig.loadConfig();
+        manager = new MissionManager();
+        Mission.justReloaded(null, new HistoricalEventManager(), manager, null, null);
+
+        settlement = new MockSettlement();
+        building = new MockBuilding(settlement.getBuildingManager());
+        building.setWidth(10D);
+        building.setLength(10D);
+        settlement.getBuildingManager().addBuilding(building, false);
+        BuildingAirlock airlock = new BuildingAirlock(building, 1, 0D, 0D, 0D, 0D, 0D, 0D);
+        building.addFunction(new EVA(building, airlock));
+    }
+
+    private Person createPerson(String name) {
+        Person person = Person.create(name, settlement)
+                .setGender(GenderType.MALE)
+                .setCountry(null)
+                .setSponsor("Mars Society (MS)")
+                .build();
+        person.initialize();
+        BuildingManager.addPersonOrRobotToBuilding(person, building);
+        return person;
+    }
+
+    public void testEmptyIndexesConsistent() {
+        assertTrue(manager.checkIndexConsistency().isEmpty());
+    }
+
+    public void testNoMissionsForSettlement() {
+        assertTrue(manager.getMissionsForSettlement(settlement).isEmpty());
+        assertTrue(manager.getPendingMissions(settlement).isEmpty());
+        assertEquals(0, manager.numParticularMissions(Trade.DEFAULT_DESCRIPTION, settlement));
+        assertTrue(manager.getMissions(Trade.class).isEmpty());
+        assertTrue(manager.checkIndexConsistency().isEmpty());
+    }
+
+    public void testAddRemoveMission() throws Exception {
+        Person leader = createPerson("leader");
+        Vehicle vehicle = new MockVehicle(settlement);
+        MockVehicleMission mission = new MockVehicleMission(leader, vehicle);
+
+        manager.addMission(mission);
+        assertTrue(manager.checkIndexConsistency().isEmpty());
+        assertSame(mission, manager.getMission(leader));
+        assertSame(mission, manager.getMissionForVehicle(vehicle));
+        assertEquals(1, manager.getMissions(MockVehicleMission.class).size());
+
+        manager.removeMission(mission);
+        assertTrue(manager.checkIndexConsistency().isEmpty());
+        assertNull(manager.getMission(leader));
+        assertNull(manager.getMissionForVehicle(vehicle));
+        assertTrue(manager.getMissions(MockVehicleMission.class).isEmpty());
+    }
+
+    public void testMemberJoinLeave() throws Exception {
+        Person leader = createPerson("leader");
+        Person member = createPerson("member");
+        MockVehicleMission mission = new MockVehicleMission(leader, new MockVehicle(settlement));
+        manager.addMission(mission);
+
+        member.setMission(mission);
+        assertSame(mission, manager.getMission(member));
+        assertTrue(manager.checkIndexConsistency().isEmpty());
+
+        mission.removeMember(member);
+        assertNull(manager.getMission(member));
+        assertSame(mission, manager.getMission(leader));
+        assertTrue(manager.checkIndexConsistency().isEmpty());
+
+        manager.removeMission(mission);
+        assertNull(manager.getMission(leader));
+        assertTrue(manager.checkIndexConsistency().isEmpty());
+    }
+
+    public void testVehicleChange() throws Exception {
+        Person leader = createPerson("leader");
+        Vehicle first = new MockVehicle(settlement);
+        Vehicle second = new MockVehicle(settlement);
+        MockVehicleMission mission = new MockVehicleMission(leader, first);
+        manager.addMission(mission);
+
+        mission.changeVehicle(second);
+        assertNull(manager.getMissionForVehicle(first));
+        assertSame(mission, manager.getMissionForVehicle(second));
+        assertTrue(manager.checkIndexConsistency().isEmpty());
+    }
+
+    /**
+     * A vehicle mission that does nothing but hold its members and vehicle.
+     */
+    private static class MockVehicleMission extends VehicleMission {
+
+        private static final long serialVersionUID = 1L;
+
+        MockVehicleMission(Person leader, Vehicle vehicle) {
+            super("Mock Mission", leader, 1, vehicle);
+        }
+
+        void changeVehicle(Vehicle vehicle) {
+            leaveVehicle();
+            setVehicle(vehicle);
+        }
+
+        @Override
+        public Settlement getAssociatedSettlement() {
+            return getStartingMember().getAssociatedSettlement();
+        }
+
+        @Override
+        public Map<Integer, Integer> getEquipmentNeededForRemainingMission(boolean useBuffer) {
+            return new HashMap<Integer, Integer>();
+        }
+
+        @Override
+        protected OperateVehicle getOperateVehicleTask(MissionMember member, TaskPhase lastOperateVehicleTaskPhase) {
+            return null;
+        }
+
+        @Override
+        protected void performEmbarkFromSettlementPhase(MissionMember member) {
+        }
+
+        @Override
+        protected void performDisembarkToSettlementPhase(MissionMember member, Settlement disembarkSettlement) {
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.mars_sim.msp.core.person.ai.mission;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.SimulationConfig;
+import org.mars_sim.msp.core.events.HistoricalEventManager;
+import org.mars_sim.msp.core.mars.TerrainElevation;
+import org.mars_sim.msp.core.person.GenderType;
+import org.mars_sim.msp.core.person.Person;
+import org.mars_sim.msp.core.person.ai.task.OperateVehicle;
+import org.mars_sim.msp.core.person.ai.task.TaskPhase;
+import org.mars_sim.msp.core.structure.MockSettlement;
+import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.structure.building.BuildingManager;
+import org.mars_sim.msp.core.structure.building.MockBuilding;
+import org.mars_sim.msp.core.vehicle.MockVehicle;
+import org.mars_sim.msp.core.vehicle.RoutePlanner;
+import org.mars_sim.msp.core.vehicle.Vehicle;
+
+public class TestMissionRoute extends TestCase {
+
+    private static final double MAX_GRADE = .15D;
+
+    /** A 10 km high ridge running north-south across the equator. */
+    private static final double RIDGE_THETA = 1D;
+    private static final double RIDGE_WIDTH = .05D;
+    private static final double RIDGE_NORTH = 1.45D;
+    private static final double RIDGE_SOUTH = 1.69D;
+
+    private static final Coordinates HOME = new Coordinates(Math.PI / 2D, RIDGE_THETA - .125D);
+    private static final Coordinates SITE = new Coordinates(Math.PI / 2D, RIDGE_THETA + .125D);
+
+    private static RoutePlanner planner;
+
+    private Settlement settlement;
+    private MockBuilding building;
+
+    @Override
+    public void setUp() throws Exception {
+        SimulationConfig.loadConfig();
+        Mission.justReloaded(null, new HistoricalEventManager(), new MissionManager(), null, null);
+        if (planner == null)
+            planner = new RoutePlanner(new RidgeTerrain());
+
+        settlement = new MockSettlement();
+        settlement.setCoordinates(HOME);
+        building = new MockBuilding(settlement.getBuildingManager());
+        settlement.getBuildingManager().addBuilding(building, false);
+    }
+
+    public void testDetourAddsToResourcesNeeded() throws Exception {
+        Person leader = Person.create("leader", settlement)
+                .setGender(GenderType.MALE)
+                .setCountry(null)
+                .setSponsor("Mars Society (MS)")
+                .build();
+        leader.initialize();
+        BuildingManager.addPersonOrRobotToBuilding(leader, building);
+        Vehicle vehicle = new MockVehicle(settlement);
+
+        RouteMission mission = new RouteMission(leader, vehicle);
+        mission.addNavpoint(new NavPoint(SITE, "site"));
+        mission.addNavpoint(new NavPoint(HOME, settlement, settlement.getName()));
+
+        // Both legs go around the ridge
+        double direct = 2D * HOME.getDistance(SITE);
+        double total = mission.getTotalDistance();
+        assertTrue(total > direct);
+        assertEquals(total, mission.getTotalRemainingDistance(), 1e-9);
+
+        int fuel = vehicle.getFuelType();
+        double needed = mission.getResourcesNeededForRemainingMission(false).get(fuel).doubleValue();
+        double neededDirect = mission.getResourcesNeededForTrip(false, direct).get(fuel).doubleValue();
+        assertTrue(needed > neededDirect);
+        assertEquals(neededDirect * total / direct, needed, 1e-6);
+    }
+
+    /**
+     * Flat terrain with a ridge between the settlement and the site.
+     */
+    private static class RidgeTerrain extends TerrainElevation {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public double getElevation(Coordinates location) {
+            double phi = location.getPhi();
+            if (phi >= RIDGE_NORTH && phi <= RIDGE_SOUTH
+                    && Math.abs(location.getTheta() - RIDGE_THETA) <= RIDGE_WIDTH / 2D)
+                return 10D;
+            return 0D;
+        }
+    }
+
+    /**
+     * A vehicle mission whose legs follow the routes of the ridge terrain.
+     */
+    private static class RouteMission extends VehicleMission {
+
+        private static final long serialVersionUID = 1L;
+
+        RouteMission(Person leader, Vehicle vehicle) {
+            super("Route Mission", leader, 1, vehicle);
+        }
+
+        @Override
+        protected double getLegDistance(Coordinates from, Coordinates to) {
+            return RoutePlanner.getDistance(from, planner.getRoute(from, to, "Test Rover", MAX_GRADE));
+        }
+
+        @Override
+        public Settlement getAssociatedSettlement() {
+            return getStartingMember().getAssociatedSettlement();
+        }
+
+        @Override
+        public Map<Integer, Integer> getEquipmentNeededForRemainingMission(boolean useBuffer) {
+            return new HashMap<Integer, Integer>();
+        }
+
+        @Override
+        protected OperateVehicle getOperateVehicleTask(MissionMember member, TaskPhase lastOperateVehicleTaskPhase) {
+            return null;
+        }
+
+        @Override
+        protected void performEmbarkFromSettlementPhase(MissionMember member) {
+        }
+
+        @Override
+        protected void performDisembarkToSettlementPhase(MissionMember member, Settlement disembarkSettlement) {
+        }
+    }
+}
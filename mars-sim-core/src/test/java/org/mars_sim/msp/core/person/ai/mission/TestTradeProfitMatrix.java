@@ -0,0 +1,142 @@
+package org.mars_sim.msp.core.person.ai.mission;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.SimulationConfig;
+import org.mars_sim.msp.core.UnitEventType;
+import org.mars_sim.msp.core.structure.MockSettlement;
+import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.vehicle.Rover;
+
+public class TestTradeProfitMatrix extends TestCase {
+
+    private static final double RANGE = 1000D;
+
+    private CountingMatrix matrix;
+    private Settlement home;
+    private Settlement near;
+    private Settlement far;
+    private Rover rover;
+
+    @Override
+    public void setUp() throws Exception {
+        SimulationConfig.loadConfig();
+        matrix = new CountingMatrix();
+
+        home = new MockSettlement();
+        near = new MockSettlement();
+        far = new MockSettlement();
+        // The other pole is far out of range
+        far.setCoordinates(new Coordinates(Math.PI, 0D));
+
+        rover = new Rover("Test Rover", "Explorer Rover", home);
+        matrix.profits.put(near, 10D);
+        matrix.profits.put(far, 20D);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        matrix.destroy();
+    }
+
+    public void testRefreshSkipsPairsOutOfRange() {
+        Settlement best = matrix.findBestPartner(home, rover, Arrays.asList(near, far));
+        assertSame(near, best);
+        assertEquals(10D, matrix.getProfit(home, near), 0D);
+        assertEquals(0D, matrix.getProfit(home, far), 0D);
+        assertEquals(Arrays.asList(near), matrix.evaluated);
+    }
+
+    public void testFreshPairsAreNotEvaluatedAgain() {
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        assertEquals(1, matrix.evaluated.size());
+    }
+
+    public void testGoodsValueChangeInvalidates() {
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        matrix.profits.put(near, 30D);
+        matrix.revisions.put(near, 1);
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        assertEquals(2, matrix.evaluated.size());
+        assertEquals(30D, matrix.getProfit(home, near), 0D);
+    }
+
+    public void testInventoryChangeKeepsProfits() {
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        home.fireUnitUpdate(UnitEventType.INVENTORY_RESOURCE_EVENT);
+        near.fireUnitUpdate(UnitEventType.INVENTORY_STORING_UNIT_EVENT);
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        assertEquals(1, matrix.evaluated.size());
+    }
+
+    public void testRangeChangeInvalidates() {
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        matrix.range = RANGE / 2D;
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        assertEquals(2, matrix.evaluated.size());
+    }
+
+    public void testReservedRoverIsEvicted() {
+        Rover nearRover = new Rover("Near Rover", "Explorer Rover", near);
+        matrix.findBestPartner(near, nearRover, Arrays.asList(home));
+        assertEquals(1, matrix.evaluated.size());
+
+        // A rover taken by a mission no longer keeps its settlement's row
+        nearRover.setReservedForMission(true);
+        matrix.findBestPartner(home, rover, Arrays.asList(near));
+        assertEquals(0D, matrix.getProfit(near, home), 0D);
+    }
+
+    public void testOnlyRequestedPairsAreEvaluated() {
+        Settlement other = new MockSettlement();
+        Rover otherRover = new Rover("Other Rover", "Explorer Rover", other);
+        matrix.findBestPartner(other, otherRover, Arrays.asList(near));
+        matrix.evaluated.clear();
+
+        // The pair of the other settlement is stale but not asked for
+        matrix.revisions.put(near, 1);
+        Settlement third = new MockSettlement();
+        matrix.findBestPartner(home, rover, Arrays.asList(third));
+        assertEquals(Arrays.asList(third), matrix.evaluated);
+    }
+
+    /**
+     * A matrix with a fixed range, profits and goods value revisions that records
+     * each estimate.
+     */
+    private static class CountingMatrix extends TradeProfitMatrix {
+
+        private Map<Settlement, Double> profits = new HashMap<Settlement, Double>();
+        private List<Settlement> evaluated = Collections.synchronizedList(new ArrayList<Settlement>());
+        private double range = RANGE;
+        private Map<Settlement, Integer> revisions = new HashMap<Settlement, Integer>();
+
+        @Override
+        double estimateProfit(Settlement startingSettlement, Rover rover,
+                Settlement tradingSettlement) {
+            evaluated.add(tradingSettlement);
+            Double profit = profits.get(tradingSettlement);
+            return (profit != null) ? profit : 0D;
+        }
+
+        @Override
+        double getRange(Rover rover) {
+            return range;
+        }
+
+        @Override
+        int getRevision(Settlement settlement) {
+            Integer revision = revisions.get(settlement);
+            return (revision != null) ? revision : 0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.mars_sim.msp.core.resource;
+
+import junit.framework.TestCase;
+
+public class TestSupplyDemandLedger extends TestCase {
+
+    private static final int OXYGEN_ID = 3;
+    private static final int LARGE_ID = 500;
+    private static final int ITEM_ID = ResourceUtil.FIRST_ITEM_RESOURCE + 200;
+
+    public void testAmountSupply() {
+        SupplyDemandLedger ledger = new SupplyDemandLedger();
+        ledger.addAmountSupply(OXYGEN_ID, 10D);
+        ledger.addAmountSupply(OXYGEN_ID, 5D);
+        assertEquals(15D, ledger.getAmountSupply(OXYGEN_ID), 0D);
+        assertEquals(2, ledger.getAmountSupplyRequest(OXYGEN_ID));
+        assertEquals(0D, ledger.getAmountSupply(OXYGEN_ID + 1), 0D);
+    }
+
+    public void testAmountDemand() {
+        SupplyDemandLedger ledger = new SupplyDemandLedger();
+        ledger.addAmountDemandTotalRequest(OXYGEN_ID);
+        ledger.addAmountDemandTotalRequest(OXYGEN_ID);
+        ledger.addAmountDemand(OXYGEN_ID, 4D);
+        assertEquals(4D, ledger.getAmountDemand(OXYGEN_ID), 0D);
+        assertEquals(2, ledger.getAmountDemandTotalRequest(OXYGEN_ID));
+        assertEquals(1, ledger.getAmountDemandMetRequest(OXYGEN_ID));
+        assertEquals(1, ledger.getNumAmountDemand());
+    }
+
+    public void testGrowBeyondInitialSlots() {
+        SupplyDemandLedger ledger = new SupplyDemandLedger();
+        assertEquals(0D, ledger.getAmountDemand(LARGE_ID), 0D);
+        ledger.addAmountDemand(LARGE_ID, 1.5D);
+        ledger.addAmountSupply(OXYGEN_ID, 2D);
+        assertEquals(1.5D, ledger.getAmountDemand(LARGE_ID), 0D);
+        assertEquals(2D, ledger.getAmountSupply(OXYGEN_ID), 0D);
+    }
+
+    public void testItemDemand() {
+        SupplyDemandLedger ledger = new SupplyDemandLedger();
+        ledger.addItemDemand(ITEM_ID, 2);
+        ledger.addItemDemand(ITEM_ID, 3);
+        assertEquals(5, ledger.getItemDemand(ITEM_ID));
+        assertEquals(2, ledger.getItemDemandMetRequest(ITEM_ID));
+    }
+
+    public void testCompactAndClear() {
+        SupplyDemandLedger ledger = new SupplyDemandLedger();
+        ledger.addAmountSupply(OXYGEN_ID, 50D);
+        ledger.addAmountDemand(OXYGEN_ID, 20D);
+        ledger.addAmountDemandTotalRequest(OXYGEN_ID);
+
+        ledger.compactAmountSupply(10);
+        ledger.compactAmountDemand(10);
+        assertEquals(5D, ledger.getAmountSupply(OXYGEN_ID), 0D);
+        assertEquals(2D, ledger.getAmountDemand(OXYGEN_ID), 0D);
+
+        ledger.clearAmountSupplyRequest();
+        ledger.clearAmountDemandTotalRequest();
+        ledger.clearAmountDemandMetRequest();
+        assertEquals(0, ledger.getAmountSupplyRequest(OXYGEN_ID));
+        assertEquals(0, ledger.getAmountDemandTotalRequest(OXYGEN_ID));
+        assertEquals(0, ledger.getAmountDemandMetRequest(OXYGEN_ID));
+
+        ledger.clearAmountDemand();
+        assertEquals(0D, ledger.getAmountDemand(OXYGEN_ID), 0D);
+    }
+}
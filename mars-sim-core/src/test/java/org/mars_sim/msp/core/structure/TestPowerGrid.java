@@ -0,0 +1,121 @@
+package org.mars_sim.msp.core.structure;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.SimulationConfig;
+import org.mars_sim.msp.core.structure.building.Building;
+import org.mars_sim.msp.core.structure.building.BuildingManager;
+import org.mars_sim.msp.core.structure.building.MockBuilding;
+import org.mars_sim.msp.core.structure.building.function.PowerMode;
+
+public class TestPowerGrid extends TestCase {
+
+    private Settlement settlement;
+    private PowerGrid grid;
+    private PoweredBuilding generator;
+    private PoweredBuilding consumer;
+
+    @Override
+    public void setUp() throws Exception {
+        SimulationConfig.loadConfig();
+        settlement = new MockSettlement();
+        grid = settlement.getPowerGrid();
+
+        BuildingManager manager = settlement.getBuildingManager();
+        generator = new PoweredBuilding(manager);
+        consumer = new PoweredBuilding(manager);
+        consumer.full = 10D;
+        consumer.down = 2D;
+        manager.addBuilding(generator, false);
+        manager.addBuilding(consumer, false);
+    }
+
+    public void testOnlyChangedBuildingsAreRead() {
+        generator.generated = 100D;
+        grid.timePassing(1D);
+        int reads = consumer.reads;
+        // The mock building needs 1 kW at full power
+        assertEquals(100D, grid.getGeneratedPower(), 0D);
+        assertEquals(13D, grid.getRequiredPower(), 0D);
+
+        // An unreported change is not read
+        consumer.full = 20D;
+        grid.timePassing(1D);
+        assertEquals(reads, consumer.reads);
+        assertEquals(13D, grid.getRequiredPower(), 0D);
+
+        consumer.powerChanged();
+        grid.timePassing(1D);
+        assertEquals(reads + 1, consumer.reads);
+        assertEquals(23D, grid.getRequiredPower(), 0D);
+    }
+
+    public void testShedsAndRestoresBuildings() {
+        // With no power generated every building is shed
+        grid.timePassing(1D);
+        assertFalse(grid.isSufficientPower());
+        for (Building building : settlement.getBuildingManager().getBuildings()) {
+            assertEquals(PowerMode.NO_POWER, building.getPowerMode());
+        }
+
+        // Power up restores the shed buildings and any other building that is
+        // not at full power
+        generator.generated = 100D;
+        generator.powerChanged();
+        grid.timePassing(1D);
+        assertTrue(grid.isSufficientPower());
+        for (Building building : settlement.getBuildingManager().getBuildings()) {
+            assertEquals(PowerMode.FULL_POWER, building.getPowerMode());
+        }
+
+        consumer.setPowerMode(PowerMode.POWER_DOWN);
+        grid.timePassing(1D);
+        assertEquals(PowerMode.FULL_POWER, consumer.getPowerMode());
+    }
+
+    public void testPowerDownKeepsBuildingsReduced() {
+        generator.generated = 100D;
+        grid.setPowerMode(PowerMode.POWER_DOWN);
+        consumer.setPowerMode(PowerMode.POWER_DOWN);
+        grid.timePassing(1D);
+        assertEquals(PowerMode.POWER_DOWN, consumer.getPowerMode());
+        assertEquals(2D, grid.getRequiredPower(), 0D);
+
+        grid.setPowerMode(PowerMode.POWER_UP);
+        grid.timePassing(1D);
+        assertEquals(PowerMode.FULL_POWER, consumer.getPowerMode());
+    }
+
+    /**
+     * A building with a fixed power generated and required that counts how
+     * often the grid reads it.
+     */
+    @SuppressWarnings("serial")
+    private static class PoweredBuilding extends MockBuilding {
+
+        private double generated;
+        private double full;
+        private double down;
+        private int reads;
+
+        PoweredBuilding(BuildingManager manager) {
+            super(manager);
+        }
+
+        @Override
+        public double getGeneratedPower() {
+            return generated;
+        }
+
+        @Override
+        public double getFullPowerRequired() {
+            reads++;
+            return full;
+        }
+
+        @Override
+        public double getPoweredDownPowerRequired() {
+            return down;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.mars_sim.msp.core.structure;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.time.MarsClock;
+
+public class TestThermalEngine extends TestCase {
+
+    private static final double OUTSIDE = -60D;
+
+    /** Three buildings in a row, the middle one connected to both others. */
+    private static final int[][] CHAIN = { { 0, 1 }, { 1, 2 } };
+
+    public void testExchangeConservesHeat() {
+        ThermalEngine engine = new ThermalEngine();
+        double[] capacity = { 500D, 2000D, 100D };
+        engine.setUp(new double[] { 30D, 10D, -20D }, capacity.clone(), new double[3], new double[3], CHAIN,
+                new double[] { .5D, 2D });
+        double heat = getHeat(engine, capacity);
+
+        for (int i = 0; i < 100; i++) {
+            engine.integrate(1D, OUTSIDE);
+            assertEquals(heat, getHeat(engine, capacity), 1e-6);
+        }
+
+        // The buildings settle at the capacity-weighted mean temperature
+        double mean = heat / (500D + 2000D + 100D);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(mean, engine.getTemperature(i), 1e-3);
+        }
+    }
+
+    public void testSourcesAddHeat() {
+        ThermalEngine engine = new ThermalEngine();
+        double[] capacity = { 500D, 2000D, 100D };
+        double[] source = { 1D, 0D, 2D };
+        engine.setUp(new double[] { 10D, 10D, 10D }, capacity.clone(), new double[3], source, CHAIN,
+                new double[] { .5D, 2D });
+        double heat = getHeat(engine, capacity);
+
+        engine.integrate(10D, OUTSIDE);
+        double seconds = 10D * MarsClock.SECONDS_PER_MILLISOL;
+        assertEquals(heat + (3D * seconds), getHeat(engine, capacity), 1e-6);
+    }
+
+    public void testStableWithLargePulses() {
+        // A leaky building next to a large, well insulated one
+        ThermalEngine engine = new ThermalEngine();
+        double[] loss = { 5D, .01D };
+        double[] source = { 50D, 1D };
+        engine.setUp(new double[] { 20D, 20D }, new double[] { 2000D, 10000D }, loss, source,
+                new int[][] { { 0, 1 } }, new double[] { 5D });
+
+        // At 1024x a pulse can span tens of millisols
+        for (int i = 0; i < 200; i++) {
+            engine.integrate(57.3D, OUTSIDE);
+            for (int j = 0; j < 2; j++) {
+                double t = engine.getTemperature(j);
+                assertFalse(Double.isNaN(t));
+                assertTrue(t >= OUTSIDE && t <= 45D);
+            }
+        }
+        assertTrue(engine.getPendingTime() < ThermalEngine.STEP);
+
+        // The steady state balances the sources against the losses
+        double steady = OUTSIDE + ((50D + 1D) / (5D + .01D));
+        double weighted = ((5D * engine.getTemperature(0)) + (.01D * engine.getTemperature(1))) / 5.01D;
+        assertEquals(steady, weighted, .1D);
+    }
+
+    private static double getHeat(ThermalEngine engine, double[] capacity) {
+        double heat = 0D;
+        for (int i = 0; i < capacity.length; i++) {
+            heat += capacity[i] * engine.getTemperature(i);
+        }
+        return heat;
+    }
+}
@@ -0,0 +1,122 @@
+package org.mars_sim.msp.core.time;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.Simulation;
+import org.mars_sim.msp.core.SimulationConfig;
+import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.structure.building.Building;
+import org.mars_sim.msp.core.structure.building.function.Heating;
+
+public class TestMasterClock extends TestCase {
+
+    /** The elapsed milliseconds for a pulse of one millisol at a time ratio of one. */
+    private static final double MILLISOL = MarsClock.SECONDS_PER_MILLISOL * 1000D;
+
+    public void testEachSubStepCyclesHeating() throws Exception {
+        SimulationConfig.loadConfig();
+        Simulation.createNewSimulation(-1, false);
+        Simulation sim = Simulation.instance();
+        MasterClock clock = sim.getMasterClock();
+        Settlement settlement = sim.getUnitManager().getSettlements().iterator().next();
+        final CountingHeating heating = new CountingHeating(settlement.getBuildingManager().getBuildings().get(0));
+
+        clock.startClockListenerExecutor();
+        try {
+            clock.addClockListener(new ClockListener() {
+                @Override
+                public void clockPulse(double time) {
+                    heating.timePassing(time);
+                }
+
+                @Override
+                public void uiPulse(double time) {
+                }
+
+                @Override
+                public void pauseChange(boolean isPaused, boolean showPane) {
+                }
+            });
+            // Set the cycle of the building at the current millisol
+            heating.timePassing(0D);
+            heating.cycles = 0;
+
+            double time = clock.getTimeRatioGovernor().govern(MILLISOL * 4D, 1D);
+            assertEquals(4D, time, 1e-9);
+            assertEquals(4, clock.getTimeRatioGovernor().getSubSteps());
+            double millisols = clock.getMarsClock().getMillisol();
+            clock.passTime(time);
+            clock.getClockListenerExecutor().submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+
+            assertEquals(4, heating.cycles);
+            assertEquals((millisols + 4D) % 1000D, clock.getMarsClock().getMillisol(), 1e-6);
+            assertEquals(4D, clock.getSnapshot().getTotalTime(), 1e-9);
+        } finally {
+            clock.endClockListenerExecutor();
+        }
+    }
+
+    public void testSlowListenerKeepsQueueBounded() throws Exception {
+        SimulationConfig.loadConfig();
+        Simulation.createNewSimulation(-1, false);
+        MasterClock clock = Simulation.instance().getMasterClock();
+        TimeRatioGovernor governor = clock.getTimeRatioGovernor();
+
+        clock.startClockListenerExecutor();
+        try {
+            clock.addClockListener(new ClockListener() {
+                @Override
+                public void clockPulse(double time) {
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public void uiPulse(double time) {
+                }
+
+                @Override
+                public void pauseChange(boolean isPaused, boolean showPane) {
+                }
+            });
+
+            int maxPending = 0;
+            for (int i = 0; i < 50; i++) {
+                // Ten millisols a millisecond, far more than the listener can do
+                double time = governor.govern(1D, MILLISOL * 10D);
+                if (time > 0)
+                    clock.passTime(time);
+                maxPending = Math.max(maxPending, governor.getPendingSteps());
+                Thread.sleep(1);
+            }
+            assertTrue(maxPending <= TimeRatioGovernor.MAX_SUB_STEPS);
+            assertTrue(clock.getTimeRatioDeficit() > .5D);
+        } finally {
+            clock.endClockListenerExecutor();
+        }
+    }
+
+    /**
+     * Heating that counts its thermal control cycles.
+     */
+    private static class CountingHeating extends Heating {
+
+        private int cycles;
+
+        CountingHeating(Building building) {
+            super(building);
+        }
+
+        @Override
+        public void cycleThermalControl() {
+            cycles++;
+        }
+    }
+}
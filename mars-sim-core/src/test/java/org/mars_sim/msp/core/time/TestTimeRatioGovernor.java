@@ -0,0 +1,107 @@
+package org.mars_sim.msp.core.time;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+public class TestTimeRatioGovernor extends TestCase {
+
+    /** The elapsed milliseconds for a pulse of one millisol at a time ratio of one. */
+    private static final double MILLISOL = MarsClock.SECONDS_PER_MILLISOL * 1000D;
+
+    public void testShortPulseIsOneStep() {
+        TimeRatioGovernor governor = new TimeRatioGovernor();
+        double time = governor.govern(MILLISOL / 4D, 1D);
+        assertEquals(0.25D, time, 1e-9);
+        assertEquals(1, governor.getSubSteps());
+    }
+
+    public void testLongPulseIsSubStepped() {
+        TimeRatioGovernor governor = new TimeRatioGovernor();
+        double time = governor.govern(MILLISOL / 100D, 350D);
+        assertEquals(3.5D, time, 1e-9);
+        assertEquals(4, governor.getSubSteps());
+        assertTrue(time / governor.getSubSteps() <= TimeRatioGovernor.MAX_PULSE);
+    }
+
+    public void testStallIsBounded() {
+        TimeRatioGovernor governor = new TimeRatioGovernor();
+        double time = governor.govern(MILLISOL * 1000D, 1D);
+        assertEquals(TimeRatioGovernor.MAX_SUB_STEPS * TimeRatioGovernor.MAX_PULSE, time, 1e-9);
+        assertEquals(TimeRatioGovernor.MAX_SUB_STEPS, governor.getSubSteps());
+        assertTrue(governor.getDeficit() > 0D);
+    }
+
+    public void testFallsBehindWhenTooCostly() throws Exception {
+        TimeRatioGovernor governor = new TimeRatioGovernor();
+        long start = System.nanoTime();
+        Thread.sleep(20);
+        governor.record("UnitManager", start);
+        assertTrue(governor.getPulseCost() >= 20_000_000D);
+        assertTrue(governor.getCosts().containsKey("UnitManager"));
+
+        // 100 ms leaves room for no more than 4 sub-steps of 20 ms
+        double elapsed = 100D;
+        double time = governor.govern(elapsed, MILLISOL * 10D / elapsed);
+        assertTrue(governor.getSubSteps() <= 4);
+        assertEquals(governor.getSubSteps() * TimeRatioGovernor.MAX_PULSE, time, 1e-9);
+
+        // The achieved ratio is measured from the sub-steps processed
+        for (int i = 0; i < governor.getSubSteps(); i++) {
+            governor.queued();
+            governor.processed(time / governor.getSubSteps(), 20_000_000L);
+        }
+        governor.govern(elapsed, MILLISOL * 10D / elapsed);
+        assertTrue(governor.getDeficit() > 0D);
+        assertTrue(governor.getAchievedRatio() > 0D);
+        assertTrue(governor.getHeadroom() < 1D);
+    }
+
+    public void testBacksOffWhilePending() {
+        TimeRatioGovernor governor = new TimeRatioGovernor();
+        assertEquals(4D, governor.govern(MILLISOL * 4D, 1D), 1e-9);
+        governor.queued();
+
+        assertEquals(0D, governor.govern(MILLISOL * 4D, 1D), 0D);
+        assertEquals(0, governor.getSubSteps());
+        assertTrue(governor.getDeficit() > 0D);
+
+        governor.processed(4D, 0L);
+        assertEquals(0, governor.getPendingSteps());
+        assertEquals(4D, governor.govern(MILLISOL * 4D, 1D), 1e-9);
+    }
+
+    public void testSlowListenerKeepsQueueBounded() throws Exception {
+        final TimeRatioGovernor governor = new TimeRatioGovernor();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            int maxPending = 0;
+            for (int i = 0; i < 50; i++) {
+                // Ten millisols a millisecond, far more than the listener can do
+                double time = governor.govern(1D, MILLISOL * 10D);
+                int steps = governor.getSubSteps();
+                for (int j = 0; j < steps; j++) {
+                    final double step = time / steps;
+                    governor.queued();
+                    executor.execute(() -> {
+                        long start = System.nanoTime();
+                        try {
+                            Thread.sleep(2);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        governor.processed(step, System.nanoTime() - start);
+                    });
+                }
+                maxPending = Math.max(maxPending, governor.getPendingSteps());
+                Thread.sleep(1);
+            }
+            assertTrue(maxPending <= TimeRatioGovernor.MAX_SUB_STEPS);
+            assertTrue(governor.getDeficit() > .5D);
+            assertTrue(governor.getAchievedRatio() < MILLISOL * 10D);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
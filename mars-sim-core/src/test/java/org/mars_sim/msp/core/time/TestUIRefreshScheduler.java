@@ -0,0 +1,56 @@
+package org.mars_sim.msp.core.time;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestUIRefreshScheduler extends TestCase {
+
+    private static final long PERIOD = 100_000_000L;
+
+    private ClockSnapshot snapshot;
+    private List<Double> pulses = new ArrayList<>();
+
+    private UIRefreshScheduler createScheduler() {
+        return new UIRefreshScheduler(() -> snapshot, pulses::add, 10);
+    }
+
+    public void testSkipsFramesWithoutNewPulse() {
+        UIRefreshScheduler scheduler = createScheduler();
+        assertFalse(scheduler.frame(0L));
+
+        snapshot = new ClockSnapshot(1L, 2D, 2D, 1D, null);
+        assertTrue(scheduler.frame(PERIOD));
+        assertFalse(scheduler.frame(2 * PERIOD));
+        assertEquals(1, pulses.size());
+        assertEquals(2D, pulses.get(0), 0D);
+    }
+
+    public void testSendsTimeSinceLastFrame() {
+        UIRefreshScheduler scheduler = createScheduler();
+        snapshot = new ClockSnapshot(1L, 2D, 2D, 1D, null);
+        assertTrue(scheduler.frame(0L));
+
+        // Three pulses between frames are coalesced into one ui pulse
+        snapshot = new ClockSnapshot(4L, 1.5D, 7D, 1D, null);
+        assertTrue(scheduler.frame(PERIOD));
+        assertEquals(5D, pulses.get(1), 1e-9);
+        assertEquals(0.1F, scheduler.getFrameTime(), 1e-6F);
+    }
+
+    public void testDropsLateFrames() {
+        UIRefreshScheduler scheduler = createScheduler();
+        snapshot = new ClockSnapshot(1L, 2D, 2D, 1D, null);
+        assertTrue(scheduler.frame(0L));
+
+        // The first frame took three periods, so the two missed ones run late
+        snapshot = new ClockSnapshot(2L, 2D, 4D, 1D, null);
+        assertFalse(scheduler.frame(3 * PERIOD));
+        assertFalse(scheduler.frame(3 * PERIOD));
+        assertTrue(scheduler.frame(3 * PERIOD));
+        assertEquals(2, scheduler.getDroppedFrames());
+        assertEquals(2, scheduler.getFrames());
+        assertEquals(2D, pulses.get(1), 1e-9);
+    }
+}
@@ -0,0 +1,343 @@
+package org.mars_sim.msp.core.tool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class TestSaveCodec extends TestCase {
+
+    private enum Phase { GAS, LIQUID, SOLID }
+
+    private static class Node implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String name;
+        private Node next;
+        private double[] values;
+        private int[][] grid;
+        private Phase phase;
+        private transient int cache = 7;
+
+        private Node(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Holder implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private List<Node> list = new ArrayList<Node>();
+        private Map<String, Node> map = new HashMap<String, Node>();
+        private TreeMap<Integer, String> sorted = new TreeMap<Integer, String>();
+        private Map<Node, Double> concurrent = new ConcurrentHashMap<Node, Double>();
+        private List<Node> synced = Collections.synchronizedList(new ArrayList<Node>());
+        private List<String> fixed = Arrays.asList("a", "b");
+        private EnumSet<Phase> phases = EnumSet.noneOf(Phase.class);
+        private Object[] objects;
+    }
+
+    private static class Single implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final Single INSTANCE = new Single();
+
+        private Object readResolve() {
+            return INSTANCE;
+        }
+    }
+
+    private static class Cached implements Serializable, SaveCodec.Restorable {
+        private static final long serialVersionUID = 1L;
+        private int value;
+        private transient boolean dirty;
+
+        @Override
+        public void restoreTransientData() {
+            dirty = true;
+        }
+    }
+
+    private static class Keyed implements Serializable, SaveCodec.Section {
+        private static final long serialVersionUID = 1L;
+        private long key;
+        private Keyed other;
+        private String label = "keyed";
+
+        private Keyed(long key) {
+            this.key = key;
+        }
+
+        @Override
+        public long getSectionKey() {
+            return key;
+        }
+    }
+
+    /** A class as it was in an older save. */
+    private static class ShapeA implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private int count;
+        private String label;
+        private String removed;
+    }
+
+    /** The same class after its fields were added, removed, renamed and widened. */
+    private static class ShapeB implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private long count;
+        @SaveCodec.FormerNames("label")
+        private String title;
+        private double added = 1D;
+    }
+
+    /** A class that no longer exists once its name is changed in the save. */
+    private static class GoneA implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Node node;
+    }
+
+    private static byte[] write(Object... objects) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveCodec.Writer writer = new SaveCodec.Writer(bytes);
+        for (Object o : objects) {
+            writer.writeObject(o);
+        }
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replaces a name in the data with another of the same length, as if the
+     * class had been changed or removed since the save.
+     */
+    private static void rename(byte[] data, String from, String to) {
+        byte[] a = from.getBytes(StandardCharsets.UTF_8);
+        byte[] b = to.getBytes(StandardCharsets.UTF_8);
+        assertEquals(a.length, b.length);
+        int found = 0;
+        for (int i = 0; i + a.length <= data.length; i++) {
+            if (Arrays.equals(a, Arrays.copyOfRange(data, i, i + a.length))) {
+                System.arraycopy(b, 0, data, i, b.length);
+                found++;
+            }
+        }
+        assertTrue(found > 0);
+    }
+
+    private static Object[] read(byte[] data, int count) throws Exception {
+        ObjectInput in = SaveCodec.openInput(data);
+        Object[] result = new Object[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = in.readObject();
+        }
+        in.close();
+        return result;
+    }
+
+    private static Object[] roundTrip(Object... objects) throws Exception {
+        byte[] data = write(objects);
+        assertTrue(SaveCodec.isBinarySave(data));
+        return read(data, objects.length);
+    }
+
+    public void testCyclesAndSharedReferences() throws Exception {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        a.next = b;
+        b.next = a;
+        a.values = new double[] { 1.5, -2.25 };
+        a.grid = new int[][] { { 1, 2 }, { 3 } };
+        a.phase = Phase.LIQUID;
+
+        Object[] result = roundTrip(a, b);
+        Node a2 = (Node) result[0];
+        Node b2 = (Node) result[1];
+        assertEquals("a", a2.name);
+        assertSame(b2, a2.next);
+        assertSame(a2, b2.next);
+        assertTrue(Arrays.equals(a.values, a2.values));
+        assertEquals(3, a2.grid[1][0]);
+        assertSame(Phase.LIQUID, a2.phase);
+        // Transient fields are left at their default like Java serialization
+        assertEquals(0, a2.cache);
+    }
+
+    public void testReferencesAcrossSections() throws Exception {
+        Keyed a = new Keyed(1L);
+        Keyed b = new Keyed(2L);
+        // A key already taken leaves the object in the section it is met in
+        Keyed c = new Keyed(2L);
+        a.other = b;
+        b.other = c;
+        c.other = a;
+
+        Object[] result = roundTrip(a, Arrays.asList(b, c));
+        Keyed a2 = (Keyed) result[0];
+        List<?> list = (List<?>) result[1];
+        assertSame(a2.other, list.get(0));
+        assertSame(a2.other.other, list.get(1));
+        assertSame(a2, a2.other.other.other);
+        assertEquals("keyed", a2.other.label);
+        assertSame(a2.label, a2.other.other.label);
+    }
+
+    public void testCollections() throws Exception {
+        Holder h = new Holder();
+        Node n = new Node("n");
+        h.list.add(n);
+        h.list.add(null);
+        h.map.put("n", n);
+        h.sorted.put(3, "three");
+        h.sorted.put(1, "one");
+        h.concurrent.put(n, 2D);
+        h.synced.add(n);
+        h.phases.add(Phase.SOLID);
+        h.objects = new Object[] { n, 4, "x" };
+
+        Holder h2 = (Holder) roundTrip(h)[0];
+        Node n2 = h2.list.get(0);
+        assertNull(h2.list.get(1));
+        assertSame(n2, h2.map.get("n"));
+        assertEquals(Integer.valueOf(1), h2.sorted.firstKey());
+        assertEquals(2D, h2.concurrent.get(n2), 0D);
+        assertSame(n2, h2.synced.get(0));
+        assertEquals(Arrays.asList("a", "b"), h2.fixed);
+        assertEquals(EnumSet.of(Phase.SOLID), h2.phases);
+        assertSame(n2, h2.objects[0]);
+        assertEquals(4, h2.objects[1]);
+    }
+
+    public void testReadResolveAndRestore() throws Exception {
+        Cached c = new Cached();
+        c.value = 5;
+        Object[] result = roundTrip(new Single(), c);
+        assertSame(Single.INSTANCE, result[0]);
+        Cached c2 = (Cached) result[1];
+        assertEquals(5, c2.value);
+        assertTrue(c2.dirty);
+    }
+
+    public void testSortedWrappersKeepTheirOrder() throws Exception {
+        SortedMap<String, Integer> map = Collections.synchronizedSortedMap(
+                new TreeMap<String, Integer>(Collections.<String>reverseOrder()));
+        map.put("a", 1);
+        map.put("c", 3);
+        NavigableSet<String> set = Collections.unmodifiableNavigableSet(new TreeSet<String>(Arrays.asList("x", "y")));
+
+        Object[] result = roundTrip(map, set);
+        @SuppressWarnings("unchecked")
+        SortedMap<String, Integer> map2 = (SortedMap<String, Integer>) result[0];
+        @SuppressWarnings("unchecked")
+        NavigableSet<String> set2 = (NavigableSet<String>) result[1];
+        assertEquals(map.getClass(), map2.getClass());
+        assertEquals("c", map2.firstKey());
+        map2.put("b", 2);
+        assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<String>(map2.keySet()));
+        assertEquals(set.getClass(), set2.getClass());
+        assertEquals("y", set2.last());
+        try {
+            set2.add("z");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Still unmodifiable
+        }
+    }
+
+    public void testFieldsChangedSinceTheSave() throws Exception {
+        ShapeA a = new ShapeA();
+        a.count = 42;
+        a.label = "label";
+        a.removed = "removed";
+        byte[] data = write(a, "after");
+        rename(data, "ShapeA", "ShapeB");
+
+        Object[] result = read(data, 2);
+        ShapeB b = (ShapeB) result[0];
+        assertEquals(42L, b.count);
+        assertEquals("label", b.title);
+        // A field added since the save is left at its default
+        assertEquals(0D, b.added, 0D);
+        // The removed field was read past
+        assertEquals("after", result[1]);
+    }
+
+    public void testRemovedClass() throws Exception {
+        GoneA gone = new GoneA();
+        gone.node = new Node("inside");
+        Node after = new Node("after");
+        after.next = gone.node;
+        Holder holder = new Holder();
+        holder.objects = new Object[] { gone };
+        byte[] data = write(gone, after, holder);
+        rename(data, "GoneA", "GoneZ");
+
+        Object[] result = read(data, 3);
+        assertNull(result[0]);
+        Node after2 = (Node) result[1];
+        assertEquals("after", after2.name);
+        assertEquals("inside", after2.next.name);
+        assertNull(((Holder) result[2]).objects[0]);
+    }
+
+    public void testJavaSerializationKeepsSharedReferences() throws Exception {
+        Date date = new Date(1000L);
+        AtomicReference<Date> a = new AtomicReference<Date>(date);
+        AtomicReference<Date> b = new AtomicReference<Date>(date);
+
+        Object[] result = roundTrip(a, b);
+        Date date2 = (Date) ((AtomicReference<?>) result[0]).get();
+        assertEquals(date, date2);
+        assertSame(date2, ((AtomicReference<?>) result[1]).get());
+    }
+
+    public void testJavaSerializationFallback() throws Exception {
+        Node n = new Node("old");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(n);
+        out.close();
+
+        byte[] data = bytes.toByteArray();
+        assertFalse(SaveCodec.isBinarySave(data));
+        Node n2 = (Node) SaveCodec.openInput(data).readObject();
+        assertEquals("old", n2.name);
+    }
+
+    public void testSmallerThanJavaSerialization() throws IOException {
+        List<Node> nodes = new ArrayList<Node>();
+        for (int i = 0; i < 100; i++) {
+            Node n = new Node("node");
+            n.values = new double[10];
+            n.phase = Phase.GAS;
+            nodes.add(n);
+        }
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        SaveCodec.Writer writer = new SaveCodec.Writer(binary);
+        writer.writeObject(nodes);
+        writer.close();
+
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(java);
+        out.writeObject(nodes);
+        out.close();
+
+        assertTrue(binary.size() < java.size());
+    }
+}
@@ -0,0 +1,208 @@
+package org.mars_sim.msp.core.tool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestSaveJournal extends TestCase {
+
+    private static final String[] TASKS = { "Walk", "Eat", "Sleep", "Repair", "Read" };
+
+    /** A unit of the model, with a section of the save of its own. */
+    private static class Member implements Serializable, SaveCodec.Section {
+        private static final long serialVersionUID = 1L;
+        private int id;
+        private String name;
+        private Member home;
+        private List<Job> jobs = new ArrayList<Job>();
+
+        @Override
+        public long getSectionKey() {
+            return id;
+        }
+    }
+
+    private static class Job implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String name;
+        private Member worker;
+        private double[] effort = new double[4];
+    }
+
+    private static class Manager implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private List<Member> members = new ArrayList<Member>();
+    }
+
+    private File dir;
+    private File file;
+
+    @Override
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("journal").toFile();
+        file = new File(dir, "default.sim");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private static byte[] randomData(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Builds a model of units with their tasks, with an extra task for the
+     * second unit if asked.
+     */
+    private static Manager model(boolean extraTask) {
+        Manager manager = new Manager();
+        for (int i = 0; i < 300; i++) {
+            Member m = new Member();
+            m.id = i + 1;
+            m.name = "Member " + i;
+            m.home = i == 0 ? m : manager.members.get(0);
+            Random random = new Random(i);
+            int count = 20 + (extraTask && i == 1 ? 1 : 0);
+            for (int j = 0; j < count; j++) {
+                Job job = new Job();
+                job.name = TASKS[(i + j) % TASKS.length];
+                job.worker = m;
+                for (int k = 0; k < job.effort.length; k++) {
+                    job.effort[k] = random.nextDouble();
+                }
+                m.jobs.add(job);
+            }
+            manager.members.add(m);
+        }
+        return manager;
+    }
+
+    private static byte[] save(Manager manager) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveCodec.Writer writer = new SaveCodec.Writer(bytes);
+        writer.writeObject(manager);
+        writer.writeObject(manager.members.get(299).jobs);
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private SaveJournal checkpoint(byte[] data) throws IOException {
+        Files.write(file.toPath(), data);
+        SaveJournal journal = new SaveJournal();
+        journal.checkpoint(file, data);
+        return journal;
+    }
+
+    public void testRecordHoldsOnlyChanges() throws IOException {
+        byte[] data = randomData(500_000, 1L);
+        SaveJournal journal = checkpoint(data);
+        assertTrue(journal.canAppend(file));
+
+        // Change a few bytes and insert some in the middle
+        byte[] changed = new byte[data.length + 100];
+        System.arraycopy(data, 0, changed, 0, 200_000);
+        System.arraycopy(data, 200_000, changed, 200_100, data.length - 200_000);
+        changed[400_000] ^= 1;
+
+        int size = journal.append(changed);
+        assertTrue(size < 40_000);
+
+        byte[] loaded = new SaveJournal().load(file, data);
+        assertTrue(Arrays.equals(changed, loaded));
+    }
+
+    public void testEarlyInsertionKeepsRecordSmall() throws Exception {
+        byte[] data = save(model(false));
+        SaveJournal journal = checkpoint(data);
+
+        // The task added to the second unit renumbers no other unit
+        byte[] changed = save(model(true));
+        int size = journal.append(changed);
+        assertTrue(size < data.length / 20);
+
+        byte[] loaded = new SaveJournal().load(file, data);
+        assertTrue(Arrays.equals(changed, loaded));
+        ObjectInput in = SaveCodec.openInput(loaded);
+        Manager manager = (Manager) in.readObject();
+        Member first = manager.members.get(0);
+        Member second = manager.members.get(1);
+        assertEquals(21, second.jobs.size());
+        assertSame(first, second.home);
+        assertSame(second, second.jobs.get(20).worker);
+        assertSame(first.jobs.get(1).name, second.jobs.get(0).name);
+        assertSame(manager.members.get(299).jobs, in.readObject());
+    }
+
+    public void testLatestRecordIsLoaded() throws IOException {
+        byte[] data = randomData(100_000, 2L);
+        SaveJournal journal = checkpoint(data);
+        byte[] first = data.clone();
+        first[10] ^= 1;
+        journal.append(first);
+        byte[] second = data.clone();
+        second[50_000] ^= 1;
+        journal.append(second);
+
+        assertTrue(Arrays.equals(second, new SaveJournal().load(file, data)));
+    }
+
+    public void testCutRecordIsIgnored() throws IOException {
+        byte[] data = randomData(100_000, 3L);
+        SaveJournal journal = checkpoint(data);
+        byte[] first = data.clone();
+        first[10] ^= 1;
+        journal.append(first);
+        File journalFile = SaveJournal.getJournalFile(file);
+        long length = journalFile.length();
+        byte[] second = data.clone();
+        second[20] ^= 1;
+        journal.append(second);
+
+        // Cut the last record as if the save had been interrupted
+        RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+        raf.setLength(length + 12);
+        raf.close();
+
+        assertTrue(Arrays.equals(first, new SaveJournal().load(file, data)));
+    }
+
+    public void testJournalOfAnotherCheckpointIsIgnored() throws IOException {
+        byte[] data = randomData(100_000, 4L);
+        SaveJournal journal = checkpoint(data);
+        byte[] changed = data.clone();
+        changed[10] ^= 1;
+        journal.append(changed);
+
+        byte[] other = randomData(100_000, 5L);
+        assertSame(other, new SaveJournal().load(file, other));
+    }
+
+    public void testCheckpointClearsJournal() throws IOException {
+        byte[] data = randomData(100_000, 6L);
+        SaveJournal journal = checkpoint(data);
+        byte[] changed = data.clone();
+        changed[10] ^= 1;
+        journal.append(changed);
+        assertTrue(SaveJournal.getJournalFile(file).exists());
+
+        journal.checkpoint(file, changed);
+        assertFalse(SaveJournal.getJournalFile(file).exists());
+    }
+}
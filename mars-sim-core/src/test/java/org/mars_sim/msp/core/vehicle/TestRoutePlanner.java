@@ -0,0 +1,117 @@
+package org.mars_sim.msp.core.vehicle;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.mars.TerrainCostGrid;
+import org.mars_sim.msp.core.mars.TerrainElevation;
+
+public class TestRoutePlanner extends TestCase {
+
+    private static final double MAX_GRADE = .15D;
+    private static final String TYPE = "Test Rover";
+
+    /** A 10 km high ridge running north-south across the equator. */
+    private static final double RIDGE_THETA = 1D;
+    private static final double RIDGE_WIDTH = .05D;
+    private static final double RIDGE_NORTH = 1.45D;
+    private static final double RIDGE_SOUTH = 1.69D;
+
+    /** A 10 km high ring of cliffs around a crater floor. */
+    private static final Coordinates CRATER = new Coordinates(Math.PI / 2D, 3D);
+    private static final double RING_INNER = .05D;
+    private static final double RING_OUTER = .08D;
+
+    private static TerrainElevation terrain;
+
+    private RoutePlanner planner;
+
+    @Override
+    public void setUp() throws Exception {
+        if (terrain == null) {
+            terrain = new TestTerrain();
+            // Sample the grid once for all tests
+            terrain.getCostGrid();
+        }
+        planner = new RoutePlanner(terrain);
+    }
+
+    public void testRouteAvoidsRidge() {
+        Coordinates origin = new Coordinates(Math.PI / 2D, RIDGE_THETA - .125D);
+        Coordinates destination = new Coordinates(Math.PI / 2D, RIDGE_THETA + .125D);
+
+        List<Coordinates> route = planner.getRoute(origin, destination, TYPE, MAX_GRADE);
+        assertTrue(route.size() > 1);
+        assertSame(destination, route.get(route.size() - 1));
+        // The route goes around an end of the ridge
+        boolean aroundRidge = false;
+        for (Coordinates waypoint : route) {
+            assertTrue(terrain.getElevation(waypoint) < 1D);
+            if (waypoint.getPhi() < RIDGE_NORTH || waypoint.getPhi() > RIDGE_SOUTH)
+                aroundRidge = true;
+        }
+        assertTrue(aroundRidge);
+    }
+
+    public void testNoRouteExitsCheaply() {
+        Coordinates origin = new Coordinates(Math.PI / 2D, CRATER.getTheta() - .3D);
+        Coordinates destination = CRATER;
+
+        List<Coordinates> route = planner.getRoute(origin, destination, TYPE, MAX_GRADE);
+        // With no passable route the vehicle drives straight
+        assertEquals(1, route.size());
+        assertSame(destination, route.get(0));
+        assertTrue(planner.getLastSearchSize() <= RoutePlanner.MAX_SEARCH_CELLS);
+        assertTrue(planner.getLastSearchSize() < TerrainCostGrid.ROWS * TerrainCostGrid.COLUMNS / 20);
+    }
+
+    public void testDistanceIsConsistent() {
+        Coordinates origin = new Coordinates(Math.PI / 2D, RIDGE_THETA - .125D);
+        Coordinates destination = new Coordinates(Math.PI / 2D, RIDGE_THETA + .125D);
+
+        List<Coordinates> route = planner.getRoute(origin, destination, TYPE, MAX_GRADE);
+        double distance = RoutePlanner.getDistance(origin, route);
+
+        double sum = 0D;
+        Coordinates previous = origin;
+        for (Coordinates waypoint : route) {
+            sum += previous.getDistance(waypoint);
+            previous = waypoint;
+        }
+        assertEquals(sum, distance, 1e-9);
+        // The detour is longer than the direct line but within the search bound
+        double direct = origin.getDistance(destination);
+        assertTrue(distance > direct);
+        assertTrue(distance <= direct * RoutePlanner.DETOUR_FACTOR);
+
+        // A route over flat ground is the direct line
+        Coordinates flat = new Coordinates(Math.PI / 2D, 5D);
+        Coordinates flatDestination = new Coordinates(Math.PI / 2D + .1D, 5.1D);
+        List<Coordinates> flatRoute = planner.getRoute(flat, flatDestination, TYPE, MAX_GRADE);
+        assertEquals(flat.getDistance(flatDestination), RoutePlanner.getDistance(flat, flatRoute), 1e-9);
+    }
+
+    private static boolean isRidge(double phi, double theta) {
+        return phi >= RIDGE_NORTH && phi <= RIDGE_SOUTH && Math.abs(theta - RIDGE_THETA) <= RIDGE_WIDTH / 2D;
+    }
+
+    /**
+     * Flat terrain with a ridge and a walled crater.
+     */
+    private static class TestTerrain extends TerrainElevation {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public double getElevation(Coordinates location) {
+            if (isRidge(location.getPhi(), location.getTheta()))
+                return 10D;
+            double angle = location.getAngle(CRATER);
+            if (angle >= RING_INNER && angle <= RING_OUTER)
+                return 10D;
+            return 0D;
+        }
+    }
+}
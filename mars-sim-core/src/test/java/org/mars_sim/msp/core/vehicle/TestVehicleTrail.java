@@ -0,0 +1,104 @@
+package org.mars_sim.msp.core.vehicle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.mars.Mars;
+
+import junit.framework.TestCase;
+
+public class TestVehicleTrail extends TestCase {
+
+    /** About 5.9 km on Mars. */
+    private static final double STEP = .001745D;
+
+    public void testStraightLineIsMerged() {
+        VehicleTrail trail = new VehicleTrail();
+        for (int i = 0; i < 100; i++) {
+            trail.add(new Coordinates(Math.PI / 2D, 1D + (i * STEP)));
+        }
+        assertEquals(2, trail.size());
+        List<Coordinates> points = trail.getPoints();
+        assertEquals(1D, points.get(0).getTheta(), 1E-9);
+        assertEquals(1D + (99 * STEP), points.get(1).getTheta(), 1E-9);
+    }
+
+    public void testSlowTurnIsKept() {
+        VehicleTrail trail = new VehicleTrail();
+        // A quarter circle of 100 km radius on the equator, in steps of about
+        // 3 km that each bend too little to keep a point
+        List<Coordinates> arc = new ArrayList<Coordinates>();
+        double radius = 100D / Mars.MARS_RADIUS_KM;
+        for (int i = 0; i <= 50; i++) {
+            double bearing = (Math.PI / 2D) * i / 50D;
+            Coordinates location = new Coordinates((Math.PI / 2D) - (radius * Math.cos(bearing)),
+                    1D + (radius * Math.sin(bearing)));
+            arc.add(location);
+            trail.add(location);
+        }
+
+        // No point of the arc strays from the trail by more than the tolerance
+        List<Coordinates> points = trail.getPoints();
+        for (Coordinates location : arc) {
+            double offset = Double.MAX_VALUE;
+            for (int i = 1; i < points.size(); i++) {
+                offset = Math.min(offset, getOffset(location, points.get(i - 1), points.get(i)));
+            }
+            assertTrue(offset <= .5D);
+        }
+    }
+
+    /**
+     * Gets the distance of a location near the equator from a segment, on a
+     * flat projection.
+     */
+    private static double getOffset(Coordinates location, Coordinates start, Coordinates end) {
+        double r = Mars.MARS_RADIUS_KM;
+        double px = location.getTheta() * r, py = location.getPhi() * r;
+        double ax = start.getTheta() * r, ay = start.getPhi() * r;
+        double bx = end.getTheta() * r, by = end.getPhi() * r;
+        double dx = bx - ax, dy = by - ay;
+        double t = Math.max(0D, Math.min(1D, (((px - ax) * dx) + ((py - ay) * dy)) / ((dx * dx) + (dy * dy))));
+        return Math.hypot(px - (ax + (t * dx)), py - (ay + (t * dy)));
+    }
+
+    public void testCloseLocationsAreSkipped() {
+        VehicleTrail trail = new VehicleTrail();
+        trail.add(new Coordinates(Math.PI / 2D, 1D));
+        trail.add(new Coordinates(Math.PI / 2D, 1D + (STEP / 10D)));
+        assertEquals(1, trail.size());
+    }
+
+    public void testTrailIsBounded() {
+        VehicleTrail trail = new VehicleTrail();
+        for (int i = 0; i < 5000; i++) {
+            // Zig-zag so that no point can be merged.
+            double phi = (Math.PI / 2D) + (((i % 2) == 0) ? STEP : -STEP);
+            trail.add(new Coordinates(phi, 1D + (i * STEP)));
+        }
+        assertTrue(trail.size() <= VehicleTrail.MAX_POINTS);
+        assertTrue(trail.size() > 1);
+    }
+
+    public void testLevelOfDetail() {
+        VehicleTrail trail = new VehicleTrail();
+        for (int i = 0; i < 200; i++) {
+            double phi = (Math.PI / 2D) + (((i % 2) == 0) ? STEP : -STEP);
+            trail.add(new Coordinates(phi, 1D + (i * STEP)));
+        }
+        int full = trail.getPoints().size();
+        assertEquals(full, trail.getPoints(0D).size());
+        // A tolerance wider than the zig-zag keeps only the end points.
+        assertEquals(2, trail.getPoints(100D).size());
+    }
+
+    public void testClear() {
+        VehicleTrail trail = new VehicleTrail();
+        trail.add(new Coordinates(Math.PI / 2D, 1D));
+        trail.add(new Coordinates(Math.PI / 2D, 1D + STEP));
+        trail.clear();
+        assertEquals(0, trail.size());
+        assertTrue(trail.getPoints().isEmpty());
+    }
+}
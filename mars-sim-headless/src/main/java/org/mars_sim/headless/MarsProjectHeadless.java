@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -22,6 +23,7 @@ import java.lang.Runnable;
 
 import org.mars_sim.msp.core.Simulation;
 import org.mars_sim.msp.core.SimulationConfig;
+import org.mars_sim.msp.core.ensemble.EnsembleRunner;
 
 /**
  * MarsProjectHeadless is the main class for starting mars-sim in purely
@@ -226,6 +228,28 @@ public class MarsProjectHeadless {
 		sim.start(useDefaultName);
 	}
 
+	/**
+	 * Runs an ensemble of new simulations instead of an interactive one.
+	 * Usage : -ensemble runs [-sols sols] [-seed seed]
+	 * 
+	 * @param argList the command line arguments
+	 */
+	private static void runEnsemble(List<String> argList) throws InterruptedException {
+		int runs = Integer.parseInt(argList.get(argList.indexOf("-ensemble") + 1));
+		long seed = System.currentTimeMillis();
+		if (argList.contains("-seed"))
+			seed = Long.parseLong(argList.get(argList.indexOf("-seed") + 1));
+
+		EnsembleRunner runner = new EnsembleRunner(runs, seed);
+		if (argList.contains("-sols"))
+			runner.setSols(Double.parseDouble(argList.get(argList.indexOf("-sols") + 1)));
+
+		logger.config("Running an ensemble of " + runs + " simulations from seed " + seed);
+		for (Map.Entry<String, EnsembleRunner.Summary> e : EnsembleRunner.summarize(runner.run()).entrySet()) {
+			logger.info(e.getKey() + " : " + e.getValue());
+		}
+	}
+
 	/**
 	 * The starting method for the application
 	 *
@@ -264,6 +288,11 @@ public class MarsProjectHeadless {
 //		}
 
 
+		if (Arrays.asList(args).contains("-ensemble")) {
+			runEnsemble(Arrays.asList(args));
+			return;
+		}
+
 		// starting the simulation
 //		MarsProjectHeadless mp = 
 		new MarsProjectHeadless(args);
@@ -158,10 +158,7 @@ public class CentralRegistry implements Serializable{
     	 String sponsor = st.nextToken().trim();
     	 double lat = Double.parseDouble( st.nextToken().trim() );
     	 double lo = Double.parseDouble( st.nextToken().trim() );
-    	 // TODO: check if name has been used. If it does, change it to name_x, where x is the next increment digit
-    	 // TODO: inform the user of the change and make the change automatically
-    	 settlementList.add(new SettlementRegistry(playerName, clientID, name, template, pop, bots, sponsor, lat, lo));
-    	 //System.out.println("settlementList.size() is now " + settlementList.size());
+    	 addEntry(new SettlementRegistry(playerName, clientID, name, template, pop, bots, sponsor, lat, lo));
      }
      catch(Exception e) {
     	 logger.info("Problem parsing new entry:\n" + e);
@@ -169,6 +166,15 @@ public class CentralRegistry implements Serializable{
 	}
   }
 
+  /*
+   * Adds a settlement entry
+   */
+  public void addEntry(SettlementRegistry entry) {
+	// TODO: check if name has been used. If it does, change it to name_x, where x is the next increment digit
+	// TODO: inform the user of the change and make the change automatically
+	settlementList.add(entry);
+  }
+
   /*
    * Updates the settlement info
    */
@@ -185,13 +191,7 @@ public class CentralRegistry implements Serializable{
      	 double lat = Double.parseDouble( st.nextToken().trim() );
      	 double lo = Double.parseDouble( st.nextToken().trim() );
 
-     	 settlementList.forEach( s -> {
-     			 String pn = s.getPlayerName();
-     			 String sn = s.getName();
-     			 if (pn.equals(playerName) && sn.equals(name))
-     					 s.updateRegistry(playerName, clientID, name, template,
-     							 pop, bots, sponsor, lat, lo);
-     	 });
+     	 updateEntry(new SettlementRegistry(playerName, clientID, name, template, pop, bots, sponsor, lat, lo));
       }
 
       catch(Exception e) {
@@ -200,6 +200,18 @@ public class CentralRegistry implements Serializable{
  	}
    }
 
+   /*
+    * Updates the settlement info from an entry with the same player and settlement name
+    */
+   public void updateEntry(SettlementRegistry entry) {
+	   settlementList.forEach( s -> {
+		   if (s.getPlayerName().equals(entry.getPlayerName()) && s.getName().equals(entry.getName()))
+			   s.updateRegistry(entry.getPlayerName(), entry.getClientID(), entry.getName(), entry.getTemplate(),
+					   entry.getPopulation(), entry.getNumOfRobots(), entry.getSponsor(),
+					   entry.getLatitude(), entry.getLongitude());
+	   });
+   }
+
    /*
     * Removes a settlement entry
     */
@@ -210,12 +222,7 @@ public class CentralRegistry implements Serializable{
       	 int clientID = Integer.parseInt( st.nextToken().trim() );
       	 String name = st.nextToken().trim();
 
-      	settlementList.removeIf(s ->
-      		 ( s.getPlayerName().equals(playerName)
-      		&& s.getClientID() == clientID
-      		&& s.getName().equals(name) )
-        );
-
+      	 removeEntry(playerName, clientID, name);
        }
        catch(Exception e) {
     	   logger.info("Problem removing a settlement entry:\n" + e);
@@ -223,6 +230,26 @@ public class CentralRegistry implements Serializable{
        }
     }
 
+    /*
+     * Removes a settlement entry
+     */
+    public void removeEntry(String playerName, int clientID, String name) {
+    	settlementList.removeIf(s ->
+    		( s.getPlayerName().equals(playerName)
+    		&& s.getClientID() == clientID
+    		&& s.getName().equals(name) )
+    	);
+    }
+
+    /*
+     * Removes a client along with all its settlements
+     */
+    public void removeClient(int clientID) {
+    	settlementList.removeIf(s -> s.getClientID() == clientID);
+    	idMap.remove(clientID);
+    	addressMap.remove(clientID);
+    }
+
   /* Adds an entry to the array
    *
 
@@ -7,20 +7,15 @@
 
 package org.mars_sim.network;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import javafx.animation.KeyFrame;
@@ -42,8 +37,6 @@ public class MultiplayerServer extends Application {
 	/** default logger. */
 	private static Logger logger = Logger.getLogger(MultiplayerServer.class.getName());
 
-	private static final int MAX_NUM_THREADS = 5;
-
 	private static final int TIME_DELAY = 60 ; // in seconds
 
 	private int port = 9090;
@@ -61,17 +54,14 @@ public class MultiplayerServer extends Application {
 	//static final Object instance = new Object();
 	public static final Object instance = new MultiplayerServer();
 
-	private Socket socket = null;
-	private ServerSocket ss = null;
+	private RegistryServer registryServer;
 	private CentralRegistry centralRegistry;
-	private PrintWriter out = null;
-	private BufferedReader in = null;
 	private Timeline timeline;
 	private Instant oldLogTime;
+	/** The time between sending state changes to the clients [ms], or 0 for the default. */
+	private volatile long replicationInterval;
 
-	private ConnectionTask connectionTask;
 	private transient ThreadPoolExecutor serverExecutor;
-	private transient ThreadPoolExecutor connectionTaskExecutor;
 
 	//private Map<Integer, String> addressMap = new ConcurrentHashMap<>(); // store clientID & address
 	//private Map<Integer, String> idMap = new ConcurrentHashMap<>();
@@ -117,7 +107,6 @@ public class MultiplayerServer extends Application {
 	public void runServer() {
 		//System.out.println("running runServer()");
 		serverExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1); // newCachedThreadPool();
-		connectionTaskExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(MAX_NUM_THREADS); // newCachedThreadPool();
 		//System.out.println("running startServer()");
 		//stage.getIcons().add(new javafx.scene.image.Image(this.getClass().getResource("/icons/lander_hab64.png").toString()));
 		InetAddress ip = null;
@@ -140,6 +129,20 @@ public class MultiplayerServer extends Application {
 		return hostServerAddress;
 	}
 
+	/*
+	 * Sets the time between sending the changes of the settlement state to the
+	 * subscribed clients
+	 * @param millis the interval [ms]
+	 */
+	public void setReplicationInterval(long millis) {
+		if (millis < 1)
+			throw new IllegalArgumentException("Replication interval must be positive");
+		replicationInterval = millis;
+		RegistryServer server = registryServer;
+		if (server != null)
+			server.setReplicationInterval(millis);
+	}
+
 	//public MainMenu getMainMenu() {
 	//	return mainMenu;
 	//}
@@ -176,28 +179,17 @@ public class MultiplayerServer extends Application {
         });
 
 		try {
-			ss = new ServerSocket(port);//, 0);// InetAddress.getByAddress(new byte[] {127,0,0,1}));
-	        /*
-             * Allows the socket to be bound even though a previous
-             * connection is in a timeout state.
-             */
-            ss.setReuseAddress(true);
-
-			while (!serverStopped) {
-	        	logger.info("Waiting for clients to connect...");
-	        	socket = ss.accept();
-	        	socket.setKeepAlive(true);
-	        	connectionTask = new ConnectionTask(socket);
-	        	connectionTaskExecutor.execute(connectionTask);
-	          	//Thread t = new Thread(new ConnectionThread(socket));
-	          	//t.start();
-				//try {
-					//TimeUnit.MILLISECONDS.sleep(SLEEP_TIME);
-				//} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-				//	e.printStackTrace();
-				//}
-			}
+			// All clients are served from one thread, see RegistryServer
+			registryServer = new RegistryServer(centralRegistry, new InetSocketAddress(port));
+			registryServer.setConnectionListener(clientAddress -> Platform.runLater(() -> {
+				createAlert("A client at " + clientAddress + " has just established a connection with you.");
+			}));
+			timeTagMap = registryServer.getTimeTagMap();
+			if (replicationInterval > 0)
+				registryServer.setReplicationInterval(replicationInterval);
+			registryServer.start();
+			startTimer();
+			logger.info("Waiting for clients to connect...");
 
 		//} catch (BindException e) {
 		//	System.err.println("server socket already running.");
@@ -210,67 +202,6 @@ public class MultiplayerServer extends Application {
 
 	}
 
-	class ConnectionTask implements Runnable {
-
-		private Socket socket;
-
-		//private long SLEEP_TIME = 1000; // 1 second.
-
-		public ConnectionTask(Socket socket) {
-			this.socket = socket;
-		}
-
-		@Override
-		public void run() {
-			int id = 0;
-			String clientAddress = socket.getInetAddress().toString().split("/")[1];
-			String hostname = socket.getInetAddress().toString().split("/")[0];
-        	//String clientIP = socket.getInetAddress().toString();
-			if (hostname.trim() == "" || hostname == null)
-				hostname = "[No Name]";
-        	//String msg = "A client named at " + address + " has just established a connection with you.";
-        	String msg = "A client at " + clientAddress + " has just established a connection with you.";
-        	logger.info(msg);
-
-			Platform.runLater(() -> {
-	        	createAlert(msg);
-			});
-
-			// TODO: create a host dialog that lists all clients currently connected
-			//add(clientAddress);
-			try {
-				startTimer();
-	        	in = new BufferedReader( new InputStreamReader(socket.getInputStream()) );
-				out = new PrintWriter(socket.getOutputStream(), true);
-
-                /*
-                 * Notify SocketReaderThread that it can now start.
-                 */
-                //notifyReady();
-
-				//out.println(new Date().toString());
-				id = processInput(in, out, clientAddress);
-
-				//TimeUnit.SECONDS.sleep(SLEEP_TIME);
-				//System.out.flush();
-				// TODO: create a main host dialog. If this dialog is closed, close all sockets
-				socket.close();
-			} catch (Exception e) {
-				e.printStackTrace();
-                /*
-                 * This will notify the SocketReaderThread that it should exit.
-                 */
-                //notifyReady();
-			} finally {
-				removeSettlement(id);
-				centralRegistry.getIdMap().remove(id);
-				centralRegistry.getAddressMap().remove(id);
-				logger.info("Socket closed, client id removed and connection closed.");
-			}
-		} // end of run()
-
-	}
-
 	/* Removes all settlements associated with that ID from the registry
 	 * @param id
 	 */
@@ -307,137 +238,6 @@ public class MultiplayerServer extends Application {
 		alert.show();
 	}
 
-	/* Processes the input line
-	 * Note: stop when the input stream closes (is null) or "bye" is sent
-	 * Otherwise, pass the input to doRequest()
-	 */
-	private int processInput(BufferedReader in, PrintWriter out, String clientAddress) {
-		long SLEEP_TIME = 500; // .5 second.
-		String line;
-		boolean done = false;
-		int id = 0;
-		try {
-	       while (!done) {
-	    	   //System.out.println("processInput() : inside while(!done");
-	    	   //if (in.readLine() != null && !socket.isClosed()) { // Get Records button got stuck
-	    	   if (in != null) {
-	    		   if ((line = in.readLine()) == null) { // java.net.SocketException: Connection reset, if hitting the red button on eclipse
-	       				done = true;
-	    		   } else {
-			           logger.info("Command received : '" + line + "'");
-
-			            if ((line.length() >= 4) &&     // "bye "
-			       	        (line.substring(0, 3).toLowerCase().equals("bye"))) {
-			       				logger.info("Command processed : 'bye'");
-			       				String playerName = line.substring(4).trim(); // cut out the get keyword
-			       				// extract the clientID of the player
-			       				//id = Integer.parseInt(idStr);
-			       				//TODO: should I set the timer to wait for a minute b4 removing the playerName?
-			       				centralRegistry.getIdMap().remove(playerName);
-			       				// when a value is removed, does it also remove key?
-			       				centralRegistry.getAddressMap().remove(playerName);
-			       				// TODO: if idMap is empty and done is true, will server just quit processing ?
-					        	if (centralRegistry.getIdMap().size() == 0)
-					        		done = true;
-			       	    }
-
-			           else {
-			        	   id = executeCommand(line, out, clientAddress, id);
-			        	   //centralRegistry.saveRecords();
-			           }
-
-			           try {
-			        	   TimeUnit.MILLISECONDS.sleep(SLEEP_TIME);
-			           } catch (InterruptedException e) {e.printStackTrace();}
-	    		   }
-	    	   } // end of if (in != null)
-	       } // end of while()
-		} catch(IOException e) { //| SocketException e) {
-			e.printStackTrace();
-			//logger.log(e);
-		    //throw e;
-		}
-		return id;
-	}
-
-
-	/* Executes the command from client
-	 * case 1: "new name & lat & long"
-	 * case 2: "get"
-	 * case 3: "register"
-	 * @return id
-	 */
-	private int executeCommand(String line, PrintWriter out, String clientAddress, int id) {
-		int newId = 0;
-		boolean updateTimeTag = true;
-
-	    if ((line.length() >= 7) &&     // "update "
-		        (line.substring(0, 6).toLowerCase().equals("update"))) {
-					logger.info("Command processed : update");
-					centralRegistry.updateEntry( line.substring(6) );    // cut out the update keyword
-		    }
-
-	    else if (line.trim().toLowerCase().equals("get")) {
-			logger.info("Command processed : get");
-			out.println( centralRegistry.toString() );
-		}
-		// TODO: add command get all vs. get
-
-	    else if ((line.length() >= 9) &&     // "register abc"
-		        (line.substring(0, 8).toLowerCase().equals("register"))) {
-			String playerName = line.substring(8).trim();    // cut out the register keyword
-			logger.info("Command processed : register " + playerName);
-			//centralRegistry.addEntry(userName);
-			boolean doesPlayerNameExist = centralRegistry.verifyPlayerName(playerName, clientAddress);
-
-			if (doesPlayerNameExist) {
-				out.println( centralRegistry.disapprovePlayerName(playerName) );
-				updateTimeTag = false;
-			}
-			else {
-				newId = centralRegistry.assignNewID(playerName, clientAddress);
-				//addressMap.put(id, clientAddress);
-				//idMap.put(id, userName); // already included inside getNewID(userName);
-				out.println( centralRegistry.approveID(newId, playerName) );
-			}
-	    }
-
-	    else if ((line.length() >= 4) &&     // "new "
-	        (line.substring(0, 3).toLowerCase().equals("new"))) {
-				logger.info("Command processed : new");
-				centralRegistry.addEntry( line.substring(3) );    // cut out the new keyword
-				//centralRegistry.saveRecords(); // the best place to save
-				//TODO: determine under what circumstance shall it be saved.
-	    }
-
-	    else if ((line.length() >= 7) &&     // "remove "
-		        (line.substring(0, 6).toLowerCase().equals("remove"))) {
-					logger.info("Command processed : remove");
-					centralRegistry.removeEntry( line.substring(6) );    // cut out the remove keyword
-		    }
-
-
-	    else if (line.trim().substring(0, 1).toLowerCase().equals("s")) {
-				logger.info("Command processed : 's'");
-				int num = centralRegistry.getSettlementRegistryList().size();
-				out.println("SETTLEMENTS " + num);
-				logger.info("Sent : SETTLEMENTS " + num);
-
-	    }
-
-	    else {
-	    	logger.info("The command from client cannot be recognized.");
-			updateTimeTag = false;
-	    }
-
-		if (updateTimeTag && id != 0) {
-			timeTagMap.put(id, Instant.now());
-			newId = id;
-		}
-
-		return newId;
-	  }
-
 	/**
 	 * Updates timeTagMap with latest timestamp
 	 */
@@ -449,12 +249,8 @@ public class MultiplayerServer extends Application {
 	 */
 	  void closeSocket() {
 	    try {
-	    	in.close();
-	    	out.close();
-	    	socket.close(); // NullPointerException
-	    	ss.close();
-	    	if (ss != null && !ss.isClosed())
-	    		ss.close();
+	    	if (registryServer != null)
+	    		registryServer.close();
 	    }
 	    catch(Exception e) {
 	    	throw new RuntimeException("Error closing server", e);
@@ -472,7 +268,6 @@ public class MultiplayerServer extends Application {
 	//}
 
 	public void setServerStopped(boolean value) {
-		connectionTaskExecutor.shutdown();
 		serverExecutor.shutdown();
 		serverStopped = value;
 		closeSocket();
@@ -555,7 +350,6 @@ public class MultiplayerServer extends Application {
 	public void start(Stage stage) throws Exception {
 		runServer();
 		//serverExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1); // newCachedThreadPool();
-		//connectionTaskExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(MAX_NUM_THREADS); // newCachedThreadPool();
 		//serverExecutor.execute(getHostTask());
 	}
 
@@ -565,14 +359,11 @@ public class MultiplayerServer extends Application {
     }
 
 	public void destroy() {
-		socket= null;
+		registryServer = null;
 		serverExecutor = null;
-		connectionTaskExecutor= null;
 	    hostTask= null;
-		connectionTask= null;
 		//mainMenu= null;
 		multiplayerTray= null;
-		socket = null;
 		centralRegistry= null;
 	}
 
@@ -0,0 +1,278 @@
+/**
+ * Mars Simulation Project
+ * RegistryClient.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * The RegistryClient class talks to the host server with binary frames.
+ * Messages without a reply are buffered and sent together with the next
+ * request or {@link #flush()}. After {@link #subscribe()}, the state changes
+ * sent by the server are applied to a replica of the live state of the
+ * settlements whenever they are read.
+ */
+public class RegistryClient implements Closeable {
+
+	private final Socket socket;
+	private final DataInputStream in;
+	private final OutputStream out;
+
+	/** The live state of the settlements as last received. */
+	private final ReplicatedState replica = new ReplicatedState();
+	private final ReplicatedState.StringTable inTable = new ReplicatedState.StringTable();
+	private final ReplicatedState.StringTable outTable = new ReplicatedState.StringTable();
+	/** The settlements changed since last asked. */
+	private final Set<String> changed = new LinkedHashSet<>();
+	/** The state published and the version of it last sent. */
+	private ReplicatedState published;
+	private long publishedVersion;
+	/** The settlements of the state last sent. */
+	private Set<String> publishedSettlements = new LinkedHashSet<>();
+
+	/*
+	 * Connects to the host server
+	 * @param host the address of the server
+	 * @param port the port of the server
+	 * @throws IOException if the server cannot be reached
+	 */
+	public RegistryClient(String host, int port) throws IOException {
+		socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.connect(new InetSocketAddress(host, port));
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new BufferedOutputStream(socket.getOutputStream());
+	}
+
+	/*
+	 * Requests a new client id
+	 * @param playerName
+	 * @return the client id, or -1 if the player name is taken
+	 */
+	public int register(String playerName) throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.REGISTER).putString(playerName).build());
+		ByteBuffer reply = request();
+		byte type = reply.get();
+		if (type == RegistryProtocol.NEW_ID)
+			return reply.getInt();
+		if (type == RegistryProtocol.INVALID_PLAYER_NAME)
+			return -1;
+		throw new StreamCorruptedException("Unexpected reply " + type);
+	}
+
+	/*
+	 * Lets this connection publish the state of the settlements of a client
+	 * registered on another connection from the same address
+	 * @param clientID the id of the client
+	 * @param playerName the player name the client registered with
+	 */
+	public void attach(int clientID, String playerName) throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.ATTACH).putInt(clientID).putString(playerName).build());
+		out.flush();
+	}
+
+	public void sendNew(SettlementRegistry s) throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.NEW).putSettlement(s).build());
+	}
+
+	public void sendUpdate(SettlementRegistry s) throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.UPDATE).putSettlement(s).build());
+	}
+
+	public void sendRemove(String playerName, int clientID, String name) throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.REMOVE).putString(playerName).putInt(clientID)
+				.putString(name).build());
+	}
+
+	/*
+	 * Gets all the settlements in the registry
+	 */
+	public List<SettlementRegistry> getRecords() throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.GET).build());
+		ByteBuffer reply = request();
+		expect(reply, RegistryProtocol.RECORDS);
+		int size = reply.getInt();
+		List<SettlementRegistry> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			list.add(RegistryProtocol.getSettlement(reply));
+		return list;
+	}
+
+	/*
+	 * Gets the number of settlements in the registry
+	 */
+	public int getNumSettlement() throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.COUNT).build());
+		ByteBuffer reply = request();
+		expect(reply, RegistryProtocol.SETTLEMENTS);
+		return reply.getInt();
+	}
+
+	/*
+	 * Asks the server to send the changes of the live state of all settlements
+	 */
+	public void subscribe() throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.SUBSCRIBE).build());
+		out.flush();
+	}
+
+	/*
+	 * Sends the changes to the state of the player's settlements since they were
+	 * last published. The same state must be published each time. If the changes
+	 * are no longer kept, the whole state is sent along with the removal of the
+	 * settlements sent before and gone since.
+	 */
+	public void publish(ReplicatedState state) throws IOException {
+		if (published != state) {
+			if (published != null)
+				throw new IllegalArgumentException("A different state was published before");
+			published = state;
+			publishedVersion = 0;
+		}
+		RegistryProtocol.Frame frame = new RegistryProtocol.Frame(RegistryProtocol.PUBLISH);
+		// Hold the state so the version, the changes and the settlements agree
+		synchronized (state) {
+			long version = state.getVersion();
+			if (version == publishedVersion)
+				return;
+			if (state.hasChangesSince(publishedVersion))
+				state.writeChanges(publishedVersion, frame, outTable);
+			else
+				state.writeSnapshot(frame, outTable, publishedSettlements);
+			publishedVersion = version;
+			publishedSettlements = state.getSettlements();
+		}
+		write(frame.build());
+	}
+
+	/*
+	 * Gets the replica of the live state of the settlements
+	 */
+	public ReplicatedState getReplica() {
+		return replica;
+	}
+
+	/*
+	 * Waits for state changes from the server and applies them to the replica
+	 * @param timeout the longest time to wait for the first change [ms]
+	 * @return the settlements changed since last asked
+	 */
+	public Set<String> receive(long timeout) throws IOException {
+		out.flush();
+		if (in.available() == 0) {
+			socket.setSoTimeout((int) Math.max(1, timeout));
+			try {
+				in.mark(1);
+				in.read();
+				in.reset();
+			} catch (SocketTimeoutException e) {
+				return takeChanged();
+			} finally {
+				socket.setSoTimeout(0);
+			}
+		}
+		while (in.available() >= 4) {
+			ByteBuffer frame = readFrame();
+			if (!applyChanges(frame))
+				throw new StreamCorruptedException("Unexpected message " + frame.get(0));
+		}
+		out.flush();
+		return takeChanged();
+	}
+
+	private Set<String> takeChanged() {
+		Set<String> result = new LinkedHashSet<>(changed);
+		changed.clear();
+		return result;
+	}
+
+	/*
+	 * Applies the state changes in a frame and acknowledges them
+	 * @return false if the frame holds no state changes
+	 */
+	private boolean applyChanges(ByteBuffer frame) throws IOException {
+		byte type = frame.get(0);
+		if (type != RegistryProtocol.DELTA && type != RegistryProtocol.SNAPSHOT)
+			return false;
+		frame.get();
+		long version = frame.getLong();
+		if (type == RegistryProtocol.SNAPSHOT) {
+			changed.addAll(replica.getSettlements());
+			replica.clear();
+			inTable.clear();
+		}
+		replica.readChanges(frame, inTable, changed);
+		write(new RegistryProtocol.Frame(RegistryProtocol.ACK).putLong(version).build());
+		return true;
+	}
+
+	/*
+	 * Tells the server the player is leaving and closes the connection
+	 */
+	public void sendBye(String playerName) throws IOException {
+		write(new RegistryProtocol.Frame(RegistryProtocol.BYE).putString(playerName).build());
+		close();
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (!socket.isClosed())
+				out.flush();
+		} finally {
+			socket.close();
+		}
+	}
+
+	private void write(ByteBuffer frame) throws IOException {
+		out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+	}
+
+	/*
+	 * Sends what is buffered and reads the reply, applying the state changes
+	 * that arrive before it
+	 */
+	private ByteBuffer request() throws IOException {
+		out.flush();
+		ByteBuffer frame = readFrame();
+		while (applyChanges(frame))
+			frame = readFrame();
+		return frame;
+	}
+
+	private ByteBuffer readFrame() throws IOException {
+		int length = in.readInt();
+		if (length < 1 || length > RegistryProtocol.MAX_FRAME)
+			throw new StreamCorruptedException("Bad frame length " + length);
+		byte[] frame = new byte[length];
+		in.readFully(frame);
+		return ByteBuffer.wrap(frame);
+	}
+
+	private static void expect(ByteBuffer reply, byte type) throws IOException {
+		byte actual = reply.get();
+		if (actual != type)
+			throw new StreamCorruptedException("Unexpected reply " + actual);
+	}
+}
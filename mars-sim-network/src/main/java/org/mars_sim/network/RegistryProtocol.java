@@ -0,0 +1,202 @@
+/**
+ * Mars Simulation Project
+ * RegistryProtocol.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.network;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * The RegistryProtocol class holds the binary messages exchanged with the host
+ * server. Each message is a frame made of its length, its type and its fields.
+ * Since the length of a frame is far below 16 MB, the first byte a binary
+ * client sends is always zero, which tells it apart from a text client.
+ */
+final class RegistryProtocol {
+
+	/** The largest frame accepted [bytes]. */
+	static final int MAX_FRAME = 1024 * 1024;
+
+	// Messages sent by a client
+	static final byte REGISTER = 1;
+	static final byte BYE = 2;
+	static final byte NEW = 3;
+	static final byte UPDATE = 4;
+	static final byte REMOVE = 5;
+	static final byte GET = 6;
+	static final byte COUNT = 7;
+	static final byte PUBLISH = 8;
+	static final byte SUBSCRIBE = 9;
+	static final byte ACK = 10;
+	static final byte ATTACH = 11;
+
+	// Messages sent by the server
+	static final byte NEW_ID = 16;
+	static final byte INVALID_PLAYER_NAME = 17;
+	static final byte RECORDS = 18;
+	static final byte SETTLEMENTS = 19;
+	static final byte DELTA = 20;
+	static final byte SNAPSHOT = 21;
+
+	private RegistryProtocol() {
+	}
+
+	/*
+	 * Gets the length of the frame at the start of a buffer
+	 * @return the length including its header, or -1 if the header is incomplete
+	 */
+	static int frameLength(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < 4)
+			return -1;
+		int length = buffer.getInt(buffer.position());
+		if (length < 1 || length > MAX_FRAME)
+			throw new StreamCorruptedException("Bad frame length " + length);
+		return length + 4;
+	}
+
+	static String getString(ByteBuffer buffer) throws IOException {
+		try {
+			int length = buffer.getShort() & 0xFFFF;
+			String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+					StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+			return s;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new StreamCorruptedException("Truncated string");
+		}
+	}
+
+	/*
+	 * Gets an unsigned number written in 7-bit groups, lowest first
+	 */
+	static int getVarInt(ByteBuffer buffer) throws IOException {
+		try {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				byte b = buffer.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0)
+					return value;
+			}
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated number");
+		}
+		throw new StreamCorruptedException("Number too long");
+	}
+
+	static SettlementRegistry getSettlement(ByteBuffer buffer) throws IOException {
+		try {
+			String playerName = getString(buffer);
+			int clientID = buffer.getInt();
+			String name = getString(buffer);
+			String template = getString(buffer);
+			int pop = buffer.getInt();
+			int bots = buffer.getInt();
+			String sponsor = getString(buffer);
+			double lat = buffer.getDouble();
+			double lo = buffer.getDouble();
+			return new SettlementRegistry(playerName, clientID, name, template, pop, bots, sponsor, lat, lo);
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated settlement");
+		}
+	}
+
+	/*
+	 * Builds a frame, growing as fields are added
+	 */
+	static final class Frame {
+
+		private ByteBuffer buffer = ByteBuffer.allocate(64);
+
+		Frame(byte type) {
+			buffer.putInt(0);
+			buffer.put(type);
+		}
+
+		private void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+
+		Frame putByte(byte value) {
+			ensure(1);
+			buffer.put(value);
+			return this;
+		}
+
+		Frame putVarInt(int value) {
+			if (value < 0)
+				throw new IllegalArgumentException("Negative number " + value);
+			ensure(5);
+			while (value > 0x7F) {
+				buffer.put((byte) (value & 0x7F | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+			return this;
+		}
+
+		Frame putInt(int value) {
+			ensure(4);
+			buffer.putInt(value);
+			return this;
+		}
+
+		Frame putLong(long value) {
+			ensure(8);
+			buffer.putLong(value);
+			return this;
+		}
+
+		Frame putDouble(double value) {
+			ensure(8);
+			buffer.putDouble(value);
+			return this;
+		}
+
+		Frame putString(String value) {
+			byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+			if (bytes.length > 0xFFFF)
+				throw new IllegalArgumentException("String too long for a frame");
+			ensure(2 + bytes.length);
+			buffer.putShort((short) bytes.length);
+			buffer.put(bytes);
+			return this;
+		}
+
+		Frame putSettlement(SettlementRegistry s) {
+			putString(s.getPlayerName());
+			putInt(s.getClientID());
+			putString(s.getName());
+			putString(s.getTemplate());
+			putInt(s.getPopulation());
+			putInt(s.getNumOfRobots());
+			putString(s.getSponsor());
+			putDouble(s.getLatitude());
+			putDouble(s.getLongitude());
+			return this;
+		}
+
+		/*
+		 * Completes the frame
+		 * @return the frame ready to be written
+		 */
+		ByteBuffer build() {
+			if (buffer.position() - 4 > MAX_FRAME)
+				throw new IllegalStateException("Frame too long");
+			buffer.putInt(0, buffer.position() - 4);
+			buffer.flip();
+			return buffer;
+		}
+	}
+}
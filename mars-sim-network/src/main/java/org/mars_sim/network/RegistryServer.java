@@ -0,0 +1,616 @@
+/**
+ * Mars Simulation Project
+ * RegistryServer.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * The RegistryServer class serves the central registry to the clients. All
+ * connections are handled on one thread with a selector, so the number of
+ * clients is not bound by the number of threads. Clients speak either the
+ * binary frames of {@link RegistryProtocol} or the older text lines.
+ * Replies are queued and written together once per pass over the ready
+ * connections. A client that does not read its replies is not read from until
+ * it catches up. Clients may also publish the live state of their settlements
+ * and subscribe to the state of all, which is sent to them as the changes
+ * since the version they last acknowledged, at most once per replication
+ * interval.
+ */
+public class RegistryServer implements Runnable, Closeable {
+
+	/** default logger. */
+	private static Logger logger = Logger.getLogger(RegistryServer.class.getName());
+
+	/** The initial size of the input buffer of a connection [bytes]. */
+	private static final int BUFFER_SIZE = 8 * 1024;
+	/** The queued replies above which a connection is no longer read [bytes]. */
+	private static final int HIGH_WATER = 256 * 1024;
+	/** The queued replies below which a connection is read again [bytes]. */
+	private static final int LOW_WATER = 64 * 1024;
+	/** The default time between sending state changes [ms]. */
+	private static final long REPLICATION_INTERVAL = 200;
+
+	private final CentralRegistry centralRegistry;
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	/** The connections with replies written during this pass. */
+	private final Set<Connection> dirty = new LinkedHashSet<>();
+	/** The time of the last command from each client id. */
+	private final Map<Integer, Instant> timeTagMap = new ConcurrentHashMap<>();
+	/** The live state of the settlements. */
+	private final ReplicatedState state = new ReplicatedState();
+	/** The connections receiving state changes. */
+	private final Set<Connection> subscribers = new LinkedHashSet<>();
+	/** The connection that publishes the state of each settlement. */
+	private final Map<String, Connection> owners = new HashMap<>();
+
+	private volatile boolean running;
+	private Thread thread;
+	private Consumer<String> connectionListener;
+	private volatile long replicationInterval = REPLICATION_INTERVAL;
+	private long nextReplication;
+
+	/*
+	 * Binds the server
+	 * @param centralRegistry the registry served
+	 * @param address the address to listen on
+	 * @throws IOException if the address cannot be bound
+	 */
+	public RegistryServer(CentralRegistry centralRegistry, InetSocketAddress address) throws IOException {
+		this.centralRegistry = centralRegistry;
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().setReuseAddress(true);
+		serverChannel.bind(address, 128);
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/*
+	 * Sets what is told of the address of each client connecting
+	 */
+	public void setConnectionListener(Consumer<String> connectionListener) {
+		this.connectionListener = connectionListener;
+	}
+
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	public Map<Integer, Instant> getTimeTagMap() {
+		return timeTagMap;
+	}
+
+	/*
+	 * Gets the live state of the settlements, which the host may also change
+	 */
+	public ReplicatedState getReplicatedState() {
+		return state;
+	}
+
+	/*
+	 * Sets the time between sending state changes to the subscribers
+	 * @param millis the interval [ms]
+	 */
+	public void setReplicationInterval(long millis) {
+		if (millis < 1)
+			throw new IllegalArgumentException("Replication interval must be positive");
+		replicationInterval = millis;
+	}
+
+	/*
+	 * Starts serving on a thread of its own
+	 */
+	public synchronized void start() {
+		running = true;
+		thread = new Thread(this, "registry-server");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				// Replies queued while flushing are written in the next pass
+				long wait = subscribers.isEmpty() ? 0
+						: Math.max(1, nextReplication - System.currentTimeMillis());
+				if (!dirty.isEmpty())
+					selector.selectNow();
+				else
+					selector.select(wait);
+				Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+				while (i.hasNext()) {
+					SelectionKey key = i.next();
+					i.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Connection c = (Connection) key.attachment();
+					try {
+						if (key.isWritable())
+							dirty.add(c);
+						if (key.isReadable())
+							c.read();
+					} catch (IOException | BufferUnderflowException e) {
+						logger.fine("Dropping the client at " + c.address + " : " + e.getMessage());
+						c.close();
+					} catch (RuntimeException e) {
+						// A message that breaks the server drops only its sender
+						drop(c, e);
+					}
+				}
+				if (!subscribers.isEmpty() && System.currentTimeMillis() >= nextReplication) {
+					replicate();
+					nextReplication = System.currentTimeMillis() + replicationInterval;
+				}
+				flushAll();
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			if (running)
+				logger.log(Level.SEVERE, "The registry server stopped.", e);
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				if (key.attachment() instanceof Connection)
+					((Connection) key.attachment()).close();
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			Connection c;
+			try {
+				channel.configureBlocking(false);
+				channel.socket().setKeepAlive(true);
+				channel.socket().setTcpNoDelay(true);
+				c = new Connection(channel);
+				c.key = channel.register(selector, SelectionKey.OP_READ, c);
+			} catch (IOException e) {
+				logger.fine("Cannot accept a client : " + e.getMessage());
+				channel.close();
+				continue;
+			}
+			logger.info("A client at " + c.address + " has just established a connection with you.");
+			if (connectionListener != null)
+				connectionListener.accept(c.address);
+		}
+	}
+
+	/*
+	 * Sends the state changes to the subscribers. A subscriber gets the changes
+	 * since the version it last acknowledged, or a full copy if it has none yet
+	 * or the changes are no longer kept. Nothing is done for a subscriber that
+	 * is up to date, and a subscriber not reading gets the changes later in one.
+	 */
+	private void replicate() {
+		long version = state.getVersion();
+		for (Connection c : subscribers) {
+			if (c.sent == version || c.pending > HIGH_WATER)
+				continue;
+			RegistryProtocol.Frame frame;
+			if (c.acked < 0 || !state.hasChangesSince(c.acked)) {
+				c.outTable.clear();
+				frame = new RegistryProtocol.Frame(RegistryProtocol.SNAPSHOT).putLong(version);
+				state.writeSnapshot(frame, c.outTable, null);
+				// Later changes can build on the copy since the frames arrive in order
+				c.acked = version;
+			} else {
+				frame = new RegistryProtocol.Frame(RegistryProtocol.DELTA).putLong(version);
+				state.writeChanges(c.acked, frame, c.outTable);
+			}
+			c.sent = version;
+			c.send(frame.build());
+		}
+	}
+
+	/*
+	 * Writes the queued replies of the connections written to in this pass
+	 */
+	private void flushAll() {
+		if (dirty.isEmpty())
+			return;
+		List<Connection> list = new ArrayList<>(dirty);
+		dirty.clear();
+		for (Connection c : list) {
+			try {
+				c.flush();
+			} catch (IOException e) {
+				logger.fine("Dropping the client at " + c.address + " : " + e.getMessage());
+				c.close();
+			} catch (RuntimeException e) {
+				drop(c, e);
+			}
+		}
+	}
+
+	/*
+	 * Closes the connection of a client whose message could not be handled
+	 */
+	private void drop(Connection c, RuntimeException e) {
+		logger.log(Level.WARNING, "Dropping the client at " + c.address + " after an error handling its message", e);
+		c.close();
+	}
+
+	/*
+	 * Stops the server and closes all connections
+	 */
+	@Override
+	public void close() throws IOException {
+		Thread t;
+		synchronized (this) {
+			running = false;
+			t = thread;
+		}
+		selector.wakeup();
+		if (t != null && t != Thread.currentThread()) {
+			try {
+				t.join(5000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		serverChannel.close();
+		selector.close();
+	}
+
+	/*
+	 * A connection to a client
+	 */
+	private class Connection {
+
+		private final SocketChannel channel;
+		private final String address;
+		private SelectionKey key;
+		private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+		private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+		/** The bytes queued in out. */
+		private int pending;
+		/** True if binary, false if text, null until the first byte arrives. */
+		private Boolean binary;
+		private int clientID;
+		/** The client whose settlements the connection may publish. */
+		private int ownerID;
+		private boolean closing;
+		private boolean closed;
+		/** The version last acknowledged, or of the last full copy sent. */
+		private long acked = -1;
+		/** The version last sent. */
+		private long sent = -1;
+		/** The strings sent to and received from the client. */
+		private final ReplicatedState.StringTable outTable = new ReplicatedState.StringTable();
+		private final ReplicatedState.StringTable inTable = new ReplicatedState.StringTable();
+		/** The settlements whose state the client published. */
+		private final Set<String> published = new LinkedHashSet<>();
+		/** The settlements the client owns. */
+		private final Set<String> claimed = new LinkedHashSet<>();
+
+		private Connection(SocketChannel channel) throws IOException {
+			this.channel = channel;
+			InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+			this.address = remote.getAddress().getHostAddress();
+		}
+
+		private void read() throws IOException {
+			if (!in.hasRemaining()) {
+				// Only grow for a frame that is longer than the buffer
+				if (in.capacity() >= RegistryProtocol.MAX_FRAME + 4)
+					throw new IOException("Message too long");
+				ByteBuffer larger = ByteBuffer.allocate(Math.min(in.capacity() * 2, RegistryProtocol.MAX_FRAME + 4));
+				in.flip();
+				larger.put(in);
+				in = larger;
+			}
+			int n = channel.read(in);
+			if (n < 0) {
+				close();
+				return;
+			}
+			process();
+		}
+
+		/*
+		 * Handles the complete messages in the input buffer
+		 */
+		private void process() throws IOException {
+			in.flip();
+			try {
+				if (binary == null && in.hasRemaining())
+					binary = in.get(in.position()) == 0;
+				while (!closing && pending <= HIGH_WATER) {
+					if (!(binary == Boolean.TRUE ? processFrame() : processLine()))
+						break;
+				}
+			} finally {
+				in.compact();
+			}
+		}
+
+		private boolean processFrame() throws IOException {
+			int length = RegistryProtocol.frameLength(in);
+			if (length < 0 || in.remaining() < length)
+				return false;
+			int end = in.position() + length;
+			ByteBuffer frame = in.duplicate();
+			frame.limit(end);
+			frame.position(in.position() + 4);
+			in.position(end);
+			execute(frame.get(), frame);
+			return true;
+		}
+
+		private boolean processLine() throws IOException {
+			int start = in.position();
+			for (int i = start; i < in.limit(); i++) {
+				if (in.get(i) == '\n') {
+					String line = new String(in.array(), in.arrayOffset() + start, i - start, StandardCharsets.UTF_8);
+					in.position(i + 1);
+					executeLine(line.trim());
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/*
+		 * Executes a binary message
+		 */
+		private void execute(byte type, ByteBuffer frame) throws IOException {
+			boolean updateTimeTag = true;
+			switch (type) {
+			case RegistryProtocol.REGISTER:
+				register(RegistryProtocol.getString(frame));
+				break;
+			case RegistryProtocol.BYE:
+				RegistryProtocol.getString(frame);
+				closeAfterReplies();
+				updateTimeTag = false;
+				break;
+			case RegistryProtocol.NEW:
+				centralRegistry.addEntry(RegistryProtocol.getSettlement(frame));
+				break;
+			case RegistryProtocol.UPDATE:
+				centralRegistry.updateEntry(RegistryProtocol.getSettlement(frame));
+				break;
+			case RegistryProtocol.REMOVE:
+				String playerName = RegistryProtocol.getString(frame);
+				int id = frame.getInt();
+				centralRegistry.removeEntry(playerName, id, RegistryProtocol.getString(frame));
+				break;
+			case RegistryProtocol.GET:
+				RegistryProtocol.Frame records = new RegistryProtocol.Frame(RegistryProtocol.RECORDS);
+				List<SettlementRegistry> list = new ArrayList<>(centralRegistry.getSettlementRegistryList());
+				records.putInt(list.size());
+				for (SettlementRegistry s : list)
+					records.putSettlement(s);
+				send(records.build());
+				break;
+			case RegistryProtocol.COUNT:
+				send(new RegistryProtocol.Frame(RegistryProtocol.SETTLEMENTS)
+						.putInt(centralRegistry.getSettlementRegistryList().size()).build());
+				break;
+			case RegistryProtocol.PUBLISH:
+				int skipped = state.readChanges(frame, inTable, published, this::owns);
+				if (skipped > 0)
+					logger.warning("Rejected " + skipped + " changes to settlements not owned by the client at "
+							+ address);
+				releaseRemoved();
+				break;
+			case RegistryProtocol.SUBSCRIBE:
+				acked = -1;
+				sent = -1;
+				subscribers.add(this);
+				break;
+			case RegistryProtocol.ATTACH:
+				attach(frame.getInt(), RegistryProtocol.getString(frame));
+				updateTimeTag = false;
+				break;
+			case RegistryProtocol.ACK:
+				long version = frame.getLong();
+				if (version > acked && version <= sent)
+					acked = version;
+				updateTimeTag = false;
+				break;
+			default:
+				logger.info("The command from client cannot be recognized.");
+				updateTimeTag = false;
+			}
+			if (updateTimeTag && clientID != 0)
+				timeTagMap.put(clientID, Instant.now());
+		}
+
+		/*
+		 * Checks if the client may publish the state of a settlement, and claims
+		 * it if no other client has. A settlement in the registry may only be
+		 * published by the client it is registered to.
+		 */
+		private boolean owns(String settlement) {
+			Connection owner = owners.get(settlement);
+			if (owner != null)
+				return owner == this;
+			for (SettlementRegistry s : centralRegistry.getSettlementRegistryList()) {
+				if (s.getName().equals(settlement) && s.getClientID() != ownerID)
+					return false;
+			}
+			owners.put(settlement, this);
+			claimed.add(settlement);
+			return true;
+		}
+
+		/*
+		 * Gives up the settlements the client removed
+		 */
+		private void releaseRemoved() {
+			for (Iterator<String> i = claimed.iterator(); i.hasNext();) {
+				String settlement = i.next();
+				if (!published.contains(settlement)) {
+					owners.remove(settlement);
+					i.remove();
+				}
+			}
+		}
+
+		/*
+		 * Lets the connection publish for a client registered from the same
+		 * address. The client stays registered to its own connection.
+		 */
+		private void attach(int id, String playerName) {
+			if (playerName.equals(centralRegistry.getIdMap().get(id))
+					&& address.equals(centralRegistry.getAddressMap().get(id))) {
+				ownerID = id;
+			} else {
+				logger.warning("Rejected the client at " + address + " acting for the client id " + id);
+			}
+		}
+
+		private void register(String playerName) {
+			if (centralRegistry.verifyPlayerName(playerName, address)) {
+				send(new RegistryProtocol.Frame(RegistryProtocol.INVALID_PLAYER_NAME).putString(playerName).build());
+			} else {
+				clientID = centralRegistry.assignNewID(playerName, address);
+				ownerID = clientID;
+				send(new RegistryProtocol.Frame(RegistryProtocol.NEW_ID).putInt(clientID).build());
+			}
+		}
+
+		/*
+		 * Executes a text command
+		 * case 1: "new name & lat & long"
+		 * case 2: "get"
+		 * case 3: "register"
+		 */
+		private void executeLine(String line) {
+			logger.fine("Command received : '" + line + "'");
+			String command = line.toLowerCase();
+			boolean updateTimeTag = true;
+
+			if (command.startsWith("bye")) {
+				closeAfterReplies();
+				updateTimeTag = false;
+			} else if (command.startsWith("update")) {
+				centralRegistry.updateEntry(line.substring(6));
+			} else if (command.equals("get")) {
+				sendLine(centralRegistry.toString());
+			} else if (command.startsWith("register")) {
+				String playerName = line.substring(8).trim();
+				if (centralRegistry.verifyPlayerName(playerName, address)) {
+					sendLine(centralRegistry.disapprovePlayerName(playerName));
+					updateTimeTag = false;
+				} else {
+					clientID = centralRegistry.assignNewID(playerName, address);
+					ownerID = clientID;
+					sendLine(centralRegistry.approveID(clientID, playerName));
+				}
+			} else if (command.startsWith("new")) {
+				centralRegistry.addEntry(line.substring(3));
+			} else if (command.startsWith("remove")) {
+				centralRegistry.removeEntry(line.substring(6));
+			} else if (command.startsWith("s")) {
+				sendLine("SETTLEMENTS " + centralRegistry.getSettlementRegistryList().size());
+			} else {
+				logger.info("The command from client cannot be recognized.");
+				updateTimeTag = false;
+			}
+
+			if (updateTimeTag && clientID != 0)
+				timeTagMap.put(clientID, Instant.now());
+		}
+
+		/*
+		 * Closes the connection once the queued replies are written
+		 */
+		private void closeAfterReplies() {
+			closing = true;
+			dirty.add(this);
+		}
+
+		private void sendLine(String line) {
+			send(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+		}
+
+		private void send(ByteBuffer buffer) {
+			out.add(buffer);
+			pending += buffer.remaining();
+			dirty.add(this);
+		}
+
+		/*
+		 * Writes as much of the queued replies as the socket takes in one go
+		 */
+		private void flush() throws IOException {
+			if (closed)
+				return;
+			if (!out.isEmpty()) {
+				long written = channel.write(out.toArray(new ByteBuffer[out.size()]));
+				pending -= written;
+				while (!out.isEmpty() && !out.peek().hasRemaining())
+					out.poll();
+			}
+
+			if (closing && out.isEmpty()) {
+				close();
+				return;
+			}
+
+			int ops = out.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+			if (pending <= LOW_WATER || (pending <= HIGH_WATER && (key.interestOps() & SelectionKey.OP_READ) != 0))
+				ops |= SelectionKey.OP_READ;
+			boolean resumed = (ops & SelectionKey.OP_READ) != 0 && (key.interestOps() & SelectionKey.OP_READ) == 0;
+			key.interestOps(ops);
+			// Messages held back while the client was not reading
+			if (resumed && in.position() > 0)
+				process();
+		}
+
+		private void close() {
+			if (closed)
+				return;
+			closed = true;
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.fine("Error closing the client at " + address + " : " + e.getMessage());
+			}
+			subscribers.remove(this);
+			for (String settlement : published)
+				state.remove(settlement);
+			for (String settlement : claimed)
+				owners.remove(settlement);
+			if (clientID != 0)
+				centralRegistry.removeClient(clientID);
+			logger.info("Socket closed, client id removed and connection closed.");
+		}
+	}
+}
@@ -0,0 +1,382 @@
+/**
+ * Mars Simulation Project
+ * ReplicatedState.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.network;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/*
+ * The ReplicatedState class holds the live state of settlements as a set of
+ * named fields per settlement, such as its population, the amount of each
+ * resource, its missions and the positions of its vehicles. Every change
+ * stamps the field with a new version and moves it to the end of a list kept
+ * in version order, so the changes since a version are found by walking back
+ * from the end of the list only as far as that version. The cost of sending
+ * the changes to a peer therefore follows how much has changed, not how many
+ * settlements there are.
+ */
+public class ReplicatedState {
+
+	// Field names
+	public static final String POPULATION = "population";
+	public static final String ROBOTS = "robots";
+	public static final String RESOURCE = "resource.";
+	public static final String MISSION = "mission.";
+	public static final String VEHICLE = "vehicle.";
+
+	// Kinds of values
+	private static final byte NULL = 0;
+	private static final byte INT = 1;
+	private static final byte DOUBLE = 2;
+	private static final byte STRING = 3;
+	private static final byte POSITION = 4;
+	private static final byte REMOVED = 5;
+
+	/** The removed settlements kept so that peers behind can be told. */
+	private static final int MAX_TOMBSTONES = 1024;
+
+	/** The settlements by key. */
+	private final Map<String, Map<String, Field>> settlements = new LinkedHashMap<>();
+	/** The oldest and newest change. */
+	private Field head;
+	private Field tail;
+
+	/** The version of the last change. */
+	private long version;
+	/** The oldest version changes can be found from. */
+	private long floor;
+	private int tombstones;
+
+	/*
+	 * A field of a settlement, or the removal of a settlement if the name is null
+	 */
+	private static final class Field {
+		private final String settlement;
+		private final String name;
+		private Object value;
+		private long version;
+		private Field prev;
+		private Field next;
+
+		private Field(String settlement, String name) {
+			this.settlement = settlement;
+			this.name = name;
+		}
+	}
+
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/*
+	 * Gets the keys of the settlements
+	 */
+	public synchronized Set<String> getSettlements() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(settlements.keySet()));
+	}
+
+	/*
+	 * Gets the value of a field
+	 * @return an Integer, Double, String, double[] position or null
+	 */
+	public synchronized Object get(String settlement, String field) {
+		Map<String, Field> fields = settlements.get(settlement);
+		if (fields == null)
+			return null;
+		Field f = fields.get(field);
+		return f == null ? null : f.value;
+	}
+
+	/*
+	 * Sets the value of a field. Nothing changes if the value is the same.
+	 * @param value an Integer, Double, String, double[] position, or null to clear the field
+	 */
+	public synchronized void set(String settlement, String field, Object value) {
+		if (field == null)
+			throw new IllegalArgumentException("No field name");
+		Map<String, Field> fields = settlements.get(settlement);
+		if (fields == null) {
+			if (value == null)
+				return;
+			fields = new LinkedHashMap<>();
+			settlements.put(settlement, fields);
+		}
+		Field f = fields.get(field);
+		if (f == null) {
+			if (value == null)
+				return;
+			f = new Field(settlement, field);
+			fields.put(field, f);
+		} else {
+			if (sameValue(f.value, value))
+				return;
+			unlink(f);
+		}
+		f.value = value instanceof double[] ? ((double[]) value).clone() : value;
+		append(f);
+	}
+
+	/*
+	 * Removes a settlement with all its fields
+	 */
+	public synchronized void remove(String settlement) {
+		Map<String, Field> fields = settlements.remove(settlement);
+		if (fields == null)
+			return;
+		for (Field f : fields.values())
+			unlink(f);
+		append(new Field(settlement, null));
+		tombstones++;
+		// Forget the oldest removals. Peers behind them need a full copy.
+		while (tombstones > MAX_TOMBSTONES) {
+			Field f = head;
+			while (f.name != null)
+				f = f.next;
+			unlink(f);
+			floor = Math.max(floor, f.version);
+			tombstones--;
+		}
+	}
+
+	/*
+	 * Removes all settlements
+	 */
+	public synchronized void clear() {
+		for (String settlement : new ArrayList<>(settlements.keySet()))
+			remove(settlement);
+	}
+
+	private static boolean sameValue(Object a, Object b) {
+		if (a instanceof double[] && b instanceof double[])
+			return Arrays.equals((double[]) a, (double[]) b);
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private void append(Field f) {
+		f.version = ++version;
+		f.prev = tail;
+		f.next = null;
+		if (tail != null)
+			tail.next = f;
+		else
+			head = f;
+		tail = f;
+	}
+
+	private void unlink(Field f) {
+		if (f.prev != null)
+			f.prev.next = f.next;
+		else if (head == f)
+			head = f.next;
+		if (f.next != null)
+			f.next.prev = f.prev;
+		else if (tail == f)
+			tail = f.prev;
+		f.prev = null;
+		f.next = null;
+	}
+
+	/*
+	 * Checks if the changes since a version can still be found
+	 */
+	public synchronized boolean hasChangesSince(long since) {
+		return since >= floor;
+	}
+
+	/*
+	 * Writes the changes since a version, oldest first
+	 * @param since the version the peer has
+	 * @param frame the frame to write to
+	 * @param table the strings already sent to the peer
+	 */
+	synchronized void writeChanges(long since, RegistryProtocol.Frame frame, StringTable table) {
+		if (since < floor)
+			throw new IllegalStateException("Changes since " + since + " are no longer kept");
+		Field first = tail;
+		int count = 0;
+		while (first != null && first.version > since) {
+			count++;
+			if (first.prev == null || first.prev.version <= since)
+				break;
+			first = first.prev;
+		}
+		frame.putVarInt(count);
+		for (Field f = count == 0 ? null : first; f != null; f = f.next)
+			writeField(f, frame, table);
+	}
+
+	/*
+	 * Writes all the settlements
+	 * @param known the settlements the peer has, written as removed if no longer here, or null
+	 */
+	synchronized void writeSnapshot(RegistryProtocol.Frame frame, StringTable table, Set<String> known) {
+		List<String> removed = new ArrayList<>();
+		if (known != null) {
+			for (String settlement : known)
+				if (!settlements.containsKey(settlement))
+					removed.add(settlement);
+		}
+		int count = removed.size();
+		for (Map<String, Field> fields : settlements.values()) {
+			for (Field f : fields.values())
+				if (f.value != null)
+					count++;
+		}
+		frame.putVarInt(count);
+		for (String settlement : removed)
+			writeField(new Field(settlement, null), frame, table);
+		for (Map<String, Field> fields : settlements.values()) {
+			for (Field f : fields.values())
+				if (f.value != null)
+					writeField(f, frame, table);
+		}
+	}
+
+	private static void writeField(Field f, RegistryProtocol.Frame frame, StringTable table) {
+		table.write(f.settlement, frame);
+		if (f.name == null) {
+			frame.putByte(REMOVED);
+			return;
+		}
+		Object v = f.value;
+		if (v == null) {
+			frame.putByte(NULL);
+		} else if (v instanceof Integer) {
+			frame.putByte(INT);
+			frame.putInt((Integer) v);
+		} else if (v instanceof Double) {
+			frame.putByte(DOUBLE);
+			frame.putDouble((Double) v);
+		} else if (v instanceof String) {
+			frame.putByte(STRING);
+			frame.putString((String) v);
+		} else if (v instanceof double[]) {
+			frame.putByte(POSITION);
+			frame.putDouble(((double[]) v)[0]);
+			frame.putDouble(((double[]) v)[1]);
+		} else {
+			throw new IllegalArgumentException("Cannot replicate a " + v.getClass().getName());
+		}
+		table.write(f.name, frame);
+	}
+
+	/*
+	 * Applies changes written by {@link #writeChanges} or {@link #writeSnapshot}
+	 * @param changed the settlements changed are added to this set, if not null
+	 */
+	synchronized void readChanges(ByteBuffer buffer, StringTable table, Set<String> changed) throws IOException {
+		readChanges(buffer, table, changed, null);
+	}
+
+	/*
+	 * Applies the changes to the settlements that are allowed and reads past the others
+	 * @param changed the settlements changed are added to this set, if not null
+	 * @param allowed tells if a settlement may be changed, or null to allow all
+	 * @return the number of changes skipped
+	 */
+	synchronized int readChanges(ByteBuffer buffer, StringTable table, Set<String> changed,
+			Predicate<String> allowed) throws IOException {
+		int skipped = 0;
+		try {
+			int count = RegistryProtocol.getVarInt(buffer);
+			for (int i = 0; i < count; i++) {
+				String settlement = table.read(buffer);
+				byte kind = buffer.get();
+				Object value;
+				switch (kind) {
+				case REMOVED:
+					if (allowed != null && !allowed.test(settlement)) {
+						skipped++;
+						continue;
+					}
+					remove(settlement);
+					if (changed != null)
+						changed.remove(settlement);
+					continue;
+				case NULL:
+					value = null;
+					break;
+				case INT:
+					value = buffer.getInt();
+					break;
+				case DOUBLE:
+					value = buffer.getDouble();
+					break;
+				case STRING:
+					value = RegistryProtocol.getString(buffer);
+					break;
+				case POSITION:
+					value = new double[] { buffer.getDouble(), buffer.getDouble() };
+					break;
+				default:
+					throw new StreamCorruptedException("Unknown value kind " + kind);
+				}
+				String field = table.read(buffer);
+				if (allowed != null && !allowed.test(settlement)) {
+					skipped++;
+					continue;
+				}
+				set(settlement, field, value);
+				if (changed != null)
+					changed.add(settlement);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated changes");
+		}
+		return skipped;
+	}
+
+	/*
+	 * The StringTable class remembers the settlement keys and field names sent
+	 * over a connection, so that each is sent in full only once.
+	 */
+	static final class StringTable {
+
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		void write(String s, RegistryProtocol.Frame frame) {
+			Integer id = ids.get(s);
+			if (id != null) {
+				frame.putVarInt(id + 1);
+			} else {
+				ids.put(s, ids.size());
+				frame.putVarInt(0);
+				frame.putString(s);
+			}
+		}
+
+		String read(ByteBuffer buffer) throws IOException {
+			int id = RegistryProtocol.getVarInt(buffer);
+			if (id == 0) {
+				String s = RegistryProtocol.getString(buffer);
+				strings.add(s);
+				return s;
+			}
+			if (id > strings.size())
+				throw new StreamCorruptedException("Unknown string " + id);
+			return strings.get(id - 1);
+		}
+
+		void clear() {
+			ids.clear();
+			strings.clear();
+		}
+	}
+}
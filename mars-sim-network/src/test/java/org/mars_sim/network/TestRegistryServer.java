@@ -0,0 +1,161 @@
+package org.mars_sim.network;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+/**
+ * Drives the registry server over the loopback interface.
+ */
+public class TestRegistryServer extends TestCase {
+
+    private static final int CLIENTS = 300;
+    private static final int SETTLEMENTS_PER_CLIENT = 2;
+    private static final int UPDATES_PER_SETTLEMENT = 5;
+
+    private CentralRegistry registry;
+    private RegistryServer server;
+
+    @Override
+    public void setUp() throws Exception {
+        registry = new CentralRegistry();
+        server = new RegistryServer(registry, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    private RegistryClient connect() throws Exception {
+        return new RegistryClient("127.0.0.1", server.getPort());
+    }
+
+    private void waitForSettlements(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && registry.getSettlementRegistryList().size() != count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, registry.getSettlementRegistryList().size());
+    }
+
+    public void testRegisterAndRecords() throws Exception {
+        RegistryClient client = connect();
+        int id = client.register("alpha");
+        assertEquals(1, id);
+        RegistryClient other = connect();
+        assertEquals(-1, other.register("alpha"));
+        other.close();
+
+        client.sendNew(new SettlementRegistry("alpha", id, "Base", "Mars Direct Base", 4, 2, "NASA", 10.5, -20.25));
+        client.sendUpdate(new SettlementRegistry("alpha", id, "Base", "Mars Direct Base", 5, 2, "NASA", 10.5, -20.25));
+        List<SettlementRegistry> records = client.getRecords();
+        assertEquals(1, records.size());
+        SettlementRegistry s = records.get(0);
+        assertEquals("Base", s.getName());
+        assertEquals(5, s.getPopulation());
+        assertEquals(-20.25, s.getLongitude(), 0D);
+
+        client.sendRemove("alpha", id, "Base");
+        assertEquals(0, client.getNumSettlement());
+        client.close();
+    }
+
+    public void testTextClient() throws Exception {
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        out.println("register beta");
+        assertEquals("NEW_ID 1", in.readLine());
+        out.println("new beta & 1 & Camp & Trading Outpost & 8 & 1 & CSA & 3.0 & 4.0 & ");
+        out.println("s");
+        assertEquals("SETTLEMENTS 1", in.readLine());
+        out.println("bye beta");
+        assertNull(in.readLine());
+        socket.close();
+        waitForSettlements(0);
+    }
+
+    public void testMalformedFrameDropsOnlyItsClient() throws Exception {
+        RegistryClient client = connect();
+        assertEquals(1, client.register("alpha"));
+
+        // A publish whose string id does not fit in an int
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        byte[] frame = { 0, 0, 0, 7, RegistryProtocol.PUBLISH, 1, -1, -1, -1, -1, 0x0F };
+        socket.getOutputStream().write(frame);
+        socket.getOutputStream().flush();
+        assertEquals(-1, socket.getInputStream().read());
+        socket.close();
+
+        client.sendNew(new SettlementRegistry("alpha", 1, "Base", "Mars Direct Base", 4, 2, "NASA", 10.5, -20.25));
+        assertEquals(1, client.getNumSettlement());
+        RegistryClient other = connect();
+        assertEquals(2, other.register("beta"));
+        other.close();
+        client.close();
+    }
+
+    public void testManyClients() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        final List<RegistryClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(connect());
+            }
+
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                final RegistryClient client = clients.get(i);
+                final String player = "player" + i;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int id = client.register(player);
+                        for (int s = 0; s < SETTLEMENTS_PER_CLIENT; s++) {
+                            client.sendNew(new SettlementRegistry(player, id, "Base " + s, "Mars Direct Base",
+                                    4, 1, "NASA", s, -s));
+                            for (int u = 0; u < UPDATES_PER_SETTLEMENT; u++) {
+                                client.sendUpdate(new SettlementRegistry(player, id, "Base " + s,
+                                        "Mars Direct Base", 4 + u, 1, "NASA", s, -s));
+                            }
+                        }
+                        return client.getNumSettlement();
+                    }
+                }));
+            }
+            for (Future<Integer> f : futures) {
+                assertTrue(f.get() >= SETTLEMENTS_PER_CLIENT);
+            }
+
+            assertEquals(CLIENTS, registry.getIdMap().size());
+            List<SettlementRegistry> records = clients.get(0).getRecords();
+            assertEquals(CLIENTS * SETTLEMENTS_PER_CLIENT, records.size());
+            for (SettlementRegistry s : records) {
+                assertEquals(4 + UPDATES_PER_SETTLEMENT - 1, s.getPopulation());
+            }
+
+            // Settlements of disconnected clients are removed
+            for (RegistryClient client : clients) {
+                client.close();
+            }
+            waitForSettlements(0);
+            assertEquals(0, registry.getIdMap().size());
+        } finally {
+            executor.shutdown();
+            for (RegistryClient client : clients) {
+                client.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.mars_sim.network;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the versioned settlement state and its replication to subscribers.
+ */
+public class TestReplicatedState extends TestCase {
+
+    private static ByteBuffer changes(ReplicatedState state, long since, ReplicatedState.StringTable table) {
+        RegistryProtocol.Frame frame = new RegistryProtocol.Frame(RegistryProtocol.DELTA);
+        state.writeChanges(since, frame, table);
+        ByteBuffer buffer = frame.build();
+        buffer.position(5);
+        return buffer;
+    }
+
+    public void testChangesSinceVersion() throws Exception {
+        ReplicatedState state = new ReplicatedState();
+        for (int i = 0; i < 100; i++) {
+            state.set("Base " + i, ReplicatedState.POPULATION, 4);
+            state.set("Base " + i, ReplicatedState.RESOURCE + "oxygen", 100.0);
+        }
+        long version = state.getVersion();
+        assertEquals(200, version);
+
+        // Unchanged values make no new version
+        state.set("Base 7", ReplicatedState.POPULATION, 4);
+        assertEquals(version, state.getVersion());
+
+        state.set("Base 7", ReplicatedState.POPULATION, 5);
+        state.set("Base 42", ReplicatedState.VEHICLE + "Rover 1", new double[] { 1.5, -2.5 });
+        state.remove("Base 3");
+
+        ReplicatedState.StringTable out = new ReplicatedState.StringTable();
+        ByteBuffer delta = changes(state, version, out);
+        assertEquals(3, RegistryProtocol.getVarInt(delta.duplicate()));
+
+        ReplicatedState copy = new ReplicatedState();
+        copy.set("Base 3", ReplicatedState.POPULATION, 4);
+        Set<String> changed = new HashSet<>();
+        copy.readChanges(delta, new ReplicatedState.StringTable(), changed);
+        assertEquals(5, copy.get("Base 7", ReplicatedState.POPULATION));
+        double[] position = (double[]) copy.get("Base 42", ReplicatedState.VEHICLE + "Rover 1");
+        assertEquals(-2.5, position[1], 0D);
+        assertFalse(copy.getSettlements().contains("Base 3"));
+        assertEquals(2, changed.size());
+
+        // Nothing is written when up to date
+        assertEquals(0, RegistryProtocol.getVarInt(changes(state, state.getVersion(), out)));
+    }
+
+    public void testClearedField() throws Exception {
+        ReplicatedState state = new ReplicatedState();
+        state.set("Base", ReplicatedState.MISSION + "Explore 1", "Embarking");
+        long version = state.getVersion();
+        state.set("Base", ReplicatedState.MISSION + "Explore 1", null);
+
+        ReplicatedState copy = new ReplicatedState();
+        copy.set("Base", ReplicatedState.MISSION + "Explore 1", "Embarking");
+        copy.readChanges(changes(state, version, new ReplicatedState.StringTable()),
+                new ReplicatedState.StringTable(), null);
+        assertNull(copy.get("Base", ReplicatedState.MISSION + "Explore 1"));
+    }
+
+    public void testSnapshotRemovesSettlementsGone() throws Exception {
+        ReplicatedState state = new ReplicatedState();
+        state.set("Kept", ReplicatedState.POPULATION, 4);
+        Set<String> known = new HashSet<>();
+        known.add("Kept");
+        known.add("Gone");
+
+        RegistryProtocol.Frame frame = new RegistryProtocol.Frame(RegistryProtocol.PUBLISH);
+        state.writeSnapshot(frame, new ReplicatedState.StringTable(), known);
+        ByteBuffer buffer = frame.build();
+        buffer.position(5);
+
+        ReplicatedState copy = new ReplicatedState();
+        copy.set("Gone", ReplicatedState.POPULATION, 2);
+        copy.readChanges(buffer, new ReplicatedState.StringTable(), null);
+        assertEquals(4, copy.get("Kept", ReplicatedState.POPULATION));
+        assertFalse(copy.getSettlements().contains("Gone"));
+    }
+
+    public void testPublishOnlyOwnSettlements() throws Exception {
+        RegistryServer server = new RegistryServer(new CentralRegistry(), new InetSocketAddress("127.0.0.1", 0));
+        server.setReplicationInterval(10);
+        server.start();
+        try {
+            RegistryClient owner = new RegistryClient("127.0.0.1", server.getPort());
+            RegistryClient other = new RegistryClient("127.0.0.1", server.getPort());
+            RegistryClient subscriber = new RegistryClient("127.0.0.1", server.getPort());
+            subscriber.subscribe();
+
+            ReplicatedState mine = new ReplicatedState();
+            mine.set("Camp", ReplicatedState.POPULATION, 8);
+            owner.publish(mine);
+            owner.flush();
+            waitFor(subscriber, "Camp", ReplicatedState.POPULATION, 8);
+
+            // Another client cannot change or remove the settlement
+            ReplicatedState theirs = new ReplicatedState();
+            theirs.set("Camp", ReplicatedState.POPULATION, 1);
+            theirs.set("Outpost", ReplicatedState.POPULATION, 3);
+            other.publish(theirs);
+            theirs.remove("Camp");
+            other.publish(theirs);
+            other.flush();
+            waitFor(subscriber, "Outpost", ReplicatedState.POPULATION, 3);
+            assertEquals(8, subscriber.getReplica().get("Camp", ReplicatedState.POPULATION));
+
+            owner.close();
+            other.close();
+            subscriber.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    public void testAttachedConnectionPublishes() throws Exception {
+        CentralRegistry registry = new CentralRegistry();
+        RegistryServer server = new RegistryServer(registry, new InetSocketAddress("127.0.0.1", 0));
+        server.setReplicationInterval(10);
+        server.start();
+        try {
+            RegistryClient player = new RegistryClient("127.0.0.1", server.getPort());
+            int id = player.register("alpha");
+            player.sendNew(new SettlementRegistry("alpha", id, "Camp", "Mars Direct Base", 4, 2, "NASA", 1.0, 2.0));
+            assertEquals(1, player.getNumSettlement());
+            RegistryClient subscriber = new RegistryClient("127.0.0.1", server.getPort());
+            subscriber.subscribe();
+
+            // A connection that is not the registered client cannot publish
+            RegistryClient stranger = new RegistryClient("127.0.0.1", server.getPort());
+            stranger.attach(id, "beta");
+            ReplicatedState theirs = new ReplicatedState();
+            theirs.set("Camp", ReplicatedState.POPULATION, 1);
+            stranger.publish(theirs);
+            stranger.flush();
+
+            RegistryClient state = new RegistryClient("127.0.0.1", server.getPort());
+            state.attach(id, "alpha");
+            ReplicatedState mine = new ReplicatedState();
+            mine.set("Camp", ReplicatedState.POPULATION, 4);
+            state.publish(mine);
+            state.flush();
+            waitFor(subscriber, "Camp", ReplicatedState.POPULATION, 4);
+
+            stranger.close();
+            state.close();
+            subscriber.close();
+            player.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    public void testSubscriberGetsChanges() throws Exception {
+        RegistryServer server = new RegistryServer(new CentralRegistry(), new InetSocketAddress("127.0.0.1", 0));
+        server.setReplicationInterval(10);
+        server.start();
+        try {
+            RegistryClient publisher = new RegistryClient("127.0.0.1", server.getPort());
+            RegistryClient subscriber = new RegistryClient("127.0.0.1", server.getPort());
+            subscriber.subscribe();
+
+            ReplicatedState local = new ReplicatedState();
+            local.set("Camp", ReplicatedState.POPULATION, 8);
+            local.set("Camp", ReplicatedState.ROBOTS, 2);
+            publisher.publish(local);
+            publisher.flush();
+            waitFor(subscriber, "Camp", ReplicatedState.POPULATION, 8);
+            assertEquals(2, subscriber.getReplica().get("Camp", ReplicatedState.ROBOTS));
+
+            local.set("Camp", ReplicatedState.POPULATION, 9);
+            publisher.publish(local);
+            publisher.flush();
+            waitFor(subscriber, "Camp", ReplicatedState.POPULATION, 9);
+
+            // The settlements of a client leaving are removed
+            publisher.close();
+            for (int i = 0; i < 500 && subscriber.getReplica().getSettlements().contains("Camp"); i++)
+                subscriber.receive(10);
+            assertFalse(subscriber.getReplica().getSettlements().contains("Camp"));
+            subscriber.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    private static void waitFor(RegistryClient client, String settlement, String field, Object value)
+            throws Exception {
+        for (int i = 0; i < 500 && !value.equals(client.getReplica().get(settlement, field)); i++)
+            client.receive(10);
+        assertEquals(value, client.getReplica().get(settlement, field));
+    }
+}
@@ -24,8 +24,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.mars_sim.msp.core.Simulation;
@@ -41,9 +44,11 @@ import org.mars_sim.msp.core.events.HistoricalEventListener;
 import org.mars_sim.msp.core.events.SimpleEvent;
 import org.mars_sim.msp.core.person.Person;
 import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.time.ClockListener;
 import org.mars_sim.msp.ui.javafx.mainmenu.MainMenu;
 import org.mars_sim.network.ClientRegistry;
 import org.mars_sim.network.Receiver;
+import org.mars_sim.network.RegistryClient;
 import org.mars_sim.network.SettlementRegistry;
 
 import javafx.animation.Timeline;
@@ -89,6 +94,8 @@ public class MultiplayerClient implements UnitListener, HistoricalEventListener,
 
 	private static final int PORT = 9090;
 	private static final int PORT_CHAT = 9876;
+	/** The default time between publishing the state of the settlements [ms]. */
+	private static final long PUBLISH_INTERVAL = 1000;
 
 	//private static final int TIME_DELAY = 60 * 1000; // in miliseconds
 
@@ -128,6 +135,14 @@ public class MultiplayerClient implements UnitListener, HistoricalEventListener,
 	private Alert alert;
 	private transient ThreadPoolExecutor clientExecutor;
 
+	/** The connection the state of the settlements is published on. */
+	private volatile RegistryClient stateClient;
+	private SettlementStateProducer stateProducer;
+	private ClockListener stateListener;
+	private ExecutorService publishExecutor;
+	private volatile long publishInterval = PUBLISH_INTERVAL;
+	private long nextPublish;
+
 	private static List<SettlementRegistry> settlementList;
 
 	/*
@@ -225,6 +240,20 @@ public class MultiplayerClient implements UnitListener, HistoricalEventListener,
 		return serverAddressStr;
 	}
 
+	/*
+	 * Sets the time between publishing the state of the settlements to the host
+	 * @param millis the interval [ms]
+	 */
+	public void setPublishInterval(long millis) {
+		if (millis < 1)
+			throw new IllegalArgumentException("Publish interval must be positive");
+		publishInterval = millis;
+	}
+
+	public long getPublishInterval() {
+		return publishInterval;
+	}
+
 	public MainMenu getMainMenu() {
 		return mainMenu;
 	}
@@ -645,6 +674,7 @@ public class MultiplayerClient implements UnitListener, HistoricalEventListener,
 	 * Closes sockets to terminate contact with the server
 	 */
 	private void sendBye() {
+		stopPublishing();
 		try {
 			// tell server that the player is disconnecting
 			out.println("bye " + playerName);
@@ -1118,6 +1148,89 @@ public class MultiplayerClient implements UnitListener, HistoricalEventListener,
 		settlements.forEach(s -> {
 			s.addUnitListener(this);
 		} );
+
+		startPublishing();
+	}
+
+	/*
+	 * Starts publishing the live state of the player's settlements to the host.
+	 * The state is read on the clock thread between pulses, at most once per
+	 * publish interval, and sent on a thread of its own.
+	 */
+	private synchronized void startPublishing() {
+		if (stateListener != null)
+			return;
+		try {
+			stateClient = new RegistryClient(serverAddressStr, PORT);
+			// Publish on behalf of the client registered on the text connection
+			stateClient.attach(clientID, playerName);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Cannot publish the state of the settlements", e);
+			stateClient = null;
+			return;
+		}
+
+		Simulation sim = Simulation.instance();
+		stateProducer = new SettlementStateProducer(sim.getMissionManager());
+		publishExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "state-publisher");
+			t.setDaemon(true);
+			return t;
+		});
+		stateListener = new ClockListener() {
+			@Override
+			public void clockPulse(double time) {
+				long now = System.currentTimeMillis();
+				if (now < nextPublish)
+					return;
+				nextPublish = now + publishInterval;
+				stateProducer.update(sim.getUnitManager().getSettlements());
+				try {
+					publishExecutor.execute(MultiplayerClient.this::sendState);
+				} catch (RejectedExecutionException e) {
+					// Publishing has just stopped
+				}
+			}
+
+			@Override
+			public void uiPulse(double time) {
+			}
+
+			@Override
+			public void pauseChange(boolean isPaused, boolean showPane) {
+			}
+		};
+		sim.getMasterClock().addClockListener(stateListener);
+	}
+
+	/*
+	 * Sends the changes of the state since it was last sent
+	 */
+	private void sendState() {
+		RegistryClient client = stateClient;
+		if (client == null)
+			return;
+		try {
+			client.publish(stateProducer.getState());
+			client.flush();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Stopped publishing the state of the settlements", e);
+			stopPublishing();
+		}
+	}
+
+	private synchronized void stopPublishing() {
+		if (stateListener == null)
+			return;
+		Simulation.instance().getMasterClock().removeClockListener(stateListener);
+		stateListener = null;
+		publishExecutor.shutdown();
+		try {
+			stateClient.close();
+		} catch (IOException e) {
+			logger.fine("Error closing the state connection : " + e.getMessage());
+		}
+		stateClient = null;
 	}
 
 	@Override
@@ -1201,6 +1314,7 @@ public class MultiplayerClient implements UnitListener, HistoricalEventListener,
 	}
 
 	public void destroy() {
+		stopPublishing();
 		sock = null;
 		in = null;
 		out = null;
@@ -0,0 +1,131 @@
+/**
+ * Mars Simulation Project
+ * SettlementStateProducer.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.ui.javafx.networking;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.Inventory;
+import org.mars_sim.msp.core.person.ai.mission.Mission;
+import org.mars_sim.msp.core.person.ai.mission.MissionManager;
+import org.mars_sim.msp.core.resource.ResourceUtil;
+import org.mars_sim.msp.core.structure.Settlement;
+import org.mars_sim.msp.core.vehicle.Vehicle;
+import org.mars_sim.network.RegistryClient;
+import org.mars_sim.network.ReplicatedState;
+
+/**
+ * The SettlementStateProducer class fills the replicated state of the
+ * player's settlements from the simulation, keyed by settlement name as in
+ * the settlement registry. Resource amounts are rounded to whole kilograms
+ * so that a settlement at rest makes no new versions to send. Missions are
+ * keyed by their identifier since several missions may share a name.
+ */
+public class SettlementStateProducer {
+
+	/** The resources replicated. */
+	private static final int[] RESOURCES = { ResourceUtil.oxygenID, ResourceUtil.waterID, ResourceUtil.foodID,
+			ResourceUtil.methaneID, ResourceUtil.hydrogenID, ResourceUtil.co2ID };
+
+	private final ReplicatedState state = new ReplicatedState();
+	private final MissionManager missionManager;
+	/** The mission and vehicle fields last set for each settlement. */
+	private final Map<String, Set<String>> listed = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param missionManager the mission manager of the simulation.
+	 */
+	public SettlementStateProducer(MissionManager missionManager) {
+		this.missionManager = missionManager;
+	}
+
+	/**
+	 * Gets the replicated state.
+	 *
+	 * @return the state.
+	 */
+	public ReplicatedState getState() {
+		return state;
+	}
+
+	/**
+	 * Updates the state from the settlements and publishes the changes.
+	 *
+	 * @param settlements the player's settlements.
+	 * @param client      the connection to the host server.
+	 * @throws IOException if the changes cannot be sent.
+	 */
+	public void publish(Collection<Settlement> settlements, RegistryClient client) throws IOException {
+		update(settlements);
+		client.publish(state);
+	}
+
+	/**
+	 * Updates the state from the settlements. Settlements no longer listed are
+	 * removed, as are the missions that ended and the vehicles that left.
+	 *
+	 * @param settlements the player's settlements.
+	 */
+	public void update(Collection<Settlement> settlements) {
+		// Published as a whole, not half way through
+		synchronized (state) {
+			updateState(settlements);
+		}
+	}
+
+	private void updateState(Collection<Settlement> settlements) {
+		Set<String> names = new HashSet<>();
+		for (Settlement s : settlements) {
+			String name = s.getName();
+			names.add(name);
+			state.set(name, ReplicatedState.POPULATION, s.getNumCitizens());
+			state.set(name, ReplicatedState.ROBOTS, s.getNumBots());
+
+			Inventory inv = s.getInventory();
+			for (int id : RESOURCES) {
+				double amount = Math.round(inv.getAmountResourceStored(id, false));
+				state.set(name, ReplicatedState.RESOURCE + ResourceUtil.findAmountResourceName(id), amount);
+			}
+
+			Set<String> fields = new HashSet<>();
+			for (Mission m : missionManager.getMissionsForSettlement(s)) {
+				String field = ReplicatedState.MISSION + m.getIdentifier();
+				fields.add(field);
+				state.set(name, field, m.getName() + " : " + m.getPhaseDescription());
+			}
+			for (Vehicle v : s.getAllAssociatedVehicles()) {
+				String field = ReplicatedState.VEHICLE + v.getName();
+				fields.add(field);
+				Coordinates c = v.getCoordinates();
+				state.set(name, field, new double[] { c.getLatitudeDouble(), c.getLongitudeDouble() });
+			}
+
+			// Clear the fields of the missions and vehicles that are gone
+			Set<String> previous = listed.put(name, fields);
+			if (previous != null) {
+				for (String field : previous) {
+					if (!fields.contains(field))
+						state.set(name, field, null);
+				}
+			}
+		}
+
+		for (String name : state.getSettlements()) {
+			if (!names.contains(name)) {
+				state.remove(name);
+				listed.remove(name);
+			}
+		}
+	}
+}
@@ -44,6 +44,16 @@ public class MapUtils {
         return Coordinates.findRectPosition(coords, mapCenter, rho, halfMap, low_edge);
     }
     
+    /**
+     * Gets the distance covered by a pixel at the scale the map is drawn at.
+     * @param mapType the type of map.
+     * @return distance (km)
+     */
+    public static double getKmPerPixel(String mapType) {
+        double rho = CannedMarsMap.MAP_HEIGHT / Math.PI;
+        return Mars.MARS_RADIUS_KM / rho;
+    }
+    
     public static int getPixelDistance(double distance, String mapType) {
         int mapWidth = CannedMarsMap.MAP_WIDTH;
         double distancePerPixel = Mars.MARS_CIRCUMFERENCE / mapWidth;
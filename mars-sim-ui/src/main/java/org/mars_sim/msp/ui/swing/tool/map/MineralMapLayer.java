@@ -13,9 +13,10 @@ import org.mars_sim.msp.core.mars.MineralMap;
 
 import java.awt.*;
 import java.awt.image.MemoryImageSource;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -79,29 +80,28 @@ public class MineralMapLayer implements MapLayer {
 			java.util.Map<String, Color> mineralColors = getMineralColors();
 			updateMineralsDisplayed();
 			
+			// Only look up the displayed minerals.
+			List<String> displayedMinerals = new ArrayList<String>();
+			for (String mineralType : mineralColors.keySet()) {
+				if (isMineralDisplayed(mineralType))
+					displayedMinerals.add(mineralType);
+			}
+
 			Coordinates location = new Coordinates(0D, 0D);
 			for (int x = 0; x < Map.MAP_VIS_WIDTH; x+=2) {
 				for (int y = 0; y < Map.MAP_VIS_HEIGHT; y+=2) {
 					mapCenter.convertRectToSpherical(x - centerX, y - centerY, rho, location);
-					java.util.Map<String, Double> mineralConcentrations = 
-						mineralMap.getAllMineralConcentrations(location);
-					if (mineralConcentrations.size() > 0) {
-						Iterator<String> i = mineralConcentrations.keySet().iterator();
-						while (i.hasNext()) {
-							String mineralType = i.next();
-							if (isMineralDisplayed(mineralType)) {
-								double concentration = mineralConcentrations.get(mineralType);
-								if (concentration > 0D) {
-									Color baseColor = mineralColors.get(mineralType);
-									int index = x + (y * Map.MAP_VIS_WIDTH);
-									addColorToMineralConcentrationArray(index, baseColor, concentration);
-									addColorToMineralConcentrationArray((index + 1), baseColor, concentration);
-									if (y < Map.MAP_VIS_HEIGHT -1) {
-										int indexNextLine = x + ((y + 1) * Map.MAP_VIS_WIDTH);
-										addColorToMineralConcentrationArray(indexNextLine, baseColor, concentration);
-										addColorToMineralConcentrationArray((indexNextLine + 1), baseColor, concentration);
-									}
-								}
+					for (String mineralType : displayedMinerals) {
+						double concentration = mineralMap.getRasterMineralConcentration(mineralType, location);
+						if (concentration > 0D) {
+							Color baseColor = mineralColors.get(mineralType);
+							int index = x + (y * Map.MAP_VIS_WIDTH);
+							addColorToMineralConcentrationArray(index, baseColor, concentration);
+							addColorToMineralConcentrationArray((index + 1), baseColor, concentration);
+							if (y < Map.MAP_VIS_HEIGHT -1) {
+								int indexNextLine = x + ((y + 1) * Map.MAP_VIS_WIDTH);
+								addColorToMineralConcentrationArray(indexNextLine, baseColor, concentration);
+								addColorToMineralConcentrationArray((indexNextLine + 1), baseColor, concentration);
 							}
 						}
 					}
@@ -0,0 +1,206 @@
+/**
+ * Mars Simulation Project
+ * TerminatorShader.java
+ * @version 3.1.0 2019-01-12
+ */
+
+package org.mars_sim.msp.ui.swing.tool.map;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.mars_sim.msp.core.Coordinates;
+import org.mars_sim.msp.core.Simulation;
+import org.mars_sim.msp.core.mars.OrbitInfo;
+
+/**
+ * The TerminatorShader computes the day/night shading of a map view analytically.
+ * The sub-solar point is taken once per frame from {@link OrbitInfo} and the
+ * cosine of the solar zenith angle at each pixel is the dot product of its
+ * precomputed unit vector with the sun's. The table of pixel vectors is only
+ * rebuilt when the view changes.
+ */
+public class TerminatorShader {
+
+	/** Cosine of the solar zenith angle at and above which it is full daylight. */
+	public static final double DAY_COSINE = .1D;
+	/** Cosine of the solar zenith angle at and below which it is full night. */
+	public static final double NIGHT_COSINE = -.1D;
+
+	/** The maximum alpha of the shade at night. */
+	private static final int MAX_SHADE = 127;
+
+	// The view the pixel vectors were computed for.
+	private double centerPhi = Double.NaN;
+	private double centerTheta = Double.NaN;
+	private double rho;
+	private int width;
+	private int height;
+	private int centerX;
+	private int centerY;
+
+	/** The unit vectors of the view pixels. */
+	private float[] vectorX;
+	private float[] vectorY;
+	private float[] vectorZ;
+	/** The unit vector of the view center. */
+	private double[] centerVector;
+	/** The largest angle between a pixel and the view center. */
+	private double viewRadius;
+
+	/** The unit vector of the sub-solar point. */
+	private double[] sunVector = new double[3];
+
+	private BufferedImage image;
+	private int[] pixels;
+
+	/**
+	 * Gets the sunlight from the cosine of the solar zenith angle, ramped
+	 * linearly over the twilight band of about 6 degrees either side of the
+	 * horizon.
+	 * @param cosZenith the cosine of the solar zenith angle.
+	 * @return the sunlight from 0 (night) to 1 (day).
+	 */
+	public static double getSunlight(double cosZenith) {
+		if (cosZenith >= DAY_COSINE)
+			return 1D;
+		else if (cosZenith <= NIGHT_COSINE)
+			return 0D;
+		else
+			return .5D + 5D * cosZenith;
+	}
+
+	/**
+	 * Updates the sub-solar point from the orbit of Mars.
+	 */
+	public void updateSun() {
+		OrbitInfo orbitInfo = Simulation.instance().getMars().getOrbitInfo();
+		toVector(orbitInfo.getSubSolarLocation(), sunVector);
+	}
+
+	/**
+	 * Gets the cosine of the solar zenith angle at a location for the last
+	 * sub-solar point.
+	 * @param location the location.
+	 * @return the cosine of the solar zenith angle (from -1 to 1).
+	 */
+	public double getCosineSolarZenithAngle(Coordinates location) {
+		double[] v = toVector(location, new double[3]);
+		return v[0] * sunVector[0] + v[1] * sunVector[1] + v[2] * sunVector[2];
+	}
+
+	/**
+	 * Shades a map view for the current sub-solar point.
+	 * @param mapCenter the location of the center of the map.
+	 * @param width the width of the view.
+	 * @param height the height of the view.
+	 * @param centerX the X pixel of the globe center.
+	 * @param centerY the Y pixel of the globe center.
+	 * @param rho the radius of the globe in pixels.
+	 * @return the shading image, or null if the whole view is in daylight.
+	 */
+	public BufferedImage shade(Coordinates mapCenter, int width, int height,
+			int centerX, int centerY, double rho) {
+
+		updateSun();
+		updateView(mapCenter, width, height, centerX, centerY, rho);
+
+		// Bound the zenith angles in view from the one at the view center
+		double centerCosine = centerVector[0] * sunVector[0] + centerVector[1] * sunVector[1]
+				+ centerVector[2] * sunVector[2];
+		double centerZenith = Math.acos(Math.max(-1D, Math.min(1D, centerCosine)));
+		if (centerZenith + viewRadius <= Math.acos(DAY_COSINE))
+			return null;
+
+		if (centerZenith - viewRadius >= Math.acos(NIGHT_COSINE)) {
+			Arrays.fill(pixels, MAX_SHADE << 24);
+		}
+		else {
+			final double sunX = sunVector[0];
+			final double sunY = sunVector[1];
+			final double sunZ = sunVector[2];
+			IntStream.range(0, height).parallel().forEach(y -> {
+				int end = (y + 1) * width;
+				for (int i = y * width; i < end; i++) {
+					double sunlight = getSunlight(vectorX[i] * sunX + vectorY[i] * sunY + vectorZ[i] * sunZ);
+					pixels[i] = (MAX_SHADE - (int) (MAX_SHADE * sunlight)) << 24;
+				}
+			});
+		}
+
+		return image;
+	}
+
+	/**
+	 * Rebuilds the table of pixel vectors and the image if the view has changed.
+	 */
+	private void updateView(Coordinates mapCenter, int width, int height,
+			int centerX, int centerY, double rho) {
+
+		if (mapCenter.getPhi() == centerPhi && mapCenter.getTheta() == centerTheta && rho == this.rho
+				&& width == this.width && height == this.height
+				&& centerX == this.centerX && centerY == this.centerY)
+			return;
+
+		if (image == null || width != this.width || height != this.height) {
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			vectorX = new float[width * height];
+			vectorY = new float[width * height];
+			vectorZ = new float[width * height];
+		}
+
+		centerPhi = mapCenter.getPhi();
+		centerTheta = mapCenter.getTheta();
+		this.rho = rho;
+		this.width = width;
+		this.height = height;
+		this.centerX = centerX;
+		this.centerY = centerY;
+		centerVector = toVector(mapCenter, new double[3]);
+
+		// Same rotation as Coordinates.convertRectToSpherical()
+		double sinPhi = Math.sin(centerPhi);
+		double cosPhi = Math.cos(centerPhi);
+		double sinTheta = Math.sin(centerTheta);
+		double cosTheta = Math.cos(centerTheta);
+		double minCosine = 1D;
+		for (int y = 0; y < height; y++) {
+			double py = y - centerY;
+			for (int x = 0; x < width; x++) {
+				double px = x - centerX;
+				double z = Math.sqrt(Math.max(0D, rho * rho - px * px - py * py));
+				double y2 = py * cosPhi + z * sinPhi;
+				double z2 = z * cosPhi - py * sinPhi;
+				double x3 = px * cosTheta + y2 * sinTheta;
+				double y3 = y2 * cosTheta - px * sinTheta;
+				double norm = Math.sqrt(x3 * x3 + y3 * y3 + z2 * z2);
+
+				int i = x + y * width;
+				vectorX[i] = (float) (y3 / norm);
+				vectorY[i] = (float) (x3 / norm);
+				vectorZ[i] = (float) (z2 / norm);
+
+				minCosine = Math.min(minCosine, vectorX[i] * centerVector[0] + vectorY[i] * centerVector[1]
+						+ vectorZ[i] * centerVector[2]);
+			}
+		}
+		viewRadius = Math.acos(Math.max(-1D, minCosine));
+	}
+
+	/**
+	 * Converts a location to its unit vector.
+	 * @param location the location.
+	 * @param vector the array to fill.
+	 * @return the unit vector.
+	 */
+	private static double[] toVector(Coordinates location, double[] vector) {
+		double sinPhi = Math.sin(location.getPhi());
+		vector[0] = sinPhi * Math.cos(location.getTheta());
+		vector[1] = sinPhi * Math.sin(location.getTheta());
+		vector[2] = Math.cos(location.getPhi());
+		return vector;
+	}
+}
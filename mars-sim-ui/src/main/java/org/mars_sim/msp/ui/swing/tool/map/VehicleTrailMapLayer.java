@@ -9,7 +9,7 @@ package org.mars_sim.msp.ui.swing.tool.map;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.util.ArrayList;
+import java.awt.Graphics2D;
 import java.util.Iterator;
 
 import org.mars_sim.msp.core.Coordinates;
@@ -46,11 +46,18 @@ public class VehicleTrailMapLayer implements MapLayer {
         if (TopoMarsMap.TYPE.equals(mapType)) g.setColor(Color.black);
         else g.setColor(new Color(0, 96, 0));
         
+        // Drop the trail detail finer than a pixel at the current scale
+        double kmPerPixel = MapUtils.getKmPerPixel(mapType);
+        if (g instanceof Graphics2D) {
+        	double scale = ((Graphics2D) g).getTransform().getScaleY();
+        	if (scale > 0D) kmPerPixel /= scale;
+        }
+        
         // Draw trail
-        if (singleVehicle != null) displayTrail(singleVehicle, mapCenter, mapType, g);
+        if (singleVehicle != null) displayTrail(singleVehicle, mapCenter, mapType, kmPerPixel, g);
         else {
         	Iterator<Vehicle> i = Simulation.instance().getUnitManager().getVehicles().iterator();
-        	while (i.hasNext()) displayTrail(i.next(), mapCenter, mapType, g);
+        	while (i.hasNext()) displayTrail(i.next(), mapCenter, mapType, kmPerPixel, g);
         }
     }
         
@@ -59,16 +66,17 @@ public class VehicleTrailMapLayer implements MapLayer {
      * @param vehicle the vehicle to display.
      * @param mapCenter the location of the center of the map.
      * @param mapType the type of map.
+     * @param kmPerPixel the distance covered by a pixel (km).
      * @param g the graphics context.
      */
-    private void displayTrail(Vehicle vehicle, Coordinates mapCenter, String mapType, Graphics g) {
+    private void displayTrail(Vehicle vehicle, Coordinates mapCenter, String mapType, double kmPerPixel, Graphics g) {
             
         // Get map angle.
         double angle = CannedMarsMap.HALF_MAP_ANGLE;
             
         // Draw trail.
         IntPoint oldSpot = null;
-        Iterator<Coordinates> j = (new ArrayList<Coordinates>(vehicle.getTrail())).iterator();
+        Iterator<Coordinates> j = vehicle.getTrail(kmPerPixel).iterator();
         while (j.hasNext()) {
             Coordinates trailSpot = j.next();
             if (trailSpot != null) {
@@ -280,7 +280,7 @@ public class CropTableModel extends UnitTableModel {
 	 * @param rowIndex    Row index of the cell.
 	 * @param columnIndex Column index of the cell.
 	 */
-	public Object getValueAt(int rowIndex, int columnIndex) {
+	protected Object getUnitValue(int rowIndex, int columnIndex) {
 		// logger.info("getValueAt() : Just Entered ");
 		// logger.info("rowIndex : " + rowIndex );
 		// logger.info("columnIndex : " + columnIndex);
@@ -13,8 +13,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.swing.SwingUtilities;
 
 import org.mars_sim.msp.core.Msg;
 import org.mars_sim.msp.core.Simulation;
@@ -280,12 +280,12 @@ public class PersonTableModel extends UnitTableModel {
 	protected void addUnit(Unit newUnit) {
 
 		if (performanceValueCache == null) {
-			performanceValueCache = new HashMap<Unit, Map<Integer, String>>();
+			performanceValueCache = new ConcurrentHashMap<Unit, Map<Integer, String>>();
 		}
 
 		if (!performanceValueCache.containsKey(newUnit)) {
 			try {
-				Map<Integer, String> performanceItemMap = new HashMap<Integer, String>(4);
+				Map<Integer, String> performanceItemMap = new ConcurrentHashMap<Integer, String>(8);
 
 				Person person = (Person) newUnit;
 				PhysicalCondition condition = person.getPhysicalCondition();
@@ -325,7 +325,7 @@ public class PersonTableModel extends UnitTableModel {
 	protected void removeUnit(Unit oldUnit) {
 
 		if (performanceValueCache == null) {
-			performanceValueCache = new HashMap<Unit, Map<Integer, String>>();
+			performanceValueCache = new ConcurrentHashMap<Unit, Map<Integer, String>>();
 		}
 		if (performanceValueCache.containsKey(oldUnit)) {
 			Map<Integer, String> performanceItemMap = performanceValueCache.get(oldUnit);
@@ -341,21 +341,9 @@ public class PersonTableModel extends UnitTableModel {
 	 * @param event the unit event.
 	 */
 	public void unitUpdate(UnitEvent event) {
-
-		// WARNING : the instance of desktop is NOT guarantee
-		// if (desktop.getMainScene() != null) {
-		// Platform.runLater(
-		// new PersonTableUpdater(event, this)
-		// );
-
-		// }
-		// else {
-		// WARNING : the use of SwingUtilities below seems to create StackOverflow from
-		// time to time in eclipse
-		SwingUtilities.invokeLater(new PersonTableUpdater(event, this));
-//		}
-
-
+		// The cell is only marked here and shown at the next refresh, rather than
+		// posting a task to the event dispatch thread for each event.
+		new PersonTableUpdater(event, this).update();
 	}
 
 	/**
@@ -364,7 +352,7 @@ public class PersonTableModel extends UnitTableModel {
 	 * @param rowIndex    Row index of the cell.
 	 * @param columnIndex Column index of the cell.
 	 */
-	public Object getValueAt(int rowIndex, int columnIndex) {
+	protected Object getUnitValue(int rowIndex, int columnIndex) {
 		Object result = null;
 
 		if (rowIndex < getUnitNumber()) {
@@ -598,7 +586,7 @@ public class PersonTableModel extends UnitTableModel {
 	/**
 	 * Inner class for updating the person table.
 	 */
-	private static class PersonTableUpdater implements Runnable {
+	private static class PersonTableUpdater {
 
 		static final Map<UnitEventType, Integer> EVENT_COLUMN_MAPPING;
 		
@@ -635,8 +623,7 @@ public class PersonTableModel extends UnitTableModel {
 			this.tableModel = tableModel;
 		}
 
-		@Override
-		public void run() {
+		private void update() {
 			UnitEventType eventType = event.getType();
 
 			Integer column = EVENT_COLUMN_MAPPING.get(eventType);
@@ -771,7 +758,7 @@ public class PersonTableModel extends UnitTableModel {
 
 			if (column != null && column > -1) {
 				Unit unit = (Unit) event.getSource();
-				tableModel.fireTableCellUpdated(tableModel.getUnitIndex(unit), column);
+				tableModel.markDirty(unit, column);
 			}
 		}
 	}
@@ -13,7 +13,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
-import javax.swing.SwingUtilities;
 
 import org.mars_sim.msp.core.Msg;
 import org.mars_sim.msp.core.Simulation;
@@ -279,7 +278,7 @@ extends UnitTableModel {
 	 * @param event the unit event.
 	 */
 	public void unitUpdate(UnitEvent event) {
-		SwingUtilities.invokeLater(new RobotTableUpdater(event, this));
+		new RobotTableUpdater(event, this).update();
 	}
 
 	/**
@@ -287,7 +286,7 @@ extends UnitTableModel {
 	 * @param rowIndex Row index of the cell.
 	 * @param columnIndex Column index of the cell.
 	 */
-	public Object getValueAt(int rowIndex, int columnIndex) {
+	protected Object getUnitValue(int rowIndex, int columnIndex) {
 		Object result = null;
 
 		if (rowIndex < getUnitNumber()) {
@@ -500,8 +499,7 @@ extends UnitTableModel {
 	/**
 	 * Inner class for updating the robot table.
 	 */
-	private static class RobotTableUpdater
-	implements Runnable {
+	private static class RobotTableUpdater {
 
 		static final Map<UnitEventType, Integer> EVENT_COLUMN_MAPPING;//= new HashMap<String, Integer>(12);
 
@@ -533,8 +531,7 @@ extends UnitTableModel {
 			this.tableModel = tableModel;
 		}
 
-		@Override
-		public void run() {
+		private void update() {
 			UnitEventType eventType = event.getType();
 
 			Integer column = EVENT_COLUMN_MAPPING.get(eventType);
@@ -576,7 +573,7 @@ extends UnitTableModel {
 
 			if (column != null && column> -1) {
 				Unit unit = (Unit) event.getSource();
-				tableModel.fireTableCellUpdated(tableModel.getUnitIndex(unit), column);
+				tableModel.markDirty(unit, column);
 			}
 		}
 	}
@@ -12,7 +12,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
-import javax.swing.SwingUtilities;
 
 import org.mars_sim.msp.core.Msg;
 import org.mars_sim.msp.core.Simulation;
@@ -131,7 +130,7 @@ public class SettlementTableModel extends UnitTableModel {
 	 * @param rowIndex    Row index of the cell.
 	 * @param columnIndex Column index of the cell.
 	 */
-	public Object getValueAt(int rowIndex, int columnIndex) {
+	protected Object getUnitValue(int rowIndex, int columnIndex) {
 		Object result = null;
 
 		if (rowIndex < getUnitNumber()) {
@@ -244,7 +243,6 @@ public class SettlementTableModel extends UnitTableModel {
 	 */
 	public void unitUpdate(UnitEvent event) {
 		Unit unit = (Unit) event.getSource();
-		int unitIndex = getUnitIndex(unit);
 		Object target = event.getTarget();
 		UnitEventType eventType = event.getType();
 
@@ -318,7 +316,7 @@ public class SettlementTableModel extends UnitTableModel {
 		}
 
 		if (columnNum > -1) {
-			SwingUtilities.invokeLater(new SettlementTableCellUpdater(unitIndex, columnNum));
+			markDirty(unit, columnNum);
 		}
 	}
 
@@ -407,21 +405,6 @@ public class SettlementTableModel extends UnitTableModel {
 		resourceCache = null;
 	}
 
-	private class SettlementTableCellUpdater implements Runnable {
-
-		private int row;
-		private int column;
-
-		private SettlementTableCellUpdater(int row, int column) {
-			this.row = row;
-			this.column = column;
-		}
-
-		public void run() {
-			fireTableCellUpdated(row, column);
-		}
-	}
-
 	/**
 	 * UnitManagerListener inner class.
 	 */
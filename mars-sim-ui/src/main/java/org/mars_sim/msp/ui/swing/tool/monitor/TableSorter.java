@@ -264,6 +264,19 @@ public class TableSorter extends AbstractTableModel
     	else return null;
     }
 
+    /**
+     * Get the row of the source model shown at a row of the sorted model.
+     *
+     * @param row Index of the row in the sorted model.
+     * @return Index of the row in the source model.
+     */
+    public int getSourceRow(int row) {
+    	int current[] = indexes;
+    	if (row < current.length)
+    		return current[row];
+    	else return row;
+    }
+
 //    public String getCause(int row) {
 //    	if (row < indexes.length)
 //    		return sourceModel.getCause(indexes[row]);
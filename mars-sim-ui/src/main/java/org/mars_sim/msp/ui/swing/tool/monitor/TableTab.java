@@ -11,17 +11,20 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.beans.PropertyVetoException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 
 import javax.swing.Icon;
 import javax.swing.JLabel;
 import javax.swing.JTable;
+import javax.swing.JViewport;
 import javax.swing.ListSelectionModel;
 import javax.swing.UIManager;
 import javax.swing.event.TableModelEvent;
@@ -330,6 +333,14 @@ extends MonitorTab {
 
         add(scroller, BorderLayout.CENTER);
 
+        // Tell a unit table which rows are in view, as only those are refreshed
+        if (model instanceof UnitTableModel) {
+        	final UnitTableModel unitModel = (UnitTableModel) model;
+        	final JViewport viewport = scroller.getViewport();
+        	viewport.addChangeListener(e -> updateVisibleRows(unitModel, viewport));
+        	table.getModel().addTableModelListener(e -> updateVisibleRows(unitModel, viewport));
+        }
+
         setName(model.getName());
         setSortColumn(0);
 
@@ -442,6 +453,28 @@ extends MonitorTab {
         return result;
     }
 
+    /**
+     * Passes the rows of the source model in view to a unit table model. They
+     * change as the table is scrolled or sorted.
+     *
+     * @param unitModel the unit table model.
+     * @param viewport the viewport of the table.
+     */
+    private void updateVisibleRows(UnitTableModel unitModel, JViewport viewport) {
+        if (table == null) return;
+        Rectangle view = viewport.getViewRect();
+        int first = table.rowAtPoint(view.getLocation());
+        int last = table.rowAtPoint(new Point(view.x, view.y + view.height - 1));
+        if (first < 0) first = 0;
+        if (last < 0) last = table.getRowCount() - 1;
+
+        BitSet rows = new BitSet();
+        for (int row = first; row <= last; row++) {
+        	rows.set(sortedModel != null ? sortedModel.getSourceRow(row) : row);
+        }
+        unitModel.setVisibleRows(rows);
+    }
+
     /**
      * Remove this view.
      */
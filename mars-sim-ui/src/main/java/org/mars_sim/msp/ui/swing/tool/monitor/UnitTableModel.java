@@ -6,11 +6,17 @@
  */
 package org.mars_sim.msp.ui.swing.tool.monitor;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 
 import org.mars_sim.msp.core.Msg;
@@ -20,12 +26,37 @@ import org.mars_sim.msp.core.UnitListener;
 /**
  * The UnitTableModel that maintains a table model of Units objects. It is only
  * a partial implementation of the TableModel interface.
+ * <p>
+ * Units change far more often than a table can be drawn, so a change is not
+ * shown as it happens. The subclasses mark the cells that changed with
+ * {@link #markDirty(Unit, int)} from any thread, and the marks are shown at a
+ * fixed rate on the event dispatch thread, for the rows in view only. The
+ * values of the cells are read from the units once per refresh at most, when
+ * the table asks for them.
  */
 abstract public class UnitTableModel extends AbstractTableModel implements MonitorModel, UnitListener {
 
+	/** The time between two refreshes of the changed cells [ms]. */
+	private static final int REFRESH_INTERVAL = 250;
+
+	/** Marks a cell of the snapshot not read yet. */
+	private static final Object UNREAD = new Object();
+
 	// Data members
 	/** Collection of units. */
 	private Collection<Unit> units;
+	/** The units by row. */
+	private volatile Unit[] rows = new Unit[0];
+	/** The row of each unit. */
+	private Map<Unit, Integer> rowIndexes = new ConcurrentHashMap<>();
+	/** The cells changed since the last refresh, by row * columns + column. */
+	private final BitSet dirty = new BitSet();
+	/** The rows in view, or null if all rows are. */
+	private BitSet visibleRows;
+	/** The values of the cells read since the last refresh, by row. */
+	private volatile Object[][] snapshot;
+	/** The timer refreshing the changed cells. */
+	private Timer refreshTimer;
 	/** Model name. */
 	private String name;
 	/**
@@ -58,6 +89,9 @@ abstract public class UnitTableModel extends AbstractTableModel implements Monit
 		// getRowCount();
 		this.columnNames = names;
 		this.columnTypes = types;
+
+		refreshTimer = new Timer(REFRESH_INTERVAL, e -> refresh());
+		refreshTimer.start();
 	}
 
 	/**
@@ -69,6 +103,7 @@ abstract public class UnitTableModel extends AbstractTableModel implements Monit
 		if (!units.contains(newUnit)) {
 			units.add(newUnit);
 			refreshSize = true;
+			updateRows();
 			newUnit.addUnitListener(this);
 
 			// Inform listeners of new row
@@ -91,6 +126,7 @@ abstract public class UnitTableModel extends AbstractTableModel implements Monit
 
 			units.remove(oldUnit);
 			refreshSize = true;
+			updateRows();
 			oldUnit.removeUnitListener(this);
 
 			// Inform listeners of new row
@@ -105,17 +141,118 @@ abstract public class UnitTableModel extends AbstractTableModel implements Monit
 	 * @return the index value.
 	 */
 	private int getIndex(Unit unit) {
-		final Iterator<Unit> it = units.iterator();
-		int idx = -1;
-		Unit u;
-		while (it.hasNext()) {
-			idx++;
-			u = it.next();
-			if (u.equals(unit)) {
-				return idx;
+		Integer idx = rowIndexes.get(unit);
+		if (idx != null)
+			return idx;
+		throw new IllegalStateException("Could not find index for unit " + unit);
+	}
+
+	/**
+	 * Maps the rows to the units after units are added or removed. The marks of
+	 * changed cells are dropped as the rows have moved, and the rows are drawn
+	 * anew anyway.
+	 */
+	private synchronized void updateRows() {
+		Unit[] newRows = units.toArray(new Unit[0]);
+		Map<Unit, Integer> newIndexes = new ConcurrentHashMap<>();
+		for (int i = 0; i < newRows.length; i++)
+			newIndexes.put(newRows[i], i);
+		rows = newRows;
+		rowIndexes = newIndexes;
+		synchronized (dirty) {
+			dirty.clear();
+		}
+		snapshot = null;
+	}
+
+	/**
+	 * Marks a cell of a unit as changed. It is shown at the next refresh if its
+	 * row is in view.
+	 * 
+	 * @param unit   the unit
+	 * @param column the column of the cell
+	 */
+	protected void markDirty(Unit unit, int column) {
+		Integer row = rowIndexes.get(unit);
+		if ((row != null) && (column >= 0) && (column < columnNames.length)) {
+			synchronized (dirty) {
+				dirty.set(row * columnNames.length + column);
 			}
 		}
-		throw new IllegalStateException("Could not find index for unit " + unit);
+	}
+
+	/**
+	 * Sets the rows in view. The cells changed in the other rows are read when
+	 * they come into view.
+	 * 
+	 * @param rows the rows in view, or null if all rows are
+	 */
+	public void setVisibleRows(BitSet rows) {
+		visibleRows = rows;
+	}
+
+	/**
+	 * Shows the cells changed since the last refresh and forgets the values
+	 * read. A single event is fired for each column changed, over the rows in
+	 * view.
+	 */
+	private void refresh() {
+		BitSet cells;
+		synchronized (dirty) {
+			if (dirty.isEmpty()) {
+				snapshot = null;
+				return;
+			}
+			cells = (BitSet) dirty.clone();
+			dirty.clear();
+		}
+		snapshot = null;
+
+		int columns = columnNames.length;
+		int rowCount = getRowCount();
+		BitSet visible = visibleRows;
+		int[] first = new int[columns];
+		int[] last = new int[columns];
+		Arrays.fill(first, -1);
+		for (int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+			int row = i / columns;
+			int column = i % columns;
+			if (row >= rowCount)
+				break;
+			if ((visible != null) && !visible.get(row))
+				continue;
+			if (first[column] < 0)
+				first[column] = row;
+			last[column] = row;
+		}
+
+		for (int column = 0; column < columns; column++) {
+			if (first[column] >= 0)
+				fireTableChanged(new TableModelEvent(this, first[column], last[column], column));
+		}
+	}
+
+	/**
+	 * Forgets the values read for the cells an event is about.
+	 */
+	@Override
+	public void fireTableChanged(TableModelEvent e) {
+		Object[][] values = snapshot;
+		if (values != null) {
+			int firstRow = e.getFirstRow();
+			int lastRow = e.getLastRow();
+			if ((e.getType() != TableModelEvent.UPDATE) || (firstRow < 0) || (lastRow >= values.length))
+				snapshot = null;
+			else {
+				for (int row = firstRow; row <= lastRow; row++) {
+					if (e.getColumn() == TableModelEvent.ALL_COLUMNS)
+						values[row] = null;
+					else if (values[row] != null)
+						values[row][e.getColumn()] = UNREAD;
+				}
+			}
+		}
+		super.fireTableChanged(e);
 	}
 
 	/**
@@ -138,6 +275,7 @@ abstract public class UnitTableModel extends AbstractTableModel implements Monit
 			i.next().removeUnitListener(this);
 		units.clear();
 		refreshSize = true;
+		updateRows();
 		fireTableDataChanged();
 	}
 
@@ -257,18 +395,53 @@ abstract public class UnitTableModel extends AbstractTableModel implements Monit
 	protected Unit getUnit(int index) {
 		if (index > (getRowCount() - 1))
 			throw new IllegalStateException("Invalid index " + index + " for " + getRowCount() + " rows");
-		int idx = -1;
-		Iterator<Unit> it = units.iterator();
-		while (it.hasNext()) {
-			idx++;
-			if (idx == index) {
-				return it.next();
-			}
-			it.next();
-		}
+		Unit[] current = rows;
+		if ((index >= 0) && (index < current.length))
+			return current[index];
 		throw new IllegalStateException("Could not find an index " + index);
 	}
 
+	/**
+	 * Return the value of a cell. On the event dispatch thread, the value is read
+	 * from the unit once per refresh and kept until the next.
+	 * 
+	 * @param rowIndex    Row index of the cell.
+	 * @param columnIndex Column index of the cell.
+	 */
+	public Object getValueAt(int rowIndex, int columnIndex) {
+		int rowCount = getRowCount();
+		if (!SwingUtilities.isEventDispatchThread() || (rowIndex < 0) || (rowIndex >= rowCount)
+				|| (columnIndex < 0) || (columnIndex >= columnNames.length))
+			return getUnitValue(rowIndex, columnIndex);
+
+		Object[][] values = snapshot;
+		if ((values == null) || (values.length != rowCount)) {
+			values = new Object[rowCount][];
+			snapshot = values;
+		}
+		Object[] row = values[rowIndex];
+		if (row == null) {
+			row = new Object[columnNames.length];
+			Arrays.fill(row, UNREAD);
+			values[rowIndex] = row;
+		}
+		Object value = row[columnIndex];
+		if (value == UNREAD) {
+			value = getUnitValue(rowIndex, columnIndex);
+			row[columnIndex] = value;
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the value of a cell from its unit.
+	 * 
+	 * @param rowIndex    Row index of the cell.
+	 * @param columnIndex Column index of the cell.
+	 * @return the value
+	 */
+	protected abstract Object getUnitValue(int rowIndex, int columnIndex);
+
 	/**
 	 * Gets the index of the row a given unit is at.
 	 * 
@@ -305,6 +478,10 @@ abstract public class UnitTableModel extends AbstractTableModel implements Monit
 	 * Prepares the model for deletion.
 	 */
 	public void destroy() {
+		if (refreshTimer != null) {
+			refreshTimer.stop();
+			refreshTimer = null;
+		}
 		if (units != null) {
 			clear();
 		}
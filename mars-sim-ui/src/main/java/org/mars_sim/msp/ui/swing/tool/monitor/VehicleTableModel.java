@@ -14,7 +14,6 @@ import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.swing.SwingUtilities;
 
 import org.mars_sim.msp.core.Coordinates;
 import org.mars_sim.msp.core.Msg;
@@ -188,7 +187,7 @@ extends UnitTableModel {
 	 * @param rowIndex Row index of the cell.
 	 * @param columnIndex Column index of the cell.
 	 */
-	public Object getValueAt(int rowIndex, int columnIndex) {
+	protected Object getUnitValue(int rowIndex, int columnIndex) {
 		Object result = null;
 
 		if (rowIndex < getUnitNumber()) {
@@ -412,7 +411,7 @@ extends UnitTableModel {
 
 				if (tempColumnNum > -1) {
 					// 2015-03-10 Converted resourceCache and resourceMap from Map<AmountResource, Integer> to Map<AmountResource, Double> in VehicleTableModel.java.
-					double currentValue =  Math.round ( (Double) getValueAt(unitIndex, tempColumnNum) * 10.0 ) / 10.0;
+					double currentValue =  Math.round ( (Double) getUnitValue(unitIndex, tempColumnNum) * 10.0 ) / 10.0;
 					double newValue = Math.round ( getResourceStored(unit, (AmountResource) target) * 10.0 ) / 10.0;
 					if (currentValue != newValue) {
 						//System.out.println("Column : " + tempColumnNum + "  currentValue : " + currentValue + "   newValue : " + newValue);
@@ -428,7 +427,7 @@ extends UnitTableModel {
 		}
 
 		if (columnNum > -1) {
-			SwingUtilities.invokeLater(new VehicleTableCellUpdater(unitIndex, columnNum));
+			markDirty(unit, columnNum);
 		}
 	}
 
@@ -594,24 +593,6 @@ extends UnitTableModel {
 		}
 	}
 
-	/**
-	 * Inner class for updating a cell in the vehicle table.
-	 */
-	private class VehicleTableCellUpdater implements Runnable {
-
-		private int row;
-		private int column;
-
-		private VehicleTableCellUpdater(int row, int column) {
-			this.row = row;
-			this.column = column;
-		}
-
-		public void run() {
-			fireTableCellUpdated(row, column);
-		}
-	}
-
 	/**
 	 * MissionListener inner class.
 	 */
@@ -636,8 +617,7 @@ extends UnitTableModel {
 				if (mission instanceof VehicleMission) {
 					Vehicle vehicle = ((VehicleMission) mission).getVehicle();
 					if (vehicle != null) {
-						int unitIndex = getUnitIndex(vehicle);
-						SwingUtilities.invokeLater(new VehicleTableCellUpdater(unitIndex, columnNum));
+						markDirty(vehicle, columnNum);
 					}
 				}
 			}
@@ -7,46 +7,43 @@
 
 package org.mars_sim.msp.ui.swing.tool.settlement;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.MediaTracker;
-import java.awt.image.BufferedImage;
-import java.awt.image.MemoryImageSource;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
-import org.mars_sim.msp.core.Coordinates;
-import org.mars_sim.msp.core.Simulation;
-import org.mars_sim.msp.core.mars.SurfaceFeatures;
+
 import org.mars_sim.msp.core.structure.Settlement;
 import org.mars_sim.msp.core.structure.building.Building;
+import org.mars_sim.msp.ui.swing.tool.map.TerminatorShader;
 
 /**
  * The DayNightMapLayer is a graphics layer to display twilight and night time shading of the settlement
  */
 public class DayNightMapLayer implements SettlementMapLayer {
 
-    private static Logger logger = Logger.getLogger(DayNightMapLayer.class.getName());
     private static final int LIGHT_THRESHOLD = 196;
-    
-	private int heightCache = 0;
-	private int widthCache = 0;
+
     private double sunlightCache = -1;
+    private Color shadeCache;
 
-    private int[] shadingArray;
-    private int[] darkArray;
-    
-    private SurfaceFeatures surfaceFeatures;
 	private SettlementMapPanel mapPanel;
-	private Coordinates location;
-	private BufferedImage shadingImage, darkImage;
+	private TerminatorShader shader;
 
     public DayNightMapLayer(SettlementMapPanel mapPanel) {
 		// Initialize data members.
 		this.mapPanel = mapPanel;
-        surfaceFeatures = Simulation.instance().getMars().getSurfaceFeatures();
+		shader = new TerminatorShader();
     }
 
+	/**
+	 * Gets the sunlight at a settlement, in the steps the layer is shaded by.
+	 * @param settlement the settlement.
+	 * @return the sunlight, as the cosine of the solar zenith angle.
+	 */
+	public double getSunlight(Settlement settlement) {
+		shader.updateSun();
+		double cosZenith = shader.getCosineSolarZenithAngle(settlement.getCoordinates());
+		return Math.round(Math.max(0D, cosZenith) * 100D)/100D;
+	}
+
 	@Override
 	public void displayLayer(Graphics2D g2d, Settlement settlement,
 			Building building, double xPos, double yPos, int width,
@@ -57,162 +54,32 @@ public class DayNightMapLayer implements SettlementMapLayer {
 		if (mapPanel.isDaylightTrackingOn()) {
 
 			// NOTE: whenever the user uses the combobox to switch to another settlement in Settlement Map Tool,
-			// the corresponding location instance of the new settlement will be reloaded
+			// the corresponding location of the new settlement is used
 			// in order to get the correct day light effect.
 
-			location = settlement.getCoordinates(); // new Coordinates(0D, 0D);
-
-	        // normalized to  590 W/m2
-	        double sunlight = Math.round(surfaceFeatures.getSolarIrradiance(location) / SurfaceFeatures.MEAN_SOLAR_IRRADIANCE * 100D)/100D;
-            int sunlightInt = (int) (LIGHT_THRESHOLD * sunlight);
- 
-            if (sunlightCache != sunlight || heightCache != height || widthCache != width) {
-                //logger.info("sunlight : " + sunlight + "    sunlightInt : " + sunlightInt + "    sunlightCache : " + sunlightCache);	
-            	sunlightCache = sunlight;
-       	
-            	if (heightCache != height || widthCache != width) {
-					widthCache = width ;
-					heightCache = height;
-		        	shadingArray = new int[width * height];
-            	}
-   	         	
-		        if (sunlight <= .2D) {
-		        	// create a grey mask to cover the settlement map, simulating the darkness of the night
-		        	//TODO: during dust storm, use a red/orange mask to cover the map
-		            //g2d.setColor(new Color(0, 0, 0, LIGHT_THRESHOLD)); //(0, 0, 0, 196));
-		            //g2d.fillRect(0, 0, width, height);
-
-		        	if (darkArray == null) {
-			            darkArray = new int[width * height];
-	
-				        for (int x = 0; x < width; x += 2) {
-				        	
-				            for (int y = 0; y < height; y += 2) {
-								
-				                int shadeColor = (LIGHT_THRESHOLD << 24) & 0xFF000000; // 0xFF000000 is 255, the alpha mask
-	
-				                int i = x + (y * width);
-				                darkArray[i] = shadeColor;
-				                i++;
-				                if (i < darkArray.length) {
-				                	darkArray[x + 1 + (y * width)] = shadeColor;
-				                }
-	
-				                if (y < height - 1) {
-				                    int j = x + ((y + 1) * width);
-				                    darkArray[j] = shadeColor;
-				                    j++;
-				                    if (j < darkArray.length) {
-				                    	darkArray[x + 1 + ((y + 1) * width)] = shadeColor;
-				                    }
-				                }
-				            }
-				        }
-		            }
-		            
-		            shadingArray = darkArray;
-/*			        
-
-		            
-		            if (darkImage == null) {
-		            	darkImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);//.TYPE_USHORT_GRAY); //
-
-		                int shadeColor = LIGHT_THRESHOLD;//(LIGHT_THRESHOLD << 24) & 0xFF000000; // 0xFF000000 is 255, the alpha mask
-		            	
-				        for (int x = 0; x < width; x++) {
-				        	for (int y = 0; y < height; y++) {
-				        		       		
-				                darkImage.setRGB(x, y, shadeColor);
-				        	}
-				        }
-		            }
-		            
-		            shadingImage = darkImage;
-*/		            
-		        }
-
-		        else if (sunlight >= .9)
-		        	return;
-	
-		        else {
-/*		
-			        shadingImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);//.TYPE_USHORT_GRAY); //
-				       
-	                int shadeColor = LIGHT_THRESHOLD - sunlightInt;//((LIGHT_THRESHOLD - sunlightInt) << 24) & 0xFF000000; // 0xFF000000 is 255, the alpha mask
-	            	
-			        for (int x = 0; x < width; x++) {
-			        	for (int y = 0; y < height; y++) {
-
-				            shadingImage.setRGB(x, y, shadeColor);
-			        	}
-			        }
-			        
-*/
-			        for (int x = 0; x < width; x += 2) {
-	
-			            for (int y = 0; y < height; y += 2) {
-	
-			                int shadeColor = ((LIGHT_THRESHOLD - sunlightInt) << 24) & 0xFF000000; // 0xFF000000 is the alpha mask
-	
-			                int index1 = x + (y * width);
-			                shadingArray[index1] = shadeColor;
-			                index1++;
-			                if (index1 < shadingArray.length) {
-			                    shadingArray[x + 1 + (y * width)] = shadeColor;
-			                }
-	
-			                if (y < height - 1) {
-			                    int index2 = x + ((y + 1) * width);
-			                    shadingArray[index2] = shadeColor;
-			                    index2++;
-			                    if (index2 < shadingArray.length) {
-			                        shadingArray[x + 1 + ((y + 1) * width)] = shadeColor;
-			                    }
-			                }
-	
-			            }
-	
-			        }
-	
-		        }
-            }
-            
-            //else 
-            //	logger.info("same");
-		        
-			    	
-            Image shadingMap = mapPanel.createImage(
-            	new MemoryImageSource(width, height, shadingArray, 0, width));
-
-            MediaTracker mt = new MediaTracker(mapPanel);
-            mt.addImage(shadingMap, 0);
-
-            try {
-                mt.waitForID(0);
-                Thread.sleep(20);
-            }
-            catch (InterruptedException e) {
-                logger.log(Level.SEVERE,"ShadingMapLayer interrupted: " + e);
-                mt.removeImage(shadingMap, 0);
-            }
-            if (!mt.isErrorID(0) )
-            	// Draw the shading image
-            	g2d.drawImage(shadingMap, 0, 0, mapPanel);
-                
-
-	        //g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0));
-            //g2d.fillRect(0, 0, width, height);
-	        //g2d.drawImage(shadingImage, 0, 0, mapPanel);
-            
+	        double sunlight = getSunlight(settlement);
+
+	        if (sunlight >= .9)
+	        	return;
+
+	        if (sunlightCache != sunlight) {
+	        	sunlightCache = sunlight;
+	        	// Below .2, a grey mask covers the settlement map, simulating the darkness of the night
+	        	int alpha = LIGHT_THRESHOLD;
+	        	if (sunlight > .2D)
+	        		alpha -= (int) (LIGHT_THRESHOLD * sunlight);
+	        	shadeCache = new Color(0, 0, 0, alpha);
+	        }
+
+	        g2d.setColor(shadeCache);
+	        g2d.fillRect(0, 0, width, height);
 		}
 
 	}
 
 	@Override
 	public void destroy() {
-	    shadingArray = null;
-	    surfaceFeatures = null;
+		shader = null;
 		mapPanel = null;
-		location = null;
 	}
-}
\ No newline at end of file
+}
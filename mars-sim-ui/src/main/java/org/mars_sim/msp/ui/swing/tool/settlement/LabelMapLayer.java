@@ -103,19 +103,32 @@ implements SettlementMapLayer {
 		double xPos, double yPos, int mapWidth, int mapHeight,
 		double rotation, double scale
 	) {
+		displayStructureLabels(g2d, settlement, xPos, yPos, mapWidth, mapHeight, rotation, scale);
+		displayUnitLabels(g2d, settlement, xPos, yPos, mapWidth, mapHeight, rotation, scale);
+	}
+
+	/**
+	 * Displays the labels of the buildings and construction sites, which only
+	 * change with them.
+	 * @param g2d the graphics context.
+	 * @param settlement the settlement to display.
+	 * @param xPos the X center position.
+	 * @param yPos the Y center position.
+	 * @param mapWidth the width of the map.
+	 * @param mapHeight the height of the map.
+	 * @param rotation the rotation (radians)
+	 * @param scale the map scale.
+	 */
+	public void displayStructureLabels(
+		Graphics2D g2d, Settlement settlement,
+		double xPos, double yPos, int mapWidth, int mapHeight,
+		double rotation, double scale
+	) {
 
 		// Save original graphics transforms.
 		AffineTransform saveTransform = g2d.getTransform();
 
-		// Get the map center point.
-		double mapCenterX = mapWidth / 2D;
-		double mapCenterY = mapHeight / 2D;
-
-		// Translate map from settlement center point.
-		g2d.translate(mapCenterX + (xPos * scale), mapCenterY + (yPos * scale));
-
-		// Rotate map from North.
-		g2d.rotate(rotation, 0D - (xPos * scale), 0D - (yPos * scale));
+		translate(g2d, xPos, yPos, mapWidth, mapHeight, rotation, scale);
 
 		// Draw all building labels.
 		if (mapPanel.isShowBuildingLabels()) {
@@ -128,6 +141,32 @@ implements SettlementMapLayer {
 			drawConstructionSiteLabels(g2d, settlement);
 		}
 
+		// Restore original graphic transforms.
+		g2d.setTransform(saveTransform);
+	}
+
+	/**
+	 * Displays the labels of the vehicles, people and robots.
+	 * @param g2d the graphics context.
+	 * @param settlement the settlement to display.
+	 * @param xPos the X center position.
+	 * @param yPos the Y center position.
+	 * @param mapWidth the width of the map.
+	 * @param mapHeight the height of the map.
+	 * @param rotation the rotation (radians)
+	 * @param scale the map scale.
+	 */
+	public void displayUnitLabels(
+		Graphics2D g2d, Settlement settlement,
+		double xPos, double yPos, int mapWidth, int mapHeight,
+		double rotation, double scale
+	) {
+
+		// Save original graphics transforms.
+		AffineTransform saveTransform = g2d.getTransform();
+
+		translate(g2d, xPos, yPos, mapWidth, mapHeight, rotation, scale);
+
 		// Draw all vehicle labels.
 		if (mapPanel.isShowVehicleLabels()) {
 			drawVehicleLabels(g2d, settlement);
@@ -143,6 +182,24 @@ implements SettlementMapLayer {
 		g2d.setTransform(saveTransform);
 	}
 
+	/**
+	 * Moves the graphics context to the settlement center point and rotates it
+	 * from North.
+	 */
+	private void translate(Graphics2D g2d, double xPos, double yPos, int mapWidth, int mapHeight,
+			double rotation, double scale) {
+
+		// Get the map center point.
+		double mapCenterX = mapWidth / 2D;
+		double mapCenterY = mapHeight / 2D;
+
+		// Translate map from settlement center point.
+		g2d.translate(mapCenterX + (xPos * scale), mapCenterY + (yPos * scale));
+
+		// Rotate map from North.
+		g2d.rotate(rotation, 0D - (xPos * scale), 0D - (yPos * scale));
+	}
+
 	/**
 	 * Draw labels for all of the buildings in the settlement.
 	 * @param g2d the graphics context.
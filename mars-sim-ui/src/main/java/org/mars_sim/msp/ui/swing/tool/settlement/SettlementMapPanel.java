@@ -6,18 +6,26 @@
  */
 package org.mars_sim.msp.ui.swing.tool.settlement;
 
+import java.awt.AlphaComposite;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.VolatileImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -27,11 +35,15 @@ import javax.swing.SwingUtilities;
 
 import org.mars_sim.msp.core.Msg;
 import org.mars_sim.msp.core.Simulation;
+import org.mars_sim.msp.core.Unit;
+import org.mars_sim.msp.core.UnitEvent;
+import org.mars_sim.msp.core.UnitListener;
 import org.mars_sim.msp.core.person.Person;
 import org.mars_sim.msp.core.robot.Robot;
 import org.mars_sim.msp.core.structure.Settlement;
 import org.mars_sim.msp.core.structure.building.Building;
 import org.mars_sim.msp.core.structure.construction.ConstructionSite;
+import org.mars_sim.msp.core.structure.construction.ConstructionStage;
 import org.mars_sim.msp.core.time.ClockListener;
 import org.mars_sim.msp.core.vehicle.Vehicle;
 import org.mars_sim.msp.ui.javafx.MainScene;
@@ -41,6 +53,11 @@ import com.alee.laf.panel.WebPanel;
 
 /**
  * A panel for displaying the settlement map.
+ * <p>
+ * The terrain, the day and night shading, the structures and their labels are
+ * drawn into an image that is kept until the view, the sunlight or the
+ * structures change. Each repaint draws that image and the units over it, and
+ * at a UI pulse only the areas of the units that moved are repainted.
  */
 public class SettlementMapPanel extends WebPanel implements ClockListener {
 
@@ -53,6 +70,10 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 	public static final double MAX_SCALE = 55D;
 	public static final double MIN_SCALE = 5D / 11D;
 	private static final Color MAP_BACKGROUND = new Color(181, 95, 0);
+	/** The width repainted to the right of a unit for its labels [pixels]. */
+	private static final int LABEL_WIDTH = 320;
+	/** The height repainted below a unit for its labels [pixels]. */
+	private static final int LABEL_HEIGHT = 64;
 
 	// Data members
 	private double xPos;
@@ -84,6 +105,21 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 	private SettlementTransparentPanel settlementTransparentPanel;
 
 	private List<SettlementMapLayer> mapLayers;
+	/** The layers drawn into the image of the static layers. */
+	private List<SettlementMapLayer> staticLayers;
+	/** The layers of the units, drawn over the image of the static layers. */
+	private List<SettlementMapLayer> unitLayers;
+	private DayNightMapLayer dayNightLayer;
+	private LabelMapLayer labelLayer;
+	/** The image of the static layers. */
+	private VolatileImage staticImage;
+	/** What the image of the static layers shows. */
+	private volatile List<Object> staticKey;
+	/** The count of building and construction changes at the settlement. */
+	private volatile int structureVersion;
+	private UnitListener structureListener;
+	/** The areas of the units at the last UI pulse. */
+	private Map<Unit, Rectangle> unitBounds;
 	private Map<Settlement, Person> selectedPerson;
 	private Map<Settlement, Robot> selectedRobot;
 
@@ -154,17 +190,22 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 	// Add initLayers()
 	public void initLayers(MainDesktopPane desktop) {
 		// Create map layers.
+		dayNightLayer = new DayNightMapLayer(this);
+		labelLayer = new LabelMapLayer(this);
+		staticLayers = Arrays.asList(new BackgroundTileMapLayer(this), dayNightLayer, new StructureMapLayer(this));
+		unitLayers = Arrays.asList(new VehicleMapLayer(this), new PersonMapLayer(this), new RobotMapLayer(this));
+
 		mapLayers = new ArrayList<SettlementMapLayer>();
-		mapLayers.add(new BackgroundTileMapLayer(this));
-		mapLayers.add(new DayNightMapLayer(this));
-		mapLayers.add(new StructureMapLayer(this));
-		mapLayers.add(new VehicleMapLayer(this));
-		mapLayers.add(new PersonMapLayer(this));
-		mapLayers.add(new RobotMapLayer(this));
-		mapLayers.add(new LabelMapLayer(this));
+		mapLayers.addAll(staticLayers);
+		mapLayers.addAll(unitLayers);
+		mapLayers.add(labelLayer);
 
 		size = mapLayers.size();
 
+		structureListener = new StructureListener();
+		if (settlement != null)
+			settlement.addUnitListener(structureListener);
+
 		// SwingUtilities.invokeLater(() -> {
 		if (desktop.getMainScene() == null)
 			settlementTransparentPanel = new SettlementTransparentPanel(desktop, this);
@@ -445,6 +486,12 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 	public synchronized void setSettlement(Settlement newSettlement) {
 		if (newSettlement != settlement) {
 
+			if (structureListener != null) {
+				if (settlement != null)
+					settlement.removeUnitListener(structureListener);
+				if (newSettlement != null)
+					newSettlement.addUnitListener(structureListener);
+			}
 			this.settlement = newSettlement;
 //			if (settlementWindow != null && settlementWindow.getMarqueeTicker() != null)
 //				settlementWindow.getMarqueeTicker().updateSettlement(newSettlement);
@@ -1115,27 +1162,220 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 		// long startTime = System.nanoTime();
 
 		// Set graphics rendering hints.
+		setRenderingHints(g2d);
+
+		if (staticLayers == null) {
+			// Display all map layers.
+			for (int i = 0; i < size; i++) {
+				mapLayers.get(i).displayLayer(g2d, settlement, building, xPos, yPos, getWidth(), getHeight(), rotation,
+						scale);
+			}
+			return;
+		}
+
+		int width = getWidth();
+		int height = getHeight();
+		if ((width <= 0) || (height <= 0))
+			return;
+
+		paintStaticLayers(g2d, width, height);
+
+		for (SettlementMapLayer layer : unitLayers) {
+			layer.displayLayer(g2d, settlement, building, xPos, yPos, width, height, rotation, scale);
+		}
+		labelLayer.displayUnitLabels(g2d, settlement, xPos, yPos, width, height, rotation, scale);
+
+		// long endTime = System.nanoTime();
+		// double timeDiff = (endTime - startTime) / 1000000D;
+		// System.out.println("SMT paint time: " + (int) timeDiff + " ms");
+
+	}
+
+	private static void setRenderingHints(Graphics2D g2d) {
 		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 		g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
 		g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+	}
 
-		// Display all map layers.
-//		Iterator<SettlementMapLayer> i = mapLayers.iterator();
-//		while (i.hasNext()) {
-//			// Add building parameter
-//			i.next().displayLayer(g2d, settlement, building, xPos, yPos, getWidth(), getHeight(), rotation, scale);
-//		}
+	/**
+	 * Draws the image of the static layers, drawing the layers into it again
+	 * first if what it shows has changed or its contents were lost.
+	 * 
+	 * @param g2d    the graphics context.
+	 * @param width  the width of the map.
+	 * @param height the height of the map.
+	 */
+	private void paintStaticLayers(Graphics2D g2d, int width, int height) {
+		List<Object> key = getStaticKey(width, height);
 
-		for (int i = 0; i < size; i++) {
-			mapLayers.get(i).displayLayer(g2d, settlement, building, xPos, yPos, getWidth(), getHeight(), rotation,
-					scale);
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if (gc == null) {
+			displayStaticLayers(g2d, width, height);
+			return;
 		}
 
-		// long endTime = System.nanoTime();
-		// double timeDiff = (endTime - startTime) / 1000000D;
-		// System.out.println("SMT paint time: " + (int) timeDiff + " ms");
+		do {
+			if ((staticImage == null) || (staticImage.getWidth() != width) || (staticImage.getHeight() != height)) {
+				createStaticImage(gc, width, height);
+			}
+			int valid = staticImage.validate(gc);
+			if (valid == VolatileImage.IMAGE_INCOMPATIBLE) {
+				createStaticImage(gc, width, height);
+			} else if (valid == VolatileImage.IMAGE_RESTORED) {
+				staticKey = null;
+			}
+
+			if (!key.equals(staticKey)) {
+				Graphics2D ig = staticImage.createGraphics();
+				try {
+					ig.setComposite(AlphaComposite.Clear);
+					ig.fillRect(0, 0, width, height);
+					ig.setComposite(AlphaComposite.SrcOver);
+					setRenderingHints(ig);
+					displayStaticLayers(ig, width, height);
+				} finally {
+					ig.dispose();
+				}
+				staticKey = key;
+
+				// Only part of the map was to be repainted, the rest shows the old image
+				Rectangle clip = g2d.getClipBounds();
+				if ((clip != null) && !clip.contains(0, 0, width, height))
+					repaint();
+			}
+
+			g2d.drawImage(staticImage, 0, 0, null);
+		} while (staticImage.contentsLost());
+	}
+
+	/**
+	 * Gets what the image of the static layers shows.
+	 */
+	private List<Object> getStaticKey(int width, int height) {
+		Settlement current = settlement;
+		return Arrays.asList(current, xPos, yPos, rotation, scale, width, height, showBuildingLabels,
+				showConstructionLabels, (showDaylightLayer && current != null) ? dayNightLayer.getSunlight(current) : null,
+				structureVersion, getConstructionState());
+	}
 
+	private void createStaticImage(GraphicsConfiguration gc, int width, int height) {
+		if (staticImage != null)
+			staticImage.flush();
+		staticImage = gc.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
+		staticKey = null;
+	}
+
+	private void displayStaticLayers(Graphics2D g2d, int width, int height) {
+		for (SettlementMapLayer layer : staticLayers) {
+			layer.displayLayer(g2d, settlement, building, xPos, yPos, width, height, rotation, scale);
+		}
+		labelLayer.displayStructureLabels(g2d, settlement, xPos, yPos, width, height, rotation, scale);
+	}
+
+	/**
+	 * Gets what is drawn of the construction sites, which change without events
+	 * as they are placed and built. This covers what the structure layer draws
+	 * and what the label of {@link LabelMapLayer#getConstructionLabel} depends on.
+	 */
+	private List<Object> getConstructionState() {
+		List<Object> result = new ArrayList<Object>();
+		Settlement current = settlement;
+		if (current != null) {
+			for (ConstructionSite site : current.getConstructionManager().getConstructionSites()) {
+				ConstructionStage stage = site.getCurrentConstructionStage();
+				result.add(site);
+				result.add(site.getXLocation());
+				result.add(site.getYLocation());
+				result.add(site.getFacing());
+				result.add(site.getWidth());
+				result.add(site.getLength());
+				result.add(site.isMousePicked());
+				result.add(site.isUndergoingConstruction());
+				result.add(site.isUndergoingSalvage());
+				result.add(site.hasUnfinishedStage());
+				result.add(stage == null ? null : stage.getInfo().getName());
+				result.add(stage == null ? null : stage.isSalvaging());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Repaints the areas of the units that moved since the last pulse, and of
+	 * the vehicles and the selected person or robot, whose looks and labels
+	 * change in place. All is repainted when units come or go.
+	 */
+	private void repaintUnits() {
+		Settlement current = settlement;
+		if ((unitLayers == null) || (current == null) || !getStaticKey(getWidth(), getHeight()).equals(staticKey)) {
+			repaint();
+			return;
+		}
+
+		AffineTransform transform = new AffineTransform();
+		transform.translate(getWidth() / 2D + (xPos * scale), getHeight() / 2D + (yPos * scale));
+		transform.rotate(rotation, 0D - (xPos * scale), 0D - (yPos * scale));
+
+		Map<Unit, Rectangle> bounds = new HashMap<Unit, Rectangle>();
+		List<Rectangle> alwaysDirty = new ArrayList<Rectangle>();
+		int iconExtent = (int) (scale / 2.5D) + 8;
+
+		Person selected = getSelectedPerson();
+		for (Person person : PersonMapLayer.getPeopleToDisplay(current)) {
+			Rectangle r = getUnitArea(transform, person.getXLocation(), person.getYLocation(), iconExtent,
+					showPersonLabels || person.equals(selected));
+			bounds.put(person, r);
+			if (person.equals(selected))
+				alwaysDirty.add(r);
+		}
+
+		Robot selectedBot = getSelectedRobot();
+		for (Robot robot : RobotMapLayer.getRobotsToDisplay(current)) {
+			Rectangle r = getUnitArea(transform, robot.getXLocation(), robot.getYLocation(), iconExtent,
+					showRobotLabels || robot.equals(selectedBot));
+			bounds.put(robot, r);
+			if (robot.equals(selectedBot))
+				alwaysDirty.add(r);
+		}
+
+		for (Vehicle vehicle : Simulation.instance().getUnitManager().getVehicles()) {
+			if (vehicle.getCoordinates().equals(current.getCoordinates())) {
+				int extent = (int) (Math.hypot(vehicle.getWidth(), vehicle.getLength()) * scale / 2D) + 8;
+				Rectangle r = getUnitArea(transform, vehicle.getXLocation(), vehicle.getYLocation(), extent,
+						showVehicleLabels);
+				bounds.put(vehicle, r);
+				alwaysDirty.add(r);
+			}
+		}
+
+		Map<Unit, Rectangle> last = unitBounds;
+		unitBounds = bounds;
+		if ((last == null) || !last.keySet().equals(bounds.keySet())) {
+			repaint();
+			return;
+		}
+
+		for (Map.Entry<Unit, Rectangle> e : bounds.entrySet()) {
+			Rectangle before = last.get(e.getKey());
+			if (!before.equals(e.getValue()))
+				repaint(before.union(e.getValue()));
+		}
+		for (Rectangle r : alwaysDirty) {
+			repaint(r);
+		}
+	}
+
+	/**
+	 * Gets the area of the map a unit and its labels are drawn in.
+	 */
+	private Rectangle getUnitArea(AffineTransform transform, double x, double y, int extent, boolean labels) {
+		Point2D center = transform.transform(new Point2D.Double(-x * scale, -y * scale), null);
+		int left = (int) center.getX() - extent;
+		int top = (int) center.getY() - extent;
+		int width = 2 * extent + (labels ? LABEL_WIDTH : 0);
+		int height = 2 * extent + (labels ? LABEL_HEIGHT : 0);
+		return new Rectangle(left, top, width, height);
 	}
 
 	public SettlementTransparentPanel getSettlementTransparentPanel() {
@@ -1158,14 +1398,14 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 //				if (timeCache > PERIOD_IN_MILLISOLS * time) {
 //					System.out.println(masterClock.getTimeRatio() + " : " + Math.round(PERIOD_IN_MILLISOLS * time*100.0)/100.0);
 				// Repaint map panel
-				repaint();
+				repaintUnits();
 //					timeCache = 0;
 //				}	
 			}
 		} else if (desktop.isToolWindowOpen(SettlementWindow.NAME)) {
 //			timeCache += time;
 //			if (timeCache > PERIOD_IN_MILLISOLS * time) {
-			repaint();
+			repaintUnits();
 //				timeCache = 0;
 //			}
 		}
@@ -1184,6 +1424,14 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 		// Remove clock listener.
 		Simulation.instance().getMasterClock().removeClockListener(this);
 
+		if ((settlement != null) && (structureListener != null))
+			settlement.removeUnitListener(structureListener);
+		structureListener = null;
+		if (staticImage != null) {
+			staticImage.flush();
+			staticImage = null;
+		}
+
 		menu = null;
 		settlement = null;
 		selectedPerson = null;
@@ -1197,6 +1445,9 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 		}
 
 		mapLayers = null;
+		staticLayers = null;
+		unitLayers = null;
+		unitBounds = null;
 		selectedRobot = null;
 		mainScene = null;
 		building = null;
@@ -1204,4 +1455,25 @@ public class SettlementMapPanel extends WebPanel implements ClockListener {
 
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Redraws the static layers when buildings or construction sites are added
+	 * or removed.
+	 */
+	private class StructureListener implements UnitListener {
+
+		public void unitUpdate(UnitEvent event) {
+			switch (event.getType()) {
+			case ADD_BUILDING_EVENT:
+			case REMOVE_BUILDING_EVENT:
+			case START_CONSTRUCTION_SITE_EVENT:
+			case FINISH_CONSTRUCTION_BUILDING_EVENT:
+			case FINISH_CONSTRUCTION_SALVAGE_EVENT:
+				structureVersion++;
+				repaint();
+				break;
+			default:
+				break;
+			}
+		}
+	}
+}